@@ -0,0 +1,212 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package bench;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import net.daporkchop.lib.binary.stream.DataIn;
+import net.daporkchop.lib.compression.context.PDeflater;
+import net.daporkchop.lib.compression.context.PInflater;
+import net.daporkchop.lib.compression.zlib.Zlib;
+import net.daporkchop.lib.compression.zlib.ZlibMode;
+import net.daporkchop.lib.nbt.NBTFormat;
+import net.daporkchop.lib.nbt.tag.CompoundTag;
+import net.daporkchop.mcworldlib.format.anvil.AnvilSave;
+import net.daporkchop.mcworldlib.format.anvil.AnvilSaveFormat;
+import net.daporkchop.mcworldlib.format.anvil.storage.AnvilCachedChunk;
+import net.daporkchop.mcworldlib.format.java.JavaFixers;
+import net.daporkchop.mcworldlib.save.Save;
+import net.daporkchop.mcworldlib.save.SaveOptions;
+import net.daporkchop.mcworldlib.util.Identifier;
+import net.daporkchop.mcworldlib.util.WriteAccess;
+import net.daporkchop.mcworldlib.util.nbt.AllocatedNBTHelper;
+import net.daporkchop.mcworldlib.version.java.DataVersion;
+import net.daporkchop.mcworldlib.version.java.JavaVersion;
+import net.daporkchop.mcworldlib.world.Chunk;
+import net.daporkchop.mcworldlib.world.World;
+import net.daporkchop.mcworldlib.world.section.Section;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Measures the throughput of the chunk write path, in chunks per second.
+ * <p>
+ * Chunks are loaded from an existing world ({@code -p world=<path>}) up front. {@link #encode()} measures encoding a chunk and compressing it as it
+ * would be stored in a region file, {@link #roundTrip()} additionally decompresses and decodes the result again.
+ *
+ * @author DaPorkchop_
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ChunkRoundTripBenchmark {
+    public static void main(String... args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ChunkRoundTripBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Param({ "" })
+    public String world;
+
+    /**
+     * The radius (in chunks) of the area around (0, 0) to load chunks from.
+     */
+    @Param({ "8" })
+    public int radius;
+
+    protected Save save;
+    protected World dimension;
+    protected JavaFixers fixers;
+
+    protected final List<Chunk> chunks = new ArrayList<>();
+    protected final List<Section[]> sections = new ArrayList<>();
+    protected int index;
+
+    protected PDeflater deflater;
+    protected PInflater inflater;
+
+    @Setup
+    public void setup() throws IOException {
+        checkState(!this.world.isEmpty(), "a world must be given using -p world=<path>");
+
+        this.save = new AnvilSaveFormat().open(new File(this.world), SaveOptions.DEFAULT.clone()
+                .set(SaveOptions.ACCESS, WriteAccess.READ_ONLY)
+                .build());
+        this.dimension = this.save.world(Identifier.fromString("minecraft:overworld"));
+        this.fixers = JavaFixers.defaultFixers();
+
+        for (int x = -this.radius; x < this.radius; x++) {
+            for (int z = -this.radius; z < this.radius; z++) {
+                Chunk chunk = this.dimension.storage().loadChunk(x, z);
+                if (chunk != null) {
+                    Section[] sections = new Section[16];
+                    for (int y = 0; y < 16; y++) {
+                        sections[y] = this.dimension.storage().loadSection(x, y, z);
+                    }
+                    this.chunks.add(chunk);
+                    this.sections.add(sections);
+                }
+            }
+        }
+        checkState(!this.chunks.isEmpty(), "no chunks found within %d chunks of (0, 0)", this.radius);
+
+        this.deflater = Zlib.PROVIDER.deflater(Zlib.PROVIDER.deflateOptions().withMode(ZlibMode.ZLIB));
+        this.inflater = Zlib.PROVIDER.inflater(Zlib.PROVIDER.inflateOptions().withMode(ZlibMode.ZLIB));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        this.deflater.close();
+        this.inflater.close();
+
+        this.chunks.forEach(Chunk::release);
+        for (Section[] sections : this.sections) {
+            for (Section section : sections) {
+                if (section != null) {
+                    section.release();
+                }
+            }
+        }
+        this.chunks.clear();
+        this.sections.clear();
+
+        this.dimension.close();
+        this.save.close();
+    }
+
+    protected ByteBuf encodeNext() {
+        int i = this.index;
+        this.index = (i + 1) % this.chunks.size();
+
+        Chunk chunk = this.chunks.get(i);
+        JavaVersion version = (JavaVersion) chunk.version();
+        ByteBuf uncompressed = PooledByteBufAllocator.DEFAULT.ioBuffer(1 << 18);
+        try {
+            this.fixers.chunkEncoder().ceilingEntry(version).getValue()
+                    .encode(chunk, this.sections.get(i), version, this.fixers.sectionEncoder().ceilingEntry(version).getValue(), uncompressed);
+
+            ByteBuf compressed = PooledByteBufAllocator.DEFAULT.ioBuffer(uncompressed.readableBytes() + (uncompressed.readableBytes() >> 8) + 64);
+            this.deflater.compress(uncompressed, compressed);
+            return compressed;
+        } finally {
+            uncompressed.release();
+        }
+    }
+
+    @Benchmark
+    public int encode() {
+        ByteBuf compressed = this.encodeNext();
+        try {
+            return compressed.readableBytes();
+        } finally {
+            compressed.release();
+        }
+    }
+
+    @Benchmark
+    public Object roundTrip() throws IOException {
+        ByteBuf uncompressed = PooledByteBufAllocator.DEFAULT.ioBuffer(1 << 18);
+        try {
+            ByteBuf compressed = this.encodeNext();
+            try {
+                this.inflater.decompress(compressed, uncompressed);
+            } finally {
+                compressed.release();
+            }
+
+            CompoundTag tag = NBTFormat.BIG_ENDIAN.readCompound(DataIn.wrap(uncompressed, false), ((AnvilSave) this.save).chunkNBTOptions());
+            try {
+                int dataVersion = tag.getInt("DataVersion", 0);
+                JavaVersion version = dataVersion < DataVersion.DATA_15w32a ? JavaVersion.pre15w32a() : JavaVersion.fromDataVersion(dataVersion);
+                AnvilCachedChunk decoded = new AnvilCachedChunk.ReadOnly(tag, version, this.fixers, this.dimension);
+                decoded.release();
+                return decoded;
+            } finally {
+                AllocatedNBTHelper.release(tag);
+            }
+        } finally {
+            uncompressed.release();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package bench;
+
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.AbstractHeapFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.HeapPackedFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.HeapPaddedFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.util.Identifier;
+import net.daporkchop.mcworldlib.world.storage.BlockStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares per-block access to a flattened block storage against the bulk getters.
+ *
+ * @author DaPorkchop_
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FlattenedBlockStorageBenchmark {
+    public static void main(String... args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FlattenedBlockStorageBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Param({ "packed", "padded" })
+    public String layout;
+
+    @Param({ "16", "24", "48", "256" })
+    public int states;
+
+    protected AbstractHeapFlattenedBlockStorage storage;
+    protected final int[] ids = new int[BlockStorage.NUM_BLOCKS];
+    protected final BlockState[] blockStates = new BlockState[BlockStorage.NUM_BLOCKS];
+
+    @Setup
+    public void setup() {
+        BlockState[] palette = new BlockState[this.states];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = BlockState.of(Identifier.fromString("bench:block_" + i), Collections.emptyMap());
+        }
+
+        this.storage = "packed".equals(this.layout) ? new HeapPackedFlattenedBlockStorage() : new HeapPaddedFlattenedBlockStorage();
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    this.storage.setBlockState(x, y, z, palette[r.nextInt(palette.length)]);
+                }
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.storage.release();
+    }
+
+    @Benchmark
+    public void perBlock(Blackhole bh) {
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    bh.consume(this.storage.getBlockState(x, y, z));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public int[] bulkPaletteIds() {
+        this.storage.getPaletteIds(this.ids);
+        return this.ids;
+    }
+
+    @Benchmark
+    public BlockState[] bulkBlockStates() {
+        this.storage.getBlockStates(this.blockStates);
+        return this.blockStates;
+    }
+}
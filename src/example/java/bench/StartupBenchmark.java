@@ -0,0 +1,98 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package bench;
+
+import net.daporkchop.mcworldlib.block.java.JavaBlockRegistry;
+import net.daporkchop.mcworldlib.format.anvil.AnvilSaveFormat;
+import net.daporkchop.mcworldlib.registry.java.JavaRegistries;
+import net.daporkchop.mcworldlib.save.Save;
+import net.daporkchop.mcworldlib.save.SaveOptions;
+import net.daporkchop.mcworldlib.util.Identifier;
+import net.daporkchop.mcworldlib.util.WriteAccess;
+import net.daporkchop.mcworldlib.version.java.JavaVersion;
+import net.daporkchop.mcworldlib.world.Chunk;
+import net.daporkchop.mcworldlib.world.World;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cold start time of a short-lived job: loading the registries and block state table for a version, and decoding the first chunk.
+ * <p>
+ * Every measurement runs in a fresh JVM. Set the {@code world} parameter ({@code -p world=<path>}) to additionally open a save and decode the
+ * chunk at (0, 0).
+ *
+ * @author DaPorkchop_
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+    public static void main(String... args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(StartupBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Param({ "1.12.2", "1.15.2", "1.16.1" })
+    public String version;
+
+    @Param({ "" })
+    public String world;
+
+    @Benchmark
+    public Object forVersion() {
+        JavaVersion version = JavaVersion.fromName(this.version);
+        JavaRegistries.forVersion(version).get(Identifier.fromString("minecraft:block"));
+        return JavaBlockRegistry.forVersion(version);
+    }
+
+    @Benchmark
+    public Object forVersionAndFirstChunk() throws IOException {
+        Object registry = this.forVersion();
+        if (this.world.isEmpty()) {
+            return registry;
+        }
+
+        try (Save save = new AnvilSaveFormat().open(new File(this.world), SaveOptions.DEFAULT.clone()
+                .set(SaveOptions.ACCESS, WriteAccess.READ_ONLY)
+                .build());
+             World world = save.world(Identifier.fromString("minecraft:overworld"));
+             Chunk chunk = world.storage().loadChunk(0, 0)) {
+            return chunk;
+        }
+    }
+}
@@ -37,9 +37,11 @@ import net.daporkchop.mcworldlib.save.Save;
 import net.daporkchop.mcworldlib.save.SaveOptions;
 import net.daporkchop.mcworldlib.util.Identifier;
 import net.daporkchop.mcworldlib.util.WriteAccess;
+import net.daporkchop.mcworldlib.world.HeightmapType;
 import net.daporkchop.mcworldlib.world.World;
 import net.daporkchop.mcworldlib.world.section.FlattenedSection;
 import net.daporkchop.mcworldlib.world.section.LegacySection;
+import net.daporkchop.mcworldlib.world.section.Section;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
@@ -112,6 +114,7 @@ public class Mapper {
 
         Map<Vec2i, BufferedImage> chunks = new HashMap<>();
         Map<Vec3i, BufferedImage> sections = new HashMap<>();
+        Map<Vec2i, int[]> heightmaps = new HashMap<>(); //collected while iterating chunks, so that the chunk doesn't have to be loaded again for every section
 
         try (Save save = new AnvilSaveFormat().open(path, SAVE_OPTIONS)) {
             System.out.printf("save version: %s (w. %d registries)\n", save.version(), save.version().registries().size());
@@ -122,6 +125,11 @@ public class Mapper {
                             BufferedImage img = chunks.computeIfAbsent(new Vec2i(chunk.x() >> 8, chunk.z() >> 8),
                                     pos -> new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB));
                             img.setRGB(chunk.x() & 0xFF, chunk.z() & 0xFF, 0xFFFFFFFF);
+
+                            int[] heightmap = chunk.heightmap(HeightmapType.WORLD_SURFACE);
+                            if (heightmap != null) {
+                                heightmaps.put(new Vec2i(chunk.x(), chunk.z()), heightmap);
+                            }
                         })
                         .count());
 
@@ -131,9 +139,10 @@ public class Mapper {
                                     pos -> new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB));
                             if (section instanceof LegacySection) {
                                 LegacySection s = (LegacySection) section;
+                                int[] heightmap = heightmaps.get(new Vec2i(section.x(), section.z()));
                                 for (int x = 0; x < 16; x++) {
                                     for (int z = 0; z < 16; z++) {
-                                        for (int y = 15; y >= 0; y--) {
+                                        for (int y = topY(heightmap, section, x, z); y >= 0; y--) {
                                             int id = s.getBlockLegacyId(x, y, z);
                                             if (id != 0) {
                                                 int color = 0xFF000000 | mix32(id); //generate random color based on block ID
@@ -146,9 +155,10 @@ public class Mapper {
                             } else if (section instanceof FlattenedSection) {
                                 FlattenedSection s = (FlattenedSection) section;
                                 Registry registry = s.version().registries().block();
+                                int[] heightmap = heightmaps.get(new Vec2i(section.x(), section.z()));
                                 for (int x = 0; x < 16; x++) {
                                     for (int z = 0; z < 16; z++) {
-                                        for (int y = 15; y >= 0; y--) {
+                                        for (int y = topY(heightmap, section, x, z); y >= 0; y--) {
                                             int id = registry.get(s.getBlockState(x, y, z).id());
                                             if (id != 0) {
                                                 int color = 0xFF000000 | mix32(id); //generate random color based on block ID
@@ -183,4 +193,9 @@ public class Mapper {
             }
         });
     }
+
+    private static int topY(int[] heightmap, @NonNull Section section, int x, int z) {
+        //everything above the world surface is air, so there's no need to scan it
+        return heightmap != null ? Math.min(heightmap[(z << 4) | x] - 1 - (section.y() << 4), 15) : 15;
+    }
 }
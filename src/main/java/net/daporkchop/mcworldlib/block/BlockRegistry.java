@@ -0,0 +1,94 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.block;
+
+import lombok.NonNull;
+import net.daporkchop.mcworldlib.util.Identifier;
+import net.daporkchop.mcworldlib.version.MinecraftVersion;
+
+/**
+ * A registry of all of the {@link BlockState}s known to a specific version of the game.
+ * <p>
+ * Every state is assigned a dense runtime ID in range {@code [0, states())}, which allows block data to be processed using {@code int[]} or
+ * {@link java.util.BitSet} lookups instead of object maps.
+ *
+ * @author DaPorkchop_
+ */
+public interface BlockRegistry {
+    /**
+     * @return the version of the game which this registry contains the block states of
+     */
+    MinecraftVersion version();
+
+    /**
+     * @return the number of distinct blocks in this registry
+     */
+    int blocks();
+
+    /**
+     * @return the number of distinct block states in this registry
+     */
+    int states();
+
+    /**
+     * Gets the runtime ID of the given block state.
+     *
+     * @param state the block state
+     * @return the runtime ID, or {@code -1} if the given state is not known to this registry
+     */
+    int stateToId(@NonNull BlockState state);
+
+    /**
+     * Gets the block state with the given runtime ID.
+     *
+     * @param id the runtime ID
+     * @return the block state
+     * @throws IndexOutOfBoundsException if the given runtime ID is not in range {@code [0, states())}
+     */
+    BlockState idToState(int id);
+
+    /**
+     * Checks whether or not this registry contains the given block state.
+     *
+     * @param state the block state
+     * @return whether or not this registry contains the given block state
+     */
+    default boolean containsState(@NonNull BlockState state) {
+        return this.stateToId(state) >= 0;
+    }
+
+    /**
+     * Checks whether or not this registry contains the block with the given ID.
+     *
+     * @param block the ID of the block
+     * @return whether or not this registry contains the block
+     */
+    boolean containsBlock(@NonNull Identifier block);
+
+    /**
+     * Gets the default state of the block with the given ID.
+     *
+     * @param block the ID of the block
+     * @return the block's default state
+     * @throws IllegalArgumentException if the block is not known to this registry
+     */
+    BlockState defaultState(@NonNull Identifier block);
+}
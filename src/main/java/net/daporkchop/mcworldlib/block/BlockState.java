@@ -27,9 +27,11 @@ import net.daporkchop.lib.common.pool.handle.Handle;
 import net.daporkchop.lib.common.util.PorkUtil;
 import net.daporkchop.mcworldlib.util.Identifier;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import static net.daporkchop.lib.common.math.PMath.*;
@@ -40,6 +42,13 @@ import static net.daporkchop.lib.common.math.PMath.*;
 @Getter
 public final class BlockState {
     private static final Map<Tuple<Identifier, Map<String, String>>, BlockState> VALUES = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_INDEX = new AtomicInteger();
+    private static volatile BlockState[] BY_INDEX = new BlockState[1024];
+
+    /**
+     * The {@link BlockState} of {@code minecraft:air} with no properties.
+     */
+    public static final BlockState AIR = of(Identifier.fromString("minecraft:air"), Collections.emptyMap());
 
     public static BlockState of(@NonNull Identifier id, @NonNull Map<String, String> properties) {
         BlockState state = VALUES.get(new Tuple<>(id, properties));
@@ -52,14 +61,53 @@ public final class BlockState {
                         .collect(Collectors.toMap(e -> e.getKey().intern(), e -> e.getValue().intern()));
                 state = new BlockState(id, properties);
             }
-            state = PorkUtil.fallbackIfNull(VALUES.putIfAbsent(new Tuple<>(id, properties), state), state);
+            BlockState existing = VALUES.putIfAbsent(new Tuple<>(id, properties), state);
+            if (existing != null) { //another thread registered the same state first, its index is simply never used
+                return existing;
+            }
+            register(state);
         }
         return state;
     }
 
+    private static synchronized void register(@NonNull BlockState state) {
+        BlockState[] byIndex = BY_INDEX;
+        if (state.index >= byIndex.length) {
+            byIndex = Arrays.copyOf(byIndex, Math.max(byIndex.length << 1, state.index + 1));
+        }
+        byIndex[state.index] = state;
+        BY_INDEX = byIndex; //always write the volatile field to publish the new entry
+    }
+
+    /**
+     * Gets the {@link BlockState} with the given {@link #index()}.
+     *
+     * @param index the index
+     * @return the {@link BlockState} with the given index, or {@code null} if there is none
+     */
+    public static BlockState byIndex(int index) {
+        BlockState[] byIndex = BY_INDEX;
+        return index >= 0 && index < byIndex.length ? byIndex[index] : null;
+    }
+
+    /**
+     * @return an upper bound on the {@link #index()} of every {@link BlockState} created so far (exclusive)
+     */
+    public static int indexLimit() {
+        return NEXT_INDEX.get();
+    }
+
     protected final Identifier id;
     protected final Map<String, String> properties;
 
+    /**
+     * A small, unique integer assigned to this state when it is first created.
+     * <p>
+     * Indices are only valid for the lifetime of the JVM, and are not guaranteed to be contiguous. They are intended to be used for indexing into
+     * arrays rather than looking states up in an object map (see {@link BlockRegistry}).
+     */
+    private final transient int index = NEXT_INDEX.getAndIncrement();
+
     private final transient String toString;
     private final transient int hashCode;
 
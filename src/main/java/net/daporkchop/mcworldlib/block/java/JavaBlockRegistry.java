@@ -0,0 +1,275 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.block.java;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+import lombok.Getter;
+import lombok.NonNull;
+import net.daporkchop.lib.common.function.io.IOFunction;
+import net.daporkchop.lib.primitive.map.concurrent.ObjObjConcurrentHashMap;
+import net.daporkchop.mcworldlib.block.BlockRegistry;
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.util.CompactResources;
+import net.daporkchop.mcworldlib.util.Identifier;
+import net.daporkchop.mcworldlib.util.Util;
+import net.daporkchop.mcworldlib.version.java.JavaVersion;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * A {@link BlockRegistry} for Java edition, loaded from the block state tables bundled with the library.
+ * <p>
+ * Runtime IDs are assigned in order of the IDs in the tables. For flattened versions (1.13+) the tables' IDs are already dense, so a state's runtime
+ * ID is identical to its ID in the vanilla global palette. For 1.12.2, the tables' IDs are legacy combined IDs ({@code (id << 4) | meta}), which
+ * are shared by all states which only differ in properties that aren't stored in the metadata.
+ *
+ * @author DaPorkchop_
+ */
+public final class JavaBlockRegistry implements BlockRegistry {
+    private static final Map<String, JavaBlockRegistry> CACHE = new ObjObjConcurrentHashMap<>(); //this has a faster computeIfAbsent implementation
+
+    /**
+     * The names of all versions with a bundled block state table, sorted from oldest to newest.
+     */
+    private static final String[] TABLES = {
+            "1.12.2",
+            "1.13", "1.13.1", "1.13.2",
+            "1.14", "1.14.1", "1.14.2", "1.14.3", "1.14.4",
+            "1.15", "1.15.1", "1.15.2",
+            "1.16", "1.16.1"
+    };
+
+    /**
+     * Gets the {@link BlockRegistry} for the given version.
+     * <p>
+     * If there is no table for the exact version, the table for the newest version which is not newer than the given version is used instead. As
+     * with {@link net.daporkchop.mcworldlib.registry.java.JavaRegistries}, 1.12.2 is used for all versions prior to it.
+     *
+     * @param versionIn the version
+     * @return the {@link JavaBlockRegistry}
+     */
+    public static JavaBlockRegistry forVersion(@NonNull JavaVersion versionIn) {
+        String table = TABLES[0];
+        for (String candidate : TABLES) {
+            if (JavaVersion.fromName(candidate).data() <= versionIn.data()) {
+                table = candidate;
+            }
+        }
+
+        return CACHE.computeIfAbsent(table, (IOFunction<String, JavaBlockRegistry>) version -> {
+            byte[] compact = CompactResources.load(JavaBlockRegistry.class, version + ".bin");
+            return new JavaBlockRegistry(JavaVersion.fromName(version), compact != null ? fromCompact(compact) : fromJson(version));
+        });
+    }
+
+    private static List<Entry> fromJson(@NonNull String version) {
+        Map<String, JsonBlock> map = Util.parseJson(JavaBlockRegistry.class, new TypeReference<Map<String, JsonBlock>>() {}, version + ".json");
+
+        List<Entry> entries = new ArrayList<>();
+        map.forEach((name, block) -> {
+            Identifier id = Identifier.fromString(name);
+            for (JsonState state : block.states) {
+                entries.add(new Entry(BlockState.of(id, state.properties != null ? state.properties : Collections.emptyMap()), state.id, state.def, state.virtual));
+            }
+        });
+        return entries;
+    }
+
+    private static List<Entry> fromCompact(@NonNull byte[] compact) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(compact));
+        String[] strings = CompactResources.readHeader(in, CompactResources.MAGIC_BLOCKS);
+
+        List<Entry> entries = new ArrayList<>();
+        Map<String, String> properties = new HashMap<>();
+        for (int block = 0, blockCount = in.readInt(); block < blockCount; block++) {
+            Identifier id = Identifier.fromString(strings[in.readInt()]);
+            for (int state = 0, stateCount = in.readInt(); state < stateCount; state++) {
+                int tableId = in.readInt();
+                int flags = in.readUnsignedByte();
+
+                properties.clear(); //BlockState.of copies the map, so we can reuse it
+                for (int property = 0, propertyCount = in.readInt(); property < propertyCount; property++) {
+                    properties.put(strings[in.readInt()], strings[in.readInt()]);
+                }
+                entries.add(new Entry(BlockState.of(id, properties), tableId,
+                        (flags & CompactResources.FLAG_DEFAULT) != 0, (flags & CompactResources.FLAG_VIRTUAL) != 0));
+            }
+        }
+        return entries;
+    }
+
+    @Getter
+    private final JavaVersion version;
+
+    private final BlockState[] states;
+    private final int[] tableIds;
+    private final BitSet virtual = new BitSet();
+    private final int[] runtimeIds; //indexed by BlockState#index()
+    private final Map<Identifier, BlockState> defaultStates = new HashMap<>();
+
+    private JavaBlockRegistry(@NonNull JavaVersion version, @NonNull List<Entry> entries) {
+        this.version = version;
+
+        for (Entry entry : entries) {
+            if (entry.def) {
+                checkState(this.defaultStates.putIfAbsent(entry.state.id(), entry.state) == null, "block %s has multiple default states", entry.state.id());
+            }
+        }
+        for (Entry entry : entries) {
+            checkState(this.defaultStates.containsKey(entry.state.id()), "block %s has no default state", entry.state.id());
+        }
+        entries.sort(Comparator.comparingInt(entry -> entry.tableId)); //stable, so states with identical table IDs keep their relative order
+
+        int size = entries.size();
+        this.states = new BlockState[size];
+        this.tableIds = new int[size];
+        int maxIndex = -1;
+        for (int i = 0; i < size; i++) {
+            Entry entry = entries.get(i);
+            this.states[i] = entry.state;
+            this.tableIds[i] = entry.tableId;
+            if (entry.virtual) {
+                this.virtual.set(i);
+            }
+            maxIndex = Math.max(maxIndex, entry.state.index());
+        }
+
+        this.runtimeIds = new int[maxIndex + 1];
+        Arrays.fill(this.runtimeIds, -1);
+        for (int i = 0; i < size; i++) {
+            int index = this.states[i].index();
+            checkState(this.runtimeIds[index] < 0, "duplicate block state: %s", this.states[i]);
+            this.runtimeIds[index] = i;
+        }
+    }
+
+    @Override
+    public int blocks() {
+        return this.defaultStates.size();
+    }
+
+    @Override
+    public int states() {
+        return this.states.length;
+    }
+
+    @Override
+    public int stateToId(@NonNull BlockState state) {
+        int index = state.index();
+        return index < this.runtimeIds.length ? this.runtimeIds[index] : -1; //states created after this registry can't possibly be in it
+    }
+
+    @Override
+    public BlockState idToState(int id) {
+        return this.states[id];
+    }
+
+    /**
+     * Gets the ID which the block state with the given runtime ID has in the bundled table.
+     * <p>
+     * For flattened versions, this is identical to the runtime ID. For 1.12.2, this is the legacy combined ID.
+     *
+     * @param id the runtime ID
+     * @return the table ID
+     */
+    public int tableId(int id) {
+        return this.tableIds[id];
+    }
+
+    /**
+     * Checks whether or not the block state with the given runtime ID is virtual.
+     * <p>
+     * Virtual states only exist in 1.12.2, and are states whose properties aren't stored in the world (such as the connections of a fence), and
+     * are instead computed from the surrounding blocks or a tile entity. They share their table ID with the state that is actually stored.
+     *
+     * @param id the runtime ID
+     * @return whether or not the state is virtual
+     */
+    public boolean isVirtual(int id) {
+        checkIndex(id >= 0 && id < this.states.length, "id");
+        return this.virtual.get(id);
+    }
+
+    @Override
+    public boolean containsBlock(@NonNull Identifier block) {
+        return this.defaultStates.containsKey(block);
+    }
+
+    @Override
+    public BlockState defaultState(@NonNull Identifier block) {
+        BlockState state = this.defaultStates.get(block);
+        checkArg(state != null, "unknown block: %s", block);
+        return state;
+    }
+
+    private static final class Entry {
+        private final BlockState state;
+        private final int tableId;
+        private final boolean def;
+        private final boolean virtual;
+
+        public Entry(@NonNull BlockState state, int tableId, boolean def, boolean virtual) {
+            this.state = state;
+            this.tableId = tableId;
+            this.def = def;
+            this.virtual = virtual;
+        }
+    }
+
+    private static class JsonBlock {
+        public final List<JsonState> states;
+
+        @JsonCreator
+        public JsonBlock(@JsonProperty("properties") Map<String, List<String>> properties, @JsonProperty("states") List<JsonState> states) {
+            this.states = states;
+        }
+    }
+
+    private static class JsonState {
+        public final Map<String, String> properties;
+        public final int id;
+        public final boolean def;
+        public final boolean virtual;
+
+        @JsonCreator
+        public JsonState(@JsonProperty("properties") Map<String, String> properties, @JsonProperty("id") int id, @JsonProperty("default") boolean def,
+                         @JsonProperty("virtual") boolean virtual) {
+            this.properties = properties;
+            this.id = id;
+            this.def = def;
+            this.virtual = virtual;
+        }
+    }
+}
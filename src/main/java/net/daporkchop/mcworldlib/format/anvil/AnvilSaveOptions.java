@@ -42,4 +42,5 @@ public class AnvilSaveOptions {
 
     public static final SaveOptions.Key<Integer> CHUNK_CACHE_SIZE = VanillaSaveOptions.CHUNK_CACHE_SIZE;
     public static final SaveOptions.Key<Long> MAX_CHUNK_CACHE_TIME = VanillaSaveOptions.MAX_CHUNK_CACHE_TIME;
+    public static final SaveOptions.Key<Long> OFFHEAP_CACHE_SIZE = VanillaSaveOptions.OFFHEAP_CACHE_SIZE;
 }
@@ -21,11 +21,17 @@
 package net.daporkchop.mcworldlib.format.anvil.decoder.chunk;
 
 import lombok.NonNull;
+import net.daporkchop.lib.nbt.tag.CompoundTag;
+import net.daporkchop.mcworldlib.format.vanilla.VanillaChunk;
+import net.daporkchop.mcworldlib.format.vanilla.VanillaHeightmaps;
 import net.daporkchop.mcworldlib.save.SaveOptions;
+import net.daporkchop.mcworldlib.util.nbt.AllocatedLongArrayTag;
+import net.daporkchop.mcworldlib.util.nbt.SlicedLongArrayTag;
+import net.daporkchop.mcworldlib.version.java.DataVersion;
 import net.daporkchop.mcworldlib.version.java.JavaVersion;
 import net.daporkchop.mcworldlib.world.Chunk;
+import net.daporkchop.mcworldlib.world.HeightmapType;
 import net.daporkchop.mcworldlib.world.World;
-import net.daporkchop.lib.nbt.tag.CompoundTag;
 
 /**
  * Codec for serialization of chunks in the post-flattening format.
@@ -39,4 +45,25 @@ public class FlattenedChunkDecoder extends LegacyChunkDecoder {
     public Chunk decode(@NonNull CompoundTag tag, @NonNull JavaVersion version, @NonNull World world) {
         return super.decode(tag, version, world);
     }
+
+    @Override
+    protected void parseHeightmaps(@NonNull CompoundTag level, @NonNull JavaVersion version, @NonNull VanillaChunk chunk) {
+        CompoundTag heightmapsTag = level.getCompound("Heightmaps", null);
+        if (heightmapsTag != null) {
+            boolean padded = version.data() >= DataVersion.DATA_1_16;
+            heightmapsTag.forEach((name, heightmapTag) -> {
+                HeightmapType type = HeightmapType.fromName(name);
+                if (type != null && heightmapTag instanceof AllocatedLongArrayTag) {
+                    AllocatedLongArrayTag longArrayTag = (AllocatedLongArrayTag) heightmapTag;
+                    chunk.heightmap(type, VanillaHeightmaps.decodePacked(longArrayTag.value(), longArrayTag.length(), padded));
+                } else if (type != null && heightmapTag instanceof SlicedLongArrayTag) {
+                    //the tag is still released along with the rest of the chunk, so we can't use toArrayAndRelease() here
+                    SlicedLongArrayTag longArrayTag = (SlicedLongArrayTag) heightmapTag;
+                    long[] value = new long[longArrayTag.length()];
+                    longArrayTag.getLongs(value, 0);
+                    chunk.heightmap(type, VanillaHeightmaps.decodePacked(value, value.length, padded));
+                }
+            });
+        }
+    }
 }
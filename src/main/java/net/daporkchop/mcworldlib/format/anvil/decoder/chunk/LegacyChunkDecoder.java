@@ -23,11 +23,22 @@ package net.daporkchop.mcworldlib.format.anvil.decoder.chunk;
 import lombok.NonNull;
 import net.daporkchop.mcworldlib.format.java.decoder.JavaChunkDecoder;
 import net.daporkchop.mcworldlib.format.vanilla.VanillaChunk;
+import net.daporkchop.mcworldlib.format.vanilla.VanillaHeightmaps;
 import net.daporkchop.mcworldlib.save.SaveOptions;
+import net.daporkchop.mcworldlib.util.nbt.AllocatedIntArrayTag;
+import net.daporkchop.mcworldlib.util.nbt.AllocatedNBTHelper;
 import net.daporkchop.mcworldlib.version.java.JavaVersion;
 import net.daporkchop.mcworldlib.world.Chunk;
+import net.daporkchop.mcworldlib.world.HeightmapType;
 import net.daporkchop.mcworldlib.world.World;
 import net.daporkchop.lib.nbt.tag.CompoundTag;
+import net.daporkchop.lib.nbt.tag.Tag;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Codec for serialization of chunks in the pre-flattening format used by Minecraft versions 1.12.2 and older.
@@ -37,12 +48,67 @@ import net.daporkchop.lib.nbt.tag.CompoundTag;
 public class LegacyChunkDecoder implements JavaChunkDecoder {
     public static final JavaVersion VERSION = JavaVersion.fromName("1.12.2");
 
+    /**
+     * The names of the entries in the root compound which are decoded into the chunk or its sections.
+     */
+    protected static final Set<String> DECODED_ROOT_NAMES = new HashSet<>(Arrays.asList("DataVersion", "Level"));
+
+    /**
+     * The names of the entries in the {@code "Level"} compound which are decoded into the chunk or its sections.
+     */
+    protected static final Set<String> DECODED_LEVEL_NAMES = new HashSet<>(Arrays.asList(
+            "xPos", "zPos", "Sections", "TileEntities", "Entities", "HeightMap", "Heightmaps"));
+
     @Override
     public Chunk decode(@NonNull CompoundTag tag, @NonNull JavaVersion version, @NonNull World world) {
         CompoundTag level = tag.getCompound("Level");
         int x = level.getInt("xPos");
         int z = level.getInt("zPos");
 
-        return new VanillaChunk(version, x, z);
+        VanillaChunk chunk = new VanillaChunk(version, x, z);
+        this.parseHeightmaps(level, version, chunk);
+        chunk.extraData(this.extractExtraData(tag, level));
+        return chunk;
+    }
+
+    protected void parseHeightmaps(@NonNull CompoundTag level, @NonNull JavaVersion version, @NonNull VanillaChunk chunk) {
+        AllocatedIntArrayTag heightMapTag = level.remove("HeightMap", null);
+        if (heightMapTag != null) {
+            try {
+                chunk.heightmap(HeightmapType.LIGHT_BLOCKING, VanillaHeightmaps.decodeLegacy(heightMapTag.value(), heightMapTag.length()));
+            } finally {
+                heightMapTag.release();
+            }
+        }
+    }
+
+    /**
+     * Moves all of the entries which aren't decoded into the chunk or its sections out of the chunk's NBT data, so that they can be written back
+     * unchanged when the chunk is saved.
+     *
+     * @param tag   the chunk's root compound
+     * @param level the chunk's {@code "Level"} compound
+     * @return the extra data, or {@code null} if there is none
+     */
+    protected CompoundTag extractExtraData(@NonNull CompoundTag tag, @NonNull CompoundTag level) {
+        CompoundTag extra = this.extractUndecoded(tag, DECODED_ROOT_NAMES);
+        CompoundTag extraLevel = this.extractUndecoded(level, DECODED_LEVEL_NAMES);
+        if (extraLevel != null) {
+            (extra != null ? extra : (extra = new CompoundTag())).putTag("Level", extraLevel);
+        }
+        return extra;
+    }
+
+    protected CompoundTag extractUndecoded(@NonNull CompoundTag tag, @NonNull Set<String> decoded) {
+        CompoundTag extra = null;
+        for (Iterator<Map.Entry<String, Tag>> itr = tag.iterator(); itr.hasNext(); ) {
+            Map.Entry<String, Tag> entry = itr.next();
+            if (!decoded.contains(entry.getKey())) {
+                //the chunk's NBT data is released once it has been decoded, so any pooled or sliced arrays have to be copied
+                (extra != null ? extra : (extra = new CompoundTag())).putTag(entry.getKey(), AllocatedNBTHelper.toNormalAndRelease(entry.getValue()));
+                itr.remove();
+            }
+        }
+        return extra;
     }
 }
@@ -0,0 +1,60 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.format.anvil.encoder.chunk;
+
+import io.netty.buffer.ByteBuf;
+import lombok.NonNull;
+import net.daporkchop.lib.nbt.tag.CompoundTag;
+import net.daporkchop.mcworldlib.format.vanilla.VanillaHeightmaps;
+import net.daporkchop.mcworldlib.util.nbt.DirectNBTWriter;
+import net.daporkchop.mcworldlib.version.java.DataVersion;
+import net.daporkchop.mcworldlib.version.java.JavaVersion;
+import net.daporkchop.mcworldlib.world.Chunk;
+import net.daporkchop.mcworldlib.world.HeightmapType;
+
+/**
+ * @author DaPorkchop_
+ */
+public class FlattenedChunkEncoder extends LegacyChunkEncoder {
+    public static final JavaVersion VERSION = JavaVersion.latest();
+
+    @Override
+    protected void encodeStatus(@NonNull Chunk chunk, CompoundTag extraLevel, @NonNull ByteBuf dst) {
+        if (extraLevel == null || !extraLevel.contains("Status")) {
+            DirectNBTWriter.writeString(dst, "Status", "full");
+        }
+    }
+
+    @Override
+    protected void encodeHeightmaps(@NonNull Chunk chunk, @NonNull JavaVersion version, @NonNull ByteBuf dst) {
+        boolean padded = version.data() >= DataVersion.DATA_1_16;
+
+        DirectNBTWriter.startCompound(dst, "Heightmaps");
+        for (HeightmapType type : HeightmapType.values()) {
+            int[] heightmap;
+            if (type != HeightmapType.LIGHT_BLOCKING && (heightmap = chunk.heightmap(type)) != null) {
+                long[] encoded = VanillaHeightmaps.encodePacked(heightmap, padded);
+                DirectNBTWriter.writeLongArray(dst, type.name(), encoded, encoded.length);
+            }
+        }
+        DirectNBTWriter.endCompound(dst);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.format.anvil.encoder.chunk;
+
+import io.netty.buffer.ByteBuf;
+import lombok.NonNull;
+import net.daporkchop.lib.nbt.tag.CompoundTag;
+import net.daporkchop.mcworldlib.format.common.AbstractChunk;
+import net.daporkchop.mcworldlib.format.java.encoder.JavaChunkEncoder;
+import net.daporkchop.mcworldlib.format.java.encoder.JavaSectionEncoder;
+import net.daporkchop.mcworldlib.util.nbt.DirectNBTWriter;
+import net.daporkchop.mcworldlib.util.nbt.LazyCompoundTag;
+import net.daporkchop.mcworldlib.version.java.DataVersion;
+import net.daporkchop.mcworldlib.version.java.JavaVersion;
+import net.daporkchop.mcworldlib.world.Chunk;
+import net.daporkchop.mcworldlib.world.HeightmapType;
+import net.daporkchop.mcworldlib.world.section.Section;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+import static net.daporkchop.lib.nbt.tag.Tag.*;
+
+/**
+ * @author DaPorkchop_
+ */
+public class LegacyChunkEncoder implements JavaChunkEncoder {
+    public static final JavaVersion VERSION = JavaVersion.fromName("1.12.2");
+
+    @Override
+    public void encode(@NonNull Chunk chunk, @NonNull Section[] sections, @NonNull JavaVersion version, @NonNull JavaSectionEncoder sectionEncoder, @NonNull ByteBuf dst) {
+        checkArg(sections.length == 16, "sections must contain exactly 16 entries!");
+
+        //entries which aren't modeled by the chunk are written back as they were loaded
+        CompoundTag extra = chunk instanceof AbstractChunk ? ((AbstractChunk) chunk).extraData() : null;
+        CompoundTag extraLevel = extra != null ? extra.getCompound("Level", null) : null;
+
+        DirectNBTWriter.startCompound(dst, "");
+        if (version.data() >= DataVersion.DATA_15w32a) {
+            DirectNBTWriter.writeInt(dst, "DataVersion", version.data());
+        }
+
+        DirectNBTWriter.startCompound(dst, "Level");
+        DirectNBTWriter.writeInt(dst, "xPos", chunk.x());
+        DirectNBTWriter.writeInt(dst, "zPos", chunk.z());
+        this.encodeStatus(chunk, extraLevel, dst);
+        this.encodeHeightmaps(chunk, version, dst);
+
+        int sectionCount = 0;
+        for (Section section : sections) {
+            if (section != null) {
+                sectionCount++;
+            }
+        }
+        DirectNBTWriter.startList(dst, "Sections", TAG_COMPOUND, sectionCount);
+        for (Section section : sections) {
+            if (section != null) {
+                sectionEncoder.encode(section, version, dst);
+            }
+        }
+
+        //tile entities and entities which were never accessed are copied over without being parsed
+        this.encodeList(sections, "TileEntities", Section::lazyTileEntities, dst);
+        this.encodeList(sections, "Entities", Section::lazyEntities, dst);
+
+        this.encodeExtraData(extraLevel, false, dst);
+        DirectNBTWriter.endCompound(dst); //Level
+        this.encodeExtraData(extra, true, dst);
+        DirectNBTWriter.endCompound(dst); //root
+    }
+
+    /**
+     * Writes the chunk's generation status, unless it is already contained in the chunk's extra data.
+     *
+     * @param extraLevel the extra data from the chunk's {@code "Level"} compound. May be {@code null}
+     */
+    protected void encodeStatus(@NonNull Chunk chunk, CompoundTag extraLevel, @NonNull ByteBuf dst) {
+        //chunks which weren't loaded from disk are assumed to be complete, this prevents vanilla from trying to populate them again
+        if (extraLevel == null || !extraLevel.contains("TerrainPopulated")) {
+            DirectNBTWriter.writeByte(dst, "TerrainPopulated", 1);
+        }
+        if (extraLevel == null || !extraLevel.contains("LightPopulated")) {
+            DirectNBTWriter.writeByte(dst, "LightPopulated", 1);
+        }
+    }
+
+    protected void encodeExtraData(CompoundTag extra, boolean root, @NonNull ByteBuf dst) {
+        if (extra != null) {
+            extra.forEach((name, tag) -> {
+                if (!root || !"Level".equals(name)) { //the level's extra data is written separately
+                    DirectNBTWriter.writeTag(dst, name, tag);
+                }
+            });
+        }
+    }
+
+    protected void encodeHeightmaps(@NonNull Chunk chunk, @NonNull JavaVersion version, @NonNull ByteBuf dst) {
+        int[] heightmap = chunk.heightmap(HeightmapType.LIGHT_BLOCKING);
+        if (heightmap != null) {
+            DirectNBTWriter.writeIntArray(dst, "HeightMap", heightmap, heightmap.length);
+        }
+    }
+
+    protected void encodeList(@NonNull Section[] sections, @NonNull String name, @NonNull Function<Section, Collection<LazyCompoundTag>> extractor, @NonNull ByteBuf dst) {
+        int count = 0;
+        for (Section section : sections) {
+            if (section != null) {
+                count += extractor.apply(section).size();
+            }
+        }
+
+        DirectNBTWriter.startList(dst, name, TAG_COMPOUND, count);
+        for (Section section : sections) {
+            if (section != null) {
+                for (LazyCompoundTag tag : extractor.apply(section)) {
+                    tag.write(dst);
+                }
+            }
+        }
+    }
+}
@@ -24,15 +24,25 @@ import lombok.NonNull;
 import net.daporkchop.lib.nbt.tag.CompoundTag;
 import net.daporkchop.lib.nbt.tag.DoubleTag;
 import net.daporkchop.lib.nbt.tag.ListTag;
+import net.daporkchop.mcworldlib.format.common.AbstractChunk;
 import net.daporkchop.mcworldlib.format.java.JavaFixers;
+import net.daporkchop.mcworldlib.format.java.convert.LegacySectionConverter;
 import net.daporkchop.mcworldlib.format.java.decoder.JavaSectionDecoder;
+import net.daporkchop.mcworldlib.format.vanilla.VanillaHeightmaps;
+import net.daporkchop.mcworldlib.save.SaveOptions;
 import net.daporkchop.mcworldlib.util.dirty.AbstractReleasableDirtiable;
 import net.daporkchop.mcworldlib.util.nbt.AllocatedNBTHelper;
+import net.daporkchop.mcworldlib.util.nbt.LazyCompoundTag;
 import net.daporkchop.mcworldlib.version.java.JavaVersion;
 import net.daporkchop.mcworldlib.world.Chunk;
+import net.daporkchop.mcworldlib.world.HeightmapType;
 import net.daporkchop.mcworldlib.world.World;
+import net.daporkchop.mcworldlib.world.section.LegacySection;
 import net.daporkchop.mcworldlib.world.section.Section;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import static net.daporkchop.lib.common.math.PMath.*;
 import static net.daporkchop.lib.common.util.PValidation.*;
 
@@ -48,6 +58,13 @@ public abstract class AnvilCachedChunk extends AbstractReleasableDirtiable {
 
     public abstract Section section(int y);
 
+    /**
+     * @return whether or not this chunk may currently be evicted from the cache
+     */
+    public boolean evictable() {
+        return true;
+    }
+
     public static class ReadOnlyEmpty extends AnvilCachedChunk {
         @Override
         public Chunk chunk() {
@@ -65,11 +82,22 @@ public abstract class AnvilCachedChunk extends AbstractReleasableDirtiable {
         }
     }
 
-    public static class ReadOnly extends AnvilCachedChunk {
+    /**
+     * Base class for a cached chunk which has been decoded, along with all of its sections.
+     *
+     * @author DaPorkchop_
+     */
+    public static abstract class Decoded extends AnvilCachedChunk {
         protected final Chunk chunk;
         protected final Section[] sections = new Section[16];
 
-        public ReadOnly(@NonNull CompoundTag tag, @NonNull JavaVersion version, @NonNull JavaFixers fixers, @NonNull World world) {
+        /**
+         * @param convertUniversal whether or not legacy sections should be converted to flattened sections (see {@link SaveOptions#CONVERT_UNIVERSAL})
+         * @param lazyTileEntities tile entities which were split out of the chunk's NBT data without being parsed
+         * @param lazyEntities     entities which were split out of the chunk's NBT data without being parsed
+         */
+        public Decoded(@NonNull CompoundTag tag, @NonNull JavaVersion version, @NonNull JavaFixers fixers, @NonNull World world, boolean convertUniversal,
+                       @NonNull Collection<LazyCompoundTag> lazyTileEntities, @NonNull Collection<LazyCompoundTag> lazyEntities) {
             this.chunk = fixers.chunk().ceilingEntry(version).getValue()
                     .decode(tag, version, world);
 
@@ -90,6 +118,12 @@ public abstract class AnvilCachedChunk extends AbstractReleasableDirtiable {
                 this.sections[y >> 4].setTileEntity(x & 0xF, y & 0xF, z & 0xF, AllocatedNBTHelper.toNormalAndRelease(tileEntity));
             }
             tileEntities.list().clear();
+            for (LazyCompoundTag tileEntity : lazyTileEntities) {
+                int x = tileEntity.x();
+                int y = tileEntity.y();
+                int z = tileEntity.z();
+                this.sections[y >> 4].setLazyTileEntity(x & 0xF, y & 0xF, z & 0xF, tileEntity);
+            }
 
             //TODO: i should probably make entities be their own thing, because 1.17 stores them separately
             ListTag<CompoundTag> entities = levelTag.getList("Entities", CompoundTag.class);
@@ -100,6 +134,47 @@ public abstract class AnvilCachedChunk extends AbstractReleasableDirtiable {
                 this.sections[clamp(floorI(y) >> 4, 0, 15)].addEntity(AllocatedNBTHelper.toNormalAndRelease(entity));
             }
             entities.list().clear();
+            for (LazyCompoundTag entity : lazyEntities) {
+                this.sections[clamp(entity.y() >> 4, 0, 15)].addLazyEntity(entity);
+            }
+
+            if (convertUniversal) {
+                for (int y = 0; y < 16; y++) {
+                    Section section = this.sections[y];
+                    if (section instanceof LegacySection) {
+                        this.sections[y] = LegacySectionConverter.convert((LegacySection) section);
+                        section.release();
+                    }
+                }
+            }
+
+            this.attachHeightmapSource();
+        }
+
+        /**
+         * Creates a new cached chunk from an already decoded chunk and its sections.
+         * <p>
+         * This takes ownership of the given chunk and sections.
+         *
+         * @param chunk    the chunk
+         * @param sections the chunk's sections, indexed by their Y coordinate
+         */
+        public Decoded(@NonNull Chunk chunk, @NonNull Section[] sections) {
+            checkArg(sections.length == 16, "sections must contain exactly 16 entries!");
+            this.chunk = chunk;
+            System.arraycopy(sections, 0, this.sections, 0, 16);
+            this.attachHeightmapSource();
+        }
+
+        /**
+         * Lets the chunk compute any heightmaps it doesn't have from this chunk's sections, once they're actually needed.
+         */
+        protected void attachHeightmapSource() {
+            if (this.chunk instanceof AbstractChunk) {
+                ((AbstractChunk) this.chunk).heightmapSource(type -> VanillaHeightmaps.COMPUTABLE.contains(type)
+                        ? VanillaHeightmaps.compute(type, this.sections)
+                        : null);
+            }
         }
 
         @Override
@@ -115,6 +190,16 @@ public abstract class AnvilCachedChunk extends AbstractReleasableDirtiable {
 
         @Override
         protected void doRelease() {
+            if (this.chunk instanceof AbstractChunk) {
+                AbstractChunk chunk = (AbstractChunk) this.chunk;
+                if (chunk.refCnt() > 1) {
+                    //someone else still holds the chunk, but the sections are about to go away: compute whatever they may still ask for
+                    for (HeightmapType type : VanillaHeightmaps.COMPUTABLE) {
+                        chunk.heightmap(type);
+                    }
+                }
+                chunk.heightmapSource(null);
+            }
             this.chunk.release();
             for (Section section : this.sections) {
                 if (section != null) {
@@ -124,33 +209,53 @@ public abstract class AnvilCachedChunk extends AbstractReleasableDirtiable {
         }
     }
 
-    //TODO
-    /*public static class ReadWrite extends AnvilCachedChunk {
-        protected final JavaVersion version;
+    /**
+     * A cached chunk in a world which was opened in read-only mode.
+     * <p>
+     * As the chunk can't be modified, it may be moved to the {@link OffHeapSectionCache} when it is evicted.
+     *
+     * @author DaPorkchop_
+     */
+    public static class ReadOnly extends Decoded {
+        public ReadOnly(@NonNull CompoundTag tag, @NonNull JavaVersion version, @NonNull JavaFixers fixers, @NonNull World world) {
+            this(tag, version, fixers, world, false, Collections.emptyList(), Collections.emptyList());
+        }
 
-        protected CompoundTag chunkTag;
-        protected final CompoundTag[] sectionTags = new CompoundTag[16];
-        protected final CompoundTag[][] sectionBlockEntityTags = new CompoundTag[16][];
+        public ReadOnly(@NonNull CompoundTag tag, @NonNull JavaVersion version, @NonNull JavaFixers fixers, @NonNull World world, boolean convertUniversal,
+                        @NonNull Collection<LazyCompoundTag> lazyTileEntities, @NonNull Collection<LazyCompoundTag> lazyEntities) {
+            super(tag, version, fixers, world, convertUniversal, lazyTileEntities, lazyEntities);
+        }
 
-        public ReadWrite(@NonNull JavaVersion version) {
-            super(version);
+        public ReadOnly(@NonNull Chunk chunk, @NonNull Section[] sections) {
+            super(chunk, sections);
+        }
+    }
+
+    /**
+     * A cached chunk in a world which was opened in read/write mode.
+     * <p>
+     * The chunk and its sections are shared with everyone who loads them, and may be modified. They are only evicted once nobody else holds a
+     * reference to them, as otherwise the next load would decode a second copy from disk which doesn't contain the modifications.
+     *
+     * @author DaPorkchop_
+     */
+    public static class ReadWrite extends Decoded {
+        public ReadWrite(@NonNull CompoundTag tag, @NonNull JavaVersion version, @NonNull JavaFixers fixers, @NonNull World world, boolean convertUniversal,
+                         @NonNull Collection<LazyCompoundTag> lazyTileEntities, @NonNull Collection<LazyCompoundTag> lazyEntities) {
+            super(tag, version, fixers, world, convertUniversal, lazyTileEntities, lazyEntities);
         }
 
         @Override
-        protected void doRelease() {
-            this.chunkTag.release();
-            for (CompoundTag sectionTag : this.sectionTags) {
-                if (sectionTag != null) {
-                    sectionTag.release();
-                }
+        public boolean evictable() {
+            if (this.chunk.refCnt() > 1) {
+                return false;
             }
-            for (CompoundTag[] blockEntityTags : this.sectionBlockEntityTags) {
-                if (blockEntityTags != null) {
-                    for (CompoundTag blockEntityTag : blockEntityTags) {
-                        blockEntityTag.release();
-                    }
+            for (Section section : this.sections) {
+                if (section != null && section.refCnt() > 1) {
+                    return false;
                 }
             }
+            return true;
         }
-    }*/
+    }
 }
@@ -0,0 +1,122 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.format.anvil.storage;
+
+import io.netty.buffer.ByteBuf;
+import lombok.NonNull;
+import net.daporkchop.mcworldlib.util.nbt.SelectiveNBTReader;
+import net.daporkchop.mcworldlib.world.ChunkMetadata;
+
+import java.io.File;
+import java.util.Spliterator;
+
+import static net.daporkchop.lib.nbt.tag.Tag.*;
+
+/**
+ * Implementation of a {@link Spliterator} over the {@link ChunkMetadata} of every chunk in an Anvil world.
+ * <p>
+ * Only the few scalar tags needed are read, everything else is skipped over without being parsed.
+ *
+ * @author DaPorkchop_
+ */
+public class AnvilChunkMetadataSpliterator extends AnvilRawChunkSpliterator<ChunkMetadata> {
+    protected static final SelectiveNBTReader READER = new SelectiveNBTReader(
+            "DataVersion", "Level.xPos", "Level.zPos", "Level.LastUpdate", "Level.InhabitedTime", "Level.Status");
+
+    protected static final int PATH_DATA_VERSION = 0;
+    protected static final int PATH_X = 1;
+    protected static final int PATH_Z = 2;
+    protected static final int PATH_LAST_UPDATE = 3;
+    protected static final int PATH_INHABITED_TIME = 4;
+    protected static final int PATH_STATUS = 5;
+
+    //values of the chunk currently being read
+    protected int dataVersion;
+    protected int x;
+    protected int z;
+    protected long lastUpdate;
+    protected long inhabitedTime;
+    protected String status;
+    protected boolean hasPosition;
+
+    protected final SelectiveNBTReader.Visitor visitor = (path, id, buf) -> {
+        switch (path) {
+            case PATH_DATA_VERSION:
+                if (id == TAG_INT) {
+                    this.dataVersion = buf.readInt();
+                }
+                break;
+            case PATH_X:
+                if (id == TAG_INT) {
+                    this.x = buf.readInt();
+                    this.hasPosition = true;
+                }
+                break;
+            case PATH_Z:
+                if (id == TAG_INT) {
+                    this.z = buf.readInt();
+                }
+                break;
+            case PATH_LAST_UPDATE:
+                if (id == TAG_LONG) {
+                    this.lastUpdate = buf.readLong();
+                }
+                break;
+            case PATH_INHABITED_TIME:
+                if (id == TAG_LONG) {
+                    this.inhabitedTime = buf.readLong();
+                }
+                break;
+            case PATH_STATUS:
+                if (id == TAG_STRING) {
+                    this.status = SelectiveNBTReader.readString(buf);
+                }
+                break;
+        }
+    };
+
+    public AnvilChunkMetadataSpliterator(@NonNull AnvilWorldStorage storage, @NonNull File[] regions) {
+        this(storage, regions, 0, regions.length);
+    }
+
+    protected AnvilChunkMetadataSpliterator(@NonNull AnvilWorldStorage storage, @NonNull File[] regions, int index, int fence) {
+        super(storage, regions, index, fence);
+    }
+
+    @Override
+    protected void extract(@NonNull ByteBuf uncompressed) {
+        this.dataVersion = 0;
+        this.lastUpdate = this.inhabitedTime = 0L;
+        this.status = null;
+        this.hasPosition = false;
+
+        READER.read(uncompressed, this.visitor);
+
+        if (this.hasPosition) {
+            this.buffer.add(new ChunkMetadata(this.x, this.z, this.dataVersion, this.lastUpdate, this.inhabitedTime, this.status));
+        }
+    }
+
+    @Override
+    protected Spliterator<ChunkMetadata> sub(@NonNull AnvilWorldStorage storage, @NonNull File[] regions, int index, int fence) {
+        return new AnvilChunkMetadataSpliterator(storage, regions, index, fence);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.format.anvil.storage;
+
+import io.netty.buffer.ByteBuf;
+import lombok.NonNull;
+import net.daporkchop.lib.nbt.tag.CompoundTag;
+import net.daporkchop.mcworldlib.util.nbt.NBTListExtractor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Implementation of a {@link Spliterator} over the elements of specific NBT lists (such as entities or tile entities) in every chunk of an Anvil
+ * world.
+ * <p>
+ * Chunks are decompressed, but only the requested lists are parsed. Everything else (most notably the block and light data) is skipped over without
+ * being decoded.
+ *
+ * @author DaPorkchop_
+ */
+public class AnvilNBTListSpliterator extends AnvilRawChunkSpliterator<CompoundTag> {
+    protected final Collection<String> names;
+    protected final Consumer<CompoundTag> bufferAdder = this.buffer::add;
+
+    public AnvilNBTListSpliterator(@NonNull AnvilWorldStorage storage, @NonNull File[] regions, @NonNull Collection<String> names) {
+        this(storage, regions, names, 0, regions.length);
+    }
+
+    protected AnvilNBTListSpliterator(@NonNull AnvilWorldStorage storage, @NonNull File[] regions, @NonNull Collection<String> names, int index, int fence) {
+        super(storage, regions, index, fence);
+        this.names = names;
+    }
+
+    @Override
+    protected void extract(@NonNull ByteBuf uncompressed) throws IOException {
+        NBTListExtractor.extract(uncompressed, this.names, this.bufferAdder);
+    }
+
+    @Override
+    protected Spliterator<CompoundTag> sub(@NonNull AnvilWorldStorage storage, @NonNull File[] regions, int index, int fence) {
+        return new AnvilNBTListSpliterator(storage, regions, this.names, index, fence);
+    }
+}
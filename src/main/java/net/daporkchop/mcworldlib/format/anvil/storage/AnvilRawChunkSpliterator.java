@@ -0,0 +1,91 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.format.anvil.storage;
+
+import io.netty.buffer.ByteBuf;
+import lombok.NonNull;
+import net.daporkchop.mcworldlib.format.anvil.region.RawChunk;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Base implementation of a {@link Spliterator} over values extracted from the raw, uncompressed NBT data of every chunk in an Anvil world.
+ *
+ * @author DaPorkchop_
+ */
+public abstract class AnvilRawChunkSpliterator<T> extends UncachedAnvilSpliterator<T> {
+    protected final Queue<T> buffer = new ArrayDeque<>();
+
+    protected AnvilRawChunkSpliterator(@NonNull AnvilWorldStorage storage, @NonNull File[] regions, int index, int fence) {
+        super(storage, regions, index, fence);
+    }
+
+    /**
+     * Extracts values from a chunk's NBT data and adds them to {@link #buffer}.
+     *
+     * @param uncompressed the chunk's uncompressed NBT data
+     */
+    protected abstract void extract(@NonNull ByteBuf uncompressed) throws IOException;
+
+    /**
+     * Fills the buffer with the values from the next chunk which contains any.
+     *
+     * @return whether or not the buffer contains any elements
+     */
+    protected boolean fill() {
+        return this.next((region, x, z) -> {
+            RawChunk chunk = region.read(x, z);
+            if (chunk != null) {
+                ByteBuf uncompressed = this.storage.inflate(chunk);
+                try {
+                    this.extract(uncompressed);
+                } finally {
+                    uncompressed.release();
+                }
+            }
+            return this.buffer.isEmpty() ? null : Boolean.TRUE;
+        }) != null;
+    }
+
+    @Override
+    public boolean tryAdvance(@NonNull Consumer<? super T> action) {
+        if (!this.buffer.isEmpty() || this.fill()) {
+            action.accept(this.buffer.poll());
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE; //we have no idea how many values there are in each chunk
+    }
+
+    @Override
+    public int characteristics() {
+        return NONNULL;
+    }
+}
@@ -22,7 +22,6 @@ package net.daporkchop.mcworldlib.format.anvil.storage;
 
 import io.netty.buffer.ByteBuf;
 import lombok.NonNull;
-import net.daporkchop.lib.binary.stream.DataIn;
 import net.daporkchop.lib.common.math.BinMath;
 import net.daporkchop.lib.common.misc.file.PFiles;
 import net.daporkchop.lib.common.misc.refcount.AbstractRefCounted;
@@ -34,12 +33,12 @@ import net.daporkchop.lib.compression.zlib.ZlibMode;
 import net.daporkchop.lib.compression.zlib.options.ZlibInflaterOptions;
 import net.daporkchop.lib.concurrent.PFuture;
 import net.daporkchop.lib.concurrent.PFutures;
-import net.daporkchop.lib.nbt.NBTFormat;
 import net.daporkchop.lib.nbt.NBTOptions;
 import net.daporkchop.lib.nbt.tag.CompoundTag;
 import net.daporkchop.lib.primitive.lambda.LongObjObjFunction;
 import net.daporkchop.lib.primitive.map.LongObjMap;
 import net.daporkchop.lib.primitive.map.concurrent.LongObjConcurrentHashMap;
+import net.daporkchop.lib.primitive.map.open.LongObjOpenHashMap;
 import net.daporkchop.lib.unsafe.PUnsafe;
 import net.daporkchop.lib.unsafe.util.exception.AlreadyReleasedException;
 import net.daporkchop.mcworldlib.format.anvil.AnvilSaveOptions;
@@ -49,22 +48,42 @@ import net.daporkchop.mcworldlib.format.anvil.region.RegionConstants;
 import net.daporkchop.mcworldlib.format.anvil.region.RegionFile;
 import net.daporkchop.mcworldlib.format.anvil.region.RegionFileCache;
 import net.daporkchop.mcworldlib.format.java.JavaFixers;
+import net.daporkchop.mcworldlib.format.java.encoder.JavaChunkEncoder;
+import net.daporkchop.mcworldlib.format.java.encoder.JavaSectionEncoder;
 import net.daporkchop.mcworldlib.format.java.storage.AbstractJavaWorldStorage;
 import net.daporkchop.mcworldlib.save.SaveOptions;
 import net.daporkchop.mcworldlib.util.WriteAccess;
+import net.daporkchop.mcworldlib.util.concurrent.IOScheduler;
 import net.daporkchop.mcworldlib.util.nbt.AllocatedNBTHelper;
+import net.daporkchop.mcworldlib.util.nbt.LazyCompoundTag;
+import net.daporkchop.mcworldlib.util.nbt.NBTListExtractor;
 import net.daporkchop.mcworldlib.version.java.DataVersion;
 import net.daporkchop.mcworldlib.version.java.JavaVersion;
 import net.daporkchop.mcworldlib.world.Chunk;
+import net.daporkchop.mcworldlib.world.ChunkMetadata;
 import net.daporkchop.mcworldlib.world.WorldStorage;
 import net.daporkchop.mcworldlib.world.section.Section;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.Spliterator;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.LongFunction;
 
+import static net.daporkchop.lib.common.util.PValidation.*;
+
 /**
  * Implementation of {@link WorldStorage} for the Anvil save format.
  * <p>
@@ -74,41 +93,306 @@ import java.util.function.LongFunction;
  * @author DaPorkchop_
  */
 public class AnvilWorldStorage extends AbstractJavaWorldStorage {
+    protected static final Collection<String> ENTITY_LIST_NAMES = Collections.singleton("Entities");
+    protected static final Collection<String> TILE_ENTITY_LIST_NAMES = Arrays.asList("TileEntities", "block_entities");
+    protected static final Collection<String> LAZY_LIST_NAMES = Arrays.asList("Entities", "TileEntities", "block_entities");
+
     protected final LongObjMap<AnvilCachedChunk> cachedChunks = new LongObjConcurrentHashMap<>();
     protected final LongFunction<AnvilCachedChunk> loadFunction = l -> {
         try {
-            return this.load(BinMath.unpackX(l), BinMath.unpackY(l));
+            AnvilCachedChunk loaded = this.load(BinMath.unpackX(l), BinMath.unpackY(l));
+            if (loaded != null) {
+                this.touch(l);
+                this.cacheSize.incrementAndGet();
+            }
+            return loaded;
         } catch (IOException e) {
             PUnsafe.throwException(e);
             throw new RuntimeException(e);
         }
     };
+    protected final Set<Long> cacheOrder = new LinkedHashSet<>(); //guarded by itself, iteration order is eviction order
+    protected final AtomicInteger cacheSize = new AtomicInteger();
+    protected final int cacheCapacity;
+    protected final OffHeapSectionCache offHeapCache;
+
     protected final RegionFile regionCache;
 
+    protected final boolean convertUniversal;
+
     public AnvilWorldStorage(@NonNull File root, @NonNull AbstractAnvilWorld world) {
         super(root, world);
 
+        this.cacheCapacity = this.options.get(AnvilSaveOptions.CHUNK_CACHE_SIZE);
+        checkArg(this.cacheCapacity >= 0, "chunk cache size may not be negative (given: %d)", this.cacheCapacity);
+
+        long offHeapCacheSize = this.options.get(AnvilSaveOptions.OFFHEAP_CACHE_SIZE);
+        checkArg(offHeapCacheSize >= 0L, "off-heap cache size may not be negative (given: %d)", offHeapCacheSize);
+        //the off-heap cache holds immutable copies of evicted chunks, which only makes sense if the chunks can't be modified
+        this.offHeapCache = offHeapCacheSize > 0L && this.readOnly ? new OffHeapSectionCache(this.options.get(SaveOptions.NETTY_ALLOC), offHeapCacheSize) : null;
+
         this.regionCache = new RegionFileCache(world.options(), new File(root, "region"));
+
+        this.convertUniversal = this.options.get(SaveOptions.CONVERT_UNIVERSAL);
     }
 
     @Override
     public Chunk loadChunk(int x, int z) throws IOException {
-        return this.cachedChunks.computeIfAbsent(BinMath.packXY(x, z), this.loadFunction).chunk();
+        while (true) {
+            try {
+                Chunk chunk = this.cachedChunks.computeIfAbsent(BinMath.packXY(x, z), this.loadFunction).chunk();
+                this.trimCache();
+                return chunk;
+            } catch (AlreadyReleasedException e) {
+                //the cached chunk was evicted before we could retain it, try again
+            }
+        }
     }
 
     @Override
     public Section loadSection(int x, int y, int z) throws IOException {
-        return this.cachedChunks.computeIfAbsent(BinMath.packXY(x, z), this.loadFunction).section(y);
+        while (true) {
+            try {
+                Section section = this.cachedChunks.computeIfAbsent(BinMath.packXY(x, z), this.loadFunction).section(y);
+                this.trimCache();
+                return section;
+            } catch (AlreadyReleasedException e) {
+                //the cached chunk was evicted before we could retain it, try again
+            }
+        }
+    }
+
+    @Override
+    public PFuture<Chunk> loadChunkAsync(int x, int z) {
+        AnvilCachedChunk cached = this.cachedChunks.get(BinMath.packXY(x, z));
+        if (cached != null) {
+            try {
+                return PFutures.successful(cached.chunk(), this.computeExecutor);
+            } catch (AlreadyReleasedException e) {
+                //the cached chunk was evicted before we could retain it, load it again
+            }
+        }
+        if (this.offHeapCache != null && (cached = this.offHeapCache.take(x, z)) != null) {
+            Chunk chunk = this.cache(x, z, cached).chunk();
+            this.trimCache();
+            return PFutures.successful(chunk, this.computeExecutor);
+        }
+        return this.ioScheduler.submit(x >> 5, z >> 5, () -> this.regionCache.read(x, z), raw -> {
+            Chunk chunk = this.cache(x, z, this.decode(raw)).chunk();
+            this.trimCache();
+            return chunk;
+        }, this.computeExecutor);
+    }
+
+    @Override
+    public PFuture<Section> loadSectionAsync(int x, int y, int z) {
+        AnvilCachedChunk cached = this.cachedChunks.get(BinMath.packXY(x, z));
+        if (cached != null) {
+            try {
+                return PFutures.successful(cached.section(y), this.computeExecutor);
+            } catch (AlreadyReleasedException e) {
+                //the cached chunk was evicted before we could retain it, load it again
+            }
+        }
+        if (this.offHeapCache != null && (cached = this.offHeapCache.take(x, z)) != null) {
+            Section section = this.cache(x, z, cached).section(y);
+            this.trimCache();
+            return PFutures.successful(section, this.computeExecutor);
+        }
+        return this.ioScheduler.submit(x >> 5, z >> 5, () -> this.regionCache.read(x, z), raw -> {
+            Section section = this.cache(x, z, this.decode(raw)).section(y);
+            this.trimCache();
+            return section;
+        }, this.computeExecutor);
+    }
+
+    @Override
+    public PFuture<Long> preload(int minX, int minZ, int maxX, int maxZ, int priority, PreloadListener listener) {
+        checkArg(minX <= maxX && minZ <= maxZ, "invalid area: (%d,%d) -> (%d,%d)", minX, minZ, maxX, maxZ);
+
+        //find all the chunks which aren't cached yet, grouped by region so that each region's reads end up close together in the worker's queue.
+        // chunks in the area which are already cached are moved to the back of the eviction order so that preloading the rest of the area doesn't evict them
+        long[] positions = new long[(int) Math.min(((long) maxX - minX + 1L) * ((long) maxZ - minZ + 1L), this.cacheCapacity)];
+        int count = 0;
+        int alreadyCached = 0;
+        for (int regionX = minX >> 5; regionX <= maxX >> 5; regionX++) {
+            for (int regionZ = minZ >> 5; regionZ <= maxZ >> 5; regionZ++) {
+                for (int x = Math.max(minX, regionX << 5), x1 = Math.min(maxX, (regionX << 5) | 0x1F); x <= x1; x++) {
+                    for (int z = Math.max(minZ, regionZ << 5), z1 = Math.min(maxZ, (regionZ << 5) | 0x1F); z <= z1; z++) {
+                        long pos = BinMath.packXY(x, z);
+                        if (this.cachedChunks.get(pos) != null) {
+                            this.touch(pos);
+                            alreadyCached++;
+                        } else if (count < positions.length) {
+                            positions[count++] = pos;
+                        }
+                    }
+                }
+            }
+        }
+        count = Math.min(count, Math.max(this.cacheCapacity - alreadyCached, 0)); //the cache can't hold any more chunks than this
+
+        Preload preload = new Preload(count, listener);
+        PFuture<Long> future = PFutures.computeThrowableAsync(() -> {
+            if (preload.cause != null) {
+                PUnsafe.throwException(preload.cause);
+            }
+            return preload.loaded.sum();
+        }, completion -> preload.completion = completion);
+
+        if (count == 0) { //nothing to do
+            this.computeExecutor.execute(preload.completion);
+            return future;
+        }
+
+        for (int i = 0; i < count; i++) {
+            long pos = positions[i];
+            int x = BinMath.unpackX(pos);
+            int z = BinMath.unpackY(pos);
+            this.ioScheduler.execute(x >> 5, z >> 5, priority, () -> {
+                boolean handedOff = false;
+                try {
+                    if (!future.isCancelled() && this.cachedChunks.get(pos) == null) {
+                        RawChunk raw = this.regionCache.read(x, z);
+                        this.computeExecutor.execute(() -> {
+                            try {
+                                if (future.isCancelled()) {
+                                    if (raw != null) {
+                                        raw.release();
+                                    }
+                                } else {
+                                    AnvilCachedChunk loaded = this.decode(raw);
+                                    if (this.cache(x, z, loaded) == loaded && raw != null) { //only count chunks which exist and weren't already cached by another thread
+                                        preload.loaded.increment();
+                                    }
+                                    this.trimCache();
+                                }
+                            } catch (Throwable t) {
+                                preload.cause = t;
+                            } finally {
+                                preload.chunkProcessed();
+                            }
+                        });
+                        handedOff = true;
+                    }
+                } catch (Throwable t) {
+                    preload.cause = t;
+                } finally {
+                    if (!handedOff) {
+                        preload.chunkProcessed();
+                    }
+                }
+            });
+        }
+        return future;
     }
 
     @Override
     public void save(@NonNull Iterable<Chunk> chunks, @NonNull Iterable<Section> sections) throws IOException {
-        throw new UnsupportedOperationException(); //TODO
+        this.regionCache.assertWritable();
+
+        Collection<PendingChunk> pending = this.group(chunks, sections);
+        try {
+            for (PendingChunk chunk : pending) {
+                this.write(chunk);
+            }
+        } finally {
+            pending.forEach(PendingChunk::release);
+        }
     }
 
     @Override
     public PFuture<Void> saveAsync(@NonNull Iterable<Chunk> chunks, @NonNull Iterable<Section> sections) {
-        throw new UnsupportedOperationException(); //TODO
+        this.regionCache.assertWritable();
+
+        Collection<PendingChunk> pending = this.group(chunks, sections);
+        Save save = new Save(pending.size());
+        PFuture<Void> future = PFutures.computeThrowableAsync(() -> {
+            if (save.cause != null) {
+                PUnsafe.throwException(save.cause);
+            }
+            return null;
+        }, completion -> save.completion = completion);
+
+        if (pending.isEmpty()) { //nothing to do
+            this.computeExecutor.execute(save.completion);
+            return future;
+        }
+
+        //chunks are encoded and compressed on the compute executor, only reading the existing copy of incomplete chunks and the actual write are done
+        // by the I/O worker responsible for the region
+        for (PendingChunk chunk : pending) {
+            if (chunk.complete()) {
+                this.computeExecutor.execute(() -> this.encodeAndWrite(chunk, save));
+                continue;
+            }
+
+            this.ioScheduler.execute(chunk.x >> 5, chunk.z >> 5, IOScheduler.PRIORITY_NORMAL, () -> {
+                boolean handedOff = false;
+                try {
+                    if (this.cachedChunks.get(BinMath.packXY(chunk.x, chunk.z)) != null) {
+                        //the existing copy is cached, so this only blocks if it was evicted in the meantime, which is fine on an I/O worker
+                        this.fill(chunk);
+                        this.computeExecutor.execute(() -> this.encodeAndWrite(chunk, save));
+                    } else {
+                        RawChunk raw = this.regionCache.read(chunk.x, chunk.z);
+                        this.computeExecutor.execute(() -> {
+                            try {
+                                this.fill(chunk, raw);
+                            } catch (Throwable t) {
+                                save.cause = t;
+                                chunk.release();
+                                save.chunkProcessed();
+                                return;
+                            }
+                            this.encodeAndWrite(chunk, save);
+                        });
+                    }
+                    handedOff = true;
+                } catch (Throwable t) {
+                    save.cause = t;
+                } finally {
+                    if (!handedOff) {
+                        chunk.release();
+                        save.chunkProcessed();
+                    }
+                }
+            });
+        }
+        return future;
+    }
+
+    /**
+     * Encodes a complete chunk on the current thread, and hands it off to the I/O worker responsible for its region to be written.
+     * <p>
+     * This takes ownership of the chunk, and notifies the given {@link Save} once it has been processed.
+     *
+     * @param chunk the chunk to save
+     * @param save  the {@link Save} which the chunk belongs to
+     */
+    protected void encodeAndWrite(@NonNull PendingChunk chunk, @NonNull Save save) {
+        boolean handedOff = false;
+        try {
+            ByteBuf compressed = this.encode(chunk);
+            this.ioScheduler.execute(chunk.x >> 5, chunk.z >> 5, IOScheduler.PRIORITY_NORMAL, () -> {
+                try {
+                    this.write(chunk.x, chunk.z, compressed);
+                } catch (Throwable t) {
+                    save.cause = t;
+                } finally {
+                    chunk.release();
+                    save.chunkProcessed();
+                }
+            });
+            handedOff = true;
+        } catch (Throwable t) {
+            save.cause = t;
+        } finally {
+            if (!handedOff) {
+                chunk.release();
+                save.chunkProcessed();
+            }
+        }
     }
 
     @Override
@@ -134,12 +418,34 @@ public class AnvilWorldStorage extends AbstractJavaWorldStorage {
                 : new UncachedAnvilSpliterator.OfSection(this);
     }
 
+    @Override
+    public Spliterator<CompoundTag> allEntities() throws IOException {
+        //1.17+ stores entities separately from the rest of the chunk data
+        return new AnvilNBTListSpliterator(this, this.listRegions(this.regionCache.file(), new File(this.root, "entities")), ENTITY_LIST_NAMES);
+    }
+
+    @Override
+    public Spliterator<CompoundTag> allTileEntities() throws IOException {
+        return new AnvilNBTListSpliterator(this, this.listRegions(), TILE_ENTITY_LIST_NAMES);
+    }
+
+    @Override
+    public Spliterator<ChunkMetadata> chunkMetadata() throws IOException {
+        return new AnvilChunkMetadataSpliterator(this, this.listRegions());
+    }
+
     @Override
     protected void doRelease() {
         try {
             this.flush();
             this.cachedChunks.forEach((l, cached) -> cached.release());
             this.cachedChunks.clear();
+            synchronized (this.cacheOrder) {
+                this.cacheOrder.clear();
+            }
+            if (this.offHeapCache != null) {
+                this.offHeapCache.clear();
+            }
             this.regionCache.close();
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -147,7 +453,15 @@ public class AnvilWorldStorage extends AbstractJavaWorldStorage {
     }
 
     protected File[] listRegions() {
-        return this.regionCache.file().listFiles(f -> f.isFile() && RegionConstants.REGION_PATTERN.matcher(f.getName()).matches());
+        return this.listRegions(this.regionCache.file());
+    }
+
+    protected File[] listRegions(@NonNull File... directories) {
+        return Arrays.stream(directories)
+                .map(directory -> directory.listFiles(f -> f.isFile() && RegionConstants.REGION_PATTERN.matcher(f.getName()).matches()))
+                .filter(Objects::nonNull)
+                .flatMap(Arrays::stream)
+                .toArray(File[]::new);
     }
 
     /**
@@ -160,6 +474,12 @@ public class AnvilWorldStorage extends AbstractJavaWorldStorage {
      * @return the cached chunk, or {@code null} if the chunk doesn't exist
      */
     protected AnvilCachedChunk load(int x, int z) throws IOException {
+        if (this.offHeapCache != null) {
+            AnvilCachedChunk cached = this.offHeapCache.take(x, z);
+            if (cached != null) {
+                return cached;
+            }
+        }
         return this.load(this.regionCache, x, z);
     }
 
@@ -168,32 +488,148 @@ public class AnvilWorldStorage extends AbstractJavaWorldStorage {
     }
 
     protected AnvilCachedChunk load(@NonNull RegionFile region, int x, int z) throws IOException {
+        return this.decode(region.read(x, z));
+    }
+
+    /**
+     * Adds a chunk which was loaded asynchronously to the cache.
+     * <p>
+     * If another thread managed to cache the same chunk first, the given chunk will be released and the existing one will be returned.
+     *
+     * @param x      the X coordinate of the chunk
+     * @param z      the Z coordinate of the chunk
+     * @param loaded the chunk that was loaded
+     * @return the cached chunk
+     */
+    protected AnvilCachedChunk cache(int x, int z, @NonNull AnvilCachedChunk loaded) {
+        long pos = BinMath.packXY(x, z);
+        AnvilCachedChunk existing = this.cachedChunks.putIfAbsent(pos, loaded);
+        if (existing != null) {
+            loaded.release();
+            return existing;
+        }
+        this.touch(pos);
+        this.cacheSize.incrementAndGet();
+        if (this.offHeapCache != null) { //the chunk may have been cached and evicted to the second level by another thread while this copy was being loaded
+            this.offHeapCache.remove(x, z);
+        }
+        return loaded;
+    }
+
+    /**
+     * Moves a chunk to the back of the cache's eviction order, adding it if it isn't tracked yet.
+     *
+     * @param pos the packed position of the chunk
+     */
+    protected void touch(long pos) {
+        synchronized (this.cacheOrder) {
+            this.cacheOrder.remove(pos);
+            this.cacheOrder.add(pos);
+        }
+    }
+
+    /**
+     * Evicts the oldest chunks from the cache until it is no larger than its configured capacity.
+     * <p>
+     * If the off-heap cache is enabled, evicted chunks are moved into it.
+     * <p>
+     * Evicted chunks are released by the cache, but any {@link Chunk}s or {@link Section}s which were already retained elsewhere remain valid.
+     */
+    protected void trimCache() {
+        while (this.cacheSize.get() > this.cacheCapacity) {
+            Long pos = null;
+            synchronized (this.cacheOrder) {
+                //chunks which can't be evicted yet are skipped, a later call will evict them once they can be
+                for (Iterator<Long> itr = this.cacheOrder.iterator(); itr.hasNext(); ) {
+                    Long candidate = itr.next();
+                    AnvilCachedChunk cached = this.cachedChunks.get(candidate);
+                    if (cached == null || cached.evictable()) {
+                        itr.remove();
+                        pos = candidate;
+                        break;
+                    }
+                }
+            }
+            if (pos == null) { //another thread is evicting concurrently, or no chunk can be evicted right now
+                return;
+            }
+            //the chunk is moved to the second-level cache while its entry is still present (and locked) in the first-level cache, so a concurrent load
+            // of the same chunk will find it in exactly one of the two levels
+            this.cachedChunks.computeIfPresent(pos, (l, evicted) -> {
+                if (!evicted.evictable()) { //the chunk was retained again in the meantime, keep it
+                    this.touch(l);
+                    return evicted;
+                }
+                this.cacheSize.decrementAndGet();
+                try {
+                    if (this.offHeapCache != null && evicted instanceof AnvilCachedChunk.ReadOnly) { //move the chunk to the second-level cache
+                        this.offHeapCache.put(BinMath.unpackX(l), BinMath.unpackY(l), (AnvilCachedChunk.ReadOnly) evicted);
+                    }
+                } finally {
+                    evicted.release();
+                }
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Decompresses a chunk that was read from a region file.
+     * <p>
+     * This method takes ownership of the raw chunk, which will be released before this method returns.
+     *
+     * @param chunk the raw chunk data
+     * @return a {@link ByteBuf} containing the uncompressed chunk data. The buffer must be released by the caller
+     */
+    protected ByteBuf inflate(@NonNull RawChunk chunk) throws IOException {
+        try (RawChunk raw = chunk) {
+            ByteBuf uncompressed = this.options.get(SaveOptions.NETTY_ALLOC).ioBuffer(1 << 18); //256 KiB
+            try (Handle<PInflater> handle = inflater(raw.data().readByte() & 0xFF)) {
+                handle.get().decompress(raw.data(), uncompressed);
+            } catch (Throwable t) {
+                uncompressed.release();
+                throw t;
+            }
+            return uncompressed;
+        }
+    }
+
+    /**
+     * Decompresses and decodes a chunk that was read from a region file.
+     * <p>
+     * This method takes ownership of the raw chunk, which will be released before the NBT data is parsed.
+     *
+     * @param chunk the raw chunk data, or {@code null} if the chunk doesn't exist on disk
+     * @return the decoded chunk
+     */
+    protected AnvilCachedChunk decode(RawChunk chunk) throws IOException {
+        if (chunk == null) { //chunk doesn't exist on disk
+            return new AnvilCachedChunk.ReadOnlyEmpty();
+        }
+
         CompoundTag tag = null;
         try {
-            ByteBuf uncompressed = null;
+            //tile entities and entities are split out of the chunk data without being parsed, they'll be parsed if and when they're accessed
+            List<LazyCompoundTag> tileEntities = new ArrayList<>();
+            List<LazyCompoundTag> entities = new ArrayList<>();
+            ByteBuf uncompressed = this.inflate(chunk);
             try {
-                try (RawChunk chunk = region.read(x, z)) {
-                    if (chunk == null) { //chunk doesn't exist on disk
-                        return this.readOnly
-                                ? new AnvilCachedChunk.ReadOnlyEmpty()
-                                : null; //TODO
+                NBTListExtractor.split(uncompressed, LAZY_LIST_NAMES, (name, element) -> {
+                    if (ENTITY_LIST_NAMES.contains(name)) {
+                        entities.add(LazyCompoundTag.ofEntity(element, this.nbtOptions));
+                    } else {
+                        tileEntities.add(LazyCompoundTag.ofTileEntity(element, this.nbtOptions));
                     }
-                    uncompressed = this.options.get(SaveOptions.NETTY_ALLOC).ioBuffer(1 << 18); //256 KiB
-                    try (Handle<PInflater> handle = inflater(chunk.data().readByte() & 0xFF)) {
-                        handle.get().decompress(chunk.data(), uncompressed);
-                    }
-                } //release compressed chunk data before parsing NBT
-                tag = NBTFormat.BIG_ENDIAN.readCompound(DataIn.wrap(uncompressed, false), this.nbtOptions);
+                });
+                tag = this.parse(uncompressed);
             } finally { //release uncompressed chunk data before constructing chunk instance
-                if (uncompressed != null) {
-                    uncompressed.release();
-                }
+                uncompressed.release();
             }
             int dataVersion = tag.getInt("DataVersion", 0);
             JavaVersion version = dataVersion < DataVersion.DATA_15w32a ? JavaVersion.pre15w32a() : JavaVersion.fromDataVersion(dataVersion);
             return this.readOnly
-                    ? new AnvilCachedChunk.ReadOnly(tag, version, this.fixers, this.world)
-                    : null; //TODO
+                    ? new AnvilCachedChunk.ReadOnly(tag, version, this.fixers, this.world, this.convertUniversal, tileEntities, entities)
+                    : new AnvilCachedChunk.ReadWrite(tag, version, this.fixers, this.world, this.convertUniversal, tileEntities, entities);
         } finally {
             if (tag != null) {
                 AllocatedNBTHelper.release(tag);
@@ -201,6 +637,252 @@ public class AnvilWorldStorage extends AbstractJavaWorldStorage {
         }
     }
 
+    /**
+     * Groups chunks and sections which are about to be saved by the chunk they belong to.
+     * <p>
+     * All of the chunks and sections are retained, and must be released using {@link PendingChunk#release()} once they have been saved.
+     *
+     * @param chunks   the chunks to save
+     * @param sections the sections to save
+     * @return the grouped chunks
+     */
+    protected Collection<PendingChunk> group(@NonNull Iterable<Chunk> chunks, @NonNull Iterable<Section> sections) {
+        LongObjMap<PendingChunk> pending = new LongObjOpenHashMap<>();
+        List<PendingChunk> list = new ArrayList<>();
+        LongFunction<PendingChunk> create = l -> {
+            PendingChunk p = new PendingChunk(BinMath.unpackX(l), BinMath.unpackY(l));
+            list.add(p);
+            return p;
+        };
+
+        try {
+            for (Chunk chunk : chunks) {
+                PendingChunk p = pending.computeIfAbsent(BinMath.packXY(chunk.x(), chunk.z()), create);
+                checkArg(p.chunk == null, "chunk (%d,%d) was given more than once", chunk.x(), chunk.z());
+                p.chunk = chunk.retain();
+            }
+            for (Section section : sections) {
+                checkArg(section.y() >= 0 && section.y() < 16, "section (%d,%d,%d) is outside of the world's vertical range [0,16)", section.x(), section.y(), section.z());
+                PendingChunk p = pending.computeIfAbsent(BinMath.packXY(section.x(), section.z()), create);
+                checkArg(p.sections[section.y()] == null, "section (%d,%d,%d) was given more than once", section.x(), section.y(), section.z());
+                p.sections[section.y()] = section.retain();
+            }
+        } catch (Throwable t) {
+            list.forEach(PendingChunk::release);
+            throw t;
+        }
+        return list;
+    }
+
+    /**
+     * Encodes and writes a single chunk.
+     *
+     * @param chunk the chunk to write
+     */
+    protected void write(@NonNull PendingChunk chunk) throws IOException {
+        this.fill(chunk);
+        this.write(chunk.x, chunk.z, this.encode(chunk));
+    }
+
+    /**
+     * Writes an encoded chunk to its region, and evicts any previously cached copies of it.
+     * <p>
+     * This method takes ownership of the compressed data.
+     *
+     * @param x          the chunk's X coordinate
+     * @param z          the chunk's Z coordinate
+     * @param compressed the compressed chunk data
+     */
+    protected void write(int x, int z, @NonNull ByteBuf compressed) throws IOException {
+        try {
+            this.regionCache.write(x, z, compressed.retain(), RegionConstants.ID_ZLIB, System.currentTimeMillis(), true);
+        } finally {
+            compressed.release();
+        }
+
+        long pos = BinMath.packXY(x, z);
+        AnvilCachedChunk evicted = this.cachedChunks.remove(pos);
+        if (evicted != null) {
+            synchronized (this.cacheOrder) {
+                this.cacheOrder.remove(pos);
+            }
+            this.cacheSize.decrementAndGet();
+            evicted.release();
+        }
+        if (this.offHeapCache != null && (evicted = this.offHeapCache.take(x, z)) != null) {
+            evicted.release();
+        }
+    }
+
+    /**
+     * Fills in the parts of a chunk which aren't being saved from the existing copy of the chunk, so that they aren't lost.
+     * <p>
+     * The existing copy is loaded through the cache, which may block if it isn't cached.
+     *
+     * @param chunk the chunk to fill in
+     */
+    protected void fill(@NonNull PendingChunk chunk) throws IOException {
+        if (chunk.chunk == null) {
+            chunk.chunk = this.loadChunk(chunk.x, chunk.z);
+            checkArg(chunk.chunk != null, "can't save sections of chunk (%d,%d), as the chunk doesn't exist", chunk.x, chunk.z);
+        }
+        for (int y = 0; y < 16; y++) {
+            if (chunk.sections[y] == null) {
+                chunk.sections[y] = this.loadSection(chunk.x, y, chunk.z);
+            }
+        }
+    }
+
+    /**
+     * Fills in the parts of a chunk which aren't being saved from the existing copy of the chunk, so that they aren't lost.
+     * <p>
+     * This takes ownership of the raw chunk data, which is decoded without being added to the cache.
+     *
+     * @param chunk the chunk to fill in
+     * @param raw   the raw data of the existing copy of the chunk, or {@code null} if it doesn't exist on disk
+     */
+    protected void fill(@NonNull PendingChunk chunk, RawChunk raw) throws IOException {
+        AnvilCachedChunk existing = this.decode(raw);
+        try {
+            if (chunk.chunk == null) {
+                chunk.chunk = existing.chunk();
+                checkArg(chunk.chunk != null, "can't save sections of chunk (%d,%d), as the chunk doesn't exist", chunk.x, chunk.z);
+            }
+            for (int y = 0; y < 16; y++) {
+                if (chunk.sections[y] == null) {
+                    chunk.sections[y] = existing.section(y);
+                }
+            }
+        } finally {
+            existing.release();
+        }
+    }
+
+    /**
+     * Encodes and compresses a chunk.
+     * <p>
+     * Any parts of the chunk which aren't being saved must already have been filled in using {@link #fill(PendingChunk)}, or sections which
+     * weren't given will be lost.
+     *
+     * @param chunk the chunk to encode
+     * @return a {@link ByteBuf} containing the compressed chunk data. The buffer must be released by the caller
+     */
+    protected ByteBuf encode(@NonNull PendingChunk chunk) throws IOException {
+        checkState(chunk.chunk != null, "chunk (%d,%d) hasn't been filled in", chunk.x, chunk.z);
+
+        checkArg(chunk.chunk.version() instanceof JavaVersion, "can't save chunk with non-java version %s", chunk.chunk.version());
+        JavaVersion version = (JavaVersion) chunk.chunk.version();
+        JavaChunkEncoder chunkEncoder = this.fixers.chunkEncoder().ceilingEntry(version).getValue();
+        JavaSectionEncoder sectionEncoder = this.fixers.sectionEncoder().ceilingEntry(version).getValue();
+
+        ByteBuf uncompressed = this.options.get(SaveOptions.NETTY_ALLOC).ioBuffer(1 << 18); //256 KiB
+        try {
+            chunkEncoder.encode(chunk.chunk, chunk.sections, version, sectionEncoder, uncompressed);
+            return this.deflate(uncompressed);
+        } finally {
+            uncompressed.release();
+        }
+    }
+
+    /**
+     * A chunk which is about to be saved, along with its sections.
+     *
+     * @author DaPorkchop_
+     */
+    protected static final class PendingChunk {
+        protected final int x;
+        protected final int z;
+
+        protected Chunk chunk;
+        protected final Section[] sections = new Section[16];
+
+        public PendingChunk(int x, int z) {
+            this.x = x;
+            this.z = z;
+        }
+
+        /**
+         * @return whether or not the chunk and all of its sections are being saved, in which case the existing copy of the chunk isn't needed
+         */
+        public boolean complete() {
+            if (this.chunk == null) {
+                return false;
+            }
+            for (Section section : this.sections) {
+                if (section == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public void release() {
+            if (this.chunk != null) {
+                this.chunk.release();
+            }
+            for (Section section : this.sections) {
+                if (section != null) {
+                    section.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Tracks the progress of a single call to {@link #saveAsync(Iterable, Iterable)}.
+     *
+     * @author DaPorkchop_
+     */
+    protected final class Save {
+        protected final AtomicLong remaining;
+
+        protected volatile Throwable cause;
+        protected Runnable completion;
+
+        public Save(long total) {
+            this.remaining = new AtomicLong(total);
+        }
+
+        public void chunkProcessed() {
+            if (this.remaining.decrementAndGet() == 0L) { //all chunks are done, complete the future
+                AnvilWorldStorage.this.computeExecutor.execute(this.completion);
+            }
+        }
+    }
+
+    /**
+     * Tracks the progress of a single call to {@link #preload(int, int, int, int, int, PreloadListener)}.
+     *
+     * @author DaPorkchop_
+     */
+    protected final class Preload {
+        protected final long total;
+        protected final PreloadListener listener;
+        protected final AtomicLong processed = new AtomicLong();
+        protected final LongAdder loaded = new LongAdder();
+
+        protected volatile Throwable cause;
+        protected Runnable completion;
+
+        public Preload(long total, PreloadListener listener) {
+            this.total = total;
+            this.listener = listener;
+        }
+
+        public void chunkProcessed() {
+            long processed = this.processed.incrementAndGet();
+            try {
+                if (this.listener != null) {
+                    this.listener.progress(processed, this.total);
+                }
+            } finally {
+                if (processed == this.total) { //all chunks are done, complete the future
+                    AnvilWorldStorage.this.computeExecutor.execute(this.completion);
+                }
+            }
+        }
+    }
+
     public interface ChunkUpdater extends LongObjObjFunction<AnvilCachedChunk, AnvilCachedChunk> {
         @Override
         default AnvilCachedChunk apply(long l, AnvilCachedChunk chunk) {
@@ -0,0 +1,272 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.format.anvil.storage;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import lombok.NonNull;
+import net.daporkchop.lib.common.math.BinMath;
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.format.common.section.BinarySectionCodec;
+import net.daporkchop.mcworldlib.util.nbt.LazyCompoundTag;
+import net.daporkchop.mcworldlib.world.Chunk;
+import net.daporkchop.mcworldlib.world.section.Section;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * A second-level cache for {@link AnvilWorldStorage}, which keeps chunks that were evicted from the main chunk cache in off-heap memory.
+ * <p>
+ * Sections are stored using {@link BinarySectionCodec}, so bringing a chunk back from this cache is little more than a memory copy, rather than
+ * having to inflate, parse and decode the chunk from its region file again. Block states are stored as IDs into a table which is shared between all
+ * chunks in the cache.
+ * <p>
+ * The cache has a fixed budget in bytes. Once the budget is exceeded, the chunks which have been in the cache the longest are evicted first.
+ * <p>
+ * Chunks are moved between the two cache levels rather than copied, so a chunk is never present in both at once.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author DaPorkchop_
+ */
+public class OffHeapSectionCache {
+    protected final ByteBufAllocator alloc;
+    protected final long budget;
+
+    protected final Map<Long, Entry> entries = new LinkedHashMap<>(); //guarded by itself, iteration order is eviction order
+    protected long used; //guarded by entries
+
+    protected final Map<BlockState, Integer> stateIds = new ConcurrentHashMap<>();
+    protected volatile BlockState[] states = new BlockState[256]; //only grown while holding stateIds' lock, reads don't need to lock at all
+    protected int stateCount; //guarded by stateIds
+
+    protected final BinarySectionCodec.StateWriter stateWriter = (state, dst) -> dst.writeInt(this.stateId(state));
+    protected final BinarySectionCodec.StateReader stateReader = src -> this.state(src.readInt());
+
+    public OffHeapSectionCache(@NonNull ByteBufAllocator alloc, long budget) {
+        checkArg(budget > 0L, "budget (%d) must be positive!", budget);
+        this.alloc = alloc;
+        this.budget = budget;
+    }
+
+    /**
+     * Adds a chunk which was evicted from the main cache.
+     * <p>
+     * This does not take ownership of the given chunk, which must still be released by the caller.
+     *
+     * @param x      the chunk's X coordinate
+     * @param z      the chunk's Z coordinate
+     * @param cached the chunk
+     */
+    public void put(int x, int z, @NonNull AnvilCachedChunk.ReadOnly cached) {
+        Entry entry = new Entry(cached.chunk.retain());
+        ByteBuf data = this.alloc.directBuffer(1 << 14);
+        try {
+            for (int y = 0; y < 16; y++) {
+                Section section = cached.sections[y];
+                if (section != null) {
+                    entry.mask |= 1 << y;
+                    BinarySectionCodec.encode(section, data, this.stateWriter);
+                    entry.tileEntities[y] = section.lazyTileEntities().toArray(new LazyCompoundTag[0]);
+                    entry.entities[y] = section.lazyEntities().toArray(new LazyCompoundTag[0]);
+                }
+            }
+            data.capacity(data.writerIndex()); //trim the buffer to avoid wasting memory
+        } catch (Throwable t) {
+            data.release();
+            entry.chunk.release();
+            throw t;
+        }
+        entry.data = data;
+
+        if (data.capacity() > this.budget) { //the chunk will never fit
+            entry.release();
+            return;
+        }
+
+        long pos = BinMath.packXY(x, z);
+        synchronized (this.entries) {
+            //remove the old entry first so that the new one is moved to the back of the eviction order
+            Entry old = this.entries.remove(pos);
+            if (old != null) {
+                this.used -= old.data.capacity();
+                old.release();
+            }
+            this.entries.put(pos, entry);
+            this.used += data.capacity();
+            this.trim();
+        }
+    }
+
+    /**
+     * Removes a chunk from this cache, and decodes it.
+     *
+     * @param x the chunk's X coordinate
+     * @param z the chunk's Z coordinate
+     * @return the decoded chunk, or {@code null} if the chunk was not present in this cache
+     */
+    public AnvilCachedChunk.ReadOnly take(int x, int z) {
+        Entry entry;
+        synchronized (this.entries) {
+            if ((entry = this.entries.remove(BinMath.packXY(x, z))) == null) {
+                return null;
+            }
+            this.used -= entry.data.capacity();
+        }
+
+        Section[] sections = new Section[16];
+        try {
+            ByteBuf data = entry.data;
+            for (int y = 0; y < 16; y++) {
+                if ((entry.mask & (1 << y)) != 0) {
+                    Section section = sections[y] = BinarySectionCodec.decode(data, entry.chunk.version(), x, z, this.stateReader);
+                    for (LazyCompoundTag tileEntity : entry.tileEntities[y]) {
+                        section.setLazyTileEntity(tileEntity.x() & 0xF, tileEntity.y() & 0xF, tileEntity.z() & 0xF, tileEntity);
+                    }
+                    for (LazyCompoundTag entity : entry.entities[y]) {
+                        section.addLazyEntity(entity);
+                    }
+                }
+            }
+            return new AnvilCachedChunk.ReadOnly(entry.chunk.retain(), sections);
+        } catch (Throwable t) {
+            for (Section section : sections) {
+                if (section != null) {
+                    section.release();
+                }
+            }
+            throw t;
+        } finally {
+            entry.release();
+        }
+    }
+
+    /**
+     * Removes a chunk from this cache without decoding it.
+     *
+     * @param x the chunk's X coordinate
+     * @param z the chunk's Z coordinate
+     */
+    public void remove(int x, int z) {
+        synchronized (this.entries) {
+            Entry entry = this.entries.remove(BinMath.packXY(x, z));
+            if (entry != null) {
+                this.used -= entry.data.capacity();
+                entry.release();
+            }
+        }
+    }
+
+    /**
+     * @param x the chunk's X coordinate
+     * @param z the chunk's Z coordinate
+     * @return whether or not the given chunk is currently present in this cache
+     */
+    public boolean contains(int x, int z) {
+        synchronized (this.entries) {
+            return this.entries.containsKey(BinMath.packXY(x, z));
+        }
+    }
+
+    /**
+     * @return the number of bytes of off-heap memory currently used by this cache
+     */
+    public long used() {
+        synchronized (this.entries) {
+            return this.used;
+        }
+    }
+
+    /**
+     * Removes all chunks from this cache.
+     */
+    public void clear() {
+        synchronized (this.entries) {
+            this.entries.values().forEach(Entry::release);
+            this.entries.clear();
+            this.used = 0L;
+        }
+    }
+
+    /**
+     * Evicts the chunks which have been in this cache the longest until it fits into its budget again.
+     * <p>
+     * Must be called while holding {@link #entries}' lock.
+     */
+    protected void trim() {
+        for (Iterator<Entry> itr = this.entries.values().iterator(); this.used > this.budget && itr.hasNext(); ) {
+            Entry entry = itr.next();
+            itr.remove();
+            this.used -= entry.data.capacity();
+            entry.release();
+        }
+    }
+
+    protected int stateId(@NonNull BlockState state) {
+        Integer id = this.stateIds.get(state);
+        if (id == null) {
+            synchronized (this.stateIds) {
+                if ((id = this.stateIds.get(state)) == null) {
+                    BlockState[] states = this.states;
+                    if (this.stateCount == states.length) {
+                        states = Arrays.copyOf(states, states.length << 1);
+                    }
+                    states[id = this.stateCount++] = state;
+                    this.states = states; //volatile write publishes the new element before the ID can be used
+                    this.stateIds.put(state, id);
+                }
+            }
+        }
+        return id;
+    }
+
+    protected BlockState state(int id) {
+        return this.states[id];
+    }
+
+    /**
+     * A single chunk stored in the cache.
+     *
+     * @author DaPorkchop_
+     */
+    protected static final class Entry {
+        protected final Chunk chunk;
+        protected final LazyCompoundTag[][] tileEntities = new LazyCompoundTag[16][];
+        protected final LazyCompoundTag[][] entities = new LazyCompoundTag[16][];
+        protected ByteBuf data;
+        protected int mask;
+
+        public Entry(@NonNull Chunk chunk) {
+            this.chunk = chunk;
+        }
+
+        public void release() {
+            this.chunk.release();
+            this.data.release();
+        }
+    }
+}
@@ -83,13 +83,25 @@ public abstract class UncachedAnvilSpliterator<T> implements Spliterator<T> {
     }
 
     protected AnvilCachedChunk next() {
+        return this.next(this.storage::load);
+    }
+
+    /**
+     * Reads chunks from the remaining regions until the given {@link ChunkReader} returns a non-{@code null} value.
+     * <p>
+     * Once every region has been read, the storage is released.
+     *
+     * @param reader the {@link ChunkReader} to use
+     * @return the first non-{@code null} value returned by the reader, or {@code null} if there are no chunks left
+     */
+    protected <R> R next(@NonNull ChunkReader<R> reader) {
         try {
             while (this.region != null || this.nextRegion()) {
                 for (; this.chunkX < 32; this.chunkX++, this.chunkZ = 0) { //try to find the next chunk
                     while (this.chunkZ < 32) {
-                        AnvilCachedChunk chunk = this.storage.load(this.region, this.chunkX, this.chunkZ++);
-                        if (chunk != null) {
-                            return chunk;
+                        R value = reader.read(this.region, this.chunkX, this.chunkZ++);
+                        if (value != null) {
+                            return value;
                         }
                     }
                 }
@@ -138,6 +150,22 @@ public abstract class UncachedAnvilSpliterator<T> implements Spliterator<T> {
 
     protected abstract Spliterator<T> sub(@NonNull AnvilWorldStorage storage, @NonNull File[] regions, int index, int fence);
 
+    /**
+     * Reads a value from a single chunk in a region.
+     *
+     * @author DaPorkchop_
+     */
+    @FunctionalInterface
+    protected interface ChunkReader<R> {
+        /**
+         * @param region the region
+         * @param x      the X coordinate of the chunk, relative to the region
+         * @param z      the Z coordinate of the chunk, relative to the region
+         * @return the value read from the chunk, or {@code null} if the chunk should be skipped
+         */
+        R read(@NonNull RegionFile region, int x, int z) throws IOException;
+    }
+
     /**
      * Implementation of a {@link Spliterator} over the chunks in an Anvil world.
      *
@@ -20,15 +20,22 @@
 
 package net.daporkchop.mcworldlib.format.common;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.Accessors;
 import net.daporkchop.lib.common.misc.refcount.AbstractRefCounted;
+import net.daporkchop.lib.nbt.tag.CompoundTag;
 import net.daporkchop.mcworldlib.version.MinecraftVersion;
 import net.daporkchop.mcworldlib.world.Chunk;
+import net.daporkchop.mcworldlib.world.HeightmapType;
 import net.daporkchop.lib.unsafe.util.exception.AlreadyReleasedException;
 
+import java.util.function.Function;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
 /**
  * Base implementation of {@link Chunk}.
  *
@@ -42,6 +49,81 @@ public abstract class AbstractChunk extends AbstractRefCounted implements Chunk
     protected final int x;
     protected final int z;
 
+    @Getter(AccessLevel.NONE)
+    protected final int[][] heightmaps = new int[HeightmapType.values().length][];
+
+    /**
+     * The parts of the chunk's NBT data which aren't represented by this class, or {@code null} if there are none.
+     * <p>
+     * Entries from the chunk's {@code "Level"} compound are kept in a compound of the same name. They're written back unchanged when the chunk is
+     * saved.
+     */
+    @Getter(AccessLevel.NONE)
+    protected CompoundTag extraData;
+
+    /**
+     * Computes heightmaps which this chunk doesn't have when they are first requested, or {@code null} if missing heightmaps aren't computed.
+     */
+    @Getter(AccessLevel.NONE)
+    protected Function<HeightmapType, int[]> heightmapSource;
+
+    @Override
+    public int[] heightmap(@NonNull HeightmapType type) {
+        int[] heightmap = this.heightmaps[type.ordinal()];
+        if (heightmap == null && this.heightmapSource != null) {
+            heightmap = this.computeHeightmap(type);
+        }
+        return heightmap;
+    }
+
+    protected synchronized int[] computeHeightmap(@NonNull HeightmapType type) {
+        int[] heightmap = this.heightmaps[type.ordinal()];
+        if (heightmap == null && this.heightmapSource != null && (heightmap = this.heightmapSource.apply(type)) != null) {
+            checkState(heightmap.length == 256, "computed heightmap must contain exactly 256 entries!");
+            this.heightmaps[type.ordinal()] = heightmap;
+        }
+        return heightmap;
+    }
+
+    /**
+     * Sets the function used to compute heightmaps which this chunk doesn't have.
+     * <p>
+     * A missing heightmap is computed the first time it is requested, and then kept. The function may return {@code null} for heightmap types
+     * which it can't compute.
+     *
+     * @param heightmapSource the function. If {@code null}, missing heightmaps will no longer be computed
+     */
+    public synchronized void heightmapSource(Function<HeightmapType, int[]> heightmapSource) {
+        this.heightmapSource = heightmapSource;
+    }
+
+    /**
+     * Sets one of this chunk's heightmaps.
+     *
+     * @param type      the {@link HeightmapType} of the heightmap to set
+     * @param heightmap the new heightmap. If {@code null}, the heightmap will be removed
+     */
+    public void heightmap(@NonNull HeightmapType type, int[] heightmap) {
+        checkArg(heightmap == null || heightmap.length == 256, "heightmap must contain exactly 256 entries!");
+        this.heightmaps[type.ordinal()] = heightmap;
+    }
+
+    /**
+     * @return the parts of this chunk's NBT data which aren't represented by this class, or {@code null} if there are none
+     */
+    public CompoundTag extraData() {
+        return this.extraData;
+    }
+
+    /**
+     * Sets the parts of this chunk's NBT data which aren't represented by this class.
+     *
+     * @param extraData the extra data. May be {@code null}
+     */
+    public void extraData(CompoundTag extraData) {
+        this.extraData = extraData;
+    }
+
     @Override
     public Chunk retain() throws AlreadyReleasedException {
         super.retain();
@@ -65,6 +65,11 @@ public abstract class DirectNibbleArray extends AbstractRefCounted implements Ni
         PUnsafe.putByte(this.addr + (offset >> 1), (byte) NibbleArray.insertNibble(offset, PUnsafe.getByte(this.addr + (offset >> 1)), value));
     }
 
+    @Override
+    public void writePacked(@NonNull ByteBuf dst) {
+        dst.writeBytes(Unpooled.wrappedBuffer(this.addr, MAX_INDEX >> 1, false));
+    }
+
     @Override
     public abstract NibbleArray clone();
 
@@ -69,6 +69,11 @@ public abstract class HeapNibbleArray extends AbstractRefCounted implements Nibb
         this.arr[offset >> 1] = (byte) NibbleArray.insertNibble(offset, this.arr[offset >> 1], value);
     }
 
+    @Override
+    public void writePacked(@NonNull ByteBuf dst) {
+        dst.writeBytes(this.arr, 0, PACKED_SIZE);
+    }
+
     @Override
     public abstract NibbleArray clone();
 
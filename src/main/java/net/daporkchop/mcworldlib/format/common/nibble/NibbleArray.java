@@ -20,10 +20,15 @@
 
 package net.daporkchop.mcworldlib.format.common.nibble;
 
+import io.netty.buffer.ByteBuf;
+import lombok.NonNull;
 import net.daporkchop.lib.common.misc.Cloneable;
 import net.daporkchop.lib.common.misc.refcount.RefCounted;
+import net.daporkchop.lib.unsafe.PUnsafe;
 import net.daporkchop.lib.unsafe.util.exception.AlreadyReleasedException;
 
+import java.util.Arrays;
+
 import static net.daporkchop.lib.common.util.PValidation.*;
 
 /**
@@ -59,6 +64,46 @@ public interface NibbleArray extends Cloneable<NibbleArray>, RefCounted {
         return (existing & ~(0xF << shift)) | (value << shift);
     }
 
+    /**
+     * Sets every nibble with an index in the given range of a packed nibble array to the given value.
+     *
+     * @param arr   the packed nibbles
+     * @param from  the first index (inclusive)
+     * @param to    the last index (exclusive)
+     * @param value the new value
+     */
+    static void fillNibbles(@NonNull byte[] arr, int from, int to, int value) {
+        if (from < to && (from & 1) != 0) { //the first nibble shares its byte with one outside of the range
+            arr[from >> 1] = (byte) insertNibble(from, arr[from >> 1], value);
+            from++;
+        }
+        if (from < to && (to & 1) != 0) { //so does the last one
+            to--;
+            arr[to >> 1] = (byte) insertNibble(to, arr[to >> 1], value);
+        }
+        Arrays.fill(arr, from >> 1, to >> 1, (byte) (value | (value << 4)));
+    }
+
+    /**
+     * Sets every nibble with an index in the given range of a packed nibble array to the given value.
+     *
+     * @param addr  the memory address of the packed nibbles
+     * @param from  the first index (inclusive)
+     * @param to    the last index (exclusive)
+     * @param value the new value
+     */
+    static void fillNibbles(long addr, int from, int to, int value) {
+        if (from < to && (from & 1) != 0) { //the first nibble shares its byte with one outside of the range
+            PUnsafe.putByte(addr + (from >> 1), (byte) insertNibble(from, PUnsafe.getByte(addr + (from >> 1)), value));
+            from++;
+        }
+        if (from < to && (to & 1) != 0) { //so does the last one
+            to--;
+            PUnsafe.putByte(addr + (to >> 1), (byte) insertNibble(to, PUnsafe.getByte(addr + (to >> 1)), value));
+        }
+        PUnsafe.setMemory(addr + (from >> 1), (to - from) >> 1, (byte) (value | (value << 4)));
+    }
+
     /**
      * Gets the nibble at the given coordinates.
      *
@@ -99,6 +144,16 @@ public interface NibbleArray extends Cloneable<NibbleArray>, RefCounted {
      */
     void set(int offset, int value);
 
+    /**
+     * Writes the packed contents of this array to the given {@link ByteBuf}.
+     * <p>
+     * The nibbles are written in the array's native order (the same order used by {@link #get(int)}), two per byte with the even offset in the
+     * low nibble, so this is a plain copy of {@link #PACKED_SIZE} bytes.
+     *
+     * @param dst the {@link ByteBuf} to write to
+     */
+    void writePacked(@NonNull ByteBuf dst);
+
     @Override
     NibbleArray clone();
 
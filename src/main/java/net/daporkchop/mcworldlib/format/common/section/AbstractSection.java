@@ -30,6 +30,7 @@ import net.daporkchop.lib.primitive.map.open.IntObjOpenHashMap;
 import net.daporkchop.lib.unsafe.util.exception.AlreadyReleasedException;
 import net.daporkchop.mcworldlib.block.access.BlockAccess;
 import net.daporkchop.mcworldlib.format.common.nibble.NibbleArray;
+import net.daporkchop.mcworldlib.util.nbt.LazyCompoundTag;
 import net.daporkchop.mcworldlib.version.MinecraftVersion;
 import net.daporkchop.mcworldlib.world.section.Section;
 import net.daporkchop.mcworldlib.world.storage.BlockStorage;
@@ -39,8 +40,6 @@ import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.Set;
 
-import static net.daporkchop.lib.common.util.PorkUtil.*;
-
 /**
  * Default implementation of {@link Section}, as a combination of {@link BlockAccess} and multiple {@link NibbleArray}s for block and sky light.
  *
@@ -53,8 +52,8 @@ public abstract class AbstractSection extends AbstractRefCounted implements Sect
     @Getter(AccessLevel.NONE)
     protected final NibbleArray skyLight;
 
-    protected final IntObjMap<CompoundTag> tileEntities = new IntObjOpenHashMap<>();
-    protected final Set<CompoundTag> entities = Collections.newSetFromMap(new IdentityHashMap<>());
+    protected final IntObjMap<LazyCompoundTag> tileEntities = new IntObjOpenHashMap<>();
+    protected final Set<LazyCompoundTag> entities = Collections.newSetFromMap(new IdentityHashMap<>());
 
     protected final MinecraftVersion version;
     protected final int x;
@@ -88,7 +87,8 @@ public abstract class AbstractSection extends AbstractRefCounted implements Sect
     @Override
     public CompoundTag getTileEntity(int x, int y, int z) {
         BlockStorage.checkCoords(x, y, z);
-        return uncheckedCast(this.tileEntities.get((x << 8) | (y << 4) | z));
+        LazyCompoundTag tileEntity = this.tileEntities.get((x << 8) | (y << 4) | z);
+        return tileEntity != null ? tileEntity.tag() : null;
     }
 
     @Override
@@ -97,23 +97,64 @@ public abstract class AbstractSection extends AbstractRefCounted implements Sect
         if (tileEntity == null) {
             this.tileEntities.remove((x << 8) | (y << 4) | z);
         } else {
-            this.tileEntities.put((x << 8) | (y << 4) | z, tileEntity);
+            this.tileEntities.put((x << 8) | (y << 4) | z, LazyCompoundTag.of(tileEntity));
         }
     }
 
+    @Override
+    public void setLazyTileEntity(int x, int y, int z, @NonNull LazyCompoundTag tileEntity) {
+        BlockStorage.checkCoords(x, y, z);
+        this.tileEntities.put((x << 8) | (y << 4) | z, tileEntity);
+    }
+
     @Override
     public Collection<CompoundTag> tileEntities() {
+        return LazyCompoundTag.parsingView(this.tileEntities.values());
+    }
+
+    @Override
+    public Collection<LazyCompoundTag> lazyTileEntities() {
         return this.tileEntities.values();
     }
 
     @Override
     public void addEntity(@NonNull CompoundTag entity) {
+        if (this.findEntity(entity) == null) { //only wrap the entity in a new handle if it isn't already in this section
+            this.entities.add(LazyCompoundTag.of(entity));
+        }
+    }
+
+    @Override
+    public void addLazyEntity(@NonNull LazyCompoundTag entity) {
         this.entities.add(entity);
     }
 
     @Override
     public void removeEntity(@NonNull CompoundTag entity) {
-        this.entities.remove(entity);
+        LazyCompoundTag handle = this.findEntity(entity);
+        if (handle != null) {
+            this.entities.remove(handle);
+        }
+    }
+
+    protected LazyCompoundTag findEntity(@NonNull CompoundTag entity) {
+        //the entity can only have been obtained from this section if it was already parsed, so there's no need to parse any others
+        for (LazyCompoundTag handle : this.entities) {
+            if (handle.isParsed() && handle.tag() == entity) {
+                return handle;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Collection<CompoundTag> entities() {
+        return LazyCompoundTag.parsingView(this.entities);
+    }
+
+    @Override
+    public Collection<LazyCompoundTag> lazyEntities() {
+        return this.entities;
     }
 
     @Override
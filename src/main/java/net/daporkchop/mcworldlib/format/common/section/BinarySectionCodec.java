@@ -0,0 +1,386 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.format.common.section;
+
+import io.netty.buffer.ByteBuf;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import net.daporkchop.lib.common.math.BinMath;
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.format.common.nibble.DirectNibbleArray;
+import net.daporkchop.mcworldlib.format.common.nibble.HeapNibbleArray;
+import net.daporkchop.mcworldlib.format.common.nibble.NibbleArray;
+import net.daporkchop.mcworldlib.format.common.section.flattened.SingleLayerFlattenedSection;
+import net.daporkchop.mcworldlib.format.common.section.legacy.DefaultLegacySection;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.DirectFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.HeapPackedFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.HeapPaddedFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.legacy.HeapLegacyBlockStorage;
+import net.daporkchop.mcworldlib.util.palette.state.ArrayStatePalette;
+import net.daporkchop.mcworldlib.util.palette.state.StatePalette;
+import net.daporkchop.mcworldlib.version.MinecraftVersion;
+import net.daporkchop.mcworldlib.world.section.FlattenedSection;
+import net.daporkchop.mcworldlib.world.section.LegacySection;
+import net.daporkchop.mcworldlib.world.section.Section;
+import net.daporkchop.mcworldlib.world.storage.BlockStorage;
+import net.daporkchop.mcworldlib.world.storage.FlattenedBlockStorage;
+import net.daporkchop.mcworldlib.world.storage.LegacyBlockStorage;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Encodes the block and light data of already decoded {@link Section}s into a compact binary layout, and decodes it again.
+ * <p>
+ * Unlike the NBT-based on-disk formats, decoding this layout involves no parsing: block data is stored as the same packed {@code long} words used
+ * in memory, and legacy block IDs and light levels are stored as raw nibble arrays, so decoding is essentially a sequence of bulk copies.
+ * <p>
+ * Tile entities and entities are not encoded.
+ * <p>
+ * The layout of an encoded section is:
+ * <pre>
+ * byte  type (see TYPE_* constants)
+ * int   section Y coordinate
+ * byte  flags (see FLAG_* constants)
+ *
+ * for flattened sections:
+ * byte  bits per entry
+ * short palette size
+ *       palette entries, written by a {@link StateWriter}
+ * short number of words
+ * long  words[]
+ *
+ * for legacy sections:
+ * byte  blocks[4096]
+ * byte  meta[2048]
+ * byte  add[2048] (only for TYPE_LEGACY_ADD)
+ *
+ * byte  blockLight[2048]
+ * byte  skyLight[2048] (only if FLAG_SKY_LIGHT is set)
+ * </pre>
+ *
+ * @author DaPorkchop_
+ */
+@UtilityClass
+public class BinarySectionCodec {
+    public static final int TYPE_FLATTENED_PACKED = 0;
+    public static final int TYPE_FLATTENED_PADDED = 1;
+    public static final int TYPE_LEGACY = 2;
+    public static final int TYPE_LEGACY_ADD = 3;
+
+    public static final int FLAG_SKY_LIGHT = 1 << 0;
+    public static final int FLAG_LIGHT_XZY = 1 << 1;
+
+    /**
+     * Encodes the given {@link Section}.
+     *
+     * @param section the {@link Section} to encode
+     * @param dst     the {@link ByteBuf} to write the encoded section to
+     * @param writer  the {@link StateWriter} to use for writing palette entries
+     * @throws IllegalArgumentException if the section uses a block storage type which is not supported
+     */
+    public void encode(@NonNull Section section, @NonNull ByteBuf dst, @NonNull StateWriter writer) {
+        int type = type(section);
+        dst.writeByte(type).writeInt(section.y()).writeByte(flags(section));
+
+        encodeBlocks(section, type, dst, dst, writer);
+        section.blockLightStorage().writePacked(dst);
+        if (section.hasSkyLight()) {
+            section.skyLightStorage().writePacked(dst);
+        }
+    }
+
+    /**
+     * Gets the type that the given {@link Section} will be encoded as.
+     *
+     * @param section the {@link Section}
+     * @return the section's type (one of the TYPE_* constants)
+     * @throws IllegalArgumentException if the section uses a block storage type which is not supported
+     */
+    public int type(@NonNull Section section) {
+        if (section instanceof FlattenedSection) {
+            FlattenedBlockStorage storage = ((FlattenedSection) section).blockStorage();
+            return storage instanceof HeapPaddedFlattenedBlockStorage || storage instanceof DirectFlattenedBlockStorage.Padded ? TYPE_FLATTENED_PADDED : TYPE_FLATTENED_PACKED;
+        } else if (section instanceof LegacySection) {
+            return ((LegacySection) section).blockStorage().extendedIds() ? TYPE_LEGACY_ADD : TYPE_LEGACY;
+        } else {
+            throw new IllegalArgumentException("unsupported section type: " + section.getClass().getCanonicalName());
+        }
+    }
+
+    /**
+     * Gets the flags that the given {@link Section} will be encoded with.
+     *
+     * @param section the {@link Section}
+     * @return the section's flags (a combination of the FLAG_* constants)
+     */
+    public int flags(@NonNull Section section) {
+        int flags = 0;
+        if (section.hasSkyLight()) {
+            flags |= FLAG_SKY_LIGHT;
+        }
+        if (isXZY(section.blockLightStorage())) {
+            flags |= FLAG_LIGHT_XZY;
+        }
+        return flags;
+    }
+
+    /**
+     * Encodes the block data of the given {@link Section}.
+     * <p>
+     * The palette (for flattened sections) and the block data itself may be written to different buffers, which allows storing them in separate
+     * columns. Legacy sections have no palette, so nothing is written to {@code paletteDst} for them.
+     *
+     * @param section    the {@link Section} to encode
+     * @param type       the section's type, as returned by {@link #type(Section)}
+     * @param paletteDst the {@link ByteBuf} to write the palette to
+     * @param blocksDst  the {@link ByteBuf} to write the block data to
+     * @param writer     the {@link StateWriter} to use for writing palette entries
+     */
+    public void encodeBlocks(@NonNull Section section, int type, @NonNull ByteBuf paletteDst, @NonNull ByteBuf blocksDst, @NonNull StateWriter writer) {
+        switch (type) {
+            case TYPE_FLATTENED_PACKED:
+            case TYPE_FLATTENED_PADDED:
+                encodeFlattened(((FlattenedSection) section).blockStorage(), type == TYPE_FLATTENED_PADDED, paletteDst, blocksDst, writer);
+                break;
+            case TYPE_LEGACY:
+            case TYPE_LEGACY_ADD:
+                encodeLegacy(((LegacySection) section).blockStorage(), type == TYPE_LEGACY_ADD, blocksDst);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown section type: " + type);
+        }
+    }
+
+    private void encodeFlattened(@NonNull FlattenedBlockStorage storage, boolean padded, @NonNull ByteBuf paletteDst, @NonNull ByteBuf dst, @NonNull StateWriter writer) {
+        StatePalette palette = storage.internal().palette();
+        int[] ids = new int[BlockStorage.NUM_BLOCKS];
+        storage.getPaletteIds(ids);
+
+        //only write the palette entries which are actually used, a global palette may have thousands of entries (most of which are unused or null)
+        int[] remap = new int[palette.size()];
+        for (int i = 0; i < BlockStorage.NUM_BLOCKS; i++) {
+            remap[ids[i]] = 1;
+        }
+        int size = 0;
+        for (int id = 0; id < remap.length; id++) {
+            remap[id] = remap[id] != 0 ? size++ : -1;
+        }
+        for (int i = 0; i < BlockStorage.NUM_BLOCKS; i++) {
+            ids[i] = remap[ids[i]];
+        }
+
+        int bits = bits(size);
+        paletteDst.writeByte(bits).writeShort(size);
+        for (int id = 0; id < remap.length; id++) {
+            if (remap[id] >= 0) {
+                writer.write(palette.idToState(id), paletteDst);
+            }
+        }
+
+        long[] words = new long[words(bits, padded)];
+        if (padded) {
+            int valuesPerWord = 64 / bits;
+            for (int i = 0; i < BlockStorage.NUM_BLOCKS; i++) {
+                words[i / valuesPerWord] |= (long) ids[i] << ((i % valuesPerWord) * bits);
+            }
+        } else {
+            for (int i = 0; i < BlockStorage.NUM_BLOCKS; i++) {
+                int bitIndex = i * bits;
+                int word = bitIndex >> 6;
+                int shift = bitIndex & 0x3F;
+                long value = ids[i];
+                words[word] |= value << shift;
+                if (shift + bits > 64) { //value spans two words
+                    words[word + 1] |= value >>> (64 - shift);
+                }
+            }
+        }
+
+        //LongBuffer is big-endian, so this is a single bulk copy (with byte swapping where necessary)
+        int length = words.length * Long.BYTES;
+        dst.writeShort(words.length).ensureWritable(length);
+        dst.nioBuffer(dst.writerIndex(), length).asLongBuffer().put(words);
+        dst.writerIndex(dst.writerIndex() + length);
+    }
+
+    private void encodeLegacy(@NonNull LegacyBlockStorage storage, boolean add, @NonNull ByteBuf dst) {
+        //fetch all blocks with a single bulk read, then split them into the on-disk arrays and write each array in one go
+        int[] combined = new int[BlockStorage.NUM_BLOCKS];
+        storage.getCombinedIdMetas(combined, 0);
+
+        byte[] blocks = new byte[BlockStorage.NUM_BLOCKS];
+        byte[] meta = new byte[NibbleArray.PACKED_SIZE];
+        byte[] addArray = add ? new byte[NibbleArray.PACKED_SIZE] : null;
+        for (int i = 0; i < BlockStorage.NUM_BLOCKS; i += 2) {
+            int a = combined[i];
+            int b = combined[i + 1];
+            blocks[i] = (byte) (a >> 4);
+            blocks[i + 1] = (byte) (b >> 4);
+            meta[i >> 1] = (byte) ((a & 0xF) | ((b & 0xF) << 4));
+            if (add) {
+                addArray[i >> 1] = (byte) (((a >> 12) & 0xF) | (((b >> 12) & 0xF) << 4));
+            }
+        }
+
+        dst.writeBytes(blocks).writeBytes(meta);
+        if (add) {
+            dst.writeBytes(addArray);
+        }
+    }
+
+    /**
+     * Decodes a {@link Section}.
+     *
+     * @param src     the {@link ByteBuf} to read the encoded section from
+     * @param version the version of Minecraft that the section was last saved in
+     * @param x       the section's X coordinate
+     * @param z       the section's Z coordinate
+     * @param reader  the {@link StateReader} to use for reading palette entries
+     * @return the decoded {@link Section}
+     */
+    public Section decode(@NonNull ByteBuf src, @NonNull MinecraftVersion version, int x, int z, @NonNull StateReader reader) {
+        int type = src.readUnsignedByte();
+        int y = src.readInt();
+        int flags = src.readUnsignedByte();
+        return decode(type, flags, version, x, y, z, src, src, src, (flags & FLAG_SKY_LIGHT) != 0 ? src : null, reader);
+    }
+
+    /**
+     * Decodes a {@link Section} whose parts are stored in separate buffers.
+     * <p>
+     * The parts are read in the order palette, block data, block light, sky light, so the same buffer may be given for multiple parts if they are
+     * stored one after another.
+     *
+     * @param type          the section's type
+     * @param flags         the section's flags
+     * @param version       the version of Minecraft that the section was last saved in
+     * @param x             the section's X coordinate
+     * @param y             the section's Y coordinate
+     * @param z             the section's Z coordinate
+     * @param paletteSrc    the {@link ByteBuf} to read the palette from. Ignored for legacy sections
+     * @param blocksSrc     the {@link ByteBuf} to read the block data from
+     * @param blockLightSrc the {@link ByteBuf} to read the block light from
+     * @param skyLightSrc   the {@link ByteBuf} to read the sky light from. Must be {@code null} if and only if {@link #FLAG_SKY_LIGHT} isn't set
+     * @param reader        the {@link StateReader} to use for reading palette entries
+     * @return the decoded {@link Section}
+     */
+    public Section decode(int type, int flags, @NonNull MinecraftVersion version, int x, int y, int z,
+                          @NonNull ByteBuf paletteSrc, @NonNull ByteBuf blocksSrc, @NonNull ByteBuf blockLightSrc, ByteBuf skyLightSrc, @NonNull StateReader reader) {
+        checkArg(((flags & FLAG_SKY_LIGHT) != 0) == (skyLightSrc != null), "sky light source must be given if and only if FLAG_SKY_LIGHT is set");
+
+        switch (type) {
+            case TYPE_FLATTENED_PACKED:
+            case TYPE_FLATTENED_PADDED: {
+                FlattenedBlockStorage blocks = decodeFlattened(paletteSrc, blocksSrc, type == TYPE_FLATTENED_PADDED, reader);
+                return new SingleLayerFlattenedSection(version, x, y, z, blocks, decodeNibbles(blockLightSrc, flags), decodeSkyLight(skyLightSrc, flags));
+            }
+            case TYPE_LEGACY:
+            case TYPE_LEGACY_ADD: {
+                LegacyBlockStorage blocks = decodeLegacy(blocksSrc, type == TYPE_LEGACY_ADD);
+                return new DefaultLegacySection(version, x, y, z, blocks, decodeNibbles(blockLightSrc, flags), decodeSkyLight(skyLightSrc, flags));
+            }
+        }
+        throw new IllegalArgumentException("unknown section type: " + type);
+    }
+
+    private FlattenedBlockStorage decodeFlattened(@NonNull ByteBuf paletteSrc, @NonNull ByteBuf src, boolean padded, @NonNull StateReader reader) {
+        int bits = paletteSrc.readUnsignedByte();
+        int size = paletteSrc.readUnsignedShort();
+        ArrayStatePalette palette = ArrayStatePalette.withCapacity(1 << bits);
+        for (int id = 0; id < size; id++) {
+            palette.append(reader.read(paletteSrc));
+        }
+
+        long[] words = new long[src.readUnsignedShort()];
+        checkState(words.length == words(bits, padded), "invalid word count %d for %d bits", words.length, bits);
+        int length = words.length * Long.BYTES;
+        src.nioBuffer(src.readerIndex(), length).asLongBuffer().get(words);
+        src.skipBytes(length);
+
+        if (size == 1) { //every block has the same state
+            return padded ? new HeapPaddedFlattenedBlockStorage(palette.idToState(0)) : new HeapPackedFlattenedBlockStorage(palette.idToState(0));
+        }
+        return padded
+                ? new HeapPaddedFlattenedBlockStorage(bits, words, null, palette)
+                : new HeapPackedFlattenedBlockStorage(bits, words, null, palette);
+    }
+
+    private LegacyBlockStorage decodeLegacy(@NonNull ByteBuf src, boolean add) {
+        byte[] blocks = new byte[BlockStorage.NUM_BLOCKS];
+        src.readBytes(blocks);
+        byte[] meta = new byte[NibbleArray.PACKED_SIZE];
+        src.readBytes(meta);
+        if (add) {
+            byte[] addArray = new byte[NibbleArray.PACKED_SIZE];
+            src.readBytes(addArray);
+            return new HeapLegacyBlockStorage.Add(blocks, meta, addArray);
+        } else {
+            return new HeapLegacyBlockStorage(blocks, meta);
+        }
+    }
+
+    private NibbleArray decodeNibbles(@NonNull ByteBuf src, int flags) {
+        byte[] arr = new byte[NibbleArray.PACKED_SIZE];
+        src.readBytes(arr);
+        return (flags & FLAG_LIGHT_XZY) != 0 ? new HeapNibbleArray.XZY(arr) : new HeapNibbleArray.YZX(arr);
+    }
+
+    private NibbleArray decodeSkyLight(ByteBuf src, int flags) {
+        return (flags & FLAG_SKY_LIGHT) != 0 ? decodeNibbles(src, flags) : null;
+    }
+
+    private boolean isXZY(@NonNull NibbleArray array) {
+        return array instanceof HeapNibbleArray.XZY || array instanceof DirectNibbleArray.XZY;
+    }
+
+    private int bits(int paletteSize) {
+        return Math.max(BinMath.getNumBitsNeededFor(Math.max(paletteSize - 1, 0)), 4);
+    }
+
+    private int words(int bits, boolean padded) {
+        if (padded) {
+            int valuesPerWord = 64 / bits;
+            return (BlockStorage.NUM_BLOCKS + valuesPerWord - 1) / valuesPerWord;
+        } else {
+            return (BlockStorage.NUM_BLOCKS * bits + 63) >> 6;
+        }
+    }
+
+    /**
+     * Writes {@link BlockState}s to a {@link ByteBuf}.
+     *
+     * @author DaPorkchop_
+     */
+    @FunctionalInterface
+    public interface StateWriter {
+        void write(@NonNull BlockState state, @NonNull ByteBuf dst);
+    }
+
+    /**
+     * Reads {@link BlockState}s from a {@link ByteBuf}.
+     *
+     * @author DaPorkchop_
+     */
+    @FunctionalInterface
+    public interface StateReader {
+        BlockState read(@NonNull ByteBuf src);
+    }
+}
@@ -30,6 +30,38 @@ import net.daporkchop.mcworldlib.world.storage.BlockStorage;
  * @author DaPorkchop_
  */
 public abstract class AbstractBlockStorage extends AbstractRefCounted implements BlockStorage {
+    /**
+     * Sets every block in the given box to the given value.
+     * <p>
+     * The box is split into as few runs of consecutive indices as possible, each of which is passed to {@link #fillRange(int, int, int)}.
+     */
+    protected void fillBox(int x, int y, int z, int sizeX, int sizeY, int sizeZ, int value) {
+        if (sizeX == 16 && sizeZ == 16) { //whole layers are contiguous
+            this.fillRange(y << 8, (y + sizeY) << 8, value);
+            return;
+        }
+
+        for (int by = y; by < y + sizeY; by++) {
+            if (sizeX == 16) { //whole rows are contiguous
+                this.fillRange((by << 8) + (z << 4), (by << 8) + ((z + sizeZ) << 4), value);
+            } else {
+                for (int bz = z; bz < z + sizeZ; bz++) {
+                    int i = (by << 8) | (bz << 4) | x;
+                    this.fillRange(i, i + sizeX, value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets every block with an index in the given range to the given value, without any validation.
+     *
+     * @param from  the first index (inclusive)
+     * @param to    the last index (exclusive)
+     * @param value the new value, in the storage's internal format
+     */
+    protected abstract void fillRange(int from, int to, int value);
+
     @Override
     public BlockStorage retain() throws AlreadyReleasedException {
         super.retain();
@@ -0,0 +1,489 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.format.common.storage.flattened;
+
+import lombok.NonNull;
+import net.daporkchop.lib.common.math.BinMath;
+import net.daporkchop.lib.unsafe.util.exception.AlreadyReleasedException;
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.format.common.storage.AbstractBlockStorage;
+import net.daporkchop.mcworldlib.util.palette.state.ArrayStatePalette;
+import net.daporkchop.mcworldlib.util.palette.state.IdentityStatePalette;
+import net.daporkchop.mcworldlib.util.palette.state.StatePalette;
+import net.daporkchop.mcworldlib.world.storage.BlockStorage;
+import net.daporkchop.mcworldlib.world.storage.FlattenedBlockStorage;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Base implementation of {@link FlattenedBlockStorage} which stores palette IDs packed into {@code long} words.
+ * <p>
+ * All of the palette handling (growing, switching to the global palette, uniform storages) is implemented here, subclasses only need to provide
+ * access to the words containing the block data.
+ *
+ * @author DaPorkchop_
+ */
+public abstract class AbstractFlattenedBlockStorage extends AbstractBlockStorage implements FlattenedBlockStorage, FlattenedBlockStorage.Internal {
+    protected static int index(int x, int y, int z) {
+        BlockStorage.checkCoords(x, y, z);
+        return (y << 8) | (z << 4) | x;
+    }
+
+    protected StatePalette palette;
+    protected int bits;
+
+    /**
+     * Replaces the palette and block data with new, empty ones using the given number of bits.
+     * <p>
+     * The old block data is not released.
+     */
+    protected void setBits(int bits) {
+        if (bits <= 4) {
+            this.palette = ArrayStatePalette.withCapacity(1 << (this.bits = 4));
+        } else if (bits < 9) {
+            this.palette = ArrayStatePalette.withCapacity(1 << (this.bits = bits));
+        } else { //switch to the global palette, which needs enough bits to store the index of every block state that currently exists
+            this.bits = Math.max(bits, BinMath.getNumBitsNeededFor(BlockState.indexLimit() - 1));
+            this.palette = new IdentityStatePalette(this.bits);
+        }
+
+        this.allocate();
+    }
+
+    /**
+     * Replaces the palette with one containing only the given state.
+     * <p>
+     * The block data must already have been released.
+     */
+    protected void setUniform(@NonNull BlockState state) {
+        ArrayStatePalette palette = new ArrayStatePalette(1);
+        palette.append(state);
+        this.palette = palette;
+        this.bits = 0;
+    }
+
+    /**
+     * @return whether or not every block in this storage has the same state, and no memory is allocated for the block data
+     */
+    public abstract boolean isUniform();
+
+    /**
+     * Releases this storage's block data if every block has the same palette ID.
+     * <p>
+     * The storage will be transparently expanded again as soon as a different state is written.
+     *
+     * @return whether or not the storage is now uniform
+     */
+    public boolean collapseIfUniform() {
+        if (this.isUniform()) {
+            return true;
+        }
+
+        //most non-uniform sections can be rejected without unpacking everything
+        int id = this.get(0);
+        if (this.get(NUM_BLOCKS - 1) != id || this.get(NUM_BLOCKS >> 1) != id) {
+            return false;
+        }
+
+        int[] ids = new int[NUM_BLOCKS];
+        this.getPaletteIds(ids, 0);
+        for (int i = 0; i < NUM_BLOCKS; i++) {
+            if (ids[i] != id) {
+                return false;
+            }
+        }
+
+        BlockState state = this.palette.idToState(id);
+        this.releaseData();
+        this.setUniform(state);
+        return true;
+    }
+
+    @Override
+    public BlockState getBlockState(int x, int y, int z) {
+        int i = index(x, y, z);
+        return this.palette.idToState(this.isUniform() ? 0 : this.get(i));
+    }
+
+    @Override
+    public void setBlockState(int x, int y, int z, BlockState state) {
+        int i = index(x, y, z);
+
+        int paletteId = this.palette.stateToId(state);
+        if (paletteId < 0) {
+            this.growPalette();
+            paletteId = this.palette.stateToId(state);
+        }
+
+        if (!this.isUniform()) { //if the storage is still uniform, the state must already be the only one in the palette
+            this.set(i, paletteId);
+        }
+    }
+
+    @Override
+    public void setBlockStates(@NonNull BlockState[] src, int srcOff) {
+        checkRangeLen(src.length, srcOff, NUM_BLOCKS);
+
+        //every block is being replaced, so rather than growing the existing palette one bit at a time we can start over with a palette which
+        // is exactly as large as needed
+        BitSet distinct = new BitSet();
+        int count = 0;
+        for (int i = 0; i < NUM_BLOCKS; i++) {
+            int index = src[srcOff + i].index();
+            if (!distinct.get(index)) {
+                distinct.set(index);
+                count++;
+            }
+        }
+
+        this.releaseData();
+        if (count == 1) {
+            this.setUniform(src[srcOff]);
+            return;
+        }
+        this.setBits(BinMath.getNumBitsNeededFor(count - 1));
+
+        StatePalette palette = this.palette;
+        for (int i = 0; i < NUM_BLOCKS; i++) {
+            this.set(i, palette.stateToId(src[srcOff + i]));
+        }
+    }
+
+    @Override
+    public void getPaletteIds(@NonNull int[] dst, int dstOff) {
+        checkRangeLen(dst.length, dstOff, NUM_BLOCKS);
+        if (this.isUniform()) {
+            Arrays.fill(dst, dstOff, dstOff + NUM_BLOCKS, 0);
+            return;
+        }
+
+        long[] words = this.words();
+        if (words != null) {
+            this.unpack(words, this.bits, dst, dstOff);
+        } else { //we don't have direct access to the data, fall back to the slow path
+            for (int i = 0; i < NUM_BLOCKS; i++) {
+                dst[dstOff + i] = this.get(i);
+            }
+        }
+    }
+
+    @Override
+    public void getBlockStates(@NonNull BlockState[] dst, int dstOff) {
+        checkRangeLen(dst.length, dstOff, NUM_BLOCKS);
+        int[] ids = new int[NUM_BLOCKS];
+        this.getPaletteIds(ids, 0);
+
+        //resolve the whole palette up front to avoid a virtual call for every block (unless it's a global palette which is larger than the section)
+        StatePalette palette = this.palette;
+        BlockState[] states = new BlockState[palette.size() <= NUM_BLOCKS ? palette.size() : 0];
+        for (int id = 0; id < states.length; id++) {
+            states[id] = palette.idToState(id);
+        }
+
+        for (int i = 0; i < NUM_BLOCKS; i++) {
+            int id = ids[i];
+            dst[dstOff + i] = id < states.length ? states[id] : palette.idToState(id);
+        }
+    }
+
+    @Override
+    public void histogram(@NonNull int[] counts) {
+        if (this.isUniform()) {
+            checkArg(counts.length >= 1, "counts (%d) must have at least as many elements as the palette (1)", counts.length);
+            counts[0] += NUM_BLOCKS;
+            return;
+        }
+
+        long[] words = this.words();
+        if (words != null) {
+            checkArg(counts.length >= this.palette.size(), "counts (%d) must have at least as many elements as the palette (%d)", counts.length, this.palette.size());
+            this.count(words, this.bits, counts);
+        } else { //we don't have direct access to the data, fall back to the slow path
+            FlattenedBlockStorage.super.histogram(counts);
+        }
+    }
+
+    @Override
+    public void fill(int x, int y, int z, int sizeX, int sizeY, int sizeZ, @NonNull BlockState state) {
+        BlockStorage.checkBox(x, y, z, sizeX, sizeY, sizeZ);
+        if (sizeX == 16 && sizeY == 16 && sizeZ == 16) { //the whole storage is being overwritten, so it can become uniform
+            this.releaseData();
+            this.setUniform(state);
+            return;
+        }
+
+        int paletteId = this.palette.stateToId(state);
+        if (paletteId < 0) {
+            this.growPalette();
+            paletteId = this.palette.stateToId(state);
+        }
+        if (this.isUniform()) { //the storage is uniform, and already consists entirely of the given state
+            return;
+        }
+
+        this.fillBox(x, y, z, sizeX, sizeY, sizeZ, paletteId);
+    }
+
+    @Override
+    protected void fillRange(int from, int to, int paletteId) {
+        if (!this.wordAccess()) {
+            for (int i = from; i < to; i++) {
+                this.set(i, paletteId);
+            }
+            return;
+        }
+
+        //when every value is the same, all runs of words which start and end on a value boundary have the same bit pattern. we set the values
+        // one at a time up to the end of the first such run, and then repeat its words over the rest of the range
+        int periodWords;
+        int periodValues;
+        if (this.padded()) {
+            periodWords = 1;
+            periodValues = 64 / this.bits;
+        } else { //the bit pattern repeats every lcm(bits, 64) bits
+            int gcd = 1 << Math.min(Integer.numberOfTrailingZeros(this.bits), 6);
+            periodWords = this.bits / gcd;
+            periodValues = 64 / gcd;
+        }
+
+        int firstPeriod = (from + periodValues - 1) / periodValues;
+        int lastPeriod = to / periodValues;
+        if (lastPeriod - firstPeriod < 2) { //there are too few whole runs for it to be worth it
+            for (int i = from; i < to; i++) {
+                this.set(i, paletteId);
+            }
+            return;
+        }
+
+        for (int i = from, end = (firstPeriod + 1) * periodValues; i < end; i++) {
+            this.set(i, paletteId);
+        }
+        for (int word = (firstPeriod + 1) * periodWords, end = lastPeriod * periodWords; word < end; word++) {
+            this.setWord(word, this.getWord(word - periodWords));
+        }
+        for (int i = lastPeriod * periodValues; i < to; i++) {
+            this.set(i, paletteId);
+        }
+    }
+
+    @Override
+    public void copyFrom(@NonNull FlattenedBlockStorage src, int srcX, int srcY, int srcZ, int sizeX, int sizeY, int sizeZ, int dstX, int dstY, int dstZ) {
+        BlockStorage.checkBox(srcX, srcY, srcZ, sizeX, sizeY, sizeZ);
+        BlockStorage.checkBox(dstX, dstY, dstZ, sizeX, sizeY, sizeZ);
+
+        //snapshot the source first, so that copying within the same storage works even if the boxes overlap
+        StatePalette srcPalette = src.internal().palette();
+        int[] srcIds = new int[NUM_BLOCKS];
+        src.getPaletteIds(srcIds, 0);
+
+        //each source palette ID is translated to a palette ID in this storage at most once
+        int[] remap = new int[srcPalette.size()];
+        Arrays.fill(remap, -1);
+
+        for (int dy = 0; dy < sizeY; dy++) {
+            for (int dz = 0; dz < sizeZ; dz++) {
+                int srcIndex = ((srcY + dy) << 8) | ((srcZ + dz) << 4) | srcX;
+                int dstIndex = ((dstY + dy) << 8) | ((dstZ + dz) << 4) | dstX;
+                for (int dx = 0; dx < sizeX; dx++) {
+                    int srcId = srcIds[srcIndex + dx];
+                    int dstId = remap[srcId];
+                    if (dstId < 0) {
+                        BlockState state = srcPalette.idToState(srcId);
+                        if ((dstId = this.palette.stateToId(state)) < 0) { //growing the palette may change all the IDs, so the translations have to be redone
+                            this.growPalette();
+                            Arrays.fill(remap, -1);
+                            dstId = this.palette.stateToId(state);
+                        }
+                        remap[srcId] = dstId;
+                    }
+                    if (!this.isUniform()) { //if the storage is still uniform, the state must already be the only one in the palette
+                        this.set(dstIndex + dx, dstId);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void replace(@NonNull BlockState from, @NonNull BlockState to) {
+        if (from == to) {
+            return;
+        }
+
+        StatePalette palette = this.palette;
+        if (palette instanceof ArrayStatePalette) {
+            ArrayStatePalette arrayPalette = (ArrayStatePalette) palette;
+            for (int fromId; (fromId = arrayPalette.indexOf(from)) >= 0; ) {
+                int toId = arrayPalette.indexOf(to);
+                if (toId < 0) { //only the palette entry needs to change
+                    arrayPalette.set(fromId, to);
+                } else { //both states are already in the palette: merge them, and move the last entry into the slot which is no longer used
+                    int movedId = arrayPalette.remove(fromId);
+                    this.remapId(fromId, toId == movedId ? fromId : toId, movedId);
+                }
+            }
+        } else if (palette instanceof IdentityStatePalette) { //IDs in the global palette are fixed, so the block data has to be rewritten
+            int fromId = palette.stateToId(from);
+            if (fromId < 0) { //the state's index is too high to be present in this storage
+                return;
+            }
+            int toId = palette.stateToId(to);
+            if (toId < 0) {
+                this.growPalette();
+                toId = this.palette.stateToId(to);
+            }
+            this.remapId(fromId, toId, -1);
+        } else {
+            FlattenedBlockStorage.super.replace(from, to);
+        }
+    }
+
+    /**
+     * Rewrites every block with palette ID {@code fromId} to {@code toId}, and every block with palette ID {@code movedId} to {@code fromId}.
+     */
+    private void remapId(int fromId, int toId, int movedId) {
+        int[] ids = new int[NUM_BLOCKS];
+        this.getPaletteIds(ids, 0);
+        for (int i = 0; i < NUM_BLOCKS; i++) {
+            int id = ids[i];
+            if (id == fromId) {
+                this.set(i, toId);
+            } else if (id == movedId) {
+                this.set(i, fromId);
+            }
+        }
+    }
+
+    protected void growPalette() {
+        StatePalette oldPalette = this.palette;
+
+        int[] ids = new int[NUM_BLOCKS];
+        this.getPaletteIds(ids, 0);
+        this.releaseData();
+
+        this.setBits(this.bits + 1);
+
+        if (oldPalette instanceof IdentityStatePalette && this.palette instanceof IdentityStatePalette) { //global IDs don't change when growing
+            for (int i = 0; i < NUM_BLOCKS; i++) {
+                this.set(i, ids[i]);
+            }
+        } else {
+            //translate each old palette entry once rather than once per block
+            StatePalette palette = this.palette;
+            int[] remap = new int[oldPalette.size()];
+            for (int id = 0; id < remap.length; id++) {
+                BlockState state = oldPalette.idToState(id);
+                remap[id] = state != null ? palette.stateToId(state) : 0;
+            }
+            for (int i = 0; i < NUM_BLOCKS; i++) {
+                this.set(i, remap[ids[i]]);
+            }
+        }
+    }
+
+    /**
+     * Allocates new, zeroed block data using the current number of bits.
+     */
+    protected abstract void allocate();
+
+    /**
+     * Releases the block data, if any is allocated.
+     */
+    protected abstract void releaseData();
+
+    /**
+     * Gets the palette ID at the given index. The storage must not be uniform.
+     */
+    protected abstract int get(int i);
+
+    /**
+     * Sets the palette ID at the given index. The storage must not be uniform.
+     */
+    protected abstract void set(int i, int value);
+
+    /**
+     * @return whether or not the block data uses the padded layout, in which values never span two words
+     */
+    protected abstract boolean padded();
+
+    /**
+     * @return whether or not the block data's words may be accessed using {@link #getWord(int)} and {@link #setWord(int, long)}
+     */
+    protected boolean wordAccess() {
+        return true;
+    }
+
+    /**
+     * Gets the word at the given index. The storage must not be uniform.
+     */
+    protected abstract long getWord(int word);
+
+    /**
+     * Sets the word at the given index. The storage must not be uniform.
+     */
+    protected abstract void setWord(int word, long value);
+
+    /**
+     * Gets the words containing the block data, for bulk access. The storage must not be uniform.
+     * <p>
+     * The returned array may be longer than the block data, and is only valid until the storage is next modified.
+     *
+     * @return the words containing the block data, or {@code null} if they can't be accessed directly
+     */
+    protected abstract long[] words();
+
+    /**
+     * Unpacks all {@link #NUM_BLOCKS} values from the given words.
+     */
+    protected abstract void unpack(@NonNull long[] words, int bits, @NonNull int[] dst, int dstOff);
+
+    /**
+     * Counts the occurrences of all {@link #NUM_BLOCKS} values in the given words.
+     */
+    protected abstract void count(@NonNull long[] words, int bits, @NonNull int[] counts);
+
+    @Override
+    public abstract FlattenedBlockStorage clone();
+
+    @Override
+    public FlattenedBlockStorage retain() throws AlreadyReleasedException {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    protected void doRelease() {
+        this.releaseData();
+    }
+
+    @Override
+    public Internal internal() {
+        return this;
+    }
+
+    @Override
+    public StatePalette palette() {
+        return this.palette;
+    }
+}
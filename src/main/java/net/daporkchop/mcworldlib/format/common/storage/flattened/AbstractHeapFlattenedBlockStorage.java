@@ -23,29 +23,18 @@ package net.daporkchop.mcworldlib.format.common.storage.flattened;
 import lombok.NonNull;
 import net.daporkchop.lib.binary.bit.BitArray;
 import net.daporkchop.lib.common.pool.array.ArrayAllocator;
-import net.daporkchop.lib.unsafe.util.exception.AlreadyReleasedException;
 import net.daporkchop.mcworldlib.block.BlockState;
-import net.daporkchop.mcworldlib.format.common.storage.AbstractBlockStorage;
-import net.daporkchop.mcworldlib.util.palette.state.ArrayStatePalette;
 import net.daporkchop.mcworldlib.util.palette.state.StatePalette;
-import net.daporkchop.mcworldlib.world.storage.BlockStorage;
-import net.daporkchop.mcworldlib.world.storage.FlattenedBlockStorage;
 
 import static net.daporkchop.lib.common.util.PValidation.*;
 
 /**
  * @author DaPorkchop_
  */
-public abstract class AbstractHeapFlattenedBlockStorage extends AbstractBlockStorage implements FlattenedBlockStorage, FlattenedBlockStorage.Internal {
-    protected static int index(int x, int y, int z) {
-        BlockStorage.checkCoords(x, y, z);
-        return (y << 8) | (z << 4) | x;
-    }
-
+public abstract class AbstractHeapFlattenedBlockStorage extends AbstractFlattenedBlockStorage {
     protected final ArrayAllocator<long[]> alloc;
-    protected BitArray array;
-    protected StatePalette palette;
-    protected int bits;
+    protected BitArray array; //null if the storage is uniform
+    protected long[] words; //the words backing the array, or null if they aren't known
 
     public AbstractHeapFlattenedBlockStorage() {
         this(null);
@@ -67,84 +56,78 @@ public abstract class AbstractHeapFlattenedBlockStorage extends AbstractBlockSto
         this.palette = palette;
     }
 
-    protected void setBits(int bits) {
-        if (bits == this.bits) {
-            return;
-        }
-
-        if (bits <= 4) {
-            this.palette = new ArrayStatePalette(1 << (this.bits = 4));
-        } else if (bits < 9) {
-            this.palette = new ArrayStatePalette(1 << (this.bits = bits)); //vanilla uses a hashmap for this, i doubt it's much faster though...
-        } else {
-            //this.bits = BinMath.getNumBitsNeededFor(this.localRegistry.maxRuntimeId() + 1);
-            this.bits = 12; //TODO: get the number of required bits from somewhere
-            //this.palette = IdentityPalette.INSTANCE;
-            throw new UnsupportedOperationException("identity palette");
-        }
+    /**
+     * Creates a new uniform storage in which every block is the given state.
+     * <p>
+     * No data array will be allocated until a different state is written.
+     */
+    public AbstractHeapFlattenedBlockStorage(ArrayAllocator<long[]> alloc, @NonNull BlockState state) {
+        this.alloc = alloc;
+        this.setUniform(state);
+    }
 
-        this.array = this.createArray();
+    protected AbstractHeapFlattenedBlockStorage(ArrayAllocator<long[]> alloc, @NonNull BitArray array, int bits, @NonNull long[] words, @NonNull StatePalette palette) {
+        this(alloc, array, palette);
+        this.bits = bits;
+        this.words = words;
     }
 
     @Override
-    public BlockState getBlockState(int x, int y, int z) {
-        return this.palette.idToState(this.array.get(index(x, y, z)));
+    public boolean isUniform() {
+        return this.array == null;
     }
 
     @Override
-    public void setBlockState(int x, int y, int z, BlockState state) {
-        int i = index(x, y, z);
-
-        int paletteId = this.palette.stateToId(state);
-        if (paletteId < 0) {
-            this.growPalette();
-            paletteId = this.palette.stateToId(state);
-        }
-
-        this.array.set(i, paletteId);
+    protected void allocate() {
+        this.array = this.createArray();
     }
 
-    private void growPalette() {
-        StatePalette oldPalette = this.palette;
-        BitArray oldArray = this.array;
-
-        this.setBits(this.bits + 1);
-
-        for (int i = 0; i < 4096; i++) {
-            this.array.set(i, this.palette.stateToId(oldPalette.idToState(oldArray.get(i))));
+    @Override
+    protected void releaseData() {
+        if (this.array != null) {
+            this.array.release();
+            this.array = null;
+            this.words = null;
         }
-
-        oldArray.release();
     }
 
-    protected abstract BitArray createArray();
+    @Override
+    protected int get(int i) {
+        return this.array.get(i);
+    }
 
     @Override
-    public abstract FlattenedBlockStorage clone();
+    protected void set(int i, int value) {
+        this.array.set(i, value);
+    }
 
     @Override
-    public FlattenedBlockStorage retain() throws AlreadyReleasedException {
-        super.retain();
-        return this;
+    protected long[] words() {
+        return this.words;
     }
 
     @Override
-    protected void doRelease() {
-        if (this.array != null) {
-            this.array.release();
-        }
+    protected boolean wordAccess() {
+        return this.words != null;
     }
 
     @Override
-    public Internal internal() {
-        return this;
+    protected long getWord(int word) {
+        return this.words[word];
     }
 
     @Override
-    public StatePalette palette() {
-        return this.palette;
+    protected void setWord(int word, long value) {
+        this.words[word] = value;
     }
 
+    /**
+     * Creates a new {@link BitArray} using the current number of bits.
+     * <p>
+     * Implementations are expected to update {@link #words} with the array's backing words.
+     */
+    protected abstract BitArray createArray();
+
     @Override
     public BitArray data() {
         return this.array;
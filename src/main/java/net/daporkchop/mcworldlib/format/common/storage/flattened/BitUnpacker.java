@@ -0,0 +1,321 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.format.common.storage.flattened;
+
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Bulk unpacking of raw bit array words into {@code int[]}s.
+ * <p>
+ * Two layouts are supported:
+ * <ul>
+ *     <li>packed (used by vanilla up to 1.15.2): values are stored back-to-back, and may span two words</li>
+ *     <li>padded (used by vanilla since 1.16): each word contains {@code 64 / bits} values, and the remaining high bits are unused</li>
+ * </ul>
+ * The common bit widths have hand-unrolled loops, all others fall back to a generic loop which is still considerably faster than going through
+ * {@link net.daporkchop.lib.binary.bit.BitArray#get(int)} for every value.
+ *
+ * @author DaPorkchop_
+ */
+@UtilityClass
+public class BitUnpacker {
+    /**
+     * Unpacks {@code count} values from the given words, which are in the packed layout.
+     *
+     * @param src    the words to unpack
+     * @param bits   the number of bits per value
+     * @param dst    the array to write values to
+     * @param dstOff the index in {@code dst} to start writing at
+     * @param count  the number of values to unpack
+     */
+    public void unpackPacked(@NonNull long[] src, int bits, @NonNull int[] dst, int dstOff, int count) {
+        checkArg(bits > 0 && bits <= 32, "bits (%d) must be in range [1-32]", bits);
+        checkRangeLen(dst.length, dstOff, count);
+        checkArg(src.length >= (int) (((long) count * bits + 63L) >>> 6L), "src (%d words) is too short for %d %d-bit values", src.length, count, bits);
+        if (count == 0) {
+            return;
+        }
+
+        switch (bits) {
+            case 4:
+                unpack4(src, dst, dstOff, count);
+                return;
+            case 8:
+                unpack8(src, dst, dstOff, count);
+                return;
+            case 16:
+                unpack16(src, dst, dstOff, count);
+                return;
+        }
+
+        //values may cross word boundaries, so we keep a buffer of the remaining bits of the current word
+        long mask = (1L << bits) - 1L;
+        int word = 0;
+        long buf = src[0];
+        int avail = 64;
+        for (int i = dstOff, end = dstOff + count; i < end; i++) {
+            if (avail >= bits) {
+                dst[i] = (int) (buf & mask);
+                buf >>>= bits;
+                avail -= bits;
+            } else {
+                long next = src[++word];
+                dst[i] = (int) ((buf | (next << avail)) & mask);
+                buf = next >>> (bits - avail);
+                avail += 64 - bits;
+            }
+        }
+    }
+
+    /**
+     * Unpacks {@code count} values from the given words, which are in the padded layout.
+     *
+     * @param src    the words to unpack
+     * @param bits   the number of bits per value
+     * @param dst    the array to write values to
+     * @param dstOff the index in {@code dst} to start writing at
+     * @param count  the number of values to unpack
+     */
+    public void unpackPadded(@NonNull long[] src, int bits, @NonNull int[] dst, int dstOff, int count) {
+        checkArg(bits > 0 && bits <= 32, "bits (%d) must be in range [1-32]", bits);
+        checkRangeLen(dst.length, dstOff, count);
+        int perWord = 64 / bits;
+        checkArg(src.length >= (count + perWord - 1) / perWord, "src (%d words) is too short for %d %d-bit values", src.length, count, bits);
+
+        switch (bits) {
+            case 4:
+                unpack4(src, dst, dstOff, count);
+                return;
+            case 5:
+                unpack5Padded(src, dst, dstOff, count);
+                return;
+            case 6:
+                unpack6Padded(src, dst, dstOff, count);
+                return;
+            case 8:
+                unpack8(src, dst, dstOff, count);
+                return;
+            case 16:
+                unpack16(src, dst, dstOff, count);
+                return;
+        }
+
+        long mask = (1L << bits) - 1L;
+        int i = dstOff;
+        int end = dstOff + count;
+        for (int word = 0; i < end; word++) {
+            long v = src[word];
+            for (int j = Math.min(perWord, end - i); j > 0; j--) {
+                dst[i++] = (int) (v & mask);
+                v >>>= bits;
+            }
+        }
+    }
+
+    /**
+     * Counts the occurrences of each of {@code count} values in the given words, which are in the packed layout.
+     * <p>
+     * For every value {@code v}, {@code counts[v]} is incremented by one. {@code counts} must therefore be longer than the largest value present.
+     *
+     * @param src    the words to read values from
+     * @param bits   the number of bits per value
+     * @param counts the array to add the counts to
+     * @param count  the number of values to count
+     */
+    public void countPacked(@NonNull long[] src, int bits, @NonNull int[] counts, int count) {
+        checkArg(bits > 0 && bits <= 32, "bits (%d) must be in range [1-32]", bits);
+        checkArg(src.length >= (int) (((long) count * bits + 63L) >>> 6L), "src (%d words) is too short for %d %d-bit values", src.length, count, bits);
+        if (count == 0) {
+            return;
+        } else if (64 % bits == 0) { //values never cross word boundaries, so both layouts are identical
+            countPadded(src, bits, counts, count);
+            return;
+        }
+
+        long mask = (1L << bits) - 1L;
+        int word = 0;
+        long buf = src[0];
+        int avail = 64;
+        for (int i = 0; i < count; i++) {
+            if (avail >= bits) {
+                counts[(int) (buf & mask)]++;
+                buf >>>= bits;
+                avail -= bits;
+            } else {
+                long next = src[++word];
+                counts[(int) ((buf | (next << avail)) & mask)]++;
+                buf = next >>> (bits - avail);
+                avail += 64 - bits;
+            }
+        }
+    }
+
+    /**
+     * Counts the occurrences of each of {@code count} values in the given words, which are in the padded layout.
+     * <p>
+     * For every value {@code v}, {@code counts[v]} is incremented by one. {@code counts} must therefore be longer than the largest value present.
+     *
+     * @param src    the words to read values from
+     * @param bits   the number of bits per value
+     * @param counts the array to add the counts to
+     * @param count  the number of values to count
+     */
+    public void countPadded(@NonNull long[] src, int bits, @NonNull int[] counts, int count) {
+        checkArg(bits > 0 && bits <= 32, "bits (%d) must be in range [1-32]", bits);
+        int perWord = 64 / bits;
+        checkArg(src.length >= (count + perWord - 1) / perWord, "src (%d words) is too short for %d %d-bit values", src.length, count, bits);
+
+        long mask = (1L << bits) - 1L;
+        int fullWords = count / perWord;
+        for (int word = 0; word < fullWords; word++) {
+            long v = src[word];
+            for (int j = 0; j < perWord; j++) {
+                counts[(int) (v & mask)]++;
+                v >>>= bits;
+            }
+        }
+        long v = src.length > fullWords ? src[fullWords] : 0L;
+        for (int j = count - fullWords * perWord; j > 0; j--) {
+            counts[(int) (v & mask)]++;
+            v >>>= bits;
+        }
+    }
+
+    //
+    // word-aligned widths, these are identical for both layouts
+    //
+
+    private void unpack4(long[] src, int[] dst, int i, int count) {
+        int end = i + count;
+        int word = 0;
+        for (; end - i >= 16; i += 16) {
+            long v = src[word++];
+            dst[i] = (int) v & 0xF;
+            dst[i + 1] = (int) (v >>> 4L) & 0xF;
+            dst[i + 2] = (int) (v >>> 8L) & 0xF;
+            dst[i + 3] = (int) (v >>> 12L) & 0xF;
+            dst[i + 4] = (int) (v >>> 16L) & 0xF;
+            dst[i + 5] = (int) (v >>> 20L) & 0xF;
+            dst[i + 6] = (int) (v >>> 24L) & 0xF;
+            dst[i + 7] = (int) (v >>> 28L) & 0xF;
+            dst[i + 8] = (int) (v >>> 32L) & 0xF;
+            dst[i + 9] = (int) (v >>> 36L) & 0xF;
+            dst[i + 10] = (int) (v >>> 40L) & 0xF;
+            dst[i + 11] = (int) (v >>> 44L) & 0xF;
+            dst[i + 12] = (int) (v >>> 48L) & 0xF;
+            dst[i + 13] = (int) (v >>> 52L) & 0xF;
+            dst[i + 14] = (int) (v >>> 56L) & 0xF;
+            dst[i + 15] = (int) (v >>> 60L);
+        }
+        tail(src, word, 4, dst, i, end);
+    }
+
+    private void unpack8(long[] src, int[] dst, int i, int count) {
+        int end = i + count;
+        int word = 0;
+        for (; end - i >= 8; i += 8) {
+            long v = src[word++];
+            dst[i] = (int) v & 0xFF;
+            dst[i + 1] = (int) (v >>> 8L) & 0xFF;
+            dst[i + 2] = (int) (v >>> 16L) & 0xFF;
+            dst[i + 3] = (int) (v >>> 24L) & 0xFF;
+            dst[i + 4] = (int) (v >>> 32L) & 0xFF;
+            dst[i + 5] = (int) (v >>> 40L) & 0xFF;
+            dst[i + 6] = (int) (v >>> 48L) & 0xFF;
+            dst[i + 7] = (int) (v >>> 56L);
+        }
+        tail(src, word, 8, dst, i, end);
+    }
+
+    private void unpack16(long[] src, int[] dst, int i, int count) {
+        int end = i + count;
+        int word = 0;
+        for (; end - i >= 4; i += 4) {
+            long v = src[word++];
+            dst[i] = (int) v & 0xFFFF;
+            dst[i + 1] = (int) (v >>> 16L) & 0xFFFF;
+            dst[i + 2] = (int) (v >>> 32L) & 0xFFFF;
+            dst[i + 3] = (int) (v >>> 48L);
+        }
+        tail(src, word, 16, dst, i, end);
+    }
+
+    //
+    // padded widths
+    //
+
+    private void unpack5Padded(long[] src, int[] dst, int i, int count) {
+        int end = i + count;
+        int word = 0;
+        for (; end - i >= 12; i += 12) {
+            long v = src[word++];
+            dst[i] = (int) v & 0x1F;
+            dst[i + 1] = (int) (v >>> 5L) & 0x1F;
+            dst[i + 2] = (int) (v >>> 10L) & 0x1F;
+            dst[i + 3] = (int) (v >>> 15L) & 0x1F;
+            dst[i + 4] = (int) (v >>> 20L) & 0x1F;
+            dst[i + 5] = (int) (v >>> 25L) & 0x1F;
+            dst[i + 6] = (int) (v >>> 30L) & 0x1F;
+            dst[i + 7] = (int) (v >>> 35L) & 0x1F;
+            dst[i + 8] = (int) (v >>> 40L) & 0x1F;
+            dst[i + 9] = (int) (v >>> 45L) & 0x1F;
+            dst[i + 10] = (int) (v >>> 50L) & 0x1F;
+            dst[i + 11] = (int) (v >>> 55L) & 0x1F;
+        }
+        tail(src, word, 5, dst, i, end);
+    }
+
+    private void unpack6Padded(long[] src, int[] dst, int i, int count) {
+        int end = i + count;
+        int word = 0;
+        for (; end - i >= 10; i += 10) {
+            long v = src[word++];
+            dst[i] = (int) v & 0x3F;
+            dst[i + 1] = (int) (v >>> 6L) & 0x3F;
+            dst[i + 2] = (int) (v >>> 12L) & 0x3F;
+            dst[i + 3] = (int) (v >>> 18L) & 0x3F;
+            dst[i + 4] = (int) (v >>> 24L) & 0x3F;
+            dst[i + 5] = (int) (v >>> 30L) & 0x3F;
+            dst[i + 6] = (int) (v >>> 36L) & 0x3F;
+            dst[i + 7] = (int) (v >>> 42L) & 0x3F;
+            dst[i + 8] = (int) (v >>> 48L) & 0x3F;
+            dst[i + 9] = (int) (v >>> 54L) & 0x3F;
+        }
+        tail(src, word, 6, dst, i, end);
+    }
+
+    /**
+     * Unpacks the remaining values from a single (partially used) word.
+     */
+    private void tail(long[] src, int word, int bits, int[] dst, int i, int end) {
+        if (i < end) {
+            long mask = (1L << bits) - 1L;
+            long v = src[word];
+            for (; i < end; i++) {
+                dst[i] = (int) (v & mask);
+                v >>>= bits;
+            }
+        }
+    }
+}
@@ -0,0 +1,400 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.format.common.storage.flattened;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import lombok.NonNull;
+import net.daporkchop.lib.binary.bit.BitArray;
+import net.daporkchop.lib.common.math.BinMath;
+import net.daporkchop.lib.unsafe.PUnsafe;
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.util.palette.state.ArrayStatePalette;
+import net.daporkchop.mcworldlib.util.palette.state.IdentityStatePalette;
+import net.daporkchop.mcworldlib.util.palette.state.StatePalette;
+import net.daporkchop.mcworldlib.world.storage.FlattenedBlockStorage;
+
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Direct memory-based {@link FlattenedBlockStorage} implementation.
+ * <p>
+ * Behaves exactly like {@link AbstractHeapFlattenedBlockStorage}, except that the block data is stored in a direct {@link ByteBuf} rather than
+ * a {@code long[]}. {@link #data()} always returns {@code null}.
+ *
+ * @author DaPorkchop_
+ */
+public abstract class DirectFlattenedBlockStorage extends AbstractFlattenedBlockStorage {
+    //large enough for 4096 32-bit values in either layout
+    protected static final ThreadLocal<long[]> WORDS = ThreadLocal.withInitial(() -> new long[NUM_BLOCKS >> 1]);
+
+    /**
+     * Creates a copy of the given {@link FlattenedBlockStorage} in direct memory.
+     * <p>
+     * The copy uses the padded layout if the given storage does, and the packed layout otherwise.
+     *
+     * @param src   the storage to copy
+     * @param alloc the {@link ByteBufAllocator} to allocate the block data with
+     * @return the copy
+     */
+    public static DirectFlattenedBlockStorage copyOf(@NonNull FlattenedBlockStorage src, @NonNull ByteBufAllocator alloc) {
+        return src instanceof HeapPaddedFlattenedBlockStorage || src instanceof Padded ? new Padded(alloc, src) : new Packed(alloc, src);
+    }
+
+    protected final ByteBufAllocator alloc;
+    protected ByteBuf buf; //null if the storage is uniform
+    protected long addr;
+
+    public DirectFlattenedBlockStorage(@NonNull ByteBufAllocator alloc) {
+        this.alloc = alloc;
+        this.setBits(4);
+    }
+
+    /**
+     * Creates a new uniform storage in which every block is the given state.
+     * <p>
+     * No memory will be allocated for the block data until a different state is written.
+     */
+    public DirectFlattenedBlockStorage(@NonNull ByteBufAllocator alloc, @NonNull BlockState state) {
+        this.alloc = alloc;
+        this.setUniform(state);
+    }
+
+    protected DirectFlattenedBlockStorage(@NonNull ByteBufAllocator alloc, int bits, @NonNull LongBuffer words, @NonNull StatePalette palette) {
+        this.alloc = alloc;
+        this.palette = palette;
+        this.bits = bits;
+
+        int count = this.wordCount(bits);
+        checkArg(words.remaining() >= count, "words (%d) must contain at least %d elements", words.remaining(), count);
+        this.allocate();
+
+        //bulk copy the words into direct memory, converting them to native byte order on the way
+        LongBuffer src = words.duplicate();
+        src.limit(src.position() + count);
+        this.buf.nioBuffer(0, count << 3).order(ByteOrder.nativeOrder()).asLongBuffer().put(src);
+    }
+
+    protected DirectFlattenedBlockStorage(@NonNull ByteBufAllocator alloc, int bits, @NonNull ByteBuf words, @NonNull StatePalette palette) {
+        this.alloc = alloc;
+        this.palette = palette;
+        this.bits = bits;
+
+        int count = this.wordCount(bits);
+        try {
+            checkArg(words.hasMemoryAddress() && !words.isReadOnly(), "words must be a writable buffer with a memory address!");
+            checkArg(words.readableBytes() >= count << 3, "words (%d bytes) must contain at least %d elements", words.readableBytes(), count);
+        } catch (Throwable t) {
+            words.release();
+            throw t;
+        }
+
+        //the words are stored big-endian, convert them to native byte order in place
+        long addr = words.memoryAddress() + words.readerIndex();
+        if (ByteOrder.nativeOrder() != ByteOrder.BIG_ENDIAN) {
+            for (long a = addr, end = addr + ((long) count << 3L); a < end; a += 8L) {
+                PUnsafe.putLong(a, Long.reverseBytes(PUnsafe.getLong(a)));
+            }
+        }
+        this.buf = words;
+        this.addr = addr;
+    }
+
+    protected DirectFlattenedBlockStorage(@NonNull ByteBufAllocator alloc, @NonNull FlattenedBlockStorage src) {
+        this.alloc = alloc;
+
+        StatePalette palette = src.internal().palette();
+        int size = palette.size();
+        if (size == 1) { //the only valid palette ID is 0, so every block must have the same state
+            this.setUniform(palette.idToState(0));
+            return;
+        }
+
+        int[] ids = new int[NUM_BLOCKS];
+        src.getPaletteIds(ids, 0);
+
+        if (palette instanceof IdentityStatePalette) { //the global palette is immutable, so it can be shared
+            this.palette = palette;
+            this.bits = ((IdentityStatePalette) palette).bits();
+        } else {
+            this.bits = Math.max(BinMath.getNumBitsNeededFor(Math.max(size - 1, 0)), 4);
+            ArrayStatePalette copy = ArrayStatePalette.withCapacity(1 << this.bits);
+            for (int id = 0; id < size; id++) {
+                copy.append(palette.idToState(id));
+            }
+            this.palette = copy;
+        }
+
+        this.allocate();
+        for (int i = 0; i < NUM_BLOCKS; i++) {
+            this.set(i, ids[i]);
+        }
+    }
+
+    /**
+     * Allocates a new, zeroed buffer large enough to store the block data using the current number of bits.
+     */
+    @Override
+    protected void allocate() {
+        int size = this.wordCount(this.bits) << 3;
+        ByteBuf buf = this.alloc.directBuffer(size, size);
+        if (!buf.hasMemoryAddress()) {
+            buf.release();
+            throw new IllegalStateException("allocator returned a buffer without a memory address!");
+        }
+
+        PUnsafe.setMemory(this.addr = buf.memoryAddress(), size, (byte) 0);
+        this.buf = buf;
+    }
+
+    @Override
+    protected void releaseData() {
+        if (this.buf != null) {
+            this.buf.release();
+            this.buf = null;
+            this.addr = 0L;
+        }
+    }
+
+    @Override
+    public boolean isUniform() {
+        return this.buf == null;
+    }
+
+    @Override
+    protected long[] words() {
+        //copy the block data into a scratch array so that it can be unpacked by the same code as the heap storages. this is a single memcpy of
+        // at most 16KiB, which is far cheaper than reading each value individually
+        long[] words = WORDS.get();
+        PUnsafe.copyMemory(null, this.addr, words, PUnsafe.ARRAY_LONG_BASE_OFFSET, (long) this.wordCount(this.bits) << 3L);
+        return words;
+    }
+
+    @Override
+    protected long getWord(int word) {
+        return PUnsafe.getLong(this.addr + ((long) word << 3L));
+    }
+
+    @Override
+    protected void setWord(int word, long value) {
+        PUnsafe.putLong(this.addr + ((long) word << 3L), value);
+    }
+
+    /**
+     * @return the number of {@code long}s needed to store the block data with the given number of bits per block
+     */
+    protected abstract int wordCount(int bits);
+
+    @Override
+    public FlattenedBlockStorage clone() {
+        return copyOf(this, this.alloc);
+    }
+
+    @Override
+    public BitArray data() {
+        return null;
+    }
+
+    /**
+     * {@link DirectFlattenedBlockStorage} using the same layout as {@link HeapPackedFlattenedBlockStorage}, where values may span two words.
+     *
+     * @author DaPorkchop_
+     */
+    public static final class Packed extends DirectFlattenedBlockStorage {
+        public Packed(@NonNull ByteBufAllocator alloc) {
+            super(alloc);
+        }
+
+        public Packed(@NonNull ByteBufAllocator alloc, @NonNull BlockState state) {
+            super(alloc, state);
+        }
+
+        /**
+         * Creates a new storage whose block data is copied from the given words, which are in the same layout as {@link HeapPackedFlattenedBlockStorage}.
+         *
+         * @param alloc   the {@link ByteBufAllocator} to allocate the block data with
+         * @param bits    the number of bits per value
+         * @param words   the words containing the block data, starting at the buffer's position
+         * @param palette the palette
+         */
+        public Packed(@NonNull ByteBufAllocator alloc, int bits, @NonNull LongBuffer words, @NonNull StatePalette palette) {
+            super(alloc, bits, words, palette);
+        }
+
+        /**
+         * Creates a new storage which stores its block data in the given buffer, rather than copying it.
+         * <p>
+         * The words must be in the same layout as {@link HeapPackedFlattenedBlockStorage}, in big-endian byte order (as in NBT), starting at the
+         * buffer's reader index. They are converted to native byte order in place.
+         *
+         * @param alloc   the {@link ByteBufAllocator} to allocate the block data with if the storage needs to grow
+         * @param bits    the number of bits per value
+         * @param words   a writable buffer with a memory address containing the words. The storage takes ownership of it
+         * @param palette the palette
+         */
+        public Packed(@NonNull ByteBufAllocator alloc, int bits, @NonNull ByteBuf words, @NonNull StatePalette palette) {
+            super(alloc, bits, words, palette);
+        }
+
+        private Packed(@NonNull ByteBufAllocator alloc, @NonNull FlattenedBlockStorage src) {
+            super(alloc, src);
+        }
+
+        @Override
+        protected boolean padded() {
+            return false;
+        }
+
+        @Override
+        protected int wordCount(int bits) {
+            return (NUM_BLOCKS * bits + 63) >> 6;
+        }
+
+        @Override
+        protected int get(int i) {
+            int bits = this.bits;
+            int bitIndex = i * bits;
+            long addr = this.addr + ((bitIndex >>> 6) << 3);
+            int shift = bitIndex & 0x3F;
+
+            long value = PUnsafe.getLong(addr) >>> shift;
+            if (shift + bits > 64) { //value spans two words
+                value |= PUnsafe.getLong(addr + 8L) << (64 - shift);
+            }
+            return (int) (value & ((1L << bits) - 1L));
+        }
+
+        @Override
+        protected void set(int i, int value) {
+            int bits = this.bits;
+            long mask = (1L << bits) - 1L;
+            int bitIndex = i * bits;
+            long addr = this.addr + ((bitIndex >>> 6) << 3);
+            int shift = bitIndex & 0x3F;
+
+            PUnsafe.putLong(addr, (PUnsafe.getLong(addr) & ~(mask << shift)) | ((value & mask) << shift));
+            if (shift + bits > 64) { //value spans two words
+                int hiShift = 64 - shift;
+                PUnsafe.putLong(addr + 8L, (PUnsafe.getLong(addr + 8L) & ~(mask >>> hiShift)) | ((value & mask) >>> hiShift));
+            }
+        }
+
+        @Override
+        protected void unpack(@NonNull long[] words, int bits, @NonNull int[] dst, int dstOff) {
+            BitUnpacker.unpackPacked(words, bits, dst, dstOff, NUM_BLOCKS);
+        }
+
+        @Override
+        protected void count(@NonNull long[] words, int bits, @NonNull int[] counts) {
+            BitUnpacker.countPacked(words, bits, counts, NUM_BLOCKS);
+        }
+    }
+
+    /**
+     * {@link DirectFlattenedBlockStorage} using the same layout as {@link HeapPaddedFlattenedBlockStorage}, where values never span two words.
+     *
+     * @author DaPorkchop_
+     */
+    public static final class Padded extends DirectFlattenedBlockStorage {
+        public Padded(@NonNull ByteBufAllocator alloc) {
+            super(alloc);
+        }
+
+        public Padded(@NonNull ByteBufAllocator alloc, @NonNull BlockState state) {
+            super(alloc, state);
+        }
+
+        /**
+         * Creates a new storage whose block data is copied from the given words, which are in the same layout as {@link HeapPaddedFlattenedBlockStorage}.
+         *
+         * @param alloc   the {@link ByteBufAllocator} to allocate the block data with
+         * @param bits    the number of bits per value
+         * @param words   the words containing the block data, starting at the buffer's position
+         * @param palette the palette
+         */
+        public Padded(@NonNull ByteBufAllocator alloc, int bits, @NonNull LongBuffer words, @NonNull StatePalette palette) {
+            super(alloc, bits, words, palette);
+        }
+
+        /**
+         * Creates a new storage which stores its block data in the given buffer, rather than copying it.
+         * <p>
+         * The words must be in the same layout as {@link HeapPaddedFlattenedBlockStorage}, in big-endian byte order (as in NBT), starting at the
+         * buffer's reader index. They are converted to native byte order in place.
+         *
+         * @param alloc   the {@link ByteBufAllocator} to allocate the block data with if the storage needs to grow
+         * @param bits    the number of bits per value
+         * @param words   a writable buffer with a memory address containing the words. The storage takes ownership of it
+         * @param palette the palette
+         */
+        public Padded(@NonNull ByteBufAllocator alloc, int bits, @NonNull ByteBuf words, @NonNull StatePalette palette) {
+            super(alloc, bits, words, palette);
+        }
+
+        private Padded(@NonNull ByteBufAllocator alloc, @NonNull FlattenedBlockStorage src) {
+            super(alloc, src);
+        }
+
+        @Override
+        protected boolean padded() {
+            return true;
+        }
+
+        @Override
+        protected int wordCount(int bits) {
+            int perWord = 64 / bits;
+            return (NUM_BLOCKS + perWord - 1) / perWord;
+        }
+
+        @Override
+        protected int get(int i) {
+            int bits = this.bits;
+            int perWord = 64 / bits;
+            int word = i / perWord;
+            int shift = (i - word * perWord) * bits;
+            return (int) ((PUnsafe.getLong(this.addr + ((long) word << 3)) >>> shift) & ((1L << bits) - 1L));
+        }
+
+        @Override
+        protected void set(int i, int value) {
+            int bits = this.bits;
+            long mask = (1L << bits) - 1L;
+            int perWord = 64 / bits;
+            int word = i / perWord;
+            int shift = (i - word * perWord) * bits;
+            long addr = this.addr + ((long) word << 3);
+            PUnsafe.putLong(addr, (PUnsafe.getLong(addr) & ~(mask << shift)) | ((value & mask) << shift));
+        }
+
+        @Override
+        protected void unpack(@NonNull long[] words, int bits, @NonNull int[] dst, int dstOff) {
+            BitUnpacker.unpackPadded(words, bits, dst, dstOff, NUM_BLOCKS);
+        }
+
+        @Override
+        protected void count(@NonNull long[] words, int bits, @NonNull int[] counts) {
+            BitUnpacker.countPadded(words, bits, counts, NUM_BLOCKS);
+        }
+    }
+}
@@ -25,6 +25,7 @@ import net.daporkchop.lib.binary.bit.BitArray;
 import net.daporkchop.lib.binary.bit.packed.PackedBitArray;
 import net.daporkchop.lib.common.math.PMath;
 import net.daporkchop.lib.common.pool.array.ArrayAllocator;
+import net.daporkchop.mcworldlib.block.BlockState;
 import net.daporkchop.mcworldlib.util.palette.state.StatePalette;
 import net.daporkchop.mcworldlib.world.storage.BlockStorage;
 import net.daporkchop.mcworldlib.world.storage.FlattenedBlockStorage;
@@ -45,6 +46,14 @@ public class HeapPackedFlattenedBlockStorage extends AbstractHeapFlattenedBlockS
         super(alloc);
     }
 
+    public HeapPackedFlattenedBlockStorage(@NonNull BlockState state) {
+        super(null, state);
+    }
+
+    public HeapPackedFlattenedBlockStorage(ArrayAllocator<long[]> alloc, @NonNull BlockState state) {
+        super(alloc, state);
+    }
+
     public HeapPackedFlattenedBlockStorage(@NonNull PackedBitArray array, @NonNull StatePalette palette) {
         super(array, palette);
     }
@@ -53,11 +62,38 @@ public class HeapPackedFlattenedBlockStorage extends AbstractHeapFlattenedBlockS
         super(alloc, array, palette);
     }
 
+    /**
+     * Creates a new storage backed by the given words, which allows for faster bulk access than wrapping an existing {@link PackedBitArray}.
+     *
+     * @param bits       the number of bits per value
+     * @param words      the words containing the block data
+     * @param wordsAlloc the {@link ArrayAllocator} which {@code words} will be released to. May be {@code null}
+     * @param palette    the palette
+     */
+    public HeapPackedFlattenedBlockStorage(int bits, @NonNull long[] words, ArrayAllocator<long[]> wordsAlloc, @NonNull StatePalette palette) {
+        super(null, new PackedBitArray(bits, NUM_BLOCKS, words, wordsAlloc), bits, words, palette);
+    }
+
+    @Override
+    protected boolean padded() {
+        return false;
+    }
+
     @Override
     protected BitArray createArray() {
-        return this.alloc != null
-                ? new PackedBitArray(this.bits, 4096, this.alloc.atLeast(toInt(PMath.roundUp(4096L * (long) this.bits, 64L) >>> 6L)))
-                : new PackedBitArray(this.bits, 4096);
+        int length = toInt(PMath.roundUp(4096L * (long) this.bits, 64L) >>> 6L);
+        this.words = this.alloc != null ? this.alloc.atLeast(length) : new long[length];
+        return new PackedBitArray(this.bits, NUM_BLOCKS, this.words);
+    }
+
+    @Override
+    protected void unpack(@NonNull long[] words, int bits, @NonNull int[] dst, int dstOff) {
+        BitUnpacker.unpackPacked(words, bits, dst, dstOff, NUM_BLOCKS);
+    }
+
+    @Override
+    protected void count(@NonNull long[] words, int bits, @NonNull int[] counts) {
+        BitUnpacker.countPacked(words, bits, counts, NUM_BLOCKS);
     }
 
     @Override
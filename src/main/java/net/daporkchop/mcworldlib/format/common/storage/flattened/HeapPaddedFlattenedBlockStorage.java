@@ -23,14 +23,12 @@ package net.daporkchop.mcworldlib.format.common.storage.flattened;
 import lombok.NonNull;
 import net.daporkchop.lib.binary.bit.BitArray;
 import net.daporkchop.lib.binary.bit.padded.PaddedBitArray;
-import net.daporkchop.lib.common.math.PMath;
 import net.daporkchop.lib.common.pool.array.ArrayAllocator;
+import net.daporkchop.mcworldlib.block.BlockState;
 import net.daporkchop.mcworldlib.util.palette.state.StatePalette;
 import net.daporkchop.mcworldlib.world.storage.BlockStorage;
 import net.daporkchop.mcworldlib.world.storage.FlattenedBlockStorage;
 
-import static net.daporkchop.lib.common.util.PValidation.*;
-
 /**
  * Implementation of {@link BlockStorage} which uses a palette.
  *
@@ -45,6 +43,14 @@ public class HeapPaddedFlattenedBlockStorage extends AbstractHeapFlattenedBlockS
         super(alloc);
     }
 
+    public HeapPaddedFlattenedBlockStorage(@NonNull BlockState state) {
+        super(null, state);
+    }
+
+    public HeapPaddedFlattenedBlockStorage(ArrayAllocator<long[]> alloc, @NonNull BlockState state) {
+        super(alloc, state);
+    }
+
     public HeapPaddedFlattenedBlockStorage(@NonNull PaddedBitArray array, @NonNull StatePalette palette) {
         super(array, palette);
     }
@@ -53,11 +59,39 @@ public class HeapPaddedFlattenedBlockStorage extends AbstractHeapFlattenedBlockS
         super(alloc, array, palette);
     }
 
+    /**
+     * Creates a new storage backed by the given words, which allows for faster bulk access than wrapping an existing {@link PaddedBitArray}.
+     *
+     * @param bits       the number of bits per value
+     * @param words      the words containing the block data
+     * @param wordsAlloc the {@link ArrayAllocator} which {@code words} will be released to. May be {@code null}
+     * @param palette    the palette
+     */
+    public HeapPaddedFlattenedBlockStorage(int bits, @NonNull long[] words, ArrayAllocator<long[]> wordsAlloc, @NonNull StatePalette palette) {
+        super(null, new PaddedBitArray(bits, NUM_BLOCKS, words, wordsAlloc), bits, words, palette);
+    }
+
+    @Override
+    protected boolean padded() {
+        return true;
+    }
+
     @Override
     protected BitArray createArray() {
-        return this.alloc != null
-                ? new PaddedBitArray(this.bits, 4096, this.alloc.atLeast(toInt(PMath.roundUp(4096L * (long) this.bits, 64L) >>> 6L)))
-                : new PaddedBitArray(this.bits, 4096);
+        int perWord = 64 / this.bits;
+        int length = (NUM_BLOCKS + perWord - 1) / perWord;
+        this.words = this.alloc != null ? this.alloc.atLeast(length) : new long[length];
+        return new PaddedBitArray(this.bits, NUM_BLOCKS, this.words);
+    }
+
+    @Override
+    protected void unpack(@NonNull long[] words, int bits, @NonNull int[] dst, int dstOff) {
+        BitUnpacker.unpackPadded(words, bits, dst, dstOff, NUM_BLOCKS);
+    }
+
+    @Override
+    protected void count(@NonNull long[] words, int bits, @NonNull int[] counts) {
+        BitUnpacker.countPadded(words, bits, counts, NUM_BLOCKS);
     }
 
     @Override
@@ -20,11 +20,14 @@
 
 package net.daporkchop.mcworldlib.format.common.storage.legacy;
 
+import lombok.NonNull;
 import net.daporkchop.lib.unsafe.util.exception.AlreadyReleasedException;
 import net.daporkchop.mcworldlib.format.common.storage.AbstractBlockStorage;
 import net.daporkchop.mcworldlib.world.storage.BlockStorage;
 import net.daporkchop.mcworldlib.world.storage.LegacyBlockStorage;
 
+import static net.daporkchop.lib.common.util.PValidation.*;
+
 /**
  * Base implementation of {@link BlockStorage} for the legacy block format used in Anvil chunk sections prior to The Flatting™️.
  *
@@ -36,6 +39,78 @@ public abstract class AbstractLegacyBlockStorage extends AbstractBlockStorage im
         return (y << 8) | (z << 4) | x;
     }
 
+    /**
+     * Sets the combined ID and metadata ({@code (id << 4) | meta}) of the block at the given index, without any validation.
+     */
+    protected abstract void setCombinedIdMeta(int index, int combinedIdMeta);
+
+    protected void checkIdMeta(int legacyId, int meta) {
+        checkArg((legacyId & (this.extendedIds() ? 0xFFF : 0xFF)) == legacyId, "legacy ID must be in range [0-%d)", this.extendedIds() ? 4096 : 256);
+        checkArg((meta & 0xF) == meta, "nibble value must be in range [0-16)");
+    }
+
+    @Override
+    public void fill(int x, int y, int z, int sizeX, int sizeY, int sizeZ, int legacyId, int meta) {
+        BlockStorage.checkBox(x, y, z, sizeX, sizeY, sizeZ);
+        this.checkIdMeta(legacyId, meta);
+
+        this.fillBox(x, y, z, sizeX, sizeY, sizeZ, (legacyId << 4) | meta);
+    }
+
+    @Override
+    protected void fillRange(int from, int to, int combinedIdMeta) {
+        for (int i = from; i < to; i++) {
+            this.setCombinedIdMeta(i, combinedIdMeta);
+        }
+    }
+
+    @Override
+    public void copyFrom(@NonNull LegacyBlockStorage src, int srcX, int srcY, int srcZ, int sizeX, int sizeY, int sizeZ, int dstX, int dstY, int dstZ) {
+        BlockStorage.checkBox(srcX, srcY, srcZ, sizeX, sizeY, sizeZ);
+        BlockStorage.checkBox(dstX, dstY, dstZ, sizeX, sizeY, sizeZ);
+
+        //snapshot the source first, so that copying within the same storage works even if the boxes overlap
+        int[] ids = new int[NUM_BLOCKS];
+        src.getCombinedIdMetas(ids, 0);
+
+        if (src.extendedIds() && !this.extendedIds()) { //make sure all the IDs fit before modifying anything
+            int all = 0;
+            for (int dy = 0; dy < sizeY; dy++) {
+                for (int dz = 0; dz < sizeZ; dz++) {
+                    for (int dx = 0, i = ((srcY + dy) << 8) | ((srcZ + dz) << 4) | srcX; dx < sizeX; dx++, i++) {
+                        all |= ids[i];
+                    }
+                }
+            }
+            checkArg((all >>> 12) == 0, "legacy ID must be in range [0-256)");
+        }
+
+        for (int dy = 0; dy < sizeY; dy++) {
+            for (int dz = 0; dz < sizeZ; dz++) {
+                int srcIndex = ((srcY + dy) << 8) | ((srcZ + dz) << 4) | srcX;
+                int dstIndex = ((dstY + dy) << 8) | ((dstZ + dz) << 4) | dstX;
+                for (int dx = 0; dx < sizeX; dx++) {
+                    this.setCombinedIdMeta(dstIndex + dx, ids[srcIndex + dx]);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void replace(int fromLegacyId, int fromMeta, int toLegacyId, int toMeta) {
+        this.checkIdMeta(toLegacyId, toMeta);
+
+        int from = (fromLegacyId << 4) | fromMeta;
+        int to = (toLegacyId << 4) | toMeta;
+        int[] ids = new int[NUM_BLOCKS];
+        this.getCombinedIdMetas(ids, 0);
+        for (int i = 0; i < NUM_BLOCKS; i++) {
+            if (ids[i] == from) {
+                this.setCombinedIdMeta(i, to);
+            }
+        }
+    }
+
     @Override
     public LegacyBlockStorage retain() throws AlreadyReleasedException {
         super.retain();
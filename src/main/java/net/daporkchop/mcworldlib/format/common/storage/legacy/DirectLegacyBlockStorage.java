@@ -0,0 +1,255 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.format.common.storage.legacy;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import lombok.NonNull;
+import net.daporkchop.lib.unsafe.PUnsafe;
+import net.daporkchop.mcworldlib.format.common.nibble.NibbleArray;
+import net.daporkchop.mcworldlib.world.storage.LegacyBlockStorage;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Direct memory-based {@link LegacyBlockStorage} implementation.
+ * <p>
+ * The block IDs and metadata are stored in a single direct {@link ByteBuf}, using the same layout as the {@code Blocks} and {@code Data} arrays
+ * of {@link HeapLegacyBlockStorage}.
+ *
+ * @author DaPorkchop_
+ */
+public class DirectLegacyBlockStorage extends AbstractLegacyBlockStorage {
+    protected static final long META_OFFSET = NUM_BLOCKS;
+    protected static final int SIZE = NUM_BLOCKS + NibbleArray.PACKED_SIZE;
+
+    /**
+     * Creates a copy of the given {@link LegacyBlockStorage} in direct memory.
+     *
+     * @param src   the storage to copy
+     * @param alloc the {@link ByteBufAllocator} to allocate the block data with
+     * @return the copy
+     */
+    public static DirectLegacyBlockStorage copyOf(@NonNull LegacyBlockStorage src, @NonNull ByteBufAllocator alloc) {
+        DirectLegacyBlockStorage dst = src.extendedIds() ? new Add(alloc) : new DirectLegacyBlockStorage(alloc);
+        int[] ids = new int[NUM_BLOCKS];
+        src.getCombinedIdMetas(ids, 0);
+        for (int i = 0; i < NUM_BLOCKS; i++) {
+            dst.setCombinedIdMeta(i, ids[i]);
+        }
+        return dst;
+    }
+
+    protected final ByteBufAllocator alloc;
+    protected final ByteBuf buf;
+    protected final long addr;
+
+    public DirectLegacyBlockStorage(@NonNull ByteBufAllocator alloc) {
+        this(alloc, SIZE);
+    }
+
+    protected DirectLegacyBlockStorage(@NonNull ByteBufAllocator alloc, int size) {
+        ByteBuf buf = alloc.directBuffer(size, size);
+        if (!buf.hasMemoryAddress()) {
+            buf.release();
+            throw new IllegalArgumentException("allocator returned a buffer without a memory address!");
+        }
+
+        PUnsafe.setMemory(this.addr = buf.memoryAddress(), size, (byte) 0);
+        this.alloc = alloc;
+        this.buf = buf;
+    }
+
+    @Override
+    protected void setCombinedIdMeta(int index, int combinedIdMeta) {
+        PUnsafe.putByte(this.addr + index, (byte) (combinedIdMeta >>> 4));
+        long metaAddr = this.addr + META_OFFSET + (index >> 1);
+        PUnsafe.putByte(metaAddr, (byte) NibbleArray.insertNibble(index, PUnsafe.getByte(metaAddr), combinedIdMeta & 0xF));
+    }
+
+    @Override
+    protected void fillRange(int from, int to, int combinedIdMeta) {
+        PUnsafe.setMemory(this.addr + from, to - from, (byte) (combinedIdMeta >>> 4));
+        NibbleArray.fillNibbles(this.addr + META_OFFSET, from, to, combinedIdMeta & 0xF);
+    }
+
+    @Override
+    public int getBlockLegacyId(int x, int y, int z) {
+        return PUnsafe.getByte(this.addr + index(x, y, z)) & 0xFF;
+    }
+
+    @Override
+    public int getBlockMeta(int x, int y, int z) {
+        int index = index(x, y, z);
+        return NibbleArray.extractNibble(index, PUnsafe.getByte(this.addr + META_OFFSET + (index >> 1)));
+    }
+
+    @Override
+    public int getCombinedIdMeta(int x, int y, int z) {
+        int index = index(x, y, z);
+        return ((PUnsafe.getByte(this.addr + index) & 0xFF) << 4)
+               | NibbleArray.extractNibble(index, PUnsafe.getByte(this.addr + META_OFFSET + (index >> 1)));
+    }
+
+    @Override
+    public void getCombinedIdMetas(@NonNull int[] dst, int dstOff) {
+        checkRangeLen(dst.length, dstOff, NUM_BLOCKS);
+        long addr = this.addr;
+        for (int i = 0; i < NUM_BLOCKS; i += 2) {
+            int m = PUnsafe.getByte(addr + META_OFFSET + (i >> 1));
+            dst[dstOff + i] = ((PUnsafe.getByte(addr + i) & 0xFF) << 4) | (m & 0xF);
+            dst[dstOff + i + 1] = ((PUnsafe.getByte(addr + i + 1) & 0xFF) << 4) | ((m >> 4) & 0xF);
+        }
+    }
+
+    @Override
+    public void histogram(@NonNull int[] counts) {
+        checkArg(counts.length >= 1 << 12, "counts (%d) must have at least 4096 elements", counts.length);
+        long addr = this.addr;
+        for (int i = 0; i < NUM_BLOCKS; i += 2) {
+            int m = PUnsafe.getByte(addr + META_OFFSET + (i >> 1));
+            counts[((PUnsafe.getByte(addr + i) & 0xFF) << 4) | (m & 0xF)]++;
+            counts[((PUnsafe.getByte(addr + i + 1) & 0xFF) << 4) | ((m >> 4) & 0xF)]++;
+        }
+    }
+
+    @Override
+    public void setBlockState(int x, int y, int z, int legacyId, int meta) {
+        checkArg((legacyId & 0xFF) == legacyId, "legacy ID must be in range [0-256)");
+        checkArg((meta & 0xF) == meta, "nibble value must be in range [0-16)");
+        this.setCombinedIdMeta(index(x, y, z), (legacyId << 4) | meta);
+    }
+
+    @Override
+    public void setBlockLegacyId(int x, int y, int z, int legacyId) {
+        checkArg((legacyId & 0xFF) == legacyId, "legacy ID must be in range [0-256)");
+        PUnsafe.putByte(this.addr + index(x, y, z), (byte) legacyId);
+    }
+
+    @Override
+    public void setBlockMeta(int x, int y, int z, int meta) {
+        checkArg((meta & 0xF) == meta, "nibble value must be in range [0-16)");
+        int index = index(x, y, z);
+        long metaAddr = this.addr + META_OFFSET + (index >> 1);
+        PUnsafe.putByte(metaAddr, (byte) NibbleArray.insertNibble(index, PUnsafe.getByte(metaAddr), meta));
+    }
+
+    @Override
+    public LegacyBlockStorage clone() {
+        DirectLegacyBlockStorage clone = new DirectLegacyBlockStorage(this.alloc);
+        PUnsafe.copyMemory(this.addr, clone.addr, SIZE);
+        return clone;
+    }
+
+    @Override
+    protected void doRelease() {
+        this.buf.release();
+    }
+
+    /**
+     * Extension of {@link DirectLegacyBlockStorage} with support for Anvil's extended block IDs.
+     *
+     * @author DaPorkchop_
+     */
+    public static class Add extends DirectLegacyBlockStorage {
+        protected static final long ADD_OFFSET = SIZE;
+
+        public Add(@NonNull ByteBufAllocator alloc) {
+            super(alloc, SIZE + NibbleArray.PACKED_SIZE);
+        }
+
+        @Override
+        public boolean extendedIds() {
+            return true;
+        }
+
+        @Override
+        protected void setCombinedIdMeta(int index, int combinedIdMeta) {
+            super.setCombinedIdMeta(index, combinedIdMeta);
+            long addAddr = this.addr + ADD_OFFSET + (index >> 1);
+            PUnsafe.putByte(addAddr, (byte) NibbleArray.insertNibble(index, PUnsafe.getByte(addAddr), (combinedIdMeta >>> 12) & 0xF));
+        }
+
+        @Override
+        protected void fillRange(int from, int to, int combinedIdMeta) {
+            super.fillRange(from, to, combinedIdMeta);
+            NibbleArray.fillNibbles(this.addr + ADD_OFFSET, from, to, (combinedIdMeta >>> 12) & 0xF);
+        }
+
+        @Override
+        public int getBlockLegacyId(int x, int y, int z) {
+            int index = index(x, y, z);
+            return (PUnsafe.getByte(this.addr + index) & 0xFF)
+                   | (NibbleArray.extractNibble(index, PUnsafe.getByte(this.addr + ADD_OFFSET + (index >> 1))) << 8);
+        }
+
+        @Override
+        public int getCombinedIdMeta(int x, int y, int z) {
+            int index = index(x, y, z);
+            return super.getCombinedIdMeta(x, y, z)
+                   | (NibbleArray.extractNibble(index, PUnsafe.getByte(this.addr + ADD_OFFSET + (index >> 1))) << 12);
+        }
+
+        @Override
+        public void getCombinedIdMetas(@NonNull int[] dst, int dstOff) {
+            super.getCombinedIdMetas(dst, dstOff);
+            long addr = this.addr + ADD_OFFSET;
+            for (int i = 0; i < NUM_BLOCKS; i += 2) {
+                int a = PUnsafe.getByte(addr + (i >> 1));
+                dst[dstOff + i] |= (a & 0xF) << 12;
+                dst[dstOff + i + 1] |= ((a >> 4) & 0xF) << 12;
+            }
+        }
+
+        @Override
+        public void histogram(@NonNull int[] counts) {
+            checkArg(counts.length >= 1 << 16, "counts (%d) must have at least 65536 elements", counts.length);
+            int[] ids = new int[NUM_BLOCKS];
+            this.getCombinedIdMetas(ids, 0);
+            for (int id : ids) {
+                counts[id]++;
+            }
+        }
+
+        @Override
+        public void setBlockState(int x, int y, int z, int legacyId, int meta) {
+            checkArg((legacyId & 0xFFF) == legacyId, "legacy ID must be in range [0-4096)");
+            checkArg((meta & 0xF) == meta, "nibble value must be in range [0-16)");
+            this.setCombinedIdMeta(index(x, y, z), (legacyId << 4) | meta);
+        }
+
+        @Override
+        public void setBlockLegacyId(int x, int y, int z, int legacyId) {
+            checkArg((legacyId & 0xFFF) == legacyId, "legacy ID must be in range [0-4096)");
+            int index = index(x, y, z);
+            PUnsafe.putByte(this.addr + index, (byte) legacyId);
+            long addAddr = this.addr + ADD_OFFSET + (index >> 1);
+            PUnsafe.putByte(addAddr, (byte) NibbleArray.insertNibble(index, PUnsafe.getByte(addAddr), (legacyId >> 8) & 0xF));
+        }
+
+        @Override
+        public LegacyBlockStorage clone() {
+            Add clone = new Add(this.alloc);
+            PUnsafe.copyMemory(this.addr, clone.addr, SIZE + NibbleArray.PACKED_SIZE);
+            return clone;
+        }
+    }
+}
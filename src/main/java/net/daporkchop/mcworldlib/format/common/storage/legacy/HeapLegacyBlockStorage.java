@@ -25,6 +25,8 @@ import net.daporkchop.lib.common.pool.array.ArrayAllocator;
 import net.daporkchop.mcworldlib.format.common.nibble.NibbleArray;
 import net.daporkchop.mcworldlib.world.storage.LegacyBlockStorage;
 
+import java.util.Arrays;
+
 import static net.daporkchop.lib.common.util.PValidation.*;
 
 /**
@@ -60,6 +62,18 @@ public class HeapLegacyBlockStorage extends AbstractLegacyBlockStorage {
         this.metaAlloc = metaAlloc;
     }
 
+    @Override
+    protected void setCombinedIdMeta(int index, int combinedIdMeta) {
+        this.blocks[index] = (byte) (combinedIdMeta >>> 4);
+        this.meta[index >> 1] = (byte) NibbleArray.insertNibble(index, this.meta[index >> 1], combinedIdMeta & 0xF);
+    }
+
+    @Override
+    protected void fillRange(int from, int to, int combinedIdMeta) {
+        Arrays.fill(this.blocks, from, to, (byte) (combinedIdMeta >>> 4));
+        NibbleArray.fillNibbles(this.meta, from, to, combinedIdMeta & 0xF);
+    }
+
     @Override
     public int getBlockLegacyId(int x, int y, int z) {
         return this.blocks[index(x, y, z)] & 0xFF;
@@ -78,6 +92,30 @@ public class HeapLegacyBlockStorage extends AbstractLegacyBlockStorage {
                | NibbleArray.extractNibble(index, this.meta[index >> 1]);
     }
 
+    @Override
+    public void getCombinedIdMetas(@NonNull int[] dst, int dstOff) {
+        checkRangeLen(dst.length, dstOff, NUM_BLOCKS);
+        byte[] blocks = this.blocks;
+        byte[] meta = this.meta;
+        for (int i = 0; i < NUM_BLOCKS; i += 2) {
+            int m = meta[i >> 1];
+            dst[dstOff + i] = ((blocks[i] & 0xFF) << 4) | (m & 0xF);
+            dst[dstOff + i + 1] = ((blocks[i + 1] & 0xFF) << 4) | ((m >> 4) & 0xF);
+        }
+    }
+
+    @Override
+    public void histogram(@NonNull int[] counts) {
+        checkArg(counts.length >= 1 << 12, "counts (%d) must have at least 4096 elements", counts.length);
+        byte[] blocks = this.blocks;
+        byte[] meta = this.meta;
+        for (int i = 0; i < NUM_BLOCKS; i += 2) {
+            int m = meta[i >> 1];
+            counts[((blocks[i] & 0xFF) << 4) | (m & 0xF)]++;
+            counts[((blocks[i + 1] & 0xFF) << 4) | ((m >> 4) & 0xF)]++;
+        }
+    }
+
     @Override
     public void setBlockState(int x, int y, int z, int legacyId, int meta) {
         checkArg((legacyId & 0xFF) == legacyId, "legacy ID must be in range [0-256)");
@@ -155,6 +193,23 @@ public class HeapLegacyBlockStorage extends AbstractLegacyBlockStorage {
             this.addAlloc = addAlloc;
         }
 
+        @Override
+        public boolean extendedIds() {
+            return true;
+        }
+
+        @Override
+        protected void setCombinedIdMeta(int index, int combinedIdMeta) {
+            super.setCombinedIdMeta(index, combinedIdMeta);
+            this.add[index >> 1] = (byte) NibbleArray.insertNibble(index, this.add[index >> 1], (combinedIdMeta >>> 12) & 0xF);
+        }
+
+        @Override
+        protected void fillRange(int from, int to, int combinedIdMeta) {
+            super.fillRange(from, to, combinedIdMeta);
+            NibbleArray.fillNibbles(this.add, from, to, (combinedIdMeta >>> 12) & 0xF);
+        }
+
         @Override
         public int getBlockLegacyId(int x, int y, int z) {
             int index = index(x, y, z);
@@ -170,6 +225,31 @@ public class HeapLegacyBlockStorage extends AbstractLegacyBlockStorage {
                    | NibbleArray.extractNibble(index, this.meta[index >> 1]);
         }
 
+        @Override
+        public void getCombinedIdMetas(@NonNull int[] dst, int dstOff) {
+            super.getCombinedIdMetas(dst, dstOff);
+            byte[] add = this.add;
+            for (int i = 0; i < NUM_BLOCKS; i += 2) {
+                int a = add[i >> 1];
+                dst[dstOff + i] |= (a & 0xF) << 12;
+                dst[dstOff + i + 1] |= ((a >> 4) & 0xF) << 12;
+            }
+        }
+
+        @Override
+        public void histogram(@NonNull int[] counts) {
+            checkArg(counts.length >= 1 << 16, "counts (%d) must have at least 65536 elements", counts.length);
+            byte[] blocks = this.blocks;
+            byte[] meta = this.meta;
+            byte[] add = this.add;
+            for (int i = 0; i < NUM_BLOCKS; i += 2) {
+                int m = meta[i >> 1];
+                int a = add[i >> 1];
+                counts[((a & 0xF) << 12) | ((blocks[i] & 0xFF) << 4) | (m & 0xF)]++;
+                counts[(((a >> 4) & 0xF) << 12) | ((blocks[i + 1] & 0xFF) << 4) | ((m >> 4) & 0xF)]++;
+            }
+        }
+
         @Override
         public void setBlockState(int x, int y, int z, int legacyId, int meta) {
             checkArg((legacyId & 0xFFF) == legacyId, "legacy ID must be in range [0-4096)");
@@ -0,0 +1,209 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.format.common.storage.legacy;
+
+import lombok.NonNull;
+import net.daporkchop.mcworldlib.format.common.nibble.NibbleArray;
+import net.daporkchop.mcworldlib.world.storage.BlockStorage;
+import net.daporkchop.mcworldlib.world.storage.LegacyBlockStorage;
+
+import java.util.Arrays;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * A {@link LegacyBlockStorage} in which every block has the same ID and metadata.
+ * <p>
+ * No block arrays are allocated until a different block is written, at which point the storage transparently expands into a
+ * {@link HeapLegacyBlockStorage}.
+ *
+ * @author DaPorkchop_
+ */
+public class UniformLegacyBlockStorage extends AbstractLegacyBlockStorage {
+    protected int combinedIdMeta;
+    protected final boolean add;
+
+    protected HeapLegacyBlockStorage expanded; //the storage containing the actual blocks, or null if the storage is still uniform
+
+    public UniformLegacyBlockStorage(int legacyId, int meta, boolean add) {
+        checkArg((legacyId & (add ? 0xFFF : 0xFF)) == legacyId, "legacy ID must be in range [0-%d)", add ? 4096 : 256);
+        checkArg((meta & 0xF) == meta, "nibble value must be in range [0-16)");
+        this.combinedIdMeta = (legacyId << 4) | meta;
+        this.add = add;
+    }
+
+    /**
+     * @return whether or not every block in this storage still has the same ID and metadata
+     */
+    public boolean isUniform() {
+        return this.expanded == null;
+    }
+
+    protected HeapLegacyBlockStorage expand() {
+        HeapLegacyBlockStorage expanded = this.expanded;
+        if (expanded == null) {
+            int legacyId = this.combinedIdMeta >>> 4;
+            int meta = this.combinedIdMeta & 0xF;
+
+            byte[] blocks = new byte[NUM_BLOCKS];
+            Arrays.fill(blocks, (byte) legacyId);
+            byte[] metaArray = new byte[NibbleArray.PACKED_SIZE];
+            Arrays.fill(metaArray, (byte) (meta | (meta << 4)));
+            if (this.add) {
+                int add = legacyId >>> 8;
+                byte[] addArray = new byte[NibbleArray.PACKED_SIZE];
+                Arrays.fill(addArray, (byte) (add | (add << 4)));
+                expanded = new HeapLegacyBlockStorage.Add(blocks, metaArray, addArray);
+            } else {
+                expanded = new HeapLegacyBlockStorage(blocks, metaArray);
+            }
+            this.expanded = expanded;
+        }
+        return expanded;
+    }
+
+    @Override
+    public boolean extendedIds() {
+        return this.add;
+    }
+
+    @Override
+    public int getBlockLegacyId(int x, int y, int z) {
+        return this.expanded != null ? this.expanded.getBlockLegacyId(x, y, z) : this.uniformValue(x, y, z) >>> 4;
+    }
+
+    @Override
+    public int getBlockMeta(int x, int y, int z) {
+        return this.expanded != null ? this.expanded.getBlockMeta(x, y, z) : this.uniformValue(x, y, z) & 0xF;
+    }
+
+    @Override
+    public int getCombinedIdMeta(int x, int y, int z) {
+        return this.expanded != null ? this.expanded.getCombinedIdMeta(x, y, z) : this.uniformValue(x, y, z);
+    }
+
+    private int uniformValue(int x, int y, int z) {
+        index(x, y, z); //validate coordinates
+        return this.combinedIdMeta;
+    }
+
+    @Override
+    public void getCombinedIdMetas(@NonNull int[] dst, int dstOff) {
+        if (this.expanded != null) {
+            this.expanded.getCombinedIdMetas(dst, dstOff);
+        } else {
+            checkRangeLen(dst.length, dstOff, NUM_BLOCKS);
+            Arrays.fill(dst, dstOff, dstOff + NUM_BLOCKS, this.combinedIdMeta);
+        }
+    }
+
+    @Override
+    public void histogram(@NonNull int[] counts) {
+        if (this.expanded != null) {
+            this.expanded.histogram(counts);
+        } else {
+            checkArg(counts.length > this.combinedIdMeta, "counts (%d) must have more than %d elements", counts.length, this.combinedIdMeta);
+            counts[this.combinedIdMeta] += NUM_BLOCKS;
+        }
+    }
+
+    @Override
+    public void setBlockState(int x, int y, int z, int legacyId, int meta) {
+        if (this.expanded != null || legacyId != this.combinedIdMeta >>> 4 || meta != (this.combinedIdMeta & 0xF)) {
+            this.expand().setBlockState(x, y, z, legacyId, meta);
+        } else {
+            index(x, y, z);
+        }
+    }
+
+    @Override
+    public void setBlockLegacyId(int x, int y, int z, int legacyId) {
+        if (this.expanded != null || legacyId != this.combinedIdMeta >>> 4) {
+            this.expand().setBlockLegacyId(x, y, z, legacyId);
+        } else {
+            index(x, y, z);
+        }
+    }
+
+    @Override
+    public void setBlockMeta(int x, int y, int z, int meta) {
+        if (this.expanded != null || meta != (this.combinedIdMeta & 0xF)) {
+            this.expand().setBlockMeta(x, y, z, meta);
+        } else {
+            index(x, y, z);
+        }
+    }
+
+    @Override
+    protected void setCombinedIdMeta(int index, int combinedIdMeta) {
+        if (this.expanded != null || combinedIdMeta != this.combinedIdMeta) {
+            this.expand().setCombinedIdMeta(index, combinedIdMeta);
+        }
+    }
+
+    @Override
+    protected void fillRange(int from, int to, int combinedIdMeta) {
+        if (this.expanded != null || combinedIdMeta != this.combinedIdMeta) {
+            this.expand().fillRange(from, to, combinedIdMeta);
+        }
+    }
+
+    @Override
+    public void fill(int x, int y, int z, int sizeX, int sizeY, int sizeZ, int legacyId, int meta) {
+        if (sizeX == 16 && sizeY == 16 && sizeZ == 16) { //the whole storage is being overwritten, so it can become uniform again
+            BlockStorage.checkBox(x, y, z, sizeX, sizeY, sizeZ);
+            this.checkIdMeta(legacyId, meta);
+            if (this.expanded != null) {
+                this.expanded.release();
+                this.expanded = null;
+            }
+            this.combinedIdMeta = (legacyId << 4) | meta;
+        } else {
+            super.fill(x, y, z, sizeX, sizeY, sizeZ, legacyId, meta);
+        }
+    }
+
+    @Override
+    public void replace(int fromLegacyId, int fromMeta, int toLegacyId, int toMeta) {
+        if (this.expanded != null) {
+            this.expanded.replace(fromLegacyId, fromMeta, toLegacyId, toMeta);
+        } else {
+            this.checkIdMeta(toLegacyId, toMeta);
+            if (this.combinedIdMeta == ((fromLegacyId << 4) | fromMeta)) {
+                this.combinedIdMeta = (toLegacyId << 4) | toMeta;
+            }
+        }
+    }
+
+    @Override
+    public LegacyBlockStorage clone() {
+        return this.expanded != null
+                ? this.expanded.clone()
+                : new UniformLegacyBlockStorage(this.combinedIdMeta >>> 4, this.combinedIdMeta & 0xF, this.add);
+    }
+
+    @Override
+    protected void doRelease() {
+        if (this.expanded != null) {
+            this.expanded.release();
+        }
+    }
+}
@@ -23,6 +23,7 @@ package net.daporkchop.mcworldlib.format.cubicchunks;
 import lombok.NonNull;
 import net.daporkchop.mcworldlib.format.anvil.AnvilSave;
 import net.daporkchop.mcworldlib.format.anvil.world.AbstractAnvilWorld;
+import net.daporkchop.mcworldlib.format.cubicchunks.storage.CCWorldStorage;
 import net.daporkchop.mcworldlib.world.Dimension;
 import net.daporkchop.mcworldlib.world.WorldStorage;
 
@@ -43,6 +44,6 @@ public class CCAnvilWorld extends AbstractAnvilWorld {
 
     @Override
     protected WorldStorage createStorage(@NonNull File root) {
-        return null; //TODO: this
+        return new CCWorldStorage(root, this);
     }
 }
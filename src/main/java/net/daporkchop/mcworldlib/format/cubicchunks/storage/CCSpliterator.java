@@ -0,0 +1,381 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.format.cubicchunks.storage;
+
+import cubicchunks.regionlib.impl.EntryLocation2D;
+import cubicchunks.regionlib.impl.EntryLocation3D;
+import io.netty.buffer.ByteBuf;
+import lombok.NonNull;
+import net.daporkchop.lib.common.misc.refcount.RefCounted;
+import net.daporkchop.lib.nbt.tag.CompoundTag;
+import net.daporkchop.lib.unsafe.PUnsafe;
+import net.daporkchop.mcworldlib.util.nbt.NBTListExtractor;
+import net.daporkchop.mcworldlib.util.nbt.SelectiveNBTReader;
+import net.daporkchop.mcworldlib.world.Chunk;
+import net.daporkchop.mcworldlib.world.ChunkMetadata;
+import net.daporkchop.mcworldlib.world.section.Section;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import static net.daporkchop.lib.nbt.tag.Tag.*;
+
+/**
+ * Base implementation of a {@link Spliterator} over the contents of a Cubic Chunks world.
+ * <p>
+ * Rather than only splitting between region files, this treats every possible entry position in every region as a single flat index range. This
+ * allows work to be split evenly between threads even if the world only consists of a handful of very densely populated regions, which is common for
+ * Cubic Chunks worlds with large vertical ranges.
+ *
+ * @author DaPorkchop_
+ */
+public abstract class CCSpliterator<T> implements Spliterator<T> {
+    protected final CCWorldStorage storage;
+    protected final int[][] regions;
+    protected final int shift;
+    protected long index;
+    protected long fence;
+
+    protected boolean released = false;
+
+    public CCSpliterator(@NonNull CCWorldStorage storage, @NonNull int[][] regions, int shift) {
+        this(storage, regions, shift, 0L, (long) regions.length << shift);
+    }
+
+    protected CCSpliterator(@NonNull CCWorldStorage storage, @NonNull int[][] regions, int shift, long index, long fence) {
+        storage.retain();
+        this.storage = storage;
+        this.regions = regions;
+        this.shift = shift;
+        this.index = index;
+        this.fence = fence;
+    }
+
+    @Override
+    public boolean tryAdvance(@NonNull Consumer<? super T> action) {
+        try {
+            while (this.index < this.fence) {
+                long i = this.index++;
+                if (this.advance(this.regions[(int) (i >>> this.shift)], (int) i & ((1 << this.shift) - 1), action)) {
+                    return true;
+                }
+            }
+        } catch (IOException e) {
+            this.releaseStorage(); //make sure that storage is released again in case of exception
+            PUnsafe.throwException(e);
+        }
+
+        //there is nothing left, release storage
+        this.releaseStorage();
+        return false;
+    }
+
+    protected void releaseStorage() {
+        if (!this.released) {
+            this.released = true;
+            this.storage.release();
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        long low = this.index;
+        long high = this.fence;
+        long mid = (low + high) >>> 1L;
+        return low < mid && !this.released ? this.sub(this.storage, this.regions, this.fence = mid, high) : null;
+    }
+
+    @Override
+    public long estimateSize() {
+        return this.fence - this.index;
+    }
+
+    @Override
+    public int characteristics() {
+        return DISTINCT | NONNULL | IMMUTABLE; //we can't report sized because there's no guarantees that every region is full
+    }
+
+    /**
+     * Loads the entry at the given position, and passes the resulting value (if any) to the given action.
+     *
+     * @param region the coordinates of the region
+     * @param index  the index of the entry in the region
+     * @param action the action
+     * @return whether or not a value was passed to the action
+     */
+    protected abstract boolean advance(@NonNull int[] region, int index, @NonNull Consumer<? super T> action) throws IOException;
+
+    protected abstract Spliterator<T> sub(@NonNull CCWorldStorage storage, @NonNull int[][] regions, long index, long fence);
+
+    /**
+     * Base implementation of {@link CCSpliterator} for values which are reference-counted, where each entry corresponds to at most one value.
+     *
+     * @author DaPorkchop_
+     */
+    public static abstract class OfRefCounted<T extends RefCounted> extends CCSpliterator<T> {
+        public OfRefCounted(@NonNull CCWorldStorage storage, @NonNull int[][] regions, int shift) {
+            super(storage, regions, shift);
+        }
+
+        protected OfRefCounted(@NonNull CCWorldStorage storage, @NonNull int[][] regions, int shift, long index, long fence) {
+            super(storage, regions, shift, index, fence);
+        }
+
+        @Override
+        protected boolean advance(@NonNull int[] region, int index, @NonNull Consumer<? super T> action) throws IOException {
+            T value = this.load(region, index);
+            if (value == null) {
+                return false;
+            }
+            try {
+                action.accept(value);
+            } finally {
+                value.release();
+            }
+            return true;
+        }
+
+        /**
+         * Loads the value at the given position.
+         *
+         * @param region the coordinates of the region
+         * @param index  the index of the entry in the region
+         * @return the value, or {@code null} if there is no value at the given position
+         */
+        protected abstract T load(@NonNull int[] region, int index) throws IOException;
+    }
+
+    /**
+     * Implementation of a {@link Spliterator} over the columns in a Cubic Chunks world.
+     *
+     * @author DaPorkchop_
+     */
+    public static class OfChunk extends OfRefCounted<Chunk> {
+        public OfChunk(@NonNull CCWorldStorage storage) {
+            super(storage, storage.listRegions2d(), 10); //2d regions are 32x32 columns
+        }
+
+        protected OfChunk(@NonNull CCWorldStorage storage, @NonNull int[][] regions, long index, long fence) {
+            super(storage, regions, 10, index, fence);
+        }
+
+        @Override
+        protected Chunk load(@NonNull int[] region, int index) throws IOException {
+            return this.storage.loadChunk((region[0] << 5) | (index >> 5), (region[1] << 5) | (index & 0x1F));
+        }
+
+        @Override
+        protected Spliterator<Chunk> sub(@NonNull CCWorldStorage storage, @NonNull int[][] regions, long index, long fence) {
+            return new OfChunk(storage, regions, index, fence);
+        }
+    }
+
+    /**
+     * Implementation of a {@link Spliterator} over the cubes in a Cubic Chunks world.
+     *
+     * @author DaPorkchop_
+     */
+    public static class OfSection extends OfRefCounted<Section> {
+        public OfSection(@NonNull CCWorldStorage storage) {
+            super(storage, storage.listRegions3d(), 12); //3d regions are 16x16x16 cubes
+        }
+
+        protected OfSection(@NonNull CCWorldStorage storage, @NonNull int[][] regions, long index, long fence) {
+            super(storage, regions, 12, index, fence);
+        }
+
+        @Override
+        protected Section load(@NonNull int[] region, int index) throws IOException {
+            return this.storage.loadSection((region[0] << 4) | (index >> 8), (region[1] << 4) | ((index >> 4) & 0xF), (region[2] << 4) | (index & 0xF));
+        }
+
+        @Override
+        protected Spliterator<Section> sub(@NonNull CCWorldStorage storage, @NonNull int[][] regions, long index, long fence) {
+            return new OfSection(storage, regions, index, fence);
+        }
+    }
+
+    /**
+     * Implementation of a {@link Spliterator} over the elements of specific NBT lists (such as entities or tile entities) in every cube of a Cubic
+     * Chunks world.
+     *
+     * @author DaPorkchop_
+     */
+    public static class OfNBTList extends CCSpliterator<CompoundTag> {
+        protected final Collection<String> names;
+        protected final Queue<CompoundTag> buffer = new ArrayDeque<>();
+        protected final Consumer<CompoundTag> bufferAdder = this.buffer::add;
+
+        public OfNBTList(@NonNull CCWorldStorage storage, @NonNull Collection<String> names) {
+            super(storage, storage.listRegions3d(), 12);
+            this.names = names;
+        }
+
+        protected OfNBTList(@NonNull CCWorldStorage storage, @NonNull int[][] regions, long index, long fence, @NonNull Collection<String> names) {
+            super(storage, regions, 12, index, fence);
+            this.names = names;
+        }
+
+        @Override
+        public boolean tryAdvance(@NonNull Consumer<? super CompoundTag> action) {
+            if (!this.buffer.isEmpty()) {
+                action.accept(this.buffer.poll());
+                return true;
+            }
+            return super.tryAdvance(action);
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE; //we have no idea how many entries there are in each cube
+        }
+
+        @Override
+        public int characteristics() {
+            return NONNULL;
+        }
+
+        @Override
+        protected boolean advance(@NonNull int[] region, int index, @NonNull Consumer<? super CompoundTag> action) throws IOException {
+            ByteBuf uncompressed = this.storage.inflate(this.storage.delegate.load(
+                    new EntryLocation3D((region[0] << 4) | (index >> 8), (region[1] << 4) | ((index >> 4) & 0xF), (region[2] << 4) | (index & 0xF)), false));
+            if (uncompressed == null) {
+                return false;
+            }
+            try {
+                NBTListExtractor.extract(uncompressed, this.names, this.bufferAdder);
+            } finally {
+                uncompressed.release();
+            }
+
+            if (this.buffer.isEmpty()) {
+                return false;
+            }
+            action.accept(this.buffer.poll());
+            return true;
+        }
+
+        @Override
+        protected Spliterator<CompoundTag> sub(@NonNull CCWorldStorage storage, @NonNull int[][] regions, long index, long fence) {
+            return new OfNBTList(storage, regions, index, fence, this.names);
+        }
+    }
+
+    /**
+     * Implementation of a {@link Spliterator} over the {@link ChunkMetadata} of every column in a Cubic Chunks world.
+     * <p>
+     * Only the few scalar tags needed are read from each column, everything else is skipped over without being parsed. Cubic Chunks columns don't
+     * store a generation status, so {@link ChunkMetadata#status()} is always {@code null}.
+     *
+     * @author DaPorkchop_
+     */
+    public static class OfChunkMetadata extends CCSpliterator<ChunkMetadata> {
+        protected static final SelectiveNBTReader READER = new SelectiveNBTReader(
+                "DataVersion", "Level.x", "Level.z", "Level.LastUpdate", "Level.InhabitedTime");
+
+        protected static final int PATH_DATA_VERSION = 0;
+        protected static final int PATH_X = 1;
+        protected static final int PATH_Z = 2;
+        protected static final int PATH_LAST_UPDATE = 3;
+        protected static final int PATH_INHABITED_TIME = 4;
+
+        //values of the column currently being read
+        protected int dataVersion;
+        protected int x;
+        protected int z;
+        protected long lastUpdate;
+        protected long inhabitedTime;
+        protected boolean hasPosition;
+
+        protected final SelectiveNBTReader.Visitor visitor = (path, id, buf) -> {
+            switch (path) {
+                case PATH_DATA_VERSION:
+                    if (id == TAG_INT) {
+                        this.dataVersion = buf.readInt();
+                    }
+                    break;
+                case PATH_X:
+                    if (id == TAG_INT) {
+                        this.x = buf.readInt();
+                        this.hasPosition = true;
+                    }
+                    break;
+                case PATH_Z:
+                    if (id == TAG_INT) {
+                        this.z = buf.readInt();
+                    }
+                    break;
+                case PATH_LAST_UPDATE:
+                    if (id == TAG_LONG) {
+                        this.lastUpdate = buf.readLong();
+                    }
+                    break;
+                case PATH_INHABITED_TIME:
+                    if (id == TAG_LONG) {
+                        this.inhabitedTime = buf.readLong();
+                    }
+                    break;
+            }
+        };
+
+        public OfChunkMetadata(@NonNull CCWorldStorage storage) {
+            super(storage, storage.listRegions2d(), 10); //2d regions are 32x32 columns
+        }
+
+        protected OfChunkMetadata(@NonNull CCWorldStorage storage, @NonNull int[][] regions, long index, long fence) {
+            super(storage, regions, 10, index, fence);
+        }
+
+        @Override
+        protected boolean advance(@NonNull int[] region, int index, @NonNull Consumer<? super ChunkMetadata> action) throws IOException {
+            ByteBuf uncompressed = this.storage.inflate(this.storage.delegate.load(
+                    new EntryLocation2D((region[0] << 5) | (index >> 5), (region[1] << 5) | (index & 0x1F)), false));
+            if (uncompressed == null) {
+                return false;
+            }
+            try {
+                this.dataVersion = 0;
+                this.lastUpdate = this.inhabitedTime = 0L;
+                this.hasPosition = false;
+
+                READER.read(uncompressed, this.visitor);
+            } finally {
+                uncompressed.release();
+            }
+
+            if (!this.hasPosition) {
+                return false;
+            }
+            int dataVersion = this.dataVersion != 0 ? this.dataVersion : this.storage.defaultVersion().data();
+            action.accept(new ChunkMetadata(this.x, this.z, dataVersion, this.lastUpdate, this.inhabitedTime, null));
+            return true;
+        }
+
+        @Override
+        protected Spliterator<ChunkMetadata> sub(@NonNull CCWorldStorage storage, @NonNull int[][] regions, long index, long fence) {
+            return new OfChunkMetadata(storage, regions, index, fence);
+        }
+    }
+}
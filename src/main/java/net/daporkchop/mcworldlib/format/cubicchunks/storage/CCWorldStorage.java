@@ -20,45 +20,133 @@
 
 package net.daporkchop.mcworldlib.format.cubicchunks.storage;
 
+import cubicchunks.regionlib.impl.EntryLocation2D;
+import cubicchunks.regionlib.impl.EntryLocation3D;
 import cubicchunks.regionlib.impl.SaveCubeColumns;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import lombok.NonNull;
+import net.daporkchop.lib.common.pool.handle.Handle;
+import net.daporkchop.lib.compression.context.PInflater;
 import net.daporkchop.lib.concurrent.PFuture;
 import net.daporkchop.lib.concurrent.PFutures;
+import net.daporkchop.lib.nbt.tag.CompoundTag;
+import net.daporkchop.lib.nbt.tag.ListTag;
+import net.daporkchop.mcworldlib.format.anvil.region.RegionConstants;
 import net.daporkchop.mcworldlib.format.anvil.world.AbstractAnvilWorld;
 import net.daporkchop.mcworldlib.format.java.storage.AbstractJavaWorldStorage;
+import net.daporkchop.mcworldlib.format.vanilla.VanillaChunk;
+import net.daporkchop.mcworldlib.save.SaveOptions;
+import net.daporkchop.mcworldlib.util.nbt.AllocatedByteArrayTag;
+import net.daporkchop.mcworldlib.util.nbt.AllocatedNBTHelper;
+import net.daporkchop.mcworldlib.version.java.DataVersion;
+import net.daporkchop.mcworldlib.version.java.JavaVersion;
 import net.daporkchop.mcworldlib.world.Chunk;
+import net.daporkchop.mcworldlib.world.ChunkMetadata;
+import net.daporkchop.mcworldlib.world.HeightmapType;
+import net.daporkchop.mcworldlib.world.WorldStorage;
 import net.daporkchop.mcworldlib.world.section.Section;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Optional;
 import java.util.Spliterator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
+ * Implementation of {@link WorldStorage} for Cubic Chunks worlds, backed by regionlib.
+ * <p>
+ * Each Cubic Chunks cube is exposed as a single {@link Section}, and each column as a {@link Chunk}. Cubes are not cached, every call to
+ * {@link #loadSection(int, int, int)} will read the cube from disk.
+ * <p>
+ * Columns have no fixed height, so the {@link HeightmapType#LIGHT_BLOCKING} heightmap of a column may contain values outside of the usual
+ * {@code [0, 256]} range. Columns without any opaque blocks have a height of {@link Integer#MIN_VALUE}.
+ *
  * @author DaPorkchop_
  */
 public class CCWorldStorage extends AbstractJavaWorldStorage {
+    public static final Pattern REGION_2D_PATTERN = Pattern.compile("^(-?\\d+)\\.(-?\\d+)\\.2dr$");
+    public static final Pattern REGION_3D_PATTERN = Pattern.compile("^(-?\\d+)\\.(-?\\d+)\\.(-?\\d+)\\.3dr$");
+
+    protected static final Collection<String> ENTITY_LIST_NAMES = Collections.singleton("Entities");
+    protected static final Collection<String> TILE_ENTITY_LIST_NAMES = Collections.singleton("TileEntities");
+
     protected final SaveCubeColumns delegate;
 
     public CCWorldStorage(@NonNull File root, @NonNull AbstractAnvilWorld world) {
         super(root, world);
 
+        if (!this.readOnly) {
+            throw new UnsupportedOperationException("Cubic Chunks read/write mode is not implemented!");
+        }
+
         try {
             this.delegate = SaveCubeColumns.create(root.toPath());
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
-
-        throw new UnsupportedOperationException("Cubic Chunks worlds are not supported yet!");
     }
 
     @Override
     public Chunk loadChunk(int x, int z) throws IOException {
-        return null;
+        CompoundTag tag = this.read(this.delegate.load(new EntryLocation2D(x, z), false));
+        if (tag == null) {
+            return null;
+        }
+        try {
+            return this.decodeColumn(tag, x, z);
+        } finally {
+            AllocatedNBTHelper.release(tag);
+        }
     }
 
     @Override
     public Section loadSection(int x, int y, int z) throws IOException {
-        return null;
+        CompoundTag tag = this.read(this.delegate.load(new EntryLocation3D(x, y, z), false));
+        if (tag == null) {
+            return null;
+        }
+        try {
+            return this.decodeCube(tag, x, y, z);
+        } finally {
+            AllocatedNBTHelper.release(tag);
+        }
+    }
+
+    @Override
+    public PFuture<Chunk> loadChunkAsync(int x, int z) {
+        return this.ioScheduler.submit(x >> 5, z >> 5, () -> this.delegate.load(new EntryLocation2D(x, z), false), data -> {
+            CompoundTag tag = this.read(data);
+            if (tag == null) {
+                return null;
+            }
+            try {
+                return this.decodeColumn(tag, x, z);
+            } finally {
+                AllocatedNBTHelper.release(tag);
+            }
+        }, this.computeExecutor);
+    }
+
+    @Override
+    public PFuture<Section> loadSectionAsync(int x, int y, int z) {
+        return this.ioScheduler.submit(x >> 4, z >> 4, () -> this.delegate.load(new EntryLocation3D(x, y, z), false), data -> {
+            CompoundTag tag = this.read(data);
+            if (tag == null) {
+                return null;
+            }
+            try {
+                return this.decodeCube(tag, x, y, z);
+            } finally {
+                AllocatedNBTHelper.release(tag);
+            }
+        }, this.computeExecutor);
     }
 
     @Override
@@ -80,14 +168,34 @@ public class CCWorldStorage extends AbstractJavaWorldStorage {
         return PFutures.successful(null, this.ioExecutor);
     }
 
+    @Override
+    public PFuture<Long> preload(int minX, int minZ, int maxX, int maxZ, int priority, PreloadListener listener) {
+        return PFutures.successful(0L, this.computeExecutor); //cubic chunks storage doesn't cache anything, so there's nothing to preload
+    }
+
     @Override
     public Spliterator<Chunk> allChunks() throws IOException {
-        return null;
+        return new CCSpliterator.OfChunk(this);
     }
 
     @Override
     public Spliterator<Section> allSections() throws IOException {
-        return null;
+        return new CCSpliterator.OfSection(this);
+    }
+
+    @Override
+    public Spliterator<CompoundTag> allEntities() throws IOException {
+        return new CCSpliterator.OfNBTList(this, ENTITY_LIST_NAMES);
+    }
+
+    @Override
+    public Spliterator<CompoundTag> allTileEntities() throws IOException {
+        return new CCSpliterator.OfNBTList(this, TILE_ENTITY_LIST_NAMES);
+    }
+
+    @Override
+    public Spliterator<ChunkMetadata> chunkMetadata() throws IOException {
+        return new CCSpliterator.OfChunkMetadata(this);
     }
 
     @Override
@@ -99,4 +207,196 @@ public class CCWorldStorage extends AbstractJavaWorldStorage {
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * @return the coordinates of all of the 2D regions in this world, as {@code (x, z)} pairs
+     */
+    protected int[][] listRegions2d() {
+        return this.listRegions(new File(this.root, "region2d"), REGION_2D_PATTERN);
+    }
+
+    /**
+     * @return the coordinates of all of the 3D regions in this world, as {@code (x, y, z)} triples
+     */
+    protected int[][] listRegions3d() {
+        return this.listRegions(new File(this.root, "region3d"), REGION_3D_PATTERN);
+    }
+
+    protected int[][] listRegions(@NonNull File directory, @NonNull Pattern pattern) {
+        String[] names = directory.list();
+        if (names == null) { //directory doesn't exist
+            return new int[0][];
+        }
+
+        return Arrays.stream(names)
+                .map(pattern::matcher)
+                .filter(Matcher::matches)
+                .map(matcher -> {
+                    int[] coords = new int[matcher.groupCount()];
+                    for (int i = 0; i < coords.length; i++) {
+                        coords[i] = Integer.parseInt(matcher.group(i + 1));
+                    }
+                    return coords;
+                })
+                .toArray(int[][]::new);
+    }
+
+    /**
+     * Decompresses and parses a column or cube.
+     *
+     * @param data the compressed data, as returned by regionlib
+     * @return the parsed NBT data, or {@code null} if the column or cube doesn't exist
+     */
+    protected CompoundTag read(@NonNull Optional<ByteBuffer> data) throws IOException {
+        ByteBuf uncompressed = this.inflate(data);
+        if (uncompressed == null) {
+            return null;
+        }
+        try {
+            return this.parse(uncompressed);
+        } finally {
+            uncompressed.release();
+        }
+    }
+
+    /**
+     * Decompresses a column or cube.
+     *
+     * @param data the compressed data, as returned by regionlib
+     * @return a {@link ByteBuf} containing the uncompressed data which must be released by the caller, or {@code null} if the column or cube doesn't
+     * exist
+     */
+    protected ByteBuf inflate(@NonNull Optional<ByteBuffer> data) throws IOException {
+        if (!data.isPresent()) {
+            return null;
+        }
+
+        ByteBufAllocator alloc = this.options.get(SaveOptions.NETTY_ALLOC);
+        ByteBuf uncompressed = alloc.ioBuffer(1 << 16);
+        ByteBuf compressed = alloc.ioBuffer(data.get().remaining());
+        try {
+            compressed.writeBytes(data.get());
+            try (Handle<PInflater> handle = inflater(RegionConstants.ID_GZIP)) { //cubic chunks always uses gzip
+                handle.get().decompress(compressed, uncompressed);
+            }
+            return uncompressed;
+        } catch (Throwable t) {
+            uncompressed.release();
+            throw t;
+        } finally {
+            compressed.release();
+        }
+    }
+
+    protected JavaVersion version(@NonNull CompoundTag tag) {
+        int dataVersion = tag.getInt("DataVersion", 0);
+        if (dataVersion == 0) {
+            return this.defaultVersion();
+        }
+        return dataVersion < DataVersion.DATA_15w32a ? JavaVersion.pre15w32a() : JavaVersion.fromDataVersion(dataVersion);
+    }
+
+    /**
+     * @return the version of columns and cubes which don't store a data version. older versions of cubic chunks don't, so they're assumed to be
+     * the same as the world
+     */
+    protected JavaVersion defaultVersion() {
+        return this.world.version();
+    }
+
+    /**
+     * Decodes a column into a {@link Chunk}.
+     *
+     * @param tag the column's NBT data
+     * @param x   the X coordinate of the column
+     * @param z   the Z coordinate of the column
+     * @return the decoded chunk
+     */
+    protected Chunk decodeColumn(@NonNull CompoundTag tag, int x, int z) throws IOException {
+        CompoundTag levelTag = tag.getCompound("Level");
+        int columnX = levelTag.getInt("x");
+        int columnZ = levelTag.getInt("z");
+        if (columnX != x || columnZ != z) {
+            throw new IOException(String.format("Column at (%d,%d) is stored at (%d,%d)!", columnX, columnZ, x, z));
+        }
+
+        VanillaChunk chunk = new VanillaChunk(this.version(tag), x, z);
+        AllocatedByteArrayTag opacityIndexTag = AllocatedNBTHelper.toAllocatedByteArray(levelTag.remove("OpacityIndex", null), this.options.get(SaveOptions.BYTE_ALLOC));
+        if (opacityIndexTag != null) {
+            try {
+                chunk.heightmap(HeightmapType.LIGHT_BLOCKING, this.decodeOpacityIndex(opacityIndexTag.value(), opacityIndexTag.length()));
+            } finally {
+                opacityIndexTag.release();
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Decodes a column's opacity index into a heightmap.
+     * <p>
+     * The opacity index stores, for each of the 256 block columns, the lowest and highest Y coordinates of an opaque block (as {@code int}s)
+     * followed by an {@code unsigned short} count of {@code int} segment boundaries. Only the highest Y coordinate is used.
+     *
+     * @param data   the serialized opacity index
+     * @param length the number of bytes in the opacity index
+     * @return the heightmap
+     */
+    protected int[] decodeOpacityIndex(@NonNull byte[] data, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data, 0, length);
+        int[] heightmap = new int[256];
+        try {
+            for (int i = 0; i < 256; i++) {
+                buffer.getInt(); //lowest opaque block, not needed
+                int top = buffer.getInt();
+                heightmap[i] = top == Integer.MIN_VALUE ? Integer.MIN_VALUE : top + 1;
+                buffer.position(buffer.position() + (buffer.getShort() & 0xFFFF) * 4); //skip segments
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) { //position() throws IllegalArgumentException if it's past the limit
+            throw new IOException("Truncated opacity index", e);
+        }
+        return heightmap;
+    }
+
+    /**
+     * Decodes a cube into a {@link Section}.
+     *
+     * @param tag the cube's NBT data
+     * @param x   the X coordinate of the cube
+     * @param y   the Y coordinate of the cube
+     * @param z   the Z coordinate of the cube
+     * @return the decoded section, or {@code null} if the cube contains no block data
+     */
+    protected Section decodeCube(@NonNull CompoundTag tag, int x, int y, int z) {
+        JavaVersion version = this.version(tag);
+        CompoundTag levelTag = tag.getCompound("Level");
+
+        ListTag<CompoundTag> sectionsTag = levelTag.getList("Sections", CompoundTag.class, null);
+        if (sectionsTag == null || sectionsTag.size() == 0) { //cube is empty
+            return null;
+        }
+
+        Section section = this.fixers.section().ceilingEntry(version).getValue()
+                .decode(sectionsTag.list().get(0), version, this.world, x, y, z);
+
+        ListTag<CompoundTag> tileEntities = levelTag.getList("TileEntities", CompoundTag.class, null);
+        if (tileEntities != null) {
+            for (CompoundTag tileEntity : tileEntities) {
+                int tileX = tileEntity.getInt("x");
+                int tileY = tileEntity.getInt("y");
+                int tileZ = tileEntity.getInt("z");
+                section.setTileEntity(tileX & 0xF, tileY & 0xF, tileZ & 0xF, AllocatedNBTHelper.toNormalAndRelease(tileEntity));
+            }
+            tileEntities.list().clear();
+        }
+
+        ListTag<CompoundTag> entities = levelTag.getList("Entities", CompoundTag.class, null);
+        if (entities != null) {
+            for (CompoundTag entity : entities) {
+                section.addEntity(AllocatedNBTHelper.toNormalAndRelease(entity));
+            }
+            entities.list().clear();
+        }
+        return section;
+    }
 }
@@ -25,11 +25,18 @@ import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import net.daporkchop.mcworldlib.format.anvil.decoder.chunk.FlattenedChunkDecoder;
 import net.daporkchop.mcworldlib.format.anvil.decoder.chunk.LegacyChunkDecoder;
+import net.daporkchop.mcworldlib.format.anvil.encoder.chunk.FlattenedChunkEncoder;
+import net.daporkchop.mcworldlib.format.anvil.encoder.chunk.LegacyChunkEncoder;
 import net.daporkchop.mcworldlib.format.java.decoder.JavaChunkDecoder;
 import net.daporkchop.mcworldlib.format.java.decoder.JavaSectionDecoder;
 import net.daporkchop.mcworldlib.format.java.decoder.section.LegacySectionDecoder;
 import net.daporkchop.mcworldlib.format.java.decoder.section.PackedFlattenedSectionDecoder;
 import net.daporkchop.mcworldlib.format.java.decoder.section.PaddedFlattenedSectionDecoder;
+import net.daporkchop.mcworldlib.format.java.encoder.JavaChunkEncoder;
+import net.daporkchop.mcworldlib.format.java.encoder.JavaSectionEncoder;
+import net.daporkchop.mcworldlib.format.java.encoder.section.LegacySectionEncoder;
+import net.daporkchop.mcworldlib.format.java.encoder.section.PackedFlattenedSectionEncoder;
+import net.daporkchop.mcworldlib.format.java.encoder.section.PaddedFlattenedSectionEncoder;
 import net.daporkchop.mcworldlib.version.java.JavaVersion;
 
 import java.util.Map;
@@ -53,6 +60,17 @@ public class JavaFixers {
     protected final NavigableMap<JavaVersion, JavaChunkDecoder> chunk;
     @NonNull
     protected final NavigableMap<JavaVersion, JavaSectionDecoder> section;
+    @NonNull
+    protected final NavigableMap<JavaVersion, JavaChunkEncoder> chunkEncoder;
+    @NonNull
+    protected final NavigableMap<JavaVersion, JavaSectionEncoder> sectionEncoder;
+
+    /**
+     * Creates a {@link JavaFixers} which can only decode data, not encode it.
+     */
+    public JavaFixers(@NonNull NavigableMap<JavaVersion, JavaChunkDecoder> chunk, @NonNull NavigableMap<JavaVersion, JavaSectionDecoder> section) {
+        this(chunk, section, new TreeMap<>(), new TreeMap<>());
+    }
 
     @RequiredArgsConstructor
     public static final class MapBuilder<K, V, M extends Map<K, V>> {
@@ -79,6 +97,15 @@ public class JavaFixers {
                         .put(LegacySectionDecoder.VERSION, new LegacySectionDecoder())
                         .put(PackedFlattenedSectionDecoder.VERSION, new PackedFlattenedSectionDecoder())
                         .put(PaddedFlattenedSectionDecoder.VERSION, new PaddedFlattenedSectionDecoder())
+                        .build(),
+                new MapBuilder<>(new TreeMap<JavaVersion, JavaChunkEncoder>())
+                        .put(LegacyChunkEncoder.VERSION, new LegacyChunkEncoder())
+                        .put(FlattenedChunkEncoder.VERSION, new FlattenedChunkEncoder())
+                        .build(),
+                new MapBuilder<>(new TreeMap<JavaVersion, JavaSectionEncoder>())
+                        .put(LegacySectionEncoder.VERSION, new LegacySectionEncoder())
+                        .put(PackedFlattenedSectionEncoder.VERSION, new PackedFlattenedSectionEncoder())
+                        .put(PaddedFlattenedSectionEncoder.VERSION, new PaddedFlattenedSectionEncoder())
                         .build());
     }
 }
@@ -0,0 +1,345 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.format.java.convert;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import net.daporkchop.lib.common.math.BinMath;
+import net.daporkchop.lib.nbt.tag.CompoundTag;
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.block.java.JavaBlockRegistry;
+import net.daporkchop.mcworldlib.format.common.nibble.NibbleArray;
+import net.daporkchop.mcworldlib.format.common.section.flattened.SingleLayerFlattenedSection;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.HeapPaddedFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.util.Identifier;
+import net.daporkchop.mcworldlib.util.nbt.LazyCompoundTag;
+import net.daporkchop.mcworldlib.util.Util;
+import net.daporkchop.mcworldlib.util.palette.state.ArrayStatePalette;
+import net.daporkchop.mcworldlib.version.java.DataVersion;
+import net.daporkchop.mcworldlib.version.java.JavaVersion;
+import net.daporkchop.mcworldlib.world.section.FlattenedSection;
+import net.daporkchop.mcworldlib.world.section.LegacySection;
+import net.daporkchop.mcworldlib.world.storage.BlockStorage;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Converts {@link LegacySection}s to {@link FlattenedSection}s.
+ * <p>
+ * Conversion is table-driven: a bundled table maps every combined ID ({@code (id << 4) | meta}) known to 1.12.2 to the 1.13 block state it was
+ * renamed to by The Flattening (e.g. {@code minecraft:stone[variant=granite]} becomes {@code minecraft:granite}), so a whole section is converted
+ * with one array lookup per distinct combined ID. Properties which aren't stored in the block data (such as fence connections) are set to the
+ * values of the 1.13 block's default state, like vanilla does until the block is next updated.
+ * <p>
+ * States which depend on other data are fixed in additional passes: the upper halves of double plants take their type from the block below, and
+ * states which depend on tile entity data (flower pots, skulls, beds and banners) are fixed using the section's tile entities.
+ *
+ * @author DaPorkchop_
+ */
+@UtilityClass
+public class LegacySectionConverter {
+    /**
+     * Maps combined IDs to the ID of their entry in the palette being built plus one, so that zero means "not yet seen". Entries are reset after each
+     * conversion.
+     */
+    private final ThreadLocal<int[]> PALETTE_IDS = ThreadLocal.withInitial(() -> new int[1 << 16]);
+
+    private final Map<Identifier, TileEntityStateFixer> TILE_ENTITY_FIXERS = new HashMap<>();
+
+    private final int DOUBLE_PLANT_ID = 175;
+
+    private final String[] COLORS = {
+            "white", "orange", "magenta", "light_blue", "yellow", "lime", "pink", "gray",
+            "light_gray", "cyan", "purple", "blue", "brown", "green", "red", "black"
+    };
+    private final String[] WOOD_TYPES = { "oak", "spruce", "birch", "jungle", "acacia", "dark_oak" };
+    private final String[] SKULL_TYPES = { "skeleton", "wither_skeleton", "zombie", "player", "creeper", "dragon" };
+    private final String[] SKULL_SUFFIXES = { "skull", "skull", "head", "head", "head", "head" };
+
+    static {
+        TILE_ENTITY_FIXERS.put(Identifier.fromString("minecraft:flower_pot"), LegacySectionConverter::fixFlowerPot);
+        TILE_ENTITY_FIXERS.put(Identifier.fromString("minecraft:skeleton_skull"), LegacySectionConverter::fixSkull);
+        TILE_ENTITY_FIXERS.put(Identifier.fromString("minecraft:skeleton_wall_skull"), LegacySectionConverter::fixSkull);
+        TILE_ENTITY_FIXERS.put(Identifier.fromString("minecraft:red_bed"), LegacySectionConverter::fixBed);
+        TILE_ENTITY_FIXERS.put(Identifier.fromString("minecraft:white_banner"), LegacySectionConverter::fixBanner);
+        TILE_ENTITY_FIXERS.put(Identifier.fromString("minecraft:white_wall_banner"), LegacySectionConverter::fixBanner);
+    }
+
+    /**
+     * @return the version of the sections returned by {@link #convert(LegacySection)}, which is the version whose block states the table maps to
+     */
+    public JavaVersion flattenedVersion() {
+        return Table.VERSION;
+    }
+
+    /**
+     * Gets the {@link BlockState} which a combined ID is converted to.
+     *
+     * @param combinedIdMeta the combined ID ({@code (id << 4) | meta})
+     * @return the {@link BlockState}, or {@code null} if the ID isn't known
+     */
+    public BlockState legacyState(int combinedIdMeta) {
+        checkArg(combinedIdMeta >= 0 && combinedIdMeta < (1 << 16), "invalid combined ID: %d", combinedIdMeta);
+        return Table.STATES[combinedIdMeta];
+    }
+
+    /**
+     * Gets the {@link BlockState} which a combined ID is converted to, including the placeholder states used for unknown IDs.
+     *
+     * @param combinedIdMeta the combined ID ({@code (id << 4) | meta})
+     * @return the {@link BlockState}
+     */
+    public BlockState convertState(int combinedIdMeta) {
+        BlockState state = legacyState(combinedIdMeta);
+        return state != null ? state : unknownState(combinedIdMeta);
+    }
+
+    /**
+     * Converts the given legacy section to a flattened section.
+     * <p>
+     * The returned section has version {@link #flattenedVersion()}, and shares the given section's light data, tile entities and entities. The given
+     * section is not released.
+     *
+     * @param section the section to convert
+     * @return the converted section
+     */
+    public FlattenedSection convert(@NonNull LegacySection section) {
+        int[] ids = new int[BlockStorage.NUM_BLOCKS];
+        section.blockStorage().getCombinedIdMetas(ids, 0);
+
+        //replace each combined ID with its palette ID
+        BlockState[] table = Table.STATES;
+        int[] paletteIds = PALETTE_IDS.get();
+        BlockState[] states = new BlockState[BlockStorage.NUM_BLOCKS];
+        int[] combinedIds = new int[BlockStorage.NUM_BLOCKS];
+        int size = 0;
+        try {
+            for (int i = 0; i < BlockStorage.NUM_BLOCKS; i++) {
+                int combined = ids[i];
+                int paletteId = paletteIds[combined] - 1;
+                if (paletteId < 0) { //first time we see this combined ID in this section
+                    BlockState state = table[combined];
+                    states[paletteId = size++] = state != null ? state : unknownState(combined);
+                    combinedIds[paletteId] = combined;
+                    paletteIds[combined] = paletteId + 1;
+                }
+                ids[i] = paletteId;
+            }
+        } finally {
+            for (int paletteId = 0; paletteId < size; paletteId++) {
+                paletteIds[combinedIds[paletteId]] = 0;
+            }
+        }
+
+        HeapPaddedFlattenedBlockStorage blocks;
+        if (size == 1) { //every block has the same state
+            blocks = new HeapPaddedFlattenedBlockStorage(states[0]);
+        } else {
+            int bits = Math.max(BinMath.getNumBitsNeededFor(size - 1), 4);
+            ArrayStatePalette palette = ArrayStatePalette.withCapacity(1 << bits);
+            for (int paletteId = 0; paletteId < size; paletteId++) {
+                palette.append(states[paletteId]);
+            }
+
+            int perWord = 64 / bits;
+            long[] words = new long[(BlockStorage.NUM_BLOCKS + perWord - 1) / perWord];
+            for (int i = 0; i < BlockStorage.NUM_BLOCKS; i++) {
+                words[i / perWord] |= (long) ids[i] << ((i % perWord) * bits);
+            }
+            blocks = new HeapPaddedFlattenedBlockStorage(bits, words, null, palette);
+        }
+
+        NibbleArray skyLight = section.skyLightStorage();
+        FlattenedSection converted = new SingleLayerFlattenedSection(Table.VERSION, section.x(), section.y(), section.z(),
+                blocks, section.blockLightStorage().retain(), skyLight != null ? skyLight.retain() : null);
+
+        //second pass: the upper half of a double plant doesn't store its type, so it's taken from the lower half below it
+        for (int paletteId = 0; paletteId < size; paletteId++) {
+            if (isUpperDoublePlant(combinedIds[paletteId])) {
+                fixDoublePlants(converted, ids, combinedIds);
+                break;
+            }
+        }
+
+        for (LazyCompoundTag entity : section.lazyEntities()) {
+            converted.addLazyEntity(entity);
+        }
+
+        //third pass: fix states which depend on tile entity data. tile entities are only parsed if a fixer needs them
+        for (LazyCompoundTag tileEntity : section.lazyTileEntities()) {
+            int x = tileEntity.x() & 0xF;
+            int y = tileEntity.y() & 0xF;
+            int z = tileEntity.z() & 0xF;
+            converted.setLazyTileEntity(x, y, z, tileEntity);
+
+            BlockState state = converted.getBlockState(x, y, z);
+            TileEntityStateFixer fixer = TILE_ENTITY_FIXERS.get(state.id());
+            if (fixer != null) {
+                BlockState fixed = fixer.fix(state, tileEntity.tag());
+                if (fixed != state) {
+                    converted.setBlockState(x, y, z, fixed);
+                }
+            }
+        }
+        return converted;
+    }
+
+    private boolean isUpperDoublePlant(int combined) {
+        return (combined >> 4) == DOUBLE_PLANT_ID && (combined & 0x8) != 0;
+    }
+
+    private void fixDoublePlants(@NonNull FlattenedSection converted, @NonNull int[] ids, @NonNull int[] combinedIds) {
+        for (int i = 1 << 8; i < BlockStorage.NUM_BLOCKS; i++) { //the block below y=0 is in another section, so the table's guess is kept
+            int below = combinedIds[ids[i - (1 << 8)]];
+            if (isUpperDoublePlant(combinedIds[ids[i]]) && (below >> 4) == DOUBLE_PLANT_ID && (below & 0x8) == 0) {
+                BlockState lower = Table.STATES[below];
+                converted.setBlockState(i & 0xF, i >> 8, (i >> 4) & 0xF, BlockState.of(lower.id(), Collections.singletonMap("half", "upper")));
+            }
+        }
+    }
+
+    private BlockState unknownState(int combined) {
+        //preserve unknown (probably modded) IDs instead of silently replacing them with air
+        return BlockState.of(Identifier.fromString("mcworldlib:legacy_" + (combined >> 4)), Collections.singletonMap("meta", String.valueOf(combined & 0xF)));
+    }
+
+    private BlockState fixFlowerPot(@NonNull BlockState state, @NonNull CompoundTag tileEntity) {
+        String item = tileEntity.getString("Item", "");
+        if (item.startsWith("minecraft:")) {
+            item = item.substring("minecraft:".length());
+        }
+        int data = tileEntity.getInt("Data", 0);
+
+        String contents;
+        switch (item) {
+            case "red_flower": {
+                String[] flowers = { "poppy", "blue_orchid", "allium", "azure_bluet", "red_tulip", "orange_tulip", "white_tulip", "pink_tulip", "oxeye_daisy" };
+                contents = data >= 0 && data < flowers.length ? flowers[data] : null;
+                break;
+            }
+            case "yellow_flower":
+                contents = "dandelion";
+                break;
+            case "sapling":
+                contents = data >= 0 && data < WOOD_TYPES.length ? WOOD_TYPES[data] + "_sapling" : null;
+                break;
+            case "red_mushroom":
+            case "brown_mushroom":
+            case "cactus":
+                contents = item;
+                break;
+            case "deadbush":
+                contents = "dead_bush";
+                break;
+            case "tallgrass":
+                contents = data == 2 ? "fern" : null;
+                break;
+            default:
+                contents = null;
+        }
+
+        //1.13 has a separate block for every kind of potted plant
+        return contents != null ? BlockState.of(Identifier.fromString("minecraft:potted_" + contents), Collections.emptyMap()) : state;
+    }
+
+    private BlockState fixSkull(@NonNull BlockState state, @NonNull CompoundTag tileEntity) {
+        int type = tileEntity.getByte("SkullType", (byte) 0);
+        if (type <= 0 || type >= SKULL_TYPES.length) { //skeleton skulls are what the table already contains
+            type = 0;
+        }
+
+        if (state.properties().containsKey("facing")) { //wall skull
+            return type == 0 ? state : BlockState.of(Identifier.fromString("minecraft:" + SKULL_TYPES[type] + "_wall_" + SKULL_SUFFIXES[type]), state.properties());
+        } else { //floor skull, whose rotation is only stored in the tile entity
+            return BlockState.of(Identifier.fromString("minecraft:" + SKULL_TYPES[type] + '_' + SKULL_SUFFIXES[type]),
+                    Collections.singletonMap("rotation", String.valueOf(tileEntity.getByte("Rot", (byte) 0) & 0xF)));
+        }
+    }
+
+    private BlockState fixBed(@NonNull BlockState state, @NonNull CompoundTag tileEntity) {
+        int color = tileEntity.getInt("color", 14); //beds placed before 1.12 have no color and are red
+        return color >= 0 && color < COLORS.length ? BlockState.of(Identifier.fromString("minecraft:" + COLORS[color] + "_bed"), state.properties()) : state;
+    }
+
+    private BlockState fixBanner(@NonNull BlockState state, @NonNull CompoundTag tileEntity) {
+        //the base color is stored as a dye damage value, which is the reverse of the wool color order
+        int color = 15 - tileEntity.getInt("Base", 15);
+        if (color < 0 || color >= COLORS.length) {
+            return state;
+        }
+        String wall = state.properties().containsKey("facing") ? "_wall_banner" : "_banner";
+        return BlockState.of(Identifier.fromString("minecraft:" + COLORS[color] + wall), state.properties());
+    }
+
+    /**
+     * Computes the actual state of a block from the data in its tile entity.
+     *
+     * @author DaPorkchop_
+     */
+    @FunctionalInterface
+    private interface TileEntityStateFixer {
+        BlockState fix(@NonNull BlockState state, @NonNull CompoundTag tileEntity);
+    }
+
+    /**
+     * Holder for the combined ID table, so that it's only built the first time a section is converted.
+     *
+     * @author DaPorkchop_
+     */
+    private static final class Table {
+        private static final JavaVersion VERSION = JavaVersion.fromDataVersion(DataVersion.DATA_1_13);
+        private static final BlockState[] STATES = new BlockState[1 << 16];
+
+        static {
+            //maps every combined ID known to 1.12.2 to the table ID of the 1.13 state it becomes. generated from the bundled 1.12.2 and 1.13 block
+            //tables by tools/generate_flattening.py, which must be re-run if either of them changes
+            Map<Integer, Integer> flattening = Util.parseJson(LegacySectionConverter.class, new TypeReference<Map<Integer, Integer>>() {}, "flattening.json");
+
+            JavaBlockRegistry registry = JavaBlockRegistry.forVersion(VERSION);
+            BlockState[] byTableId = new BlockState[registry.states()];
+            for (int id = 0; id < registry.states(); id++) {
+                int tableId = registry.tableId(id);
+                if (tableId >= byTableId.length) {
+                    byTableId = Arrays.copyOf(byTableId, tableId + 1);
+                }
+                byTableId[tableId] = registry.idToState(id);
+            }
+
+            flattening.forEach((combined, tableId) -> {
+                checkState(tableId >= 0 && tableId < byTableId.length && byTableId[tableId] != null, "unknown 1.13 state %d for combined ID %d", tableId, combined);
+                STATES[combined] = byTableId[tableId];
+            });
+
+            //unknown metadata values of known blocks fall back to metadata 0, which is what vanilla does
+            for (int combined = 0; combined < STATES.length; combined++) {
+                if (STATES[combined] == null) {
+                    STATES[combined] = STATES[combined & ~0xF];
+                }
+            }
+        }
+    }
+}
@@ -33,15 +33,32 @@ import net.daporkchop.lib.nbt.tag.CompoundTag;
  */
 @FunctionalInterface
 public interface JavaSectionDecoder {
+    /**
+     * Decodes a section, reading its Y coordinate from the section's {@code Y} tag.
+     *
+     * @param tag     the {@link CompoundTag} containing the section data
+     * @param version the version of the section data
+     * @param world   the {@link World} that the section is in
+     * @param x       the X coordinate of the section
+     * @param z       the Z coordinate of the section
+     * @return the decoded section
+     */
+    default Section decode(@NonNull CompoundTag tag, @NonNull JavaVersion version, @NonNull World world, int x, int z) {
+        return this.decode(tag, version, world, x, tag.getByte("Y") & 0xFF, z);
+    }
+
     /**
      * Decodes a section.
+     * <p>
+     * This is used by formats which store the section's Y coordinate elsewhere (e.g. Cubic Chunks, where it is the Y coordinate of the cube).
      *
      * @param tag     the {@link CompoundTag} containing the section data
      * @param version the version of the section data
      * @param world   the {@link World} that the section is in
      * @param x       the X coordinate of the section
+     * @param y       the Y coordinate of the section
      * @param z       the Z coordinate of the section
      * @return the decoded section
      */
-    Section decode(@NonNull CompoundTag tag, @NonNull JavaVersion version, @NonNull World world, int x, int z);
+    Section decode(@NonNull CompoundTag tag, @NonNull JavaVersion version, @NonNull World world, int x, int y, int z);
 }
@@ -22,15 +22,23 @@ package net.daporkchop.mcworldlib.format.java.decoder.section;
 
 import lombok.NonNull;
 import net.daporkchop.lib.nbt.tag.CompoundTag;
+import net.daporkchop.lib.nbt.tag.Tag;
+import net.daporkchop.mcworldlib.format.common.nibble.DirectNibbleArray;
 import net.daporkchop.mcworldlib.format.common.nibble.HeapNibbleArray;
 import net.daporkchop.mcworldlib.format.common.nibble.NibbleArray;
 import net.daporkchop.mcworldlib.format.common.section.legacy.DefaultLegacySection;
+import net.daporkchop.mcworldlib.format.common.storage.legacy.DirectLegacyBlockStorage;
 import net.daporkchop.mcworldlib.format.common.storage.legacy.HeapLegacyBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.legacy.UniformLegacyBlockStorage;
 import net.daporkchop.mcworldlib.format.java.decoder.JavaSectionDecoder;
+import net.daporkchop.mcworldlib.save.SaveOptions;
 import net.daporkchop.mcworldlib.util.nbt.AllocatedByteArrayTag;
+import net.daporkchop.mcworldlib.util.nbt.AllocatedNBTHelper;
+import net.daporkchop.mcworldlib.util.nbt.SlicedByteArrayTag;
 import net.daporkchop.mcworldlib.version.java.JavaVersion;
 import net.daporkchop.mcworldlib.world.World;
 import net.daporkchop.mcworldlib.world.section.Section;
+import net.daporkchop.mcworldlib.world.storage.BlockStorage;
 import net.daporkchop.mcworldlib.world.storage.LegacyBlockStorage;
 
 /**
@@ -40,28 +48,77 @@ public class LegacySectionDecoder implements JavaSectionDecoder {
     public static final JavaVersion VERSION = JavaVersion.fromName("1.12.2");
 
     @Override
-    public Section decode(@NonNull CompoundTag tag, @NonNull JavaVersion version, @NonNull World world, int x, int z) {
-        int y = tag.getByte("Y") & 0xFF;
-        LegacyBlockStorage blocks = this.parseBlockStorage(tag);
+    public Section decode(@NonNull CompoundTag tag, @NonNull JavaVersion version, @NonNull World world, int x, int y, int z) {
+        SaveOptions options = world.parent().options();
+        LegacyBlockStorage blocks = this.parseBlockStorage(tag, options);
+        if (options.get(SaveOptions.DIRECT_BLOCKS) && !(blocks instanceof UniformLegacyBlockStorage)) { //move the block data off-heap
+            LegacyBlockStorage heapBlocks = blocks;
+            try {
+                blocks = DirectLegacyBlockStorage.copyOf(heapBlocks, options.get(SaveOptions.NETTY_ALLOC));
+            } finally {
+                heapBlocks.release();
+            }
+        }
 
-        NibbleArray blockLight = this.parseNibbleArray(tag, "BlockLight");
-        NibbleArray skyLight = this.parseNibbleArray(tag, "SkyLight");
+        NibbleArray blockLight = this.parseNibbleArray(tag, "BlockLight", options);
+        NibbleArray skyLight = this.parseNibbleArray(tag, "SkyLight", options);
         return new DefaultLegacySection(version, x, y, z, blocks, blockLight, skyLight);
     }
 
-    protected LegacyBlockStorage parseBlockStorage(@NonNull CompoundTag tag) {
-        AllocatedByteArrayTag blocksTag = tag.remove("Blocks");
-        AllocatedByteArrayTag dataTag = tag.remove("Data");
-        AllocatedByteArrayTag addTag = tag.remove("Add", null);
-        if (addTag == null) {
+    protected LegacyBlockStorage parseBlockStorage(@NonNull CompoundTag tag, @NonNull SaveOptions options) {
+        AllocatedByteArrayTag blocksTag = AllocatedNBTHelper.toAllocatedByteArray(tag.remove("Blocks"), options.get(SaveOptions.BYTE_ALLOC));
+        AllocatedByteArrayTag dataTag = AllocatedNBTHelper.toAllocatedByteArray(tag.remove("Data"), options.get(SaveOptions.BYTE_ALLOC));
+        AllocatedByteArrayTag addTag = AllocatedNBTHelper.toAllocatedByteArray(tag.remove("Add", null), options.get(SaveOptions.BYTE_ALLOC));
+        if (isUniform(blocksTag.value(), BlockStorage.NUM_BLOCKS) && isUniformNibbles(dataTag.value())
+            && (addTag == null || isUniformNibbles(addTag.value()))) { //every block is the same, there's no need to keep the arrays around
+            int legacyId = (blocksTag.value()[0] & 0xFF) | (addTag != null ? (addTag.value()[0] & 0xF) << 8 : 0);
+            int meta = dataTag.value()[0] & 0xF;
+            blocksTag.release();
+            dataTag.release();
+            if (addTag != null) {
+                addTag.release();
+            }
+            return new UniformLegacyBlockStorage(legacyId, meta, addTag != null);
+        } else if (addTag == null) {
             return new HeapLegacyBlockStorage(blocksTag.value(), dataTag.value(), blocksTag.alloc(), dataTag.alloc());
         } else {
             return new HeapLegacyBlockStorage.Add(blocksTag.value(), dataTag.value(), addTag.value(), blocksTag.alloc(), dataTag.alloc(), addTag.alloc());
         }
     }
 
-    protected NibbleArray parseNibbleArray(@NonNull CompoundTag tag, @NonNull String name) {
-        AllocatedByteArrayTag data = tag.remove(name, null);
+    /**
+     * @return whether or not the first {@code length} bytes of the given array are all the same
+     */
+    protected static boolean isUniform(@NonNull byte[] array, int length) {
+        byte first = array[0];
+        for (int i = 1; i < length; i++) {
+            if (array[i] != first) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether or not every nibble in the given packed nibble array is the same
+     */
+    protected static boolean isUniformNibbles(@NonNull byte[] array) {
+        return ((array[0] >> 4) & 0xF) == (array[0] & 0xF) && isUniform(array, NibbleArray.PACKED_SIZE);
+    }
+
+    protected NibbleArray parseNibbleArray(@NonNull CompoundTag tag, @NonNull String name, @NonNull SaveOptions options) {
+        Tag<?> dataTag = tag.remove(name, null);
+        if (dataTag instanceof SlicedByteArrayTag && ((SlicedByteArrayTag) dataTag).data().hasMemoryAddress()) {
+            //wrap the nibbles in place rather than copying them to the heap
+            SlicedByteArrayTag sliced = (SlicedByteArrayTag) dataTag;
+            try {
+                return new DirectNibbleArray.YZX(sliced.data());
+            } finally {
+                sliced.release();
+            }
+        }
+
+        AllocatedByteArrayTag data = AllocatedNBTHelper.toAllocatedByteArray(dataTag, options.get(SaveOptions.BYTE_ALLOC));
         return data != null ? new HeapNibbleArray.YZX(data.value(), data.alloc()) : null;
     }
 }
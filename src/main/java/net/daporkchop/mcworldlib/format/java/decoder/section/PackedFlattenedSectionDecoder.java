@@ -20,22 +20,29 @@
 
 package net.daporkchop.mcworldlib.format.java.decoder.section;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import lombok.NonNull;
-import net.daporkchop.lib.binary.bit.packed.PackedBitArray;
 import net.daporkchop.lib.common.math.BinMath;
+import net.daporkchop.lib.common.pool.array.ArrayAllocator;
 import net.daporkchop.lib.nbt.tag.CompoundTag;
 import net.daporkchop.lib.nbt.tag.ListTag;
-import net.daporkchop.lib.nbt.tag.StringTag;
 import net.daporkchop.lib.nbt.tag.Tag;
-import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.format.common.nibble.DirectNibbleArray;
 import net.daporkchop.mcworldlib.format.common.nibble.HeapNibbleArray;
 import net.daporkchop.mcworldlib.format.common.nibble.NibbleArray;
+import net.daporkchop.mcworldlib.block.BlockState;
 import net.daporkchop.mcworldlib.format.common.section.flattened.SingleLayerFlattenedSection;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.AbstractFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.DirectFlattenedBlockStorage;
 import net.daporkchop.mcworldlib.format.common.storage.flattened.HeapPackedFlattenedBlockStorage;
 import net.daporkchop.mcworldlib.format.java.decoder.JavaSectionDecoder;
-import net.daporkchop.mcworldlib.util.Identifier;
+import net.daporkchop.mcworldlib.save.SaveOptions;
 import net.daporkchop.mcworldlib.util.nbt.AllocatedByteArrayTag;
 import net.daporkchop.mcworldlib.util.nbt.AllocatedLongArrayTag;
+import net.daporkchop.mcworldlib.util.nbt.AllocatedNBTHelper;
+import net.daporkchop.mcworldlib.util.nbt.SlicedByteArrayTag;
+import net.daporkchop.mcworldlib.util.nbt.SlicedLongArrayTag;
 import net.daporkchop.mcworldlib.util.palette.state.ArrayStatePalette;
 import net.daporkchop.mcworldlib.util.palette.state.StatePalette;
 import net.daporkchop.mcworldlib.version.java.JavaVersion;
@@ -43,9 +50,8 @@ import net.daporkchop.mcworldlib.world.World;
 import net.daporkchop.mcworldlib.world.section.Section;
 import net.daporkchop.mcworldlib.world.storage.FlattenedBlockStorage;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.nio.LongBuffer;
+import java.util.List;
 
 /**
  * @author DaPorkchop_
@@ -54,44 +60,99 @@ public class PackedFlattenedSectionDecoder implements JavaSectionDecoder {
     public static final JavaVersion VERSION = JavaVersion.fromName("1.15.2");
 
     @Override
-    public Section decode(@NonNull CompoundTag tag, @NonNull JavaVersion version, @NonNull World world, int x, int z) {
-        int y = tag.getByte("Y") & 0xFF;
-        FlattenedBlockStorage blocks = this.parseBlockStorage(tag);
-
-        NibbleArray blockLight = this.parseNibbleArray(tag, "BlockLight");
-        NibbleArray skyLight = this.parseNibbleArray(tag, "SkyLight");
+    public Section decode(@NonNull CompoundTag tag, @NonNull JavaVersion version, @NonNull World world, int x, int y, int z) {
+        SaveOptions options = world.parent().options();
+        FlattenedBlockStorage blocks = this.parseBlockStorage(tag, options);
+        NibbleArray blockLight = this.parseNibbleArray(tag, "BlockLight", options);
+        NibbleArray skyLight = this.parseNibbleArray(tag, "SkyLight", options);
         return new SingleLayerFlattenedSection(version, x, y, z, blocks, blockLight, skyLight);
     }
 
-    protected FlattenedBlockStorage parseBlockStorage(@NonNull CompoundTag tag) {
+    protected FlattenedBlockStorage parseBlockStorage(@NonNull CompoundTag tag, @NonNull SaveOptions options) {
         ListTag<CompoundTag> paletteTag = tag.getList("Palette", CompoundTag.class);
-        AllocatedLongArrayTag blockStatesTag = tag.remove("BlockStates");
+        Tag<?> blockStatesTag = tag.remove("BlockStates");
+        if (paletteTag.size() == 1) { //every block has the same state, so there's no need to keep the block data around
+            AllocatedNBTHelper.release(blockStatesTag);
+            return this.createStorage(PaletteEntryCache.get(paletteTag.list().get(0)), options);
+        }
 
         int bits = Math.max(BinMath.getNumBitsNeededFor(Math.max(paletteTag.size() - 1, 0)), 4);
         StatePalette palette = this.parseBlockPalette(bits, paletteTag);
 
-        return new HeapPackedFlattenedBlockStorage(new PackedBitArray(bits, 4096, blockStatesTag.value(), blockStatesTag.alloc()), palette);
+        AbstractFlattenedBlockStorage storage;
+        if (options.get(SaveOptions.DIRECT_BLOCKS)) {
+            ByteBufAllocator alloc = options.get(SaveOptions.NETTY_ALLOC);
+            try {
+                ByteBuf sliced = blockStatesTag instanceof SlicedLongArrayTag ? ((SlicedLongArrayTag) blockStatesTag).data() : null;
+                if (sliced != null && sliced.hasMemoryAddress() && !sliced.isReadOnly()) {
+                    //the tag is a view of the decompressed chunk data, so it can store the block data in place
+                    storage = this.createStorage(alloc, bits, sliced.retain(), palette);
+                } else { //copy the block data straight from the tag into direct memory
+                    storage = this.createStorage(alloc, bits, AllocatedNBTHelper.longs(blockStatesTag), palette);
+                }
+            } finally {
+                AllocatedNBTHelper.release(blockStatesTag);
+            }
+        } else {
+            AllocatedLongArrayTag words = AllocatedNBTHelper.toAllocatedLongArray(blockStatesTag, options.get(SaveOptions.LONG_ALLOC));
+            storage = this.createStorage(bits, words.value(), words.alloc(), palette);
+        }
+        storage.collapseIfUniform(); //the palette may contain entries which aren't actually used
+        return storage;
     }
 
-    protected StatePalette parseBlockPalette(int bits, @NonNull ListTag<CompoundTag> paletteTag) {
-        return new ArrayStatePalette(1 << bits, paletteTag.stream().map(tag -> {
-            Identifier id = Identifier.fromString(tag.getString("Name"));
+    /**
+     * Creates a new uniform storage in which every block is the given state.
+     */
+    protected AbstractFlattenedBlockStorage createStorage(@NonNull BlockState state, @NonNull SaveOptions options) {
+        return options.get(SaveOptions.DIRECT_BLOCKS)
+                ? new DirectFlattenedBlockStorage.Packed(options.get(SaveOptions.NETTY_ALLOC), state)
+                : new HeapPackedFlattenedBlockStorage(state);
+    }
 
-            Map<String, String> propertiesMap = new HashMap<>();
-            CompoundTag properties = tag.getCompound("Properties", null);
-            if (properties != null) {
-                //set properties
-                for (Map.Entry<String, Tag> entry : properties) {
-                    propertiesMap.put(entry.getKey(), ((StringTag) entry.getValue()).value());
-                }
-            }
+    /**
+     * Creates a new heap storage backed by the given words.
+     */
+    protected AbstractFlattenedBlockStorage createStorage(int bits, @NonNull long[] words, ArrayAllocator<long[]> wordsAlloc, @NonNull StatePalette palette) {
+        return new HeapPackedFlattenedBlockStorage(bits, words, wordsAlloc, palette);
+    }
+
+    /**
+     * Creates a new direct storage containing a copy of the given words.
+     */
+    protected AbstractFlattenedBlockStorage createStorage(@NonNull ByteBufAllocator alloc, int bits, @NonNull LongBuffer words, @NonNull StatePalette palette) {
+        return new DirectFlattenedBlockStorage.Packed(alloc, bits, words, palette);
+    }
+
+    /**
+     * Creates a new direct storage which stores its block data in the given buffer, taking ownership of it.
+     */
+    protected AbstractFlattenedBlockStorage createStorage(@NonNull ByteBufAllocator alloc, int bits, @NonNull ByteBuf words, @NonNull StatePalette palette) {
+        return new DirectFlattenedBlockStorage.Packed(alloc, bits, words, palette);
+    }
 
-            return BlockState.of(id, propertiesMap);
-        }).collect(Collectors.toList()));
+    protected StatePalette parseBlockPalette(int bits, @NonNull ListTag<CompoundTag> paletteTag) {
+        List<CompoundTag> entries = paletteTag.list();
+        ArrayStatePalette palette = ArrayStatePalette.withCapacity(1 << bits);
+        for (int i = 0, size = entries.size(); i < size; i++) {
+            palette.append(PaletteEntryCache.get(entries.get(i)));
+        }
+        return palette;
     }
 
-    protected NibbleArray parseNibbleArray(@NonNull CompoundTag tag, @NonNull String name) {
-        AllocatedByteArrayTag data = tag.remove(name, null);
+    protected NibbleArray parseNibbleArray(@NonNull CompoundTag tag, @NonNull String name, @NonNull SaveOptions options) {
+        Tag<?> dataTag = tag.remove(name, null);
+        if (dataTag instanceof SlicedByteArrayTag && ((SlicedByteArrayTag) dataTag).data().hasMemoryAddress()) {
+            //wrap the nibbles in place rather than copying them to the heap
+            SlicedByteArrayTag sliced = (SlicedByteArrayTag) dataTag;
+            try {
+                return new DirectNibbleArray.YZX(sliced.data());
+            } finally {
+                sliced.release();
+            }
+        }
+
+        AllocatedByteArrayTag data = AllocatedNBTHelper.toAllocatedByteArray(dataTag, options.get(SaveOptions.BYTE_ALLOC));
         return data != null ? new HeapNibbleArray.YZX(data.value(), data.alloc()) : null;
     }
 }
@@ -20,16 +20,19 @@
 
 package net.daporkchop.mcworldlib.format.java.decoder.section;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import lombok.NonNull;
-import net.daporkchop.lib.binary.bit.padded.PaddedBitArray;
-import net.daporkchop.lib.common.math.BinMath;
-import net.daporkchop.lib.nbt.tag.CompoundTag;
-import net.daporkchop.lib.nbt.tag.ListTag;
+import net.daporkchop.lib.common.pool.array.ArrayAllocator;
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.AbstractFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.DirectFlattenedBlockStorage;
 import net.daporkchop.mcworldlib.format.common.storage.flattened.HeapPaddedFlattenedBlockStorage;
-import net.daporkchop.mcworldlib.util.nbt.AllocatedLongArrayTag;
+import net.daporkchop.mcworldlib.save.SaveOptions;
 import net.daporkchop.mcworldlib.util.palette.state.StatePalette;
 import net.daporkchop.mcworldlib.version.java.JavaVersion;
-import net.daporkchop.mcworldlib.world.storage.FlattenedBlockStorage;
+
+import java.nio.LongBuffer;
 
 /**
  * @author DaPorkchop_
@@ -38,13 +41,24 @@ public class PaddedFlattenedSectionDecoder extends PackedFlattenedSectionDecoder
     public static final JavaVersion VERSION = JavaVersion.latest();
 
     @Override
-    protected FlattenedBlockStorage parseBlockStorage(@NonNull CompoundTag tag) {
-        ListTag<CompoundTag> paletteTag = tag.getList("Palette", CompoundTag.class);
-        AllocatedLongArrayTag blockStatesTag = tag.remove("BlockStates");
+    protected AbstractFlattenedBlockStorage createStorage(@NonNull BlockState state, @NonNull SaveOptions options) {
+        return options.get(SaveOptions.DIRECT_BLOCKS)
+                ? new DirectFlattenedBlockStorage.Padded(options.get(SaveOptions.NETTY_ALLOC), state)
+                : new HeapPaddedFlattenedBlockStorage(state);
+    }
+
+    @Override
+    protected AbstractFlattenedBlockStorage createStorage(int bits, @NonNull long[] words, ArrayAllocator<long[]> wordsAlloc, @NonNull StatePalette palette) {
+        return new HeapPaddedFlattenedBlockStorage(bits, words, wordsAlloc, palette);
+    }
 
-        int bits = Math.max(BinMath.getNumBitsNeededFor(paletteTag.size()), 4);
-        StatePalette palette = this.parseBlockPalette(bits, paletteTag);
+    @Override
+    protected AbstractFlattenedBlockStorage createStorage(@NonNull ByteBufAllocator alloc, int bits, @NonNull LongBuffer words, @NonNull StatePalette palette) {
+        return new DirectFlattenedBlockStorage.Padded(alloc, bits, words, palette);
+    }
 
-        return new HeapPaddedFlattenedBlockStorage(new PaddedBitArray(bits, 4096, blockStatesTag.value(), blockStatesTag.alloc()), palette);
+    @Override
+    protected AbstractFlattenedBlockStorage createStorage(@NonNull ByteBufAllocator alloc, int bits, @NonNull ByteBuf words, @NonNull StatePalette palette) {
+        return new DirectFlattenedBlockStorage.Padded(alloc, bits, words, palette);
     }
 }
@@ -0,0 +1,129 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.format.java.decoder.section;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.UtilityClass;
+import net.daporkchop.lib.nbt.tag.CompoundTag;
+import net.daporkchop.lib.nbt.tag.StringTag;
+import net.daporkchop.lib.nbt.tag.Tag;
+import net.daporkchop.lib.primitive.map.concurrent.LongObjConcurrentHashMap;
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.util.Identifier;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static net.daporkchop.lib.common.math.PMath.*;
+
+/**
+ * Global cache of flattened block palette entries.
+ * <p>
+ * Real worlds contain the same few hundred palette entries millions of times. Parsing an entry the normal way requires parsing an {@link Identifier},
+ * building a property map and looking up the {@link BlockState}, all of which allocate. This cache is keyed on a hash of the raw palette entry, so
+ * looking up an already known entry doesn't allocate at all.
+ *
+ * @author DaPorkchop_
+ */
+@UtilityClass
+public class PaletteEntryCache {
+    private final LongObjConcurrentHashMap<Entry> CACHE = new LongObjConcurrentHashMap<>();
+
+    /**
+     * Gets the {@link BlockState} described by the given palette entry.
+     *
+     * @param tag the palette entry. Must contain a {@code "Name"} string, and may contain a {@code "Properties"} compound of strings
+     * @return the {@link BlockState}
+     */
+    public BlockState get(@NonNull CompoundTag tag) {
+        String name = tag.getString("Name");
+        CompoundTag properties = tag.getCompound("Properties", null);
+
+        long hash = hash(name, properties);
+        Entry entry = CACHE.get(hash);
+        if (entry != null && entry.matches(name, properties)) {
+            return entry.state;
+        }
+
+        BlockState state = parse(name, properties);
+        if (entry == null) { //in the astronomically unlikely event of a hash collision, the first entry stays cached and the other one always takes the slow path
+            CACHE.putIfAbsent(hash, new Entry(name, state));
+        }
+        return state;
+    }
+
+    private long hash(@NonNull String name, CompoundTag properties) {
+        long hash = mix64(name.hashCode());
+        if (properties != null) {
+            //property order isn't significant, so combine them using an order-independent operation
+            long sum = 0L;
+            for (Map.Entry<String, Tag> property : properties) {
+                sum += mix64(((long) property.getKey().hashCode() << 32L) | (((StringTag) property.getValue()).value().hashCode() & 0xFFFFFFFFL));
+            }
+            hash = mix64(hash + sum);
+        }
+        return hash;
+    }
+
+    private BlockState parse(@NonNull String name, CompoundTag properties) {
+        Map<String, String> propertiesMap = new HashMap<>();
+        if (properties != null) {
+            for (Map.Entry<String, Tag> entry : properties) {
+                propertiesMap.put(entry.getKey(), ((StringTag) entry.getValue()).value());
+            }
+        }
+        return BlockState.of(Identifier.fromString(name), propertiesMap);
+    }
+
+    /**
+     * A cached palette entry.
+     *
+     * @author DaPorkchop_
+     */
+    @RequiredArgsConstructor
+    private static final class Entry {
+        @NonNull
+        private final String name;
+        @NonNull
+        private final BlockState state;
+
+        public boolean matches(@NonNull String name, CompoundTag properties) {
+            if (!this.name.equals(name)) {
+                return false;
+            }
+
+            Map<String, String> stateProperties = this.state.properties();
+            if (properties == null) {
+                return stateProperties.isEmpty();
+            }
+
+            int count = 0;
+            for (Map.Entry<String, Tag> property : properties) {
+                if (!((StringTag) property.getValue()).value().equals(stateProperties.get(property.getKey()))) {
+                    return false;
+                }
+                count++;
+            }
+            return count == stateProperties.size();
+        }
+    }
+}
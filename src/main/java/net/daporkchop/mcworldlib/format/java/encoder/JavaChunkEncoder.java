@@ -0,0 +1,48 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.format.java.encoder;
+
+import io.netty.buffer.ByteBuf;
+import lombok.NonNull;
+import net.daporkchop.mcworldlib.version.java.JavaVersion;
+import net.daporkchop.mcworldlib.world.Chunk;
+import net.daporkchop.mcworldlib.world.section.Section;
+
+/**
+ * Counterpart of {@link net.daporkchop.mcworldlib.format.java.decoder.JavaChunkDecoder}.
+ *
+ * @author DaPorkchop_
+ */
+@FunctionalInterface
+public interface JavaChunkEncoder {
+    /**
+     * Encodes a chunk, along with its sections and all of their tile entities and entities.
+     * <p>
+     * The chunk is written as a complete root compound tag, ready to be compressed and stored in a region file.
+     *
+     * @param chunk          the chunk to encode
+     * @param sections       the chunk's sections, indexed by their Y coordinate. Missing sections are {@code null}
+     * @param version        the version to encode the chunk data as
+     * @param sectionEncoder the {@link JavaSectionEncoder} to use for encoding the sections
+     * @param dst            the {@link ByteBuf} to write the encoded chunk to
+     */
+    void encode(@NonNull Chunk chunk, @NonNull Section[] sections, @NonNull JavaVersion version, @NonNull JavaSectionEncoder sectionEncoder, @NonNull ByteBuf dst);
+}
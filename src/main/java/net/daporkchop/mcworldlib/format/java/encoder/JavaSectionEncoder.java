@@ -0,0 +1,71 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.format.java.encoder;
+
+import io.netty.buffer.ByteBuf;
+import lombok.NonNull;
+import net.daporkchop.mcworldlib.format.common.nibble.DirectNibbleArray;
+import net.daporkchop.mcworldlib.format.common.nibble.HeapNibbleArray;
+import net.daporkchop.mcworldlib.format.common.nibble.NibbleArray;
+import net.daporkchop.mcworldlib.util.nbt.DirectNBTWriter;
+import net.daporkchop.mcworldlib.version.java.JavaVersion;
+import net.daporkchop.mcworldlib.world.section.Section;
+
+/**
+ * Counterpart of {@link net.daporkchop.mcworldlib.format.java.decoder.JavaSectionDecoder}.
+ *
+ * @author DaPorkchop_
+ */
+@FunctionalInterface
+public interface JavaSectionEncoder {
+    /**
+     * Writes a {@link NibbleArray} (such as block or sky light) as a named byte array, using the YZX order used on disk.
+     *
+     * @param array the {@link NibbleArray} to write
+     * @param name  the name of the byte array
+     * @param dst   the {@link ByteBuf} to write to
+     */
+    static void encodeNibbleArray(@NonNull NibbleArray array, @NonNull String name, @NonNull ByteBuf dst) {
+        DirectNBTWriter.startByteArray(dst, name, NibbleArray.PACKED_SIZE);
+        if (array instanceof HeapNibbleArray.YZX || array instanceof DirectNibbleArray.YZX) { //the array is already in the order used on disk
+            array.writePacked(dst);
+        } else {
+            for (int i = 0; i < NibbleArray.MAX_INDEX; i += 2) {
+                dst.writeByte(array.get(i & 0xF, i >> 8, (i >> 4) & 0xF) | (array.get((i + 1) & 0xF, i >> 8, (i >> 4) & 0xF) << 4));
+            }
+        }
+    }
+
+    /**
+     * Encodes a section.
+     * <p>
+     * The section is written as the payload of a compound tag (i.e. a sequence of named tags followed by {@code TAG_End}), so that it can be used as
+     * an element of a list.
+     * <p>
+     * Tile entities and entities are not written, as they are stored in the chunk rather than in the section.
+     *
+     * @param section the section to encode
+     * @param version the version to encode the section data as
+     * @param dst     the {@link ByteBuf} to write the encoded section to
+     * @throws IllegalArgumentException if the section can't be encoded in the given version
+     */
+    void encode(@NonNull Section section, @NonNull JavaVersion version, @NonNull ByteBuf dst);
+}
@@ -0,0 +1,85 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.format.java.encoder.section;
+
+import io.netty.buffer.ByteBuf;
+import lombok.NonNull;
+import net.daporkchop.mcworldlib.format.common.nibble.NibbleArray;
+import net.daporkchop.mcworldlib.format.java.encoder.JavaSectionEncoder;
+import net.daporkchop.mcworldlib.util.nbt.DirectNBTWriter;
+import net.daporkchop.mcworldlib.version.java.JavaVersion;
+import net.daporkchop.mcworldlib.world.section.LegacySection;
+import net.daporkchop.mcworldlib.world.section.Section;
+import net.daporkchop.mcworldlib.world.storage.LegacyBlockStorage;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+import static net.daporkchop.mcworldlib.world.storage.BlockStorage.*;
+
+/**
+ * @author DaPorkchop_
+ */
+public class LegacySectionEncoder implements JavaSectionEncoder {
+    public static final JavaVersion VERSION = JavaVersion.fromName("1.12.2");
+
+    protected static final ThreadLocal<int[]> COMBINED_IDS = ThreadLocal.withInitial(() -> new int[NUM_BLOCKS]);
+
+    @Override
+    public void encode(@NonNull Section section, @NonNull JavaVersion version, @NonNull ByteBuf dst) {
+        checkArg(section instanceof LegacySection, "%s can't be encoded as %s", section.getClass().getCanonicalName(), version);
+
+        DirectNBTWriter.writeByte(dst, "Y", section.y());
+        this.encodeBlockStorage(((LegacySection) section).blockStorage(), dst);
+
+        JavaSectionEncoder.encodeNibbleArray(section.blockLightStorage(), "BlockLight", dst);
+        if (section.hasSkyLight()) {
+            JavaSectionEncoder.encodeNibbleArray(section.skyLightStorage(), "SkyLight", dst);
+        }
+        DirectNBTWriter.endCompound(dst);
+    }
+
+    protected void encodeBlockStorage(@NonNull LegacyBlockStorage storage, @NonNull ByteBuf dst) {
+        int[] combinedIds = COMBINED_IDS.get();
+        storage.getCombinedIdMetas(combinedIds, 0);
+
+        //the Add array is only written if any block actually needs it
+        boolean add = false;
+        for (int i = 0; i < NUM_BLOCKS && !add; i++) {
+            add = (combinedIds[i] >>> 12) != 0;
+        }
+
+        DirectNBTWriter.startByteArray(dst, "Blocks", NUM_BLOCKS);
+        for (int i = 0; i < NUM_BLOCKS; i++) {
+            dst.writeByte(combinedIds[i] >>> 4);
+        }
+
+        DirectNBTWriter.startByteArray(dst, "Data", NibbleArray.PACKED_SIZE);
+        for (int i = 0; i < NUM_BLOCKS; i += 2) {
+            dst.writeByte((combinedIds[i] & 0xF) | ((combinedIds[i + 1] & 0xF) << 4));
+        }
+
+        if (add) {
+            DirectNBTWriter.startByteArray(dst, "Add", NibbleArray.PACKED_SIZE);
+            for (int i = 0; i < NUM_BLOCKS; i += 2) {
+                dst.writeByte(((combinedIds[i] >>> 12) & 0xF) | (((combinedIds[i + 1] >>> 12) & 0xF) << 4));
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.format.java.encoder.section;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import lombok.NonNull;
+import net.daporkchop.lib.common.math.BinMath;
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.format.java.encoder.JavaSectionEncoder;
+import net.daporkchop.mcworldlib.util.nbt.DirectNBTWriter;
+import net.daporkchop.mcworldlib.util.palette.state.StatePalette;
+import net.daporkchop.mcworldlib.version.java.JavaVersion;
+import net.daporkchop.mcworldlib.world.section.FlattenedSection;
+import net.daporkchop.mcworldlib.world.section.Section;
+import net.daporkchop.mcworldlib.world.storage.FlattenedBlockStorage;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+import static net.daporkchop.lib.nbt.tag.Tag.*;
+import static net.daporkchop.mcworldlib.world.storage.BlockStorage.*;
+
+/**
+ * @author DaPorkchop_
+ */
+public class PackedFlattenedSectionEncoder implements JavaSectionEncoder {
+    public static final JavaVersion VERSION = JavaVersion.fromName("1.15.2");
+
+    /**
+     * Serialized palette entries, so that each {@link BlockState} only needs to be encoded once.
+     */
+    protected static final Map<BlockState, byte[]> PALETTE_ENTRIES = new ConcurrentHashMap<>();
+
+    protected static final ThreadLocal<int[]> PALETTE_IDS = ThreadLocal.withInitial(() -> new int[NUM_BLOCKS]);
+
+    protected static byte[] encodePaletteEntry(@NonNull BlockState state) {
+        ByteBuf buf = Unpooled.buffer();
+        try {
+            DirectNBTWriter.writeString(buf, "Name", state.id().toString());
+            if (!state.properties().isEmpty()) {
+                DirectNBTWriter.startCompound(buf, "Properties");
+                state.properties().forEach((key, value) -> DirectNBTWriter.writeString(buf, key, value));
+                DirectNBTWriter.endCompound(buf);
+            }
+            DirectNBTWriter.endCompound(buf);
+            return ByteBufUtil.getBytes(buf);
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Override
+    public void encode(@NonNull Section section, @NonNull JavaVersion version, @NonNull ByteBuf dst) {
+        checkArg(section instanceof FlattenedSection, "%s can't be encoded as %s", section.getClass().getCanonicalName(), version);
+
+        DirectNBTWriter.writeByte(dst, "Y", section.y());
+        this.encodeBlockStorage(((FlattenedSection) section).blockStorage(), dst);
+
+        JavaSectionEncoder.encodeNibbleArray(section.blockLightStorage(), "BlockLight", dst);
+        if (section.hasSkyLight()) {
+            JavaSectionEncoder.encodeNibbleArray(section.skyLightStorage(), "SkyLight", dst);
+        }
+        DirectNBTWriter.endCompound(dst);
+    }
+
+    protected void encodeBlockStorage(@NonNull FlattenedBlockStorage storage, @NonNull ByteBuf dst) {
+        int[] ids = PALETTE_IDS.get();
+        storage.getPaletteIds(ids, 0);
+
+        //compact the palette: entries which aren't used by any block (e.g. because they were overwritten) are dropped, and the remaining ones are
+        // renumbered in order of their original IDs
+        StatePalette palette = storage.internal().palette();
+        int[] remap = new int[palette.size()];
+        for (int i = 0; i < NUM_BLOCKS; i++) {
+            remap[ids[i]] = 1;
+        }
+        int size = 0;
+        for (int id = 0; id < remap.length; id++) {
+            remap[id] = remap[id] != 0 ? size++ : -1;
+        }
+
+        DirectNBTWriter.startList(dst, "Palette", TAG_COMPOUND, size);
+        for (int id = 0; id < remap.length; id++) {
+            if (remap[id] >= 0) {
+                dst.writeBytes(PALETTE_ENTRIES.computeIfAbsent(palette.idToState(id), PackedFlattenedSectionEncoder::encodePaletteEntry));
+            }
+        }
+
+        int bits = this.bits(size);
+        DirectNBTWriter.writeHeader(dst, TAG_ARRAY_LONG, "BlockStates");
+        dst.writeInt(this.words(bits));
+        this.writeBlockStates(ids, remap, bits, dst);
+    }
+
+    /**
+     * Gets the number of bits per block used for a palette of the given size.
+     *
+     * @param paletteSize the number of entries in the palette
+     * @return the number of bits per block
+     */
+    protected int bits(int paletteSize) {
+        return Math.max(BinMath.getNumBitsNeededFor(Math.max(paletteSize - 1, 0)), 4);
+    }
+
+    /**
+     * Gets the number of {@code long}s needed to store the block data with the given number of bits per block.
+     *
+     * @param bits the number of bits per block
+     * @return the number of {@code long}s
+     */
+    protected int words(int bits) {
+        return (NUM_BLOCKS * bits) >> 6;
+    }
+
+    /**
+     * Writes the block data.
+     *
+     * @param ids   the original palette IDs of every block
+     * @param remap a mapping from original palette IDs to the IDs in the compacted palette
+     * @param bits  the number of bits per block
+     * @param dst   the {@link ByteBuf} to write to
+     */
+    protected void writeBlockStates(@NonNull int[] ids, @NonNull int[] remap, int bits, @NonNull ByteBuf dst) {
+        //values may span two words
+        long word = 0L;
+        int shift = 0;
+        for (int i = 0; i < NUM_BLOCKS; i++) {
+            long value = remap[ids[i]];
+            word |= value << shift;
+            if ((shift += bits) >= 64) {
+                dst.writeLong(word);
+                shift -= 64;
+                word = shift != 0 ? value >>> (bits - shift) : 0L;
+            }
+        }
+    }
+}
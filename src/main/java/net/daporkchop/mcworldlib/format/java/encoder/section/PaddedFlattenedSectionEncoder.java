@@ -0,0 +1,53 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.format.java.encoder.section;
+
+import io.netty.buffer.ByteBuf;
+import lombok.NonNull;
+import net.daporkchop.mcworldlib.version.java.JavaVersion;
+
+import static net.daporkchop.mcworldlib.world.storage.BlockStorage.*;
+
+/**
+ * @author DaPorkchop_
+ */
+public class PaddedFlattenedSectionEncoder extends PackedFlattenedSectionEncoder {
+    public static final JavaVersion VERSION = JavaVersion.latest();
+
+    @Override
+    protected int words(int bits) {
+        int valuesPerWord = 64 / bits;
+        return (NUM_BLOCKS + valuesPerWord - 1) / valuesPerWord;
+    }
+
+    @Override
+    protected void writeBlockStates(@NonNull int[] ids, @NonNull int[] remap, int bits, @NonNull ByteBuf dst) {
+        //each word contains as many values as will fit, and the remaining bits are left empty
+        int valuesPerWord = 64 / bits;
+        for (int i = 0; i < NUM_BLOCKS; ) {
+            long word = 0L;
+            for (int j = 0; j < valuesPerWord && i < NUM_BLOCKS; j++, i++) {
+                word |= (long) remap[ids[i]] << (j * bits);
+            }
+            dst.writeLong(word);
+        }
+    }
+}
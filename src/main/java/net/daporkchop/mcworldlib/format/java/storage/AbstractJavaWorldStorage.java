@@ -20,19 +20,28 @@
 
 package net.daporkchop.mcworldlib.format.java.storage;
 
+import io.netty.buffer.ByteBuf;
 import lombok.Getter;
 import lombok.NonNull;
+import net.daporkchop.lib.binary.stream.DataIn;
 import net.daporkchop.lib.common.misc.file.PFiles;
 import net.daporkchop.lib.common.misc.refcount.AbstractRefCounted;
 import net.daporkchop.lib.common.pool.handle.Handle;
 import net.daporkchop.lib.common.pool.handle.HandledPool;
+import net.daporkchop.lib.common.util.PorkUtil;
+import net.daporkchop.lib.compression.context.PDeflater;
 import net.daporkchop.lib.compression.context.PInflater;
 import net.daporkchop.lib.compression.zlib.Zlib;
 import net.daporkchop.lib.compression.zlib.ZlibMode;
+import net.daporkchop.lib.compression.zlib.options.ZlibDeflaterOptions;
 import net.daporkchop.lib.compression.zlib.options.ZlibInflaterOptions;
 import net.daporkchop.lib.concurrent.PFuture;
 import net.daporkchop.lib.concurrent.PFutures;
+import net.daporkchop.lib.nbt.NBTFormat;
 import net.daporkchop.lib.nbt.NBTOptions;
+import net.daporkchop.lib.nbt.tag.CompoundTag;
+import net.daporkchop.lib.nbt.tag.Tag;
+import net.daporkchop.lib.nbt.util.NBTObjectParser;
 import net.daporkchop.lib.unsafe.util.exception.AlreadyReleasedException;
 import net.daporkchop.mcworldlib.format.anvil.AnvilSaveOptions;
 import net.daporkchop.mcworldlib.format.anvil.region.RegionConstants;
@@ -41,11 +50,15 @@ import net.daporkchop.mcworldlib.format.anvil.world.AbstractAnvilWorld;
 import net.daporkchop.mcworldlib.format.java.JavaFixers;
 import net.daporkchop.mcworldlib.save.SaveOptions;
 import net.daporkchop.mcworldlib.util.WriteAccess;
+import net.daporkchop.mcworldlib.util.concurrent.IOScheduler;
+import net.daporkchop.mcworldlib.util.nbt.AllocatingNBTObjectParser;
+import net.daporkchop.mcworldlib.util.nbt.SlicingNBTObjectParser;
 import net.daporkchop.mcworldlib.world.Chunk;
 import net.daporkchop.mcworldlib.world.WorldStorage;
 import net.daporkchop.mcworldlib.world.section.Section;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.concurrent.Executor;
 
 /**
@@ -64,11 +77,24 @@ public abstract class AbstractJavaWorldStorage extends AbstractRefCounted implem
         throw new IllegalArgumentException("Unknown compression version: " + version);
     }
 
+    protected static final ZlibDeflaterOptions DEFLATER_OPTIONS = Zlib.PROVIDER.deflateOptions().withMode(ZlibMode.ZLIB);
+    protected static final HandledPool<PDeflater> DEFLATER_CACHE = HandledPool.threadLocal(() -> Zlib.PROVIDER.deflater(DEFLATER_OPTIONS), 1);
+
+    /**
+     * @return a pooled {@link PDeflater} which produces data in the {@link RegionConstants#ID_ZLIB} format
+     */
+    protected static Handle<PDeflater> deflater() {
+        return DEFLATER_CACHE.get();
+    }
+
     @Getter
     protected final SaveOptions options;
     protected final JavaFixers fixers;
     protected final NBTOptions nbtOptions;
+    protected final NBTObjectParser slicingDelegate;
+    protected final IOScheduler ioScheduler;
     protected final Executor ioExecutor;
+    protected final Executor computeExecutor;
     protected final AbstractAnvilWorld world;
 
     protected final File root;
@@ -81,13 +107,50 @@ public abstract class AbstractJavaWorldStorage extends AbstractRefCounted implem
         this.options = world.options();
         this.readOnly = this.options.get(SaveOptions.ACCESS) == WriteAccess.READ_ONLY;
         this.fixers = this.options.get(AnvilSaveOptions.FIXERS);
-        this.ioExecutor = this.options.get(SaveOptions.IO_EXECUTOR);
+        this.ioScheduler = this.options.get(SaveOptions.IO_SCHEDULER);
+        this.ioExecutor = PorkUtil.fallbackIfNull(this.options.get(SaveOptions.IO_EXECUTOR), this.ioScheduler);
+        this.computeExecutor = this.options.get(SaveOptions.COMPUTE_EXECUTOR);
         this.nbtOptions = world.parent().chunkNBTOptions();
+        this.slicingDelegate = this.options.get(SaveOptions.ZERO_COPY_ARRAYS) ? new AllocatingNBTObjectParser(Tag.DEFAULT_NBT_PARSER, this.options) : null;
         this.world = world;
+    }
+
+    /**
+     * Parses the NBT data of a chunk.
+     * <p>
+     * If {@link SaveOptions#ZERO_COPY_ARRAYS} is enabled, the parsed tag may contain views of the given buffer, which will keep it alive until they
+     * are released.
+     *
+     * @param uncompressed the uncompressed chunk data
+     * @return the parsed NBT data
+     */
+    protected CompoundTag parse(@NonNull ByteBuf uncompressed) throws IOException {
+        NBTOptions options = this.nbtOptions;
+        if (this.slicingDelegate != null) {
+            options = options.withObjectParser(new SlicingNBTObjectParser(this.slicingDelegate, uncompressed));
+        }
+        return NBTFormat.BIG_ENDIAN.readCompound(DataIn.wrap(uncompressed, false), options);
+    }
 
-        if (!this.readOnly) {
-            throw new UnsupportedOperationException("Anvil read/write mode is not implemented!");
+    /**
+     * Compresses the NBT data of a chunk for storage in a region file.
+     * <p>
+     * The data is compressed using {@link RegionConstants#ID_ZLIB}.
+     *
+     * @param uncompressed the uncompressed chunk data. Its reader index will be advanced to its writer index
+     * @return a {@link ByteBuf} containing the compressed chunk data. The buffer must be released by the caller
+     */
+    protected ByteBuf deflate(@NonNull ByteBuf uncompressed) throws IOException {
+        //zlib's worst-case expansion is a few bytes per 16 KiB block plus a fixed overhead, this leaves plenty of room
+        int bound = uncompressed.readableBytes() + (uncompressed.readableBytes() >> 8) + 64;
+        ByteBuf compressed = this.options.get(SaveOptions.NETTY_ALLOC).ioBuffer(bound);
+        try (Handle<PDeflater> handle = deflater()) {
+            handle.get().compress(uncompressed, compressed);
+        } catch (Throwable t) {
+            compressed.release();
+            throw t;
         }
+        return compressed;
     }
 
     @Override
@@ -0,0 +1,539 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.format.sidecar;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import net.daporkchop.lib.common.math.BinMath;
+import net.daporkchop.lib.primitive.map.LongObjMap;
+import net.daporkchop.lib.primitive.map.open.LongObjOpenHashMap;
+import net.daporkchop.lib.unsafe.PUnsafe;
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.format.common.nibble.NibbleArray;
+import net.daporkchop.mcworldlib.format.common.section.BinarySectionCodec;
+import net.daporkchop.mcworldlib.save.SaveOptions;
+import net.daporkchop.mcworldlib.util.Identifier;
+import net.daporkchop.mcworldlib.util.nbt.LazyCompoundTag;
+import net.daporkchop.mcworldlib.version.MinecraftVersion;
+import net.daporkchop.mcworldlib.version.java.JavaVersion;
+import net.daporkchop.mcworldlib.world.ChunkMetadata;
+import net.daporkchop.mcworldlib.world.HeightmapType;
+import net.daporkchop.mcworldlib.world.WorldStorage;
+import net.daporkchop.mcworldlib.world.section.Section;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static net.daporkchop.lib.common.math.PMath.*;
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Constants and helpers for the sidecar format: a memory-mappable file containing already decoded chunks and sections of a world, which can be
+ * scanned repeatedly without having to inflate and parse the world's region files every time.
+ * <p>
+ * The file is columnar: each kind of data (palettes, block data, block light, sky light, entity NBT and heightmaps) is stored in its own
+ * contiguous column, so a scan which only needs one kind of data only touches the pages containing that column. Light data is stored at fixed
+ * offsets ({@code ordinal * 2048}) within its column, the other columns are located using offsets from the section and chunk indices.
+ * <p>
+ * The layout of a sidecar file is:
+ * <pre>
+ * header (HEADER_SIZE bytes):
+ *   long magic
+ *   int  format version
+ *   long fingerprint of the source world's region files at the time of conversion
+ *   int  number of sections
+ *   int  number of chunks
+ *   int  number of block states
+ *   int  number of chunk statuses
+ *   long offset of the block state table
+ *   long offset of the chunk status table
+ *   long offset of the section index
+ *   long offset of the chunk index
+ *   long offset of every column, in the order given by the COLUMN_* constants. Each column ends where the next one (or the block state table)
+ *        begins
+ *
+ * columns:
+ *   palettes:    for every flattened section, its palette as encoded by {@link BinarySectionCodec}. Entries are {@code int} IDs into the block
+ *                state table
+ *   blocks:      for every section, its block data as encoded by {@link BinarySectionCodec}
+ *   block light: for every section, its block light (2048 bytes)
+ *   sky light:   for every section, its sky light (2048 bytes, all zero if the section has no sky light)
+ *   nbt:         for every section, the payloads of its tile entities followed by the payloads of its entities, each prefixed with an int length
+ *   heightmaps:  for every chunk, each of its heightmaps in {@link HeightmapType} order (256 ints each)
+ *
+ * block state table:
+ *   for every block state: name, short property count, (key, value) for every property. Strings are stored as an unsigned short length followed
+ *   by UTF-8 bytes
+ *
+ * chunk status table:
+ *   for every chunk status: name
+ *
+ * section index (SECTION_ENTRY_SIZE bytes per section, sorted by X, then Z, then Y):
+ *   int  x
+ *   int  z
+ *   int  y
+ *   int  data version of the section (-1 if unknown)
+ *   byte type (see {@link BinarySectionCodec})
+ *   byte flags (see {@link BinarySectionCodec})
+ *   short (unused)
+ *   int  ordinal of the section in the light columns
+ *   int  number of tile entities
+ *   int  number of entities
+ *   int  length of the section's palette
+ *   int  length of the section's block data
+ *   int  length of the section's NBT data
+ *   int  (unused)
+ *   long offset of the section's palette in the palettes column
+ *   long offset of the section's block data in the blocks column
+ *   long offset of the section's NBT data in the nbt column
+ *
+ * chunk index (CHUNK_ENTRY_SIZE bytes per chunk, sorted by X, then Z):
+ *   int  x
+ *   int  z
+ *   int  data version of the chunk (-1 if unknown)
+ *   int  bitmask of the {@link HeightmapType}s stored for the chunk
+ *   int  ID of the chunk's status in the chunk status table (-1 if none)
+ *   int  (unused)
+ *   long last update time
+ *   long inhabited time
+ *   long offset of the chunk's heightmaps in the heightmaps column
+ * </pre>
+ * All values are big-endian.
+ *
+ * @author DaPorkchop_
+ * @see SidecarWorldStorage
+ */
+@UtilityClass
+public class SidecarFormat {
+    public final long MAGIC = 0x4D43574C53494445L; //"MCWLSIDE"
+    public final int VERSION = 2;
+
+    public final int HEADER_SIZE = 128;
+    public final int SECTION_ENTRY_SIZE = 72;
+    public final int CHUNK_ENTRY_SIZE = 48;
+
+    public final int COLUMN_PALETTES = 0;
+    public final int COLUMN_BLOCKS = 1;
+    public final int COLUMN_BLOCK_LIGHT = 2;
+    public final int COLUMN_SKY_LIGHT = 3;
+    public final int COLUMN_NBT = 4;
+    public final int COLUMN_HEIGHTMAPS = 5;
+    public final int COLUMN_COUNT = 6;
+
+    /**
+     * Computes a fingerprint of the region files in the given world directory.
+     * <p>
+     * The fingerprint covers the name, size and modification time of every region file (including Cubic Chunks regions) in the directory tree, and
+     * therefore changes whenever a region is modified, added or removed.
+     *
+     * @param root the root directory of the world
+     * @return the fingerprint
+     */
+    public long fingerprint(@NonNull File root) {
+        return fingerprint0(root, 0L);
+    }
+
+    private long fingerprint0(@NonNull File file, long hash) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                Arrays.sort(children, Comparator.comparing(File::getName));
+                for (File child : children) {
+                    hash = fingerprint0(child, hash);
+                }
+            }
+        } else {
+            String name = file.getName();
+            if (name.endsWith(".mca") || name.endsWith(".2dr") || name.endsWith(".3dr")) {
+                hash = mix64(hash + name.hashCode());
+                hash = mix64(hash + file.length());
+                hash = mix64(hash + file.lastModified());
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Converts every chunk and section in the given {@link WorldStorage} into a sidecar file, using the default {@link SaveOptions}.
+     *
+     * @see #convert(WorldStorage, File, File, SaveOptions)
+     */
+    public void convert(@NonNull WorldStorage storage, @NonNull File root, @NonNull File output) throws IOException {
+        convert(storage, root, output, SaveOptions.DEFAULT);
+    }
+
+    /**
+     * Converts every chunk and section in the given {@link WorldStorage} into a sidecar file.
+     * <p>
+     * Block and light data, tile entities and entities are stored for every section, and heightmaps and metadata are stored for every chunk. Any
+     * other chunk-level data is not.
+     * <p>
+     * While converting, each column is spooled to a temporary file next to the output file.
+     *
+     * @param storage the {@link WorldStorage} to read chunks and sections from
+     * @param root    the root directory of the world, used for computing its {@link #fingerprint(File)}
+     * @param output  the file to write the sidecar to. Will be overwritten if it already exists
+     * @param options the {@link SaveOptions} of the save that the world belongs to, used for allocating buffers
+     */
+    public void convert(@NonNull WorldStorage storage, @NonNull File root, @NonNull File output, @NonNull SaveOptions options) throws IOException {
+        ByteBufAllocator alloc = options.get(SaveOptions.NETTY_ALLOC);
+        long fingerprint = fingerprint(root);
+
+        Map<BlockState, Integer> stateIds = new HashMap<>();
+        List<BlockState> states = new ArrayList<>();
+        BinarySectionCodec.StateWriter writer = (state, dst) -> {
+            Integer id = stateIds.get(state);
+            if (id == null) {
+                states.add(state);
+                stateIds.put(state, id = states.size() - 1);
+            }
+            dst.writeInt(id);
+        };
+        Map<String, Integer> statusIds = new HashMap<>();
+        List<String> statuses = new ArrayList<>();
+
+        List<IndexEntry> sectionIndex = new ArrayList<>();
+        List<IndexEntry> chunkIndex = new ArrayList<>();
+        ColumnWriter[] columns = new ColumnWriter[COLUMN_COUNT];
+        ByteBuf buf = alloc.directBuffer(1 << 16);
+        try (FileChannel channel = FileChannel.open(output.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (int i = 0; i < COLUMN_COUNT; i++) {
+                columns[i] = new ColumnWriter(output, alloc);
+            }
+
+            //chunk metadata can only be obtained separately from the chunks themselves, so it's collected first and joined with them by position
+            LongObjMap<ChunkMetadata> metadata = new LongObjOpenHashMap<>();
+            storage.chunkMetadata().forEachRemaining(meta -> metadata.put(BinMath.packXY(meta.x(), meta.z()), meta));
+
+            //chunks
+            storage.allChunks().forEachRemaining(chunk -> {
+                try {
+                    ColumnWriter heightmaps = columns[COLUMN_HEIGHTMAPS];
+                    long heightmapOffset = heightmaps.size();
+                    int mask = 0;
+                    for (HeightmapType type : HeightmapType.values()) {
+                        int[] heightmap = chunk.heightmap(type);
+                        if (heightmap != null) {
+                            mask |= 1 << type.ordinal();
+                            writeInts(heightmaps.buf, heightmap);
+                        }
+                    }
+                    heightmaps.flushIfFull();
+
+                    ChunkMetadata meta = metadata.get(BinMath.packXY(chunk.x(), chunk.z()));
+                    int statusId = -1;
+                    if (meta != null && meta.status() != null) {
+                        statusId = statusIds.computeIfAbsent(meta.status(), status -> {
+                            statuses.add(status);
+                            return statuses.size() - 1;
+                        });
+                    }
+
+                    IndexEntry entry = new IndexEntry(chunk.x(), chunk.z(), 0, buf.clear()
+                            .writeInt(chunk.x()).writeInt(chunk.z()).writeInt(dataVersion(chunk.version())).writeInt(mask)
+                            .writeInt(statusId).writeInt(0)
+                            .writeLong(meta != null ? meta.lastUpdate() : 0L).writeLong(meta != null ? meta.inhabitedTime() : 0L)
+                            .writeLong(heightmapOffset));
+                    chunkIndex.add(entry);
+                } catch (IOException e) {
+                    PUnsafe.throwException(e);
+                }
+            });
+
+            //sections
+            storage.allSections().forEachRemaining(section -> {
+                try {
+                    int type = BinarySectionCodec.type(section);
+                    int flags = BinarySectionCodec.flags(section);
+
+                    ColumnWriter palettes = columns[COLUMN_PALETTES];
+                    ColumnWriter blocks = columns[COLUMN_BLOCKS];
+                    ColumnWriter nbt = columns[COLUMN_NBT];
+                    long paletteOffset = palettes.size();
+                    long blocksOffset = blocks.size();
+                    long nbtOffset = nbt.size();
+
+                    BinarySectionCodec.encodeBlocks(section, type, palettes.buf, blocks.buf, writer);
+                    section.blockLightStorage().writePacked(columns[COLUMN_BLOCK_LIGHT].buf);
+                    if (section.hasSkyLight()) {
+                        section.skyLightStorage().writePacked(columns[COLUMN_SKY_LIGHT].buf);
+                    } else { //keep the light column at fixed offsets
+                        columns[COLUMN_SKY_LIGHT].buf.writeZero(NibbleArray.PACKED_SIZE);
+                    }
+                    Collection<LazyCompoundTag> tileEntities = section.lazyTileEntities();
+                    Collection<LazyCompoundTag> entities = section.lazyEntities();
+                    tileEntities.forEach(tag -> writeTag(nbt.buf, tag));
+                    entities.forEach(tag -> writeTag(nbt.buf, tag));
+
+                    IndexEntry entry = new IndexEntry(section.x(), section.z(), section.y(), buf.clear()
+                            .writeInt(section.x()).writeInt(section.z()).writeInt(section.y()).writeInt(dataVersion(section.version()))
+                            .writeByte(type).writeByte(flags).writeShort(0)
+                            .writeInt(sectionIndex.size()).writeInt(tileEntities.size()).writeInt(entities.size())
+                            .writeInt(toInt(palettes.size() - paletteOffset)).writeInt(toInt(blocks.size() - blocksOffset)).writeInt(toInt(nbt.size() - nbtOffset))
+                            .writeInt(0)
+                            .writeLong(paletteOffset).writeLong(blocksOffset).writeLong(nbtOffset));
+                    sectionIndex.add(entry);
+
+                    for (ColumnWriter column : columns) {
+                        column.flushIfFull();
+                    }
+                } catch (IOException e) {
+                    PUnsafe.throwException(e);
+                }
+            });
+
+            //columns
+            long[] columnOffsets = new long[COLUMN_COUNT];
+            channel.position(HEADER_SIZE);
+            for (int i = 0; i < COLUMN_COUNT; i++) {
+                columnOffsets[i] = channel.position();
+                columns[i].transferTo(channel);
+            }
+
+            //block state table
+            long stateTableOffset = channel.position();
+            buf.clear();
+            for (BlockState state : states) {
+                writeString(buf, state.id().toString());
+                buf.writeShort(state.properties().size());
+                state.properties().forEach((key, value) -> {
+                    writeString(buf, key);
+                    writeString(buf, value);
+                });
+            }
+            write(channel, buf);
+
+            //chunk status table
+            long statusTableOffset = channel.position();
+            buf.clear();
+            statuses.forEach(status -> writeString(buf, status));
+            write(channel, buf);
+
+            //indices
+            long sectionIndexOffset = channel.position();
+            writeIndex(channel, buf, sectionIndex);
+            long chunkIndexOffset = channel.position();
+            writeIndex(channel, buf, chunkIndex);
+
+            //header
+            buf.clear();
+            buf.writeLong(MAGIC).writeInt(VERSION).writeLong(fingerprint)
+                    .writeInt(sectionIndex.size()).writeInt(chunkIndex.size()).writeInt(states.size()).writeInt(statuses.size())
+                    .writeLong(stateTableOffset).writeLong(statusTableOffset).writeLong(sectionIndexOffset).writeLong(chunkIndexOffset);
+            for (long columnOffset : columnOffsets) {
+                buf.writeLong(columnOffset);
+            }
+            buf.writeZero(HEADER_SIZE - buf.writerIndex()); //pad header
+            channel.position(0L);
+            write(channel, buf);
+        } finally {
+            buf.release();
+            for (ColumnWriter column : columns) {
+                if (column != null) {
+                    column.close();
+                }
+            }
+        }
+    }
+
+    private int dataVersion(@NonNull MinecraftVersion version) {
+        return version instanceof JavaVersion ? ((JavaVersion) version).data() : -1;
+    }
+
+    private int toInt(long length) {
+        checkState(length >= 0L && length <= Integer.MAX_VALUE, "length (%d) doesn't fit in an int", length);
+        return (int) length;
+    }
+
+    private void write(@NonNull FileChannel channel, @NonNull ByteBuf buf) throws IOException {
+        while (buf.isReadable()) {
+            buf.readBytes(channel, buf.readableBytes());
+        }
+    }
+
+    private void writeIndex(@NonNull FileChannel channel, @NonNull ByteBuf buf, @NonNull List<IndexEntry> index) throws IOException {
+        index.sort(null);
+        buf.clear();
+        for (IndexEntry entry : index) {
+            buf.writeBytes(entry.data);
+            if (buf.readableBytes() >= 1 << 16) {
+                write(channel, buf);
+                buf.clear();
+            }
+        }
+        write(channel, buf);
+    }
+
+    private void writeInts(@NonNull ByteBuf buf, @NonNull int[] values) {
+        //IntBuffer is big-endian, so this is a single bulk copy (with byte swapping where necessary)
+        int length = values.length * Integer.BYTES;
+        buf.ensureWritable(length);
+        buf.nioBuffer(buf.writerIndex(), length).asIntBuffer().put(values);
+        buf.writerIndex(buf.writerIndex() + length);
+    }
+
+    private void writeTag(@NonNull ByteBuf buf, @NonNull LazyCompoundTag tag) {
+        int lengthIndex = buf.writerIndex();
+        buf.writeInt(-1);
+        tag.write(buf);
+        buf.setInt(lengthIndex, buf.writerIndex() - lengthIndex - Integer.BYTES);
+    }
+
+    private void writeString(@NonNull ByteBuf buf, @NonNull String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        checkArg(bytes.length <= 0xFFFF, "string too long: %s", s);
+        buf.writeShort(bytes.length).writeBytes(bytes);
+    }
+
+    /**
+     * Reads a string written by the converter.
+     *
+     * @param buf the {@link ByteBuf} to read from
+     * @return the string
+     */
+    String readString(@NonNull ByteBuf buf) {
+        int length = buf.readUnsignedShort();
+        String s = buf.toString(buf.readerIndex(), length, StandardCharsets.UTF_8);
+        buf.skipBytes(length);
+        return s;
+    }
+
+    /**
+     * Reads a block state written by the converter.
+     *
+     * @param buf the {@link ByteBuf} to read from
+     * @return the {@link BlockState}
+     */
+    BlockState readState(@NonNull ByteBuf buf) {
+        Identifier id = Identifier.fromString(readString(buf));
+        int count = buf.readUnsignedShort();
+        Map<String, String> properties = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            properties.put(readString(buf), readString(buf));
+        }
+        return BlockState.of(id, properties);
+    }
+
+    /**
+     * Reads the payload of a tile entity or entity written by the converter.
+     *
+     * @param buf the {@link ByteBuf} to read from
+     * @return a slice of the given buffer containing the tag's payload
+     */
+    ByteBuf readTag(@NonNull ByteBuf buf) {
+        return buf.readSlice(buf.readInt());
+    }
+
+    /**
+     * An entry in one of the indices, which has already been encoded.
+     *
+     * @author DaPorkchop_
+     */
+    private static final class IndexEntry implements Comparable<IndexEntry> {
+        private final int x;
+        private final int z;
+        private final int y;
+        private final byte[] data;
+
+        public IndexEntry(int x, int z, int y, @NonNull ByteBuf data) {
+            this.x = x;
+            this.z = z;
+            this.y = y;
+            this.data = new byte[data.readableBytes()];
+            data.readBytes(this.data);
+        }
+
+        @Override
+        public int compareTo(IndexEntry o) {
+            int d = Integer.compare(this.x, o.x);
+            if (d == 0 && (d = Integer.compare(this.z, o.z)) == 0) {
+                d = Integer.compare(this.y, o.y);
+            }
+            return d;
+        }
+    }
+
+    /**
+     * Spools a single column to a temporary file until all of the columns can be copied into the output file one after another.
+     *
+     * @author DaPorkchop_
+     */
+    private static final class ColumnWriter implements AutoCloseable {
+        private final File file;
+        private final FileChannel channel;
+        private final ByteBuf buf;
+        private long flushed;
+
+        public ColumnWriter(@NonNull File output, @NonNull ByteBufAllocator alloc) throws IOException {
+            this.file = File.createTempFile(output.getName(), ".column", output.getAbsoluteFile().getParentFile());
+            this.channel = FileChannel.open(this.file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.buf = alloc.directBuffer(1 << 16);
+        }
+
+        /**
+         * @return the number of bytes written to this column so far
+         */
+        public long size() {
+            return this.flushed + this.buf.readableBytes();
+        }
+
+        public void flushIfFull() throws IOException {
+            if (this.buf.readableBytes() >= 1 << 16) {
+                this.flush();
+            }
+        }
+
+        public void flush() throws IOException {
+            this.flushed += this.buf.readableBytes();
+            write(this.channel, this.buf);
+            this.buf.clear();
+        }
+
+        public void transferTo(@NonNull FileChannel dst) throws IOException {
+            this.flush();
+            for (long position = 0L; position < this.flushed; ) {
+                position += this.channel.transferTo(position, this.flushed - position, dst);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                this.buf.release();
+                this.channel.close();
+            } finally {
+                checkState(this.file.delete() || !this.file.exists(), "unable to delete temporary file: %s", this.file);
+            }
+        }
+    }
+}
@@ -0,0 +1,660 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.format.sidecar;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import lombok.Getter;
+import lombok.NonNull;
+import net.daporkchop.lib.common.misc.refcount.AbstractRefCounted;
+import net.daporkchop.lib.concurrent.PFuture;
+import net.daporkchop.lib.concurrent.PFutures;
+import net.daporkchop.lib.nbt.tag.CompoundTag;
+import net.daporkchop.lib.unsafe.util.exception.AlreadyReleasedException;
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.format.common.nibble.NibbleArray;
+import net.daporkchop.mcworldlib.format.common.section.BinarySectionCodec;
+import net.daporkchop.mcworldlib.format.vanilla.VanillaChunk;
+import net.daporkchop.mcworldlib.save.SaveOptions;
+import net.daporkchop.mcworldlib.util.nbt.LazyCompoundTag;
+import net.daporkchop.mcworldlib.version.java.DataVersion;
+import net.daporkchop.mcworldlib.version.java.JavaVersion;
+import net.daporkchop.mcworldlib.world.Chunk;
+import net.daporkchop.mcworldlib.world.ChunkMetadata;
+import net.daporkchop.mcworldlib.world.HeightmapType;
+import net.daporkchop.mcworldlib.world.WorldStorage;
+import net.daporkchop.mcworldlib.world.section.Section;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Read-only {@link WorldStorage} implementation which serves chunks and sections directly from a memory-mapped sidecar file (see
+ * {@link SidecarFormat}).
+ * <p>
+ * Loading a section involves no decompression or parsing of any kind: the section is located using a binary search over the memory-mapped index,
+ * and its block and light data are copied straight out of the mapped columns. Tile entities and entities are only parsed when they are accessed.
+ * <p>
+ * Chunks only contain the data stored in the sidecar, i.e. their version and heightmaps.
+ *
+ * @author DaPorkchop_
+ */
+public class SidecarWorldStorage extends AbstractRefCounted implements WorldStorage {
+    protected static final int SEGMENT_SHIFT = 30;
+    protected static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    protected static final int SEGMENT_OVERLAP = 1 << 20; //almost all values are much smaller than this, larger ones are read from the file instead
+
+    protected final FileChannel channel;
+    protected final Column[] columns = new Column[SidecarFormat.COLUMN_COUNT];
+    protected final ByteBuf sectionIndex;
+    protected final ByteBuf chunkIndex;
+    protected final BlockState[] states;
+    protected final String[] statuses;
+    protected final Executor executor;
+    protected final ByteBufAllocator alloc;
+
+    @Getter
+    protected final long fingerprint;
+    protected final int sectionCount;
+    protected final int chunkCount;
+
+    protected final BinarySectionCodec.StateReader stateReader = src -> this.states[src.readInt()];
+
+    public SidecarWorldStorage(@NonNull File file) throws IOException {
+        this(file, SaveOptions.DEFAULT);
+    }
+
+    /**
+     * @param file    the sidecar file
+     * @param options the {@link SaveOptions} to use. The {@link SaveOptions#COMPUTE_EXECUTOR} is used for async operations, and the
+     *                {@link SaveOptions#NETTY_ALLOC} is used for allocating buffers
+     */
+    public SidecarWorldStorage(@NonNull File file, @NonNull SaveOptions options) throws IOException {
+        this.executor = options.get(SaveOptions.COMPUTE_EXECUTOR);
+        this.alloc = options.get(SaveOptions.NETTY_ALLOC);
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer headerBuffer = ByteBuffer.allocate(SidecarFormat.HEADER_SIZE);
+            while (headerBuffer.hasRemaining()) {
+                checkState(this.channel.read(headerBuffer, headerBuffer.position()) >= 0, "unexpected end of file: %s", file);
+            }
+            headerBuffer.flip();
+            ByteBuf header = Unpooled.wrappedBuffer(headerBuffer);
+
+            checkState(header.readLong() == SidecarFormat.MAGIC, "not a sidecar file: %s", file);
+            int version = header.readInt();
+            checkState(version == SidecarFormat.VERSION, "unsupported sidecar version %d in %s", version, file);
+            this.fingerprint = header.readLong();
+            this.sectionCount = header.readInt();
+            this.chunkCount = header.readInt();
+            int stateCount = header.readInt();
+            int statusCount = header.readInt();
+            long stateTableOffset = header.readLong();
+            long statusTableOffset = header.readLong();
+            long sectionIndexOffset = header.readLong();
+            long chunkIndexOffset = header.readLong();
+
+            long[] columnOffsets = new long[SidecarFormat.COLUMN_COUNT + 1];
+            for (int i = 0; i < SidecarFormat.COLUMN_COUNT; i++) {
+                columnOffsets[i] = header.readLong();
+            }
+            columnOffsets[SidecarFormat.COLUMN_COUNT] = stateTableOffset;
+            for (int i = 0; i < SidecarFormat.COLUMN_COUNT; i++) {
+                this.columns[i] = new Column(columnOffsets[i], columnOffsets[i + 1] - columnOffsets[i]);
+            }
+
+            ByteBuf stateTable = this.map(stateTableOffset, statusTableOffset - stateTableOffset);
+            this.states = new BlockState[stateCount];
+            for (int i = 0; i < stateCount; i++) {
+                this.states[i] = SidecarFormat.readState(stateTable);
+            }
+
+            ByteBuf statusTable = this.map(statusTableOffset, sectionIndexOffset - statusTableOffset);
+            this.statuses = new String[statusCount];
+            for (int i = 0; i < statusCount; i++) {
+                this.statuses[i] = SidecarFormat.readString(statusTable);
+            }
+
+            this.sectionIndex = this.map(sectionIndexOffset, (long) this.sectionCount * SidecarFormat.SECTION_ENTRY_SIZE);
+            this.chunkIndex = this.map(chunkIndexOffset, (long) this.chunkCount * SidecarFormat.CHUNK_ENTRY_SIZE);
+        } catch (Throwable t) {
+            this.channel.close();
+            throw t;
+        }
+    }
+
+    protected ByteBuf map(long offset, long length) throws IOException {
+        checkArg(length >= 0L && length <= Integer.MAX_VALUE, "invalid mapping length: %d", length);
+        return Unpooled.wrappedBuffer(this.channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+    }
+
+    /**
+     * Checks whether or not this sidecar is still up-to-date with the world it was created from.
+     *
+     * @param root the root directory of the world
+     * @return whether or not the world's region files are unchanged since this sidecar was created
+     * @see SidecarFormat#fingerprint(File)
+     */
+    public boolean isUpToDate(@NonNull File root) {
+        return this.fingerprint == SidecarFormat.fingerprint(root);
+    }
+
+    /**
+     * @return the number of sections in this sidecar
+     */
+    public int sectionCount() {
+        return this.sectionCount;
+    }
+
+    /**
+     * @return the number of chunks in this sidecar
+     */
+    public int chunkCount() {
+        return this.chunkCount;
+    }
+
+    /**
+     * Finds an entry in one of the indices using a binary search.
+     *
+     * @param index     the index to search
+     * @param count     the number of entries in the index
+     * @param entrySize the size of a single entry
+     * @param hasY      whether or not the index's entries are sorted by Y coordinate after X and Z
+     * @param x         the X coordinate to search for
+     * @param y         the Y coordinate to search for. Ignored if {@code hasY} is {@code false}
+     * @param z         the Z coordinate to search for
+     * @return the index of the entry, or {@code -1} if it isn't present
+     */
+    protected int find(@NonNull ByteBuf index, int count, int entrySize, boolean hasY, int x, int y, int z) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int base = mid * entrySize;
+            int d = Integer.compare(index.getInt(base), x);
+            if (d == 0 && (d = Integer.compare(index.getInt(base + 4), z)) == 0 && hasY) {
+                d = Integer.compare(index.getInt(base + 8), y);
+            }
+
+            if (d < 0) {
+                low = mid + 1;
+            } else if (d > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    protected JavaVersion version(int dataVersion) {
+        return dataVersion < DataVersion.DATA_15w32a ? JavaVersion.pre15w32a() : JavaVersion.fromDataVersion(dataVersion);
+    }
+
+    /**
+     * Decodes the section with the given index entry.
+     */
+    protected Section section(int entry) {
+        ByteBuf index = this.sectionIndex;
+        int base = entry * SidecarFormat.SECTION_ENTRY_SIZE;
+        int flags = index.getUnsignedByte(base + 17);
+        long lightOffset = (long) index.getInt(base + 20) * NibbleArray.PACKED_SIZE;
+
+        ByteBuf palette = this.columns[SidecarFormat.COLUMN_PALETTES].slice(index.getLong(base + 48), index.getInt(base + 32));
+        ByteBuf blocks = this.columns[SidecarFormat.COLUMN_BLOCKS].slice(index.getLong(base + 56), index.getInt(base + 36));
+        ByteBuf blockLight = this.columns[SidecarFormat.COLUMN_BLOCK_LIGHT].slice(lightOffset, NibbleArray.PACKED_SIZE);
+        ByteBuf skyLight = (flags & BinarySectionCodec.FLAG_SKY_LIGHT) != 0 ? this.columns[SidecarFormat.COLUMN_SKY_LIGHT].slice(lightOffset, NibbleArray.PACKED_SIZE) : null;
+        ByteBuf nbt = this.columns[SidecarFormat.COLUMN_NBT].slice(index.getLong(base + 64), index.getInt(base + 40));
+        try {
+            Section section = BinarySectionCodec.decode(index.getUnsignedByte(base + 16), flags, this.version(index.getInt(base + 12)),
+                    index.getInt(base), index.getInt(base + 8), index.getInt(base + 4), palette, blocks, blockLight, skyLight, this.stateReader);
+            try {
+                for (int i = 0, count = index.getInt(base + 24); i < count; i++) {
+                    LazyCompoundTag tileEntity = LazyCompoundTag.ofTileEntity(SidecarFormat.readTag(nbt));
+                    section.setLazyTileEntity(tileEntity.x() & 0xF, tileEntity.y() & 0xF, tileEntity.z() & 0xF, tileEntity);
+                }
+                for (int i = 0, count = index.getInt(base + 28); i < count; i++) {
+                    section.addLazyEntity(LazyCompoundTag.ofEntity(SidecarFormat.readTag(nbt)));
+                }
+                return section;
+            } catch (Throwable t) {
+                section.release();
+                throw t;
+            }
+        } finally {
+            palette.release();
+            blocks.release();
+            blockLight.release();
+            if (skyLight != null) {
+                skyLight.release();
+            }
+            nbt.release();
+        }
+    }
+
+    /**
+     * Reads the tile entities or entities of the section with the given index entry, without decoding anything else.
+     */
+    protected void nbt(int entry, boolean entities, @NonNull Consumer<CompoundTag> action) {
+        ByteBuf index = this.sectionIndex;
+        int base = entry * SidecarFormat.SECTION_ENTRY_SIZE;
+        int tileEntityCount = index.getInt(base + 24);
+        int entityCount = index.getInt(base + 28);
+        if ((entities ? entityCount : tileEntityCount) == 0) {
+            return;
+        }
+
+        ByteBuf nbt = this.columns[SidecarFormat.COLUMN_NBT].slice(index.getLong(base + 64), index.getInt(base + 40));
+        try {
+            if (entities) { //skip tile entities
+                for (int i = 0; i < tileEntityCount; i++) {
+                    SidecarFormat.readTag(nbt);
+                }
+                for (int i = 0; i < entityCount; i++) {
+                    action.accept(LazyCompoundTag.ofEntity(SidecarFormat.readTag(nbt)).tag());
+                }
+            } else {
+                for (int i = 0; i < tileEntityCount; i++) {
+                    action.accept(LazyCompoundTag.ofTileEntity(SidecarFormat.readTag(nbt)).tag());
+                }
+            }
+        } finally {
+            nbt.release();
+        }
+    }
+
+    /**
+     * Decodes the chunk with the given index entry.
+     */
+    protected Chunk chunk(int entry) {
+        ByteBuf index = this.chunkIndex;
+        int base = entry * SidecarFormat.CHUNK_ENTRY_SIZE;
+        int mask = index.getInt(base + 12);
+
+        VanillaChunk chunk = new VanillaChunk(this.version(index.getInt(base + 8)), index.getInt(base), index.getInt(base + 4));
+        if (mask != 0) {
+            int length = Integer.bitCount(mask) * 256 * Integer.BYTES;
+            ByteBuf heightmaps = this.columns[SidecarFormat.COLUMN_HEIGHTMAPS].slice(index.getLong(base + 40), length);
+            try {
+                for (HeightmapType type : HeightmapType.values()) {
+                    if ((mask & (1 << type.ordinal())) != 0) {
+                        int[] heightmap = new int[256];
+                        heightmaps.nioBuffer(heightmaps.readerIndex(), 256 * Integer.BYTES).asIntBuffer().get(heightmap);
+                        heightmaps.skipBytes(256 * Integer.BYTES);
+                        chunk.heightmap(type, heightmap);
+                    }
+                }
+            } finally {
+                heightmaps.release();
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Gets the metadata of the chunk with the given index entry.
+     */
+    protected ChunkMetadata metadata(int entry) {
+        ByteBuf index = this.chunkIndex;
+        int base = entry * SidecarFormat.CHUNK_ENTRY_SIZE;
+        int statusId = index.getInt(base + 16);
+        return new ChunkMetadata(index.getInt(base), index.getInt(base + 4), Math.max(index.getInt(base + 8), 0),
+                index.getLong(base + 24), index.getLong(base + 32), statusId >= 0 ? this.statuses[statusId] : null);
+    }
+
+    @Override
+    public Chunk loadChunk(int x, int z) throws IOException {
+        int entry = this.find(this.chunkIndex, this.chunkCount, SidecarFormat.CHUNK_ENTRY_SIZE, false, x, 0, z);
+        return entry >= 0 ? this.chunk(entry) : null;
+    }
+
+    @Override
+    public Section loadSection(int x, int y, int z) throws IOException {
+        int entry = this.find(this.sectionIndex, this.sectionCount, SidecarFormat.SECTION_ENTRY_SIZE, true, x, y, z);
+        return entry >= 0 ? this.section(entry) : null;
+    }
+
+    @Override
+    public PFuture<Chunk> loadChunkAsync(int x, int z) {
+        return PFutures.computeThrowableAsync(() -> this.loadChunk(x, z), this.executor);
+    }
+
+    @Override
+    public PFuture<Section> loadSectionAsync(int x, int y, int z) {
+        return PFutures.computeThrowableAsync(() -> this.loadSection(x, y, z), this.executor);
+    }
+
+    @Override
+    public void save(@NonNull Iterable<Chunk> chunks, @NonNull Iterable<Section> sections) throws IOException {
+        throw new UnsupportedOperationException("read-only");
+    }
+
+    @Override
+    public PFuture<Void> saveAsync(@NonNull Iterable<Chunk> chunks, @NonNull Iterable<Section> sections) {
+        throw new UnsupportedOperationException("read-only");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        //no-op
+    }
+
+    @Override
+    public PFuture<Void> flushAsync() {
+        return PFutures.successful(null, this.executor);
+    }
+
+    @Override
+    public PFuture<Long> preload(int minX, int minZ, int maxX, int maxZ, int priority, PreloadListener listener) {
+        return PFutures.successful(0L, this.executor); //everything is already memory-mapped
+    }
+
+    @Override
+    public Spliterator<Chunk> allChunks() throws IOException {
+        return new ChunkSpliterator(0, this.chunkCount);
+    }
+
+    @Override
+    public Spliterator<Section> allSections() throws IOException {
+        return new SectionSpliterator(0, this.sectionCount);
+    }
+
+    @Override
+    public Spliterator<CompoundTag> allEntities() throws IOException {
+        return new NBTSpliterator(0, this.sectionCount, true);
+    }
+
+    @Override
+    public Spliterator<CompoundTag> allTileEntities() throws IOException {
+        return new NBTSpliterator(0, this.sectionCount, false);
+    }
+
+    @Override
+    public Spliterator<ChunkMetadata> chunkMetadata() throws IOException {
+        return new MetadataSpliterator(0, this.chunkCount);
+    }
+
+    @Override
+    public WorldStorage retain() throws AlreadyReleasedException {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    protected void doRelease() {
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * A single column of a sidecar file.
+     * <p>
+     * The column is split into overlapping memory-mapped segments, so that almost any value can be accessed from a single segment.
+     *
+     * @author DaPorkchop_
+     */
+    protected class Column {
+        protected final long offset;
+        protected final long length;
+        protected final ByteBuf[] segments;
+
+        public Column(long offset, long length) throws IOException {
+            checkArg(offset >= 0L && length >= 0L, "invalid column: offset=%d, length=%d", offset, length);
+            this.offset = offset;
+            this.length = length;
+
+            this.segments = new ByteBuf[(int) ((length + SEGMENT_SIZE - 1L) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < this.segments.length; i++) {
+                long start = (long) i << SEGMENT_SHIFT;
+                this.segments[i] = SidecarWorldStorage.this.map(offset + start, Math.min(length - start, (long) SEGMENT_SIZE + SEGMENT_OVERLAP));
+            }
+        }
+
+        /**
+         * Gets a range of this column.
+         *
+         * @param position the position of the range, relative to the start of the column
+         * @param length   the length of the range
+         * @return a {@link ByteBuf} containing the range. Must be released by the caller
+         */
+        public ByteBuf slice(long position, int length) {
+            checkRangeLen(this.length, position, length);
+            if (length == 0) {
+                return Unpooled.EMPTY_BUFFER;
+            }
+
+            ByteBuf segment = this.segments[(int) (position >>> SEGMENT_SHIFT)];
+            int segmentOffset = (int) (position & (SEGMENT_SIZE - 1));
+            if (segmentOffset + length <= segment.capacity()) {
+                return segment.retainedSlice(segmentOffset, length);
+            }
+
+            //the range extends past the end of the segment, read it from the file instead
+            ByteBuf buf = SidecarWorldStorage.this.alloc.ioBuffer(length, length);
+            try {
+                while (buf.isWritable()) {
+                    checkState(buf.writeBytes(SidecarWorldStorage.this.channel, this.offset + position + buf.writerIndex(), buf.writableBytes()) >= 0,
+                            "unexpected end of file");
+                }
+                return buf;
+            } catch (IOException e) {
+                buf.release();
+                throw new IllegalStateException("unable to read from sidecar file", e);
+            }
+        }
+    }
+
+    /**
+     * Base implementation of a {@link Spliterator} over a range of entries in one of the indices.
+     *
+     * @author DaPorkchop_
+     */
+    protected abstract class IndexSpliterator<T> implements Spliterator<T> {
+        protected int index;
+        protected int fence;
+
+        protected boolean released = false;
+
+        public IndexSpliterator(int index, int fence) {
+            SidecarWorldStorage.this.retain();
+            this.index = index;
+            this.fence = fence;
+        }
+
+        /**
+         * Called once there are no entries left, releases the storage.
+         *
+         * @return {@code false}
+         */
+        protected boolean complete() {
+            if (!this.released) {
+                this.released = true;
+                SidecarWorldStorage.this.release();
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int low = this.index;
+            int mid = (low + this.fence) >>> 1;
+            return low < mid && !this.released ? this.sub(low, this.index = mid) : null;
+        }
+
+        protected abstract Spliterator<T> sub(int index, int fence);
+
+        @Override
+        public long estimateSize() {
+            return this.fence - this.index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | DISTINCT | NONNULL | IMMUTABLE;
+        }
+    }
+
+    /**
+     * A {@link Spliterator} over a range of entries in the section index.
+     *
+     * @author DaPorkchop_
+     */
+    protected class SectionSpliterator extends IndexSpliterator<Section> {
+        public SectionSpliterator(int index, int fence) {
+            super(index, fence);
+        }
+
+        @Override
+        public boolean tryAdvance(@NonNull Consumer<? super Section> action) {
+            if (this.index < this.fence) {
+                Section section = SidecarWorldStorage.this.section(this.index++);
+                try {
+                    action.accept(section);
+                } finally {
+                    section.release();
+                }
+                return true;
+            }
+            return this.complete();
+        }
+
+        @Override
+        protected Spliterator<Section> sub(int index, int fence) {
+            return new SectionSpliterator(index, fence);
+        }
+    }
+
+    /**
+     * A {@link Spliterator} over a range of entries in the chunk index.
+     *
+     * @author DaPorkchop_
+     */
+    protected class ChunkSpliterator extends IndexSpliterator<Chunk> {
+        public ChunkSpliterator(int index, int fence) {
+            super(index, fence);
+        }
+
+        @Override
+        public boolean tryAdvance(@NonNull Consumer<? super Chunk> action) {
+            if (this.index < this.fence) {
+                Chunk chunk = SidecarWorldStorage.this.chunk(this.index++);
+                try {
+                    action.accept(chunk);
+                } finally {
+                    chunk.release();
+                }
+                return true;
+            }
+            return this.complete();
+        }
+
+        @Override
+        protected Spliterator<Chunk> sub(int index, int fence) {
+            return new ChunkSpliterator(index, fence);
+        }
+    }
+
+    /**
+     * A {@link Spliterator} over the metadata of a range of entries in the chunk index.
+     *
+     * @author DaPorkchop_
+     */
+    protected class MetadataSpliterator extends IndexSpliterator<ChunkMetadata> {
+        public MetadataSpliterator(int index, int fence) {
+            super(index, fence);
+        }
+
+        @Override
+        public boolean tryAdvance(@NonNull Consumer<? super ChunkMetadata> action) {
+            if (this.index < this.fence) {
+                action.accept(SidecarWorldStorage.this.metadata(this.index++));
+                return true;
+            }
+            return this.complete();
+        }
+
+        @Override
+        protected Spliterator<ChunkMetadata> sub(int index, int fence) {
+            return new MetadataSpliterator(index, fence);
+        }
+    }
+
+    /**
+     * A {@link Spliterator} over the tile entities or entities of a range of entries in the section index.
+     *
+     * @author DaPorkchop_
+     */
+    protected class NBTSpliterator extends IndexSpliterator<CompoundTag> {
+        protected final boolean entities;
+        protected final Queue<CompoundTag> buffer = new ArrayDeque<>();
+
+        public NBTSpliterator(int index, int fence, boolean entities) {
+            super(index, fence);
+            this.entities = entities;
+        }
+
+        @Override
+        public boolean tryAdvance(@NonNull Consumer<? super CompoundTag> action) {
+            while (this.buffer.isEmpty()) {
+                if (this.index >= this.fence) {
+                    return this.complete();
+                }
+                SidecarWorldStorage.this.nbt(this.index++, this.entities, this.buffer::add);
+            }
+            action.accept(this.buffer.poll());
+            return true;
+        }
+
+        @Override
+        public Spliterator<CompoundTag> trySplit() {
+            return this.buffer.isEmpty() ? super.trySplit() : null;
+        }
+
+        @Override
+        protected Spliterator<CompoundTag> sub(int index, int fence) {
+            return new NBTSpliterator(index, fence, this.entities);
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return NONNULL;
+        }
+    }
+}
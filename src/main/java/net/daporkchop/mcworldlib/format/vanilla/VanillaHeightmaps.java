@@ -0,0 +1,327 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.format.vanilla;
+
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import net.daporkchop.lib.binary.bit.BitArray;
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.format.java.convert.LegacySectionConverter;
+import net.daporkchop.mcworldlib.util.Identifier;
+import net.daporkchop.mcworldlib.util.palette.state.StatePalette;
+import net.daporkchop.mcworldlib.world.HeightmapType;
+import net.daporkchop.mcworldlib.world.section.FlattenedSection;
+import net.daporkchop.mcworldlib.world.section.LegacySection;
+import net.daporkchop.mcworldlib.world.section.Section;
+import net.daporkchop.mcworldlib.world.storage.BlockStorage;
+import net.daporkchop.mcworldlib.world.storage.FlattenedBlockStorage;
+import net.daporkchop.mcworldlib.world.storage.LegacyBlockStorage;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Helper methods for decoding and computing heightmaps of vanilla chunks.
+ *
+ * @author DaPorkchop_
+ * @see HeightmapType
+ */
+@UtilityClass
+public class VanillaHeightmaps {
+    /**
+     * The {@link HeightmapType}s which can be computed from a chunk's block data using {@link #compute(HeightmapType, Section[])}.
+     */
+    public final Set<HeightmapType> COMPUTABLE = Collections.unmodifiableSet(EnumSet.of(
+            HeightmapType.WORLD_SURFACE, HeightmapType.OCEAN_FLOOR, HeightmapType.MOTION_BLOCKING, HeightmapType.MOTION_BLOCKING_NO_LEAVES));
+
+    //flags describing which heightmaps a block state counts towards
+    private final int FLAG_NOT_AIR = 1 << 0;
+    private final int FLAG_BLOCKS_MOTION = 1 << 1;
+    private final int FLAG_FLUID = 1 << 2;
+    private final int FLAG_LEAVES = 1 << 3;
+
+    private final Set<Identifier> AIR = identifiers("air", "cave_air", "void_air");
+
+    //blocks which are always filled with a fluid, even though they have no waterlogged property
+    private final Set<Identifier> FLUIDS = identifiers("water", "lava", "bubble_column", "kelp", "kelp_plant", "seagrass", "tall_seagrass");
+
+    //blocks which don't block motion, and aren't covered by one of the suffixes below
+    private final Set<Identifier> NON_MOTION_BLOCKING = identifiers(
+            "grass", "fern", "dead_bush", "tall_grass", "large_fern", "sunflower", "lilac", "rose_bush", "peony",
+            "dandelion", "poppy", "blue_orchid", "allium", "azure_bluet", "oxeye_daisy", "cornflower", "lily_of_the_valley", "wither_rose",
+            "brown_mushroom", "red_mushroom", "crimson_fungus", "warped_fungus", "crimson_roots", "warped_roots", "nether_sprouts",
+            "wheat", "carrots", "potatoes", "beetroots", "nether_wart", "sugar_cane", "cocoa", "sweet_berry_bush", "bamboo_sapling",
+            "melon_stem", "pumpkin_stem", "attached_melon_stem", "attached_pumpkin_stem", "lily_pad", "vine", "weeping_vines", "weeping_vines_plant",
+            "twisting_vines", "twisting_vines_plant", "sea_pickle", "torch", "lever", "redstone_wire", "repeater", "comparator", "tripwire", "tripwire_hook",
+            "ladder", "flower_pot", "snow", "fire", "soul_fire", "cobweb", "nether_portal", "end_portal", "end_gateway", "structure_void", "scaffolding",
+            "player_head", "zombie_head", "creeper_head", "dragon_head");
+
+    //suffixes of the names of blocks which don't block motion
+    private final String[] NON_MOTION_BLOCKING_SUFFIXES = {
+            "_sapling", "_tulip", "_torch", "rail", "_button", "_coral", "_coral_fan", "_coral_wall_fan", "_skull", "_wall_head"
+    };
+
+    /**
+     * Decodes a heightmap stored as an array of {@code long}s.
+     *
+     * @param data   the encoded heightmap
+     * @param length the number of {@code long}s in the encoded heightmap
+     * @param padded whether the heightmap uses the padded layout used by 1.16+ rather than the tightly packed layout used by 1.13-1.15
+     * @return the decoded heightmap
+     */
+    public int[] decodePacked(@NonNull long[] data, int length, boolean padded) {
+        checkArg(length > 0 && length <= data.length, "invalid length: %d", length);
+        int[] heightmap = new int[256];
+
+        if (!padded) { //packed: every entry has exactly length / 4 bits, entries may span two longs
+            checkArg((length & 3) == 0, "invalid length for packed heightmap: %d", length);
+            int bits = length >> 2;
+            long mask = (1L << bits) - 1L;
+            for (int i = 0; i < 256; i++) {
+                int bitIndex = i * bits;
+                int startLong = bitIndex >> 6;
+                int startBit = bitIndex & 0x3F;
+                long value = data[startLong] >>> startBit;
+                if (startBit + bits > 64) {
+                    value |= data[startLong + 1] << (64 - startBit);
+                }
+                heightmap[i] = (int) (value & mask);
+            }
+        } else { //padded: each long contains as many entries as will fit, and the remaining bits are unused
+            int valuesPerLong = (256 + length - 1) / length;
+            int bits = 64 / valuesPerLong;
+            long mask = (1L << bits) - 1L;
+            for (int i = 0; i < 256; i++) {
+                heightmap[i] = (int) ((data[i / valuesPerLong] >>> ((i % valuesPerLong) * bits)) & mask);
+            }
+        }
+        return heightmap;
+    }
+
+    /**
+     * Encodes a heightmap as an array of {@code long}s, using 9 bits per entry.
+     *
+     * @param heightmap the heightmap
+     * @param padded    whether to use the padded layout used by 1.16+ rather than the tightly packed layout used by 1.13-1.15
+     * @return the encoded heightmap
+     * @see #decodePacked(long[], int, boolean)
+     */
+    public long[] encodePacked(@NonNull int[] heightmap, boolean padded) {
+        checkArg(heightmap.length == 256, "heightmap must contain exactly 256 entries!");
+        final int bits = 9;
+
+        if (padded) {
+            int valuesPerLong = 64 / bits;
+            long[] data = new long[(256 + valuesPerLong - 1) / valuesPerLong];
+            for (int i = 0; i < 256; i++) {
+                data[i / valuesPerLong] |= (long) (heightmap[i] & 0x1FF) << ((i % valuesPerLong) * bits);
+            }
+            return data;
+        } else {
+            long[] data = new long[(256 * bits) >> 6];
+            for (int i = 0; i < 256; i++) {
+                int bitIndex = i * bits;
+                int startLong = bitIndex >> 6;
+                int startBit = bitIndex & 0x3F;
+                long value = heightmap[i] & 0x1FF;
+                data[startLong] |= value << startBit;
+                if (startBit + bits > 64) {
+                    data[startLong + 1] |= value >>> (64 - startBit);
+                }
+            }
+            return data;
+        }
+    }
+
+    /**
+     * Decodes a legacy heightmap stored as an array of {@code int}s.
+     *
+     * @param data   the encoded heightmap
+     * @param length the number of {@code int}s in the encoded heightmap
+     * @return the decoded heightmap
+     */
+    public int[] decodeLegacy(@NonNull int[] data, int length) {
+        checkArg(length == 256 && data.length >= 256, "legacy heightmap must contain exactly 256 entries!");
+        int[] heightmap = new int[256];
+        System.arraycopy(data, 0, heightmap, 0, 256);
+        return heightmap;
+    }
+
+    /**
+     * Computes a heightmap from the block data of a vanilla chunk's sections.
+     * <p>
+     * Sections are processed from the top down, and processing stops as soon as every column has been resolved. Sections whose palette contains no
+     * blocks matching the heightmap's criteria are skipped without looking at their block data. Legacy sections are classified using the states
+     * their blocks are converted to by {@link LegacySectionConverter}.
+     *
+     * @param type     the {@link HeightmapType} to compute. Must be one of {@link #COMPUTABLE}
+     * @param sections the chunk's sections, indexed by their Y coordinate. Missing sections are {@code null}
+     * @return the computed heightmap
+     */
+    public int[] compute(@NonNull HeightmapType type, @NonNull Section[] sections) {
+        int mask = mask(type);
+        int[] heightmap = new int[256];
+        int remaining = 256;
+
+        for (int sectionY = sections.length - 1; sectionY >= 0 && remaining > 0; sectionY--) {
+            Section section = sections[sectionY];
+            if (section instanceof FlattenedSection) {
+                remaining -= computeFlattened(heightmap, sectionY, ((FlattenedSection) section).blockStorage(), type, mask);
+            } else if (section instanceof LegacySection) {
+                remaining -= computeLegacy(heightmap, sectionY, ((LegacySection) section).blockStorage(), type, mask);
+            }
+        }
+        return heightmap;
+    }
+
+    private int computeFlattened(@NonNull int[] heightmap, int sectionY, @NonNull FlattenedBlockStorage storage, @NonNull HeightmapType type, int mask) {
+        StatePalette palette = storage.internal().palette();
+        BitArray data = storage.internal().data();
+
+        //determine which palette entries match before looking at any blocks
+        boolean[] matches = new boolean[palette.size()];
+        boolean anyMatch = false;
+        for (int id = 0; id < matches.length; id++) {
+            BlockState state = palette.idToState(id); //may be null for gaps in a global palette
+            anyMatch |= matches[id] = state != null && matches(type, mask, flags(state));
+        }
+        if (!anyMatch) { //section contains no matching blocks
+            return 0;
+        }
+
+        int[] ids = null;
+        if (data == null) { //the storage doesn't expose its data as a BitArray (e.g. because it's uniform or off-heap)
+            storage.getPaletteIds(ids = new int[BlockStorage.NUM_BLOCKS], 0);
+        }
+
+        int resolved = 0;
+        for (int xz = 0; xz < 256; xz++) {
+            if (heightmap[xz] == 0) {
+                for (int y = 15; y >= 0; y--) {
+                    int id = data != null ? data.get((y << 8) | xz) : ids[(y << 8) | xz];
+                    if (id < matches.length && matches[id]) {
+                        heightmap[xz] = (sectionY << 4) + y + 1;
+                        resolved++;
+                        break;
+                    }
+                }
+            }
+        }
+        return resolved;
+    }
+
+    private int computeLegacy(@NonNull int[] heightmap, int sectionY, @NonNull LegacyBlockStorage storage, @NonNull HeightmapType type, int mask) {
+        int[] ids = new int[BlockStorage.NUM_BLOCKS];
+        storage.getCombinedIdMetas(ids, 0);
+
+        byte[] flags = LegacyFlags.FLAGS;
+        int resolved = 0;
+        for (int xz = 0; xz < 256; xz++) {
+            if (heightmap[xz] == 0) {
+                for (int y = 15; y >= 0; y--) {
+                    if (matches(type, mask, flags[ids[(y << 8) | xz]])) {
+                        heightmap[xz] = (sectionY << 4) + y + 1;
+                        resolved++;
+                        break;
+                    }
+                }
+            }
+        }
+        return resolved;
+    }
+
+    private int mask(@NonNull HeightmapType type) {
+        switch (type) {
+            case WORLD_SURFACE:
+                return FLAG_NOT_AIR;
+            case OCEAN_FLOOR:
+                return FLAG_BLOCKS_MOTION;
+            case MOTION_BLOCKING:
+            case MOTION_BLOCKING_NO_LEAVES:
+                return FLAG_BLOCKS_MOTION | FLAG_FLUID;
+            default:
+                throw new IllegalArgumentException("heightmap can't be computed: " + type);
+        }
+    }
+
+    private boolean matches(@NonNull HeightmapType type, int mask, int flags) {
+        return (flags & mask) != 0 && (type != HeightmapType.MOTION_BLOCKING_NO_LEAVES || (flags & FLAG_LEAVES) == 0);
+    }
+
+    private int flags(@NonNull BlockState state) {
+        Identifier id = state.id();
+        if (AIR.contains(id)) {
+            return 0;
+        }
+
+        int flags = FLAG_NOT_AIR;
+        if (FLUIDS.contains(id) || "true".equals(state.properties().get("waterlogged"))) {
+            flags |= FLAG_FLUID;
+        }
+        if (!FLUIDS.contains(id) && !NON_MOTION_BLOCKING.contains(id) && !hasNonMotionBlockingSuffix(id)) {
+            flags |= FLAG_BLOCKS_MOTION;
+        }
+        if (id.name().endsWith("_leaves")) {
+            flags |= FLAG_LEAVES;
+        }
+        return flags;
+    }
+
+    private boolean hasNonMotionBlockingSuffix(@NonNull Identifier id) {
+        String name = id.name();
+        if (name.startsWith("potted_")) {
+            return true;
+        }
+        for (String suffix : NON_MOTION_BLOCKING_SUFFIXES) {
+            if (name.endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Set<Identifier> identifiers(@NonNull String... names) {
+        return Stream.of(names).map(name -> Identifier.fromString("minecraft:" + name)).collect(Collectors.toCollection(HashSet::new));
+    }
+
+    /**
+     * Holder for the flags of every legacy combined ID, so that they're only computed the first time a legacy section is processed.
+     *
+     * @author DaPorkchop_
+     */
+    private static final class LegacyFlags {
+        private static final byte[] FLAGS = new byte[1 << 16];
+
+        static {
+            for (int combined = 0; combined < FLAGS.length; combined++) {
+                BlockState state = LegacySectionConverter.legacyState(combined);
+                //unknown (probably modded) blocks are assumed to be solid
+                FLAGS[combined] = (byte) (state != null ? flags(state) : FLAG_NOT_AIR | FLAG_BLOCKS_MOTION);
+            }
+        }
+    }
+}
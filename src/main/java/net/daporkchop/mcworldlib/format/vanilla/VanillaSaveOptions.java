@@ -35,6 +35,13 @@ public class VanillaSaveOptions {
     /**
      * The maximum number chunks whose data may be cached in memory at once.
      * <p>
+     * Once the cache is full, the least recently used chunks are evicted to make room for newly loaded ones (or moved to the off-heap cache, see
+     * {@link #OFFHEAP_CACHE_SIZE}). Chunks which are still retained elsewhere stay valid after being evicted, but loading them again will have to
+     * read them from disk (or the off-heap cache).
+     * <p>
+     * Note that older versions did not enforce this limit, and the chunk cache would grow without bound. Applications which relied on every loaded
+     * chunk remaining cached should raise this value accordingly.
+     * <p>
      * May not be negative.
      */
     public static final SaveOptions.Key<Integer> CHUNK_CACHE_SIZE = SaveOptions.key("vanilla_chunk_cache_size", 1024);
@@ -48,4 +55,15 @@ public class VanillaSaveOptions {
      * May not be negative.
      */
     public static final SaveOptions.Key<Long> MAX_CHUNK_CACHE_TIME = SaveOptions.key("vanilla_chunk_cache_time", TimeUnit.MINUTES.toMillis(15L));
+
+    /**
+     * The maximum number of bytes of off-heap memory which may be used for caching already decoded chunks after they have been evicted from the main
+     * chunk cache (see {@link #CHUNK_CACHE_SIZE}).
+     * <p>
+     * Chunks in this cache are stored in a compact binary form, which is considerably smaller than a fully decoded chunk and can be restored far more
+     * quickly than re-reading the chunk from disk.
+     * <p>
+     * If {@code 0}, the off-heap cache is disabled. May not be negative.
+     */
+    public static final SaveOptions.Key<Long> OFFHEAP_CACHE_SIZE = SaveOptions.key("vanilla_offheap_cache_size", 0L);
 }
@@ -30,16 +30,22 @@ import net.daporkchop.lib.primitive.map.concurrent.ObjObjConcurrentHashMap;
 import net.daporkchop.mcworldlib.registry.DefaultRegistry;
 import net.daporkchop.mcworldlib.registry.Registries;
 import net.daporkchop.mcworldlib.registry.Registry;
+import net.daporkchop.mcworldlib.util.CompactResources;
 import net.daporkchop.mcworldlib.util.Identifier;
 import net.daporkchop.mcworldlib.util.Util;
 import net.daporkchop.mcworldlib.version.java.DataVersion;
 import net.daporkchop.mcworldlib.version.java.JavaVersion;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Spliterator;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import static net.daporkchop.lib.common.util.PValidation.*;
 
@@ -57,22 +63,43 @@ public final class JavaRegistries implements Registries {
             versionIn = JavaVersion.fromName("1.12.2"); //1.12.2 is used as an intermediate translation point for all previous versions
         }
         return CACHE.computeIfAbsent(versionIn.name(), (IOFunction<String, Registries>) version -> {
-            Map<String, JsonRegistry> map = Util.parseJson(JavaRegistries.class, new TypeReference<Map<String, JsonRegistry>>() {}, version + ".json");
-
-            Map<Identifier, Registry> registries = new HashMap<>();
-            map.forEach((name, registry) -> {
-                Identifier id = Identifier.fromString(name);
-                DefaultRegistry.Builder builder = DefaultRegistry.builder(id);
-                registry.entries.forEach((entryName, entry) -> builder.register(Identifier.fromString(entryName), entry.protocol_id));
-                Registry r = builder.build();
-                registries.put(id, r);
-            });
-            return new JavaRegistries(registries);
+            byte[] compact = CompactResources.load(JavaRegistries.class, version + ".bin");
+            return compact != null ? fromCompact(compact) : fromJson(version);
         });
     }
 
+    private static Registries fromJson(@NonNull String version) {
+        Map<String, JsonRegistry> map = Util.parseJson(JavaRegistries.class, new TypeReference<Map<String, JsonRegistry>>() {}, version + ".json");
+
+        Map<Identifier, Supplier<Registry>> registries = new HashMap<>();
+        map.forEach((name, registry) -> {
+            Identifier id = Identifier.fromString(name);
+            DefaultRegistry.Builder builder = DefaultRegistry.builder(id);
+            registry.entries.forEach((entryName, entry) -> builder.register(Identifier.fromString(entryName), entry.protocol_id));
+            Registry r = builder.build();
+            registries.put(id, () -> r);
+        });
+        return new JavaRegistries(registries);
+    }
+
+    private static Registries fromCompact(@NonNull byte[] compact) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(compact));
+        String[] strings = CompactResources.readHeader(in, CompactResources.MAGIC_REGISTRIES);
+
+        //only read the directory here, the entries of each registry are decoded the first time it's accessed
+        Map<Identifier, Supplier<Registry>> registries = new HashMap<>();
+        for (int i = 0, count = in.readInt(); i < count; i++) {
+            Identifier id = Identifier.fromString(strings[in.readInt()]);
+            int entryCount = in.readInt();
+            int offset = compact.length - in.available();
+            registries.put(id, new LazyRegistry(id, compact, offset, entryCount, strings));
+            checkState(in.skipBytes(entryCount * 8) == entryCount * 8, "unexpected end of data");
+        }
+        return new JavaRegistries(registries);
+    }
+
     @NonNull
-    private final Map<Identifier, Registry> registries;
+    private final Map<Identifier, Supplier<Registry>> registries;
 
     @Override
     public int size() {
@@ -86,24 +113,65 @@ public final class JavaRegistries implements Registries {
 
     @Override
     public Registry get(@NonNull Identifier id) {
-        Registry registry = this.registries.get(id);
+        Supplier<Registry> registry = this.registries.get(id);
         checkArg(registry != null, "unknown registry ID: %s", id);
-        return registry;
+        return registry.get();
     }
 
     @Override
     public Iterator<Registry> iterator() {
-        return this.registries.values().iterator();
+        return this.registries.values().stream().map(Supplier::get).iterator();
     }
 
     @Override
     public void forEach(Consumer<? super Registry> action) {
-        this.registries.values().forEach(action);
+        this.registries.values().forEach(registry -> action.accept(registry.get()));
     }
 
     @Override
     public Spliterator<Registry> spliterator() {
-        return this.registries.values().spliterator();
+        return this.registries.values().stream().map(Supplier::get).spliterator();
+    }
+
+    /**
+     * A {@link Registry} from a compact binary resource which is only decoded once it's first accessed.
+     *
+     * @author DaPorkchop_
+     */
+    @RequiredArgsConstructor
+    private static final class LazyRegistry implements Supplier<Registry> {
+        @NonNull
+        private final Identifier id;
+        @NonNull
+        private final byte[] data;
+        private final int offset;
+        private final int entryCount;
+        @NonNull
+        private final String[] strings;
+
+        private volatile Registry registry;
+
+        @Override
+        public Registry get() {
+            Registry registry = this.registry;
+            if (registry == null) {
+                synchronized (this) {
+                    if ((registry = this.registry) == null) {
+                        this.registry = registry = this.decode();
+                    }
+                }
+            }
+            return registry;
+        }
+
+        private Registry decode() {
+            ByteBuffer buf = ByteBuffer.wrap(this.data, this.offset, this.entryCount * 8);
+            DefaultRegistry.Builder builder = DefaultRegistry.builder(this.id);
+            for (int i = 0; i < this.entryCount; i++) {
+                builder.register(Identifier.fromString(this.strings[buf.getInt()]), buf.getInt());
+            }
+            return builder.build();
+        }
     }
 
     private static class JsonRegistry {
@@ -29,6 +29,8 @@ import lombok.NonNull;
 import net.daporkchop.lib.common.misc.Cloneable;
 import net.daporkchop.lib.common.pool.array.ArrayAllocator;
 import net.daporkchop.mcworldlib.util.WriteAccess;
+import net.daporkchop.mcworldlib.util.concurrent.IOScheduler;
+import net.daporkchop.mcworldlib.util.concurrent.RegionAffineIOScheduler;
 import net.daporkchop.mcworldlib.world.WorldStorage;
 
 import java.util.Collections;
@@ -62,11 +64,25 @@ public final class SaveOptions implements Cloneable<SaveOptions.Builder> {
     public static final Key<WriteAccess> ACCESS = key("access", WriteAccess.WRITE_REQUIRED);
 
     /**
-     * The {@link Executor} that will be used for executing async I/O operations.
+     * The {@link IOScheduler} that will be used for executing async disk reads and writes.
+     * <p>
+     * Defaults to a shared {@link RegionAffineIOScheduler} with one worker for every two CPU cores (but at least two workers).
+     */
+    public static final Key<IOScheduler> IO_SCHEDULER = keyLazy("io_scheduler", () -> new RegionAffineIOScheduler(Math.max(Runtime.getRuntime().availableProcessors() >> 1, 2)));
+
+    /**
+     * The {@link Executor} that will be used for executing async I/O operations which are not associated with a specific region.
+     * <p>
+     * If {@code null}, the value of {@link #IO_SCHEDULER} will be used.
+     */
+    public static final Key<Executor> IO_EXECUTOR = key("executor_io", null);
+
+    /**
+     * The {@link Executor} that will be used for CPU-bound work done as part of async operations, such as decompressing and decoding chunks.
      * <p>
      * Defaults to {@link ForkJoinPool#commonPool()}.
      */
-    public static final Key<Executor> IO_EXECUTOR = keyLazy("executor_io", ForkJoinPool::commonPool);
+    public static final Key<Executor> COMPUTE_EXECUTOR = keyLazy("executor_compute", ForkJoinPool::commonPool);
 
     /**
      * The {@link ByteBufAllocator} used for allocating Netty {@link io.netty.buffer.ByteBuf}s.
@@ -96,6 +112,29 @@ public final class SaveOptions implements Cloneable<SaveOptions.Builder> {
      */
     public static final Key<ArrayAllocator<long[]>> LONG_ALLOC = key("alloc_long", null);
 
+    /**
+     * Whether or not large NBT arrays (such as block states and light data) are parsed as views of the decompressed chunk data, rather than being
+     * copied out of it.
+     * <p>
+     * This saves a copy of every section's data when loading chunks, at the cost of keeping each chunk's decompressed data alive for as long as
+     * any of its sections are.
+     * <p>
+     * Light arrays are always used in place. Flattened block data is only used in place if {@link #DIRECT_BLOCKS} is also enabled, as heap block
+     * storages need a {@code long[]}, so it is otherwise copied into an array allocated using {@link #LONG_ALLOC}.
+     */
+    public static final Key<Boolean> ZERO_COPY_ARRAYS = key("zero_copy_arrays", Boolean.FALSE);
+
+    /**
+     * Whether or not the block data of loaded sections is stored off-heap, in direct buffers allocated using {@link #NETTY_ALLOC}.
+     * <p>
+     * This keeps large numbers of cached sections from putting pressure on the garbage collector, at the cost of slightly slower block access.
+     * The memory is freed when the section's block storage is released.
+     * <p>
+     * If {@link #ZERO_COPY_ARRAYS} is also enabled, flattened block data is stored in place in the decompressed chunk data rather than being
+     * copied into a new buffer.
+     */
+    public static final Key<Boolean> DIRECT_BLOCKS = key("direct_blocks", Boolean.FALSE);
+
     /**
      * Whether or not the values provided by {@link WorldStorage#allChunks()} and {@link WorldStorage#allSections()} will be served from the
      * cache.
@@ -108,7 +147,9 @@ public final class SaveOptions implements Cloneable<SaveOptions.Builder> {
     /**
      * Whether or not chunks and sections returned by a {@link WorldStorage} are converted to the universal format.
      * <p>
-     * Currently unimplemented.
+     * If enabled, legacy (pre-1.13) sections are converted to flattened sections when they are loaded, so that all sections may be accessed
+     * using {@link net.daporkchop.mcworldlib.block.BlockState}s. Converted states are mapped to their 1.13 flattened equivalents (e.g.
+     * {@code minecraft:stone[variant=granite]} becomes {@code minecraft:granite}), and converted sections have version 1.13.
      */
     public static final Key<Boolean> CONVERT_UNIVERSAL = key("convert_universal", Boolean.FALSE);
 
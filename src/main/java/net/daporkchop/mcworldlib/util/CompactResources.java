@@ -0,0 +1,120 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.util;
+
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.IOException;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Helpers for reading the compact binary versions of the bundled JSON resources.
+ * <p>
+ * The binary resources are generated at build time by {@code tools.ResourceCompiler} (in the {@code tools} source set), and are stored next to the
+ * JSON files they were generated from with the extension {@code .bin}. All of them start with a common header:
+ * <pre>
+ * int magic
+ * int version
+ * int stringCount
+ * string[stringCount] strings (as written by {@link java.io.DataOutput#writeUTF(String)})
+ * </pre>
+ * All strings in the remainder of the file are stored as indices into the string table.
+ * <p>
+ * Registry files ({@link #MAGIC_REGISTRIES}) continue with:
+ * <pre>
+ * int registryCount
+ * registryCount times:
+ *   int name
+ *   int entryCount
+ *   entryCount times:
+ *     int name
+ *     int protocolId
+ * </pre>
+ * Block state table files ({@link #MAGIC_BLOCKS}) continue with:
+ * <pre>
+ * int blockCount
+ * blockCount times:
+ *   int name
+ *   int stateCount
+ *   stateCount times:
+ *     int id
+ *     byte flags (see {@link #FLAG_DEFAULT} and {@link #FLAG_VIRTUAL})
+ *     int propertyCount
+ *     propertyCount times:
+ *       int key
+ *       int value
+ * </pre>
+ *
+ * @author DaPorkchop_
+ */
+@UtilityClass
+public class CompactResources {
+    public final int MAGIC_REGISTRIES = 0x4D435247; //"MCRG"
+    public final int MAGIC_BLOCKS = 0x4D43424C; //"MCBL"
+    public final int VERSION = 1;
+
+    public final int FLAG_DEFAULT = 1 << 0;
+    public final int FLAG_VIRTUAL = 1 << 1;
+
+    /**
+     * Reads the entire contents of a binary resource.
+     *
+     * @param fromClass the class to load the resource relative to
+     * @param name      the name of the resource
+     * @return the resource's contents, or {@code null} if it doesn't exist (e.g. when running without the generated resources)
+     */
+    public byte[] load(@NonNull Class<?> fromClass, @NonNull String name) {
+        return Util.doWithResourceThrowing(fromClass, name, in -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(in.available(), 4096));
+            byte[] buf = new byte[4096];
+            for (int i; (i = in.read(buf)) > 0; ) {
+                out.write(buf, 0, i);
+            }
+            return out.toByteArray();
+        }, false);
+    }
+
+    /**
+     * Reads and validates the common header, and returns the string table.
+     * <p>
+     * All strings are interned, as the same strings (mostly property names and values) show up in many different files.
+     *
+     * @param in    the {@link DataInput} to read from
+     * @param magic the expected magic number
+     * @return the string table
+     */
+    public String[] readHeader(@NonNull DataInput in, int magic) throws IOException {
+        int actualMagic = in.readInt();
+        checkState(actualMagic == magic, "invalid magic number: expected %08x, found %08x", magic, actualMagic);
+        int version = in.readInt();
+        checkState(version == VERSION, "unsupported version: %d", version);
+
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF().intern();
+        }
+        return strings;
+    }
+}
@@ -25,11 +25,11 @@ import lombok.NonNull;
 import net.daporkchop.lib.common.ref.Ref;
 import net.daporkchop.lib.common.ref.ThreadRef;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Locale;
 import java.util.Map;
-import java.util.TreeMap;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -51,17 +51,14 @@ public final class Identifier implements Comparable<Identifier> {
     protected static final Ref<Matcher> STRICT_MATCHER = ThreadRef.regex(Pattern.compile("^(?>minecraft:|([a-zA-Z0-9_.]*):)?([a-zA-Z0-9_.]*)$"));
     protected static final Ref<Matcher> LENIENT_MATCHER = ThreadRef.regex(Pattern.compile("^(?>minecraft:|(.*?):)?(.*?)$"));
 
-    private static final Lock READ_LOCK;
-    private static final Lock WRITE_LOCK;
-
-    //TODO: this needs to be able to be garbage-collected. in other words: i need a TreeMap with soft values
-    private static final Map<String, Identifier> VALUES = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
-
-    static {
-        ReadWriteLock lock = new ReentrantReadWriteLock();
-        READ_LOCK = lock.readLock();
-        WRITE_LOCK = lock.writeLock();
-    }
+    /**
+     * Interned identifiers, keyed by every spelling they have been requested with as well as by their lowercase full name.
+     * <p>
+     * Values are weakly referenced, so identifiers which are no longer used anywhere (e.g. from the registries of a no longer loaded modded world)
+     * can be garbage-collected.
+     */
+    private static final Map<String, IdentifierRef> VALUES = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Identifier> QUEUE = new ReferenceQueue<>();
 
     /**
      * Parses an {@link Identifier} from it's text representation.
@@ -93,43 +90,54 @@ public final class Identifier implements Comparable<Identifier> {
             return EMPTY;
         }
 
+        //fast path: the exact string has already been interned, so it doesn't need to be validated again
+        IdentifierRef ref = VALUES.get(identifier);
+        Identifier id;
+        if (ref != null && (id = ref.get()) != null && (!ref.lenient || matcherRef == LENIENT_MATCHER)) {
+            return id;
+        }
+
         Matcher matcher = matcherRef.get().reset(identifier);
         checkArg(matcher.find(), "Invalid identifier: \"%s\"", identifier);
+        return intern(identifier, matcher.group(1), matcher.group(2), matcherRef == LENIENT_MATCHER);
+    }
+
+    private static Identifier intern(String identifier, String namespace, String name, boolean lenient) {
+        expungeStaleEntries();
+
+        boolean defaultNamespace = namespace == null;
+        String fullName = defaultNamespace && !identifier.startsWith("minecraft:") ? "minecraft:" + name : identifier;
+        namespace = defaultNamespace ? "minecraft" : namespace;
 
+        //identifiers are case-insensitive, so the lowercase full name is used as the canonical key
+        String canonicalKey = fullName.toLowerCase(Locale.ROOT);
         Identifier id;
-        READ_LOCK.lock();
-        try {
-            id = VALUES.get(identifier);
-        } finally {
-            READ_LOCK.unlock();
-        }
+        do {
+            IdentifierRef canonical = VALUES.get(canonicalKey);
+            if (canonical != null && (id = canonical.get()) != null) {
+                break;
+            }
 
-        if (id == null) {
-            String namespace = matcher.group(1);
-            String name = matcher.group(2);
-            String fullName = (namespace == null && !identifier.startsWith("minecraft:") ? "minecraft:" + name : identifier);
-            boolean defaultNamespace = namespace == null;
-            namespace = defaultNamespace ? "minecraft" : namespace;
-
-            //create new identifier instance
-            WRITE_LOCK.lock();
-            try {
-                //try get again in case identifier was created while obtaining write lock
-                if ((id = VALUES.get(fullName)) == null) {
-                    id = new Identifier(namespace, name, fullName);
-                    if (defaultNamespace) {
-                        //also put it into the map without minecraft: in the key to facilitate faster lookups when the prefix is omitted
-                        VALUES.put(name, id);
-                    }
-                    VALUES.put(fullName, id);
-                }
-            } finally {
-                WRITE_LOCK.unlock();
+            id = new Identifier(namespace, name, fullName);
+            IdentifierRef created = new IdentifierRef(canonicalKey, id, lenient);
+            if (canonical == null ? VALUES.putIfAbsent(canonicalKey, created) == null : VALUES.replace(canonicalKey, canonical, created)) {
+                break;
             }
+        } while (true); //another thread interned the same identifier concurrently, try again
+
+        //also store it under the spelling it was requested with, so that future lookups for the same string can take the fast path
+        if (!lenient || !identifier.equals(canonicalKey)) {
+            VALUES.put(identifier, new IdentifierRef(identifier, id, lenient));
         }
         return id;
     }
 
+    private static void expungeStaleEntries() {
+        for (IdentifierRef ref; (ref = (IdentifierRef) QUEUE.poll()) != null; ) {
+            VALUES.remove(ref.key, ref);
+        }
+    }
+
     private final String modid;
     private final String name;
     private final String fullName;
@@ -158,4 +166,20 @@ public final class Identifier implements Comparable<Identifier> {
     public int compareTo(Identifier o) {
         return this == o ? 0 : this.fullName.compareTo(o.fullName);
     }
+
+    /**
+     * A weak reference to an interned {@link Identifier}.
+     *
+     * @author DaPorkchop_
+     */
+    private static final class IdentifierRef extends WeakReference<Identifier> {
+        private final String key;
+        private final boolean lenient; //whether or not the key was only validated using the lenient matcher
+
+        public IdentifierRef(@NonNull String key, @NonNull Identifier id, boolean lenient) {
+            super(id, QUEUE);
+            this.key = key;
+            this.lenient = lenient;
+        }
+    }
 }
@@ -0,0 +1,122 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.util.concurrent;
+
+import lombok.NonNull;
+import net.daporkchop.lib.common.function.io.IOFunction;
+import net.daporkchop.lib.concurrent.PFuture;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * Schedules blocking disk I/O operations separately from CPU-bound work.
+ * <p>
+ * Operations are keyed by the coordinates of the region file they access. Implementations are expected to serialize operations on the same region
+ * (so that they never contend for the same file), and to limit the number of disk operations that may be in progress at once.
+ * <p>
+ * Tasks submitted via {@link #execute(Runnable)} are not associated with any region, and may be run on any worker.
+ * <p>
+ * Every operation has a priority. Queued operations with a higher priority are started before queued operations with a lower priority, operations
+ * with the same priority are started in the order they were submitted.
+ *
+ * @author DaPorkchop_
+ */
+public interface IOScheduler extends Executor {
+    /**
+     * The priority used for ordinary loads and saves.
+     */
+    int PRIORITY_NORMAL = 0;
+
+    /**
+     * The priority used for background work such as preloading, which should never delay ordinary operations.
+     */
+    int PRIORITY_BACKGROUND = -100;
+
+    /**
+     * Submits a two-stage operation with {@link #PRIORITY_NORMAL normal priority}.
+     *
+     * @see #submit(int, int, int, Callable, IOFunction, Executor)
+     */
+    default <R, T> PFuture<T> submit(int regionX, int regionZ, @NonNull Callable<R> io, @NonNull IOFunction<R, T> compute, @NonNull Executor computeExecutor) {
+        return this.submit(regionX, regionZ, PRIORITY_NORMAL, io, compute, computeExecutor);
+    }
+
+    /**
+     * Submits a two-stage operation.
+     * <p>
+     * The I/O stage will be run on the worker responsible for the given region. Once it completes, the compute stage will be run on the given
+     * {@link Executor} with the I/O stage's result. If the I/O stage throws an exception, the compute stage will not be run and the returned
+     * {@link PFuture} will be completed with the exception. The same applies if the {@link Executor} refuses to accept the compute stage.
+     *
+     * @param regionX         the X coordinate of the region that will be accessed
+     * @param regionZ         the Z coordinate of the region that will be accessed
+     * @param priority        the priority of the I/O stage
+     * @param io              the I/O stage
+     * @param compute         the compute stage
+     * @param computeExecutor the {@link Executor} to run the compute stage on
+     * @param <R>             the type of value produced by the I/O stage
+     * @param <T>             the type of value produced by the compute stage
+     * @return a {@link PFuture} which will be completed with the result of the compute stage
+     */
+    <R, T> PFuture<T> submit(int regionX, int regionZ, int priority, @NonNull Callable<R> io, @NonNull IOFunction<R, T> compute, @NonNull Executor computeExecutor);
+
+    /**
+     * Executes a task on the worker responsible for the given region.
+     * <p>
+     * Unlike {@link #submit(int, int, int, Callable, IOFunction, Executor)}, no {@link PFuture} is created. The task is responsible for handling its
+     * own exceptions, any which escape it are passed to the worker thread's {@link Thread.UncaughtExceptionHandler}.
+     *
+     * @param regionX  the X coordinate of the region that will be accessed
+     * @param regionZ  the Z coordinate of the region that will be accessed
+     * @param priority the priority of the task
+     * @param task     the task
+     */
+    void execute(int regionX, int regionZ, int priority, @NonNull Runnable task);
+
+    /**
+     * @return the number of workers, which is also the maximum number of disk operations that may be in progress at once
+     */
+    int workers();
+
+    /**
+     * @return the total number of operations which are queued, but have not yet been started
+     */
+    int queueDepth();
+
+    /**
+     * Gets the number of operations which are queued on the given worker, but have not yet been started.
+     *
+     * @param worker the index of the worker
+     * @return the number of operations which are queued on the given worker
+     */
+    int queueDepth(int worker);
+
+    /**
+     * @return the number of operations which are currently being executed
+     */
+    int activeOperations();
+
+    /**
+     * @return the total number of operations which have been completed, including ones which completed exceptionally
+     */
+    long completedOperations();
+}
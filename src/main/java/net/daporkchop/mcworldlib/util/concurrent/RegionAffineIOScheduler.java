@@ -0,0 +1,290 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.util.concurrent;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import net.daporkchop.lib.common.function.io.IOFunction;
+import net.daporkchop.lib.concurrent.PFuture;
+import net.daporkchop.lib.concurrent.PFutures;
+import net.daporkchop.lib.unsafe.PUnsafe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static net.daporkchop.lib.common.math.PMath.*;
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Default implementation of {@link IOScheduler}.
+ * <p>
+ * Each worker is a single thread with its own priority queue. Every region is assigned to exactly one worker based on a hash of its coordinates,
+ * which means that operations on the same region with the same priority are always executed in the order they were submitted, and the number of
+ * workers is an upper bound on the number of concurrent disk operations.
+ * <p>
+ * Worker threads are daemon threads, so a scheduler which is never {@link #shutdown()} will not prevent the JVM from exiting. Once the scheduler
+ * has been shut down, any further submissions are rejected with a {@link RejectedExecutionException}.
+ *
+ * @author DaPorkchop_
+ */
+public class RegionAffineIOScheduler implements IOScheduler {
+    protected static final AtomicInteger SCHEDULER_ID = new AtomicInteger();
+
+    /**
+     * Queued on every worker when the scheduler is shut down. As it has the highest possible priority, the worker exits as soon as it has finished
+     * whatever it is currently doing.
+     */
+    protected static final Runnable STOP = () -> {};
+
+    protected final Worker[] workers;
+    protected final AtomicInteger nextWorker = new AtomicInteger();
+    protected final AtomicLong sequence = new AtomicLong();
+
+    protected final AtomicInteger active = new AtomicInteger();
+    protected final LongAdder completed = new LongAdder();
+
+    protected volatile boolean shutdown;
+
+    public RegionAffineIOScheduler(int workers) {
+        checkArg(workers > 0, "workers (%d) must be positive!", workers);
+
+        int id = SCHEDULER_ID.getAndIncrement();
+        this.workers = new Worker[workers];
+        for (int i = 0; i < workers; i++) {
+            this.workers[i] = new Worker("mcworldlib I/O scheduler #" + id + " worker #" + i);
+            this.workers[i].start();
+        }
+    }
+
+    protected Worker worker(int regionX, int regionZ) {
+        return this.workers[(mix32(((long) regionX << 32L) | (regionZ & 0xFFFFFFFFL)) & Integer.MAX_VALUE) % this.workers.length];
+    }
+
+    protected void checkNotShutdown() {
+        if (this.shutdown) {
+            throw new RejectedExecutionException("scheduler has been shut down");
+        }
+    }
+
+    protected void enqueue(@NonNull Worker worker, @NonNull Task task) {
+        worker.queue.add(task);
+        if (this.shutdown) { //the scheduler was shut down concurrently, make sure the task doesn't stay in the queue forever
+            worker.cancelQueued();
+        }
+    }
+
+    @Override
+    public <R, T> PFuture<T> submit(int regionX, int regionZ, int priority, @NonNull Callable<R> io, @NonNull IOFunction<R, T> compute, @NonNull Executor computeExecutor) {
+        this.checkNotShutdown();
+        Worker worker = this.worker(regionX, regionZ);
+        Stage<R> stage = new Stage<>();
+
+        //the compute stage is only handed to the compute executor once the I/O stage has completed
+        return PFutures.computeThrowableAsync(() -> {
+            if (stage.cause != null) {
+                PUnsafe.throwException(stage.cause);
+            }
+            return compute.applyThrowing(stage.value);
+        }, computeTask -> this.enqueue(worker, new Task(priority, this.sequence.getAndIncrement(), () -> {
+            try {
+                stage.value = io.call();
+            } catch (Throwable t) {
+                stage.cause = t;
+            }
+            try {
+                computeExecutor.execute(computeTask);
+            } catch (Throwable t) { //the compute executor rejected the task, fail the future on this thread instead of leaving it incomplete
+                stage.value = null;
+                stage.cause = t;
+                computeTask.run();
+            }
+        }, () -> { //the task was still queued when the scheduler was shut down
+            stage.cause = new CancellationException("scheduler was shut down");
+            computeTask.run();
+        })));
+    }
+
+    @Override
+    public void execute(int regionX, int regionZ, int priority, @NonNull Runnable task) {
+        this.checkNotShutdown();
+        this.enqueue(this.worker(regionX, regionZ), new Task(priority, this.sequence.getAndIncrement(), task, null));
+    }
+
+    @Override
+    public void execute(@NonNull Runnable task) {
+        this.checkNotShutdown();
+        this.enqueue(this.workers[(this.nextWorker.getAndIncrement() & Integer.MAX_VALUE) % this.workers.length],
+                new Task(PRIORITY_NORMAL, this.sequence.getAndIncrement(), task, null));
+    }
+
+    @Override
+    public int workers() {
+        return this.workers.length;
+    }
+
+    @Override
+    public int queueDepth() {
+        int depth = 0;
+        for (Worker worker : this.workers) {
+            depth += worker.queue.size();
+        }
+        return depth;
+    }
+
+    @Override
+    public int queueDepth(int worker) {
+        checkIndex(worker >= 0 && worker < this.workers.length, "worker");
+        return this.workers[worker].queue.size();
+    }
+
+    @Override
+    public int activeOperations() {
+        return this.active.get();
+    }
+
+    @Override
+    public long completedOperations() {
+        return this.completed.sum();
+    }
+
+    /**
+     * Stops all worker threads.
+     * <p>
+     * Operations which are currently being executed are allowed to finish. Operations which are still queued will never be executed: the futures
+     * of operations submitted using {@link #submit(int, int, int, Callable, IOFunction, Executor)} are failed with a
+     * {@link CancellationException}, other tasks are simply discarded. Any operations submitted afterwards are rejected.
+     */
+    public void shutdown() {
+        if (this.shutdown) {
+            return;
+        }
+        this.shutdown = true;
+
+        for (Worker worker : this.workers) {
+            worker.cancelQueued();
+            worker.queue.add(new Task(Integer.MAX_VALUE, -1L, STOP, null));
+        }
+    }
+
+    /**
+     * @return whether or not {@link #shutdown()} has been called
+     */
+    public boolean isShutdown() {
+        return this.shutdown;
+    }
+
+    /**
+     * A worker thread.
+     *
+     * @author DaPorkchop_
+     */
+    protected class Worker extends Thread {
+        protected final BlockingQueue<Task> queue = new PriorityBlockingQueue<>();
+
+        public Worker(@NonNull String name) {
+            super(name);
+            this.setDaemon(true);
+        }
+
+        /**
+         * Removes every task from this worker's queue, and cancels it.
+         */
+        protected void cancelQueued() {
+            List<Task> tasks = new ArrayList<>();
+            this.queue.drainTo(tasks);
+            for (Task task : tasks) {
+                if (task.task == STOP) { //the stop marker must stay in the queue, otherwise the worker would never exit
+                    this.queue.add(task);
+                } else if (task.cancel != null) {
+                    try {
+                        task.cancel.run();
+                    } catch (Throwable t) {
+                        this.getUncaughtExceptionHandler().uncaughtException(this, t);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Task task = this.queue.take();
+                    if (task.task == STOP) {
+                        return;
+                    }
+                    RegionAffineIOScheduler.this.active.incrementAndGet();
+                    try {
+                        task.task.run();
+                    } catch (Throwable t) { //tasks submitted through execute() have no future to report to, don't let them kill the worker
+                        this.getUncaughtExceptionHandler().uncaughtException(this, t);
+                    } finally {
+                        RegionAffineIOScheduler.this.active.decrementAndGet();
+                        RegionAffineIOScheduler.this.completed.increment();
+                    }
+                }
+            } catch (InterruptedException e) {
+                //worker was interrupted, exit gracefully
+            }
+        }
+    }
+
+    /**
+     * A queued task.
+     * <p>
+     * Tasks are ordered by descending priority, and then by the order in which they were submitted.
+     *
+     * @author DaPorkchop_
+     */
+    @RequiredArgsConstructor
+    protected static final class Task implements Comparable<Task> {
+        protected final int priority;
+        protected final long sequence;
+        @NonNull
+        protected final Runnable task;
+        protected final Runnable cancel; //run if the task is still queued when the scheduler is shut down, may be null
+
+        @Override
+        public int compareTo(Task o) {
+            int d = Integer.compare(o.priority, this.priority);
+            return d != 0 ? d : Long.compare(this.sequence, o.sequence);
+        }
+    }
+
+    /**
+     * Hands the result of the I/O stage over to the compute stage.
+     *
+     * @author DaPorkchop_
+     */
+    protected static final class Stage<R> {
+        protected R value;
+        protected Throwable cause;
+    }
+}
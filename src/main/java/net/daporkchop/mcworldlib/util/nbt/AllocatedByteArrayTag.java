@@ -31,6 +31,8 @@ import net.daporkchop.lib.nbt.tag.Tag;
 import java.io.IOException;
 import java.util.Arrays;
 
+import static net.daporkchop.lib.common.util.PValidation.*;
+
 /**
  * @author DaPorkchop_
  */
@@ -41,6 +43,13 @@ public class AllocatedByteArrayTag extends Tag<AllocatedByteArrayTag> implements
 
     protected final ArrayAllocator<byte[]> alloc;
 
+    public AllocatedByteArrayTag(@NonNull byte[] value, int length, ArrayAllocator<byte[]> alloc) {
+        checkRangeLen(value.length, 0, length);
+        this.value = value;
+        this.length = length;
+        this.alloc = alloc;
+    }
+
     public AllocatedByteArrayTag(@NonNull DataIn in, ArrayAllocator<byte[]> alloc) throws IOException {
         this.length = in.readInt();
 
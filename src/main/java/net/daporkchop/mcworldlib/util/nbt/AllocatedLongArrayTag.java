@@ -32,6 +32,8 @@ import net.daporkchop.lib.nbt.tag.Tag;
 import java.io.IOException;
 import java.util.Arrays;
 
+import static net.daporkchop.lib.common.util.PValidation.*;
+
 /**
  * @author DaPorkchop_
  */
@@ -42,6 +44,13 @@ public class AllocatedLongArrayTag extends Tag<AllocatedLongArrayTag> implements
 
     protected final ArrayAllocator<long[]> alloc;
 
+    public AllocatedLongArrayTag(@NonNull long[] value, int length, ArrayAllocator<long[]> alloc) {
+        checkRangeLen(value.length, 0, length);
+        this.value = value;
+        this.length = length;
+        this.alloc = alloc;
+    }
+
     public AllocatedLongArrayTag(@NonNull DataIn in, ArrayAllocator<long[]> alloc) throws IOException {
         this.length = in.readInt();
 
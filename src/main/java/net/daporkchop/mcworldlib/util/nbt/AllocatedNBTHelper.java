@@ -22,10 +22,12 @@ package net.daporkchop.mcworldlib.util.nbt;
 
 import lombok.NonNull;
 import lombok.experimental.UtilityClass;
+import net.daporkchop.lib.common.pool.array.ArrayAllocator;
 import net.daporkchop.lib.nbt.tag.CompoundTag;
 import net.daporkchop.lib.nbt.tag.ListTag;
 import net.daporkchop.lib.nbt.tag.Tag;
 
+import java.nio.LongBuffer;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -61,4 +63,68 @@ public class AllocatedNBTHelper {
         }
         return uncheckedCast(tag);
     }
+
+    /**
+     * Converts a {@code byte[]} tag which may have been parsed by a {@link SlicingNBTObjectParser} to an {@link AllocatedByteArrayTag}.
+     * <p>
+     * {@link SlicedByteArrayTag}s are copied to an array from the given allocator and released.
+     *
+     * @param tag   the tag. May be {@code null}
+     * @param alloc the {@link ArrayAllocator} to copy sliced data into. If {@code null}, a new array is created
+     * @return the {@link AllocatedByteArrayTag}, or {@code null} if the tag was {@code null}
+     */
+    public AllocatedByteArrayTag toAllocatedByteArray(Tag<?> tag, ArrayAllocator<byte[]> alloc) {
+        if (tag instanceof SlicedByteArrayTag) {
+            SlicedByteArrayTag sliced = (SlicedByteArrayTag) tag;
+            try {
+                int length = sliced.length();
+                byte[] array = alloc != null ? alloc.atLeast(length) : new byte[length];
+                sliced.getBytes(array, 0);
+                return new AllocatedByteArrayTag(array, length, alloc);
+            } finally {
+                sliced.release();
+            }
+        }
+        return (AllocatedByteArrayTag) tag;
+    }
+
+    /**
+     * Converts a {@code long[]} tag which may have been parsed by a {@link SlicingNBTObjectParser} to an {@link AllocatedLongArrayTag}.
+     * <p>
+     * {@link SlicedLongArrayTag}s are copied to an array from the given allocator and released.
+     *
+     * @param tag   the tag. May be {@code null}
+     * @param alloc the {@link ArrayAllocator} to copy sliced data into. If {@code null}, a new array is created
+     * @return the {@link AllocatedLongArrayTag}, or {@code null} if the tag was {@code null}
+     */
+    public AllocatedLongArrayTag toAllocatedLongArray(Tag<?> tag, ArrayAllocator<long[]> alloc) {
+        if (tag instanceof SlicedLongArrayTag) {
+            SlicedLongArrayTag sliced = (SlicedLongArrayTag) tag;
+            try {
+                int length = sliced.length();
+                long[] array = alloc != null ? alloc.atLeast(length) : new long[length];
+                sliced.getLongs(array, 0);
+                return new AllocatedLongArrayTag(array, length, alloc);
+            } finally {
+                sliced.release();
+            }
+        }
+        return (AllocatedLongArrayTag) tag;
+    }
+
+    /**
+     * Gets a view of the elements of a {@code long[]} tag which may have been parsed by a {@link SlicingNBTObjectParser}, without copying them.
+     * <p>
+     * The view is only valid until the tag is released.
+     *
+     * @param tag the tag
+     * @return a {@link LongBuffer} view of the tag's elements
+     */
+    public LongBuffer longs(@NonNull Tag<?> tag) {
+        if (tag instanceof SlicedLongArrayTag) {
+            return ((SlicedLongArrayTag) tag).longs();
+        }
+        AllocatedLongArrayTag allocated = (AllocatedLongArrayTag) tag;
+        return LongBuffer.wrap(allocated.value(), 0, allocated.length());
+    }
 }
@@ -0,0 +1,177 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.util.nbt;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import net.daporkchop.lib.binary.stream.DataOut;
+import net.daporkchop.lib.nbt.tag.Tag;
+
+import java.io.IOException;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+import static net.daporkchop.lib.nbt.tag.Tag.*;
+
+/**
+ * Writes NBT data directly into a {@link ByteBuf}, without building a tree of {@link Tag}s first.
+ * <p>
+ * This is the write-side counterpart of {@link SelectiveNBTReader} and {@link NBTListExtractor}: callers are responsible for emitting well-formed
+ * structures, i.e. every {@link #startCompound(ByteBuf, String)} must be matched by an {@link #endCompound(ByteBuf)}, and every list must be
+ * followed by exactly as many element payloads as were declared.
+ *
+ * @author DaPorkchop_
+ */
+@UtilityClass
+public class DirectNBTWriter {
+    /**
+     * Writes a string payload (a length-prefixed UTF-8 string).
+     *
+     * @param dst   the {@link ByteBuf} to write to
+     * @param value the string
+     */
+    public void writeStringPayload(@NonNull ByteBuf dst, @NonNull CharSequence value) {
+        int length = ByteBufUtil.utf8Bytes(value);
+        checkArg(length <= 0xFFFF, "string too long (%d bytes)", length);
+        dst.writeShort(length);
+        ByteBufUtil.writeUtf8(dst, value);
+    }
+
+    /**
+     * Writes the header of a named tag.
+     *
+     * @param dst  the {@link ByteBuf} to write to
+     * @param id   the tag's ID
+     * @param name the tag's name
+     */
+    public void writeHeader(@NonNull ByteBuf dst, int id, @NonNull CharSequence name) {
+        dst.writeByte(id);
+        writeStringPayload(dst, name);
+    }
+
+    public void startCompound(@NonNull ByteBuf dst, @NonNull CharSequence name) {
+        writeHeader(dst, TAG_COMPOUND, name);
+    }
+
+    public void endCompound(@NonNull ByteBuf dst) {
+        dst.writeByte(TAG_END);
+    }
+
+    /**
+     * Writes the header of a named list tag.
+     * <p>
+     * The header must be followed by {@code size} element payloads.
+     *
+     * @param dst       the {@link ByteBuf} to write to
+     * @param name      the list's name
+     * @param elementId the ID of the list's elements. Ignored if the list is empty
+     * @param size      the number of elements in the list
+     */
+    public void startList(@NonNull ByteBuf dst, @NonNull CharSequence name, int elementId, int size) {
+        checkArg(size >= 0, "size may not be negative (given: %d)", size);
+        writeHeader(dst, TAG_LIST, name);
+        dst.writeByte(size == 0 ? TAG_END : elementId).writeInt(size);
+    }
+
+    public void writeByte(@NonNull ByteBuf dst, @NonNull CharSequence name, int value) {
+        writeHeader(dst, TAG_BYTE, name);
+        dst.writeByte(value);
+    }
+
+    public void writeInt(@NonNull ByteBuf dst, @NonNull CharSequence name, int value) {
+        writeHeader(dst, TAG_INT, name);
+        dst.writeInt(value);
+    }
+
+    public void writeLong(@NonNull ByteBuf dst, @NonNull CharSequence name, long value) {
+        writeHeader(dst, TAG_LONG, name);
+        dst.writeLong(value);
+    }
+
+    public void writeString(@NonNull ByteBuf dst, @NonNull CharSequence name, @NonNull CharSequence value) {
+        writeHeader(dst, TAG_STRING, name);
+        writeStringPayload(dst, value);
+    }
+
+    /**
+     * Writes the header of a named byte array tag.
+     * <p>
+     * The header must be followed by {@code length} bytes.
+     *
+     * @param dst    the {@link ByteBuf} to write to
+     * @param name   the array's name
+     * @param length the number of bytes in the array
+     */
+    public void startByteArray(@NonNull ByteBuf dst, @NonNull CharSequence name, int length) {
+        checkArg(length >= 0, "length may not be negative (given: %d)", length);
+        writeHeader(dst, TAG_ARRAY_BYTE, name);
+        dst.writeInt(length);
+    }
+
+    public void writeIntArray(@NonNull ByteBuf dst, @NonNull CharSequence name, @NonNull int[] value, int length) {
+        checkRangeLen(value.length, 0, length);
+        writeHeader(dst, TAG_ARRAY_INT, name);
+        dst.writeInt(length);
+        for (int i = 0; i < length; i++) {
+            dst.writeInt(value[i]);
+        }
+    }
+
+    public void writeLongArray(@NonNull ByteBuf dst, @NonNull CharSequence name, @NonNull long[] value, int length) {
+        checkRangeLen(value.length, 0, length);
+        writeHeader(dst, TAG_ARRAY_LONG, name);
+        dst.writeInt(length);
+        for (int i = 0; i < length; i++) {
+            dst.writeLong(value[i]);
+        }
+    }
+
+    /**
+     * Writes an already constructed {@link Tag}, along with its header.
+     * <p>
+     * This is the slow path, see {@link #writePayload(ByteBuf, Tag)}.
+     *
+     * @param dst  the {@link ByteBuf} to write to
+     * @param name the tag's name
+     * @param tag  the tag
+     */
+    public void writeTag(@NonNull ByteBuf dst, @NonNull CharSequence name, @NonNull Tag<?> tag) {
+        writeHeader(dst, tag.id(), name);
+        writePayload(dst, tag);
+    }
+
+    /**
+     * Writes an already constructed {@link Tag}'s payload.
+     * <p>
+     * This is the slow path, used for data which the caller doesn't know the structure of (such as tile entities).
+     *
+     * @param dst the {@link ByteBuf} to write to
+     * @param tag the tag
+     */
+    public void writePayload(@NonNull ByteBuf dst, @NonNull Tag<?> tag) {
+        try (DataOut out = DataOut.wrap(dst, false)) {
+            tag.write(out);
+        } catch (IOException e) { //can't happen, we're writing to a ByteBuf
+            throw new IllegalStateException(e);
+        }
+    }
+}
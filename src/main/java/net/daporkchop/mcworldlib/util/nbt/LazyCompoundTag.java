@@ -0,0 +1,262 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.util.nbt;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import net.daporkchop.lib.binary.stream.DataIn;
+import net.daporkchop.lib.nbt.NBTOptions;
+import net.daporkchop.lib.nbt.tag.CompoundTag;
+import net.daporkchop.lib.nbt.tag.DoubleTag;
+import net.daporkchop.lib.nbt.tag.ListTag;
+
+import java.io.IOException;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+
+import static net.daporkchop.lib.common.math.PMath.*;
+import static net.daporkchop.lib.nbt.tag.Tag.*;
+
+/**
+ * A handle to a compound tag (such as a tile entity or an entity) which is only parsed when it is first accessed.
+ * <p>
+ * Until then, the handle only keeps the tag's serialized payload, along with its ID and block position, which are decoded up front as they are
+ * needed for placing the tag in the world and are cheap to read.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author DaPorkchop_
+ */
+@Getter
+public final class LazyCompoundTag {
+    protected static final SelectiveNBTReader TILE_ENTITY_READER = new SelectiveNBTReader("id", "x", "y", "z");
+    protected static final SelectiveNBTReader ENTITY_READER = new SelectiveNBTReader("id", "Pos");
+
+    /**
+     * Creates a handle to a serialized tile entity.
+     * <p>
+     * The tile entity's ID and position are read immediately, the rest of the data is copied and kept until the tile entity is accessed.
+     *
+     * @param payload the serialized payload of the tile entity's compound tag. The reader index will not be modified
+     * @return the handle
+     */
+    public static LazyCompoundTag ofTileEntity(@NonNull ByteBuf payload) {
+        return ofTileEntity(payload, NBTOptions.DEFAULT);
+    }
+
+    /**
+     * Creates a handle to a serialized tile entity.
+     * <p>
+     * The tile entity's ID and position are read immediately, the rest of the data is copied and kept until the tile entity is accessed.
+     *
+     * @param payload the serialized payload of the tile entity's compound tag. The reader index will not be modified
+     * @param options the {@link NBTOptions} to use when the tile entity is parsed
+     * @return the handle
+     */
+    public static LazyCompoundTag ofTileEntity(@NonNull ByteBuf payload, @NonNull NBTOptions options) {
+        Object[] id = new Object[1];
+        int[] pos = new int[3];
+        TILE_ENTITY_READER.readCompoundPayload(payload.duplicate(), (path, tagId, buf) -> {
+            if (path == 0) {
+                if (tagId == TAG_STRING) {
+                    id[0] = SelectiveNBTReader.readString(buf);
+                }
+            } else if (tagId == TAG_INT) {
+                pos[path - 1] = buf.readInt();
+            }
+        });
+        return new LazyCompoundTag(ByteBufUtil.getBytes(payload), options, (String) id[0], pos[0], pos[1], pos[2]);
+    }
+
+    /**
+     * Creates a handle to a serialized entity.
+     * <p>
+     * The entity's ID and position are read immediately, the rest of the data is copied and kept until the entity is accessed.
+     *
+     * @param payload the serialized payload of the entity's compound tag. The reader index will not be modified
+     * @return the handle
+     */
+    public static LazyCompoundTag ofEntity(@NonNull ByteBuf payload) {
+        return ofEntity(payload, NBTOptions.DEFAULT);
+    }
+
+    /**
+     * Creates a handle to a serialized entity.
+     * <p>
+     * The entity's ID and position are read immediately, the rest of the data is copied and kept until the entity is accessed.
+     *
+     * @param payload the serialized payload of the entity's compound tag. The reader index will not be modified
+     * @param options the {@link NBTOptions} to use when the entity is parsed
+     * @return the handle
+     */
+    public static LazyCompoundTag ofEntity(@NonNull ByteBuf payload, @NonNull NBTOptions options) {
+        Object[] id = new Object[1];
+        int[] pos = new int[3];
+        ENTITY_READER.readCompoundPayload(payload.duplicate(), (path, tagId, buf) -> {
+            if (path == 0) {
+                if (tagId == TAG_STRING) {
+                    id[0] = SelectiveNBTReader.readString(buf);
+                }
+            } else if (tagId == TAG_LIST && buf.readUnsignedByte() == TAG_DOUBLE && buf.readInt() >= 3) {
+                for (int i = 0; i < 3; i++) {
+                    pos[i] = floorI(buf.readDouble());
+                }
+            }
+        });
+        return new LazyCompoundTag(ByteBufUtil.getBytes(payload), options, (String) id[0], pos[0], pos[1], pos[2]);
+    }
+
+    /**
+     * Creates a handle to an already parsed tag.
+     * <p>
+     * The tag's position is taken from its {@code "Pos"} list if it has one (as entities do), or from its {@code "x"}, {@code "y"} and {@code "z"}
+     * values otherwise (as tile entities do).
+     *
+     * @param tag the tag
+     * @return the handle
+     */
+    public static LazyCompoundTag of(@NonNull CompoundTag tag) {
+        ListTag<DoubleTag> pos = tag.getList("Pos", DoubleTag.class, null);
+        LazyCompoundTag handle = pos != null && pos.size() >= 3
+                ? new LazyCompoundTag(null, NBTOptions.DEFAULT, tag.getString("id", null),
+                floorI(pos.list().get(0).doubleValue()), floorI(pos.list().get(1).doubleValue()), floorI(pos.list().get(2).doubleValue()))
+                : new LazyCompoundTag(null, NBTOptions.DEFAULT, tag.getString("id", null), tag.getInt("x", 0), tag.getInt("y", 0), tag.getInt("z", 0));
+        handle.tag = tag;
+        return handle;
+    }
+
+    /**
+     * Gets a view of the given handles, which parses each tag as it is accessed.
+     *
+     * @param handles the handles
+     * @return a view of the parsed tags
+     */
+    public static Collection<CompoundTag> parsingView(@NonNull Collection<LazyCompoundTag> handles) {
+        return new AbstractCollection<CompoundTag>() {
+            @Override
+            public Iterator<CompoundTag> iterator() {
+                Iterator<LazyCompoundTag> delegate = handles.iterator();
+                return new Iterator<CompoundTag>() {
+                    @Override
+                    public boolean hasNext() {
+                        return delegate.hasNext();
+                    }
+
+                    @Override
+                    public CompoundTag next() {
+                        return delegate.next().tag();
+                    }
+
+                    @Override
+                    public void remove() {
+                        delegate.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return handles.size();
+            }
+        };
+    }
+
+    /**
+     * The tag's {@code "id"} value, or {@code null} if it has none.
+     */
+    protected final String id;
+    protected final int x;
+    protected final int y;
+    protected final int z;
+
+    @Getter(AccessLevel.NONE)
+    protected byte[] payload;
+    @Getter(AccessLevel.NONE)
+    protected final NBTOptions options;
+    protected volatile CompoundTag tag;
+
+    private LazyCompoundTag(byte[] payload, @NonNull NBTOptions options, String id, int x, int y, int z) {
+        this.payload = payload;
+        this.options = options;
+        this.id = id;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * Gets the tag, parsing it if it hasn't been parsed yet.
+     *
+     * @return the tag
+     */
+    public CompoundTag tag() {
+        CompoundTag tag = this.tag;
+        if (tag == null) {
+            synchronized (this) {
+                if ((tag = this.tag) == null) {
+                    try {
+                        //the tag outlives the payload, so any arrays the parser allocated from a pool are given back right away
+                        tag = AllocatedNBTHelper.toNormalAndRelease(
+                                this.options.objectParser().read(DataIn.wrap(Unpooled.wrappedBuffer(this.payload), false), this.options, TAG_COMPOUND));
+                    } catch (IOException e) {
+                        throw new IllegalStateException("unable to parse lazy NBT tag", e);
+                    }
+                    this.tag = tag;
+                    this.payload = null; //the serialized data isn't needed any more
+                }
+            }
+        }
+        return tag;
+    }
+
+    /**
+     * @return whether or not the tag has already been parsed
+     */
+    public boolean isParsed() {
+        return this.tag != null;
+    }
+
+    /**
+     * Writes the tag's payload to the given {@link ByteBuf}.
+     * <p>
+     * If the tag hasn't been parsed yet, the original serialized data is copied as-is, so re-saving a chunk doesn't need to parse tags which were
+     * never accessed.
+     *
+     * @param dst the {@link ByteBuf} to write to
+     */
+    public void write(@NonNull ByteBuf dst) {
+        CompoundTag tag = this.tag;
+        if (tag == null) {
+            synchronized (this) {
+                if ((tag = this.tag) == null) {
+                    dst.writeBytes(this.payload);
+                    return;
+                }
+            }
+        }
+        DirectNBTWriter.writePayload(dst, tag);
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.util.nbt;
+
+import io.netty.buffer.ByteBuf;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import net.daporkchop.lib.binary.stream.DataIn;
+import net.daporkchop.lib.nbt.NBTOptions;
+import net.daporkchop.lib.nbt.tag.CompoundTag;
+import net.daporkchop.lib.nbt.tag.Tag;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static net.daporkchop.lib.nbt.tag.Tag.*;
+
+/**
+ * Extracts the elements of specific lists from serialized NBT data, without parsing anything else.
+ *
+ * @author DaPorkchop_
+ */
+@UtilityClass
+public class NBTListExtractor {
+    /**
+     * Scans a serialized NBT compound tag, and parses only the elements of the lists of compound tags with the given names.
+     * <p>
+     * Lists are searched for in the root compound, as well as in a compound named {@code "Level"} (if present) inside of the root compound. All other
+     * tags are skipped over without being parsed.
+     *
+     * @param buf    the {@link ByteBuf} containing the serialized NBT data, including the root tag's ID and name
+     * @param names  the names of the lists to extract
+     * @param action the callback function to run on every extracted list element
+     */
+    public void extract(@NonNull ByteBuf buf, @NonNull Collection<String> names, @NonNull Consumer<CompoundTag> action) throws IOException {
+        if (buf.readUnsignedByte() != TAG_COMPOUND) { //not a compound tag, there's nothing to extract
+            return;
+        }
+        buf.skipBytes(buf.readUnsignedShort()); //root tag name
+
+        DataIn in = DataIn.wrap(buf, false);
+        extractFromCompound(buf, in, names, action, true);
+    }
+
+    private void extractFromCompound(@NonNull ByteBuf buf, @NonNull DataIn in, @NonNull Collection<String> names, @NonNull Consumer<CompoundTag> action, boolean root) throws IOException {
+        for (int id; (id = buf.readUnsignedByte()) != TAG_END; ) {
+            String name = buf.readCharSequence(buf.readUnsignedShort(), StandardCharsets.UTF_8).toString();
+            if (root && id == TAG_COMPOUND && "Level".equals(name)) {
+                extractFromCompound(buf, in, names, action, false);
+            } else if (id == TAG_LIST && names.contains(name)) {
+                int elementId = buf.readUnsignedByte();
+                int length = buf.readInt();
+                if (elementId == TAG_COMPOUND) {
+                    for (int i = 0; i < length; i++) {
+                        action.accept((CompoundTag) Tag.DEFAULT_NBT_PARSER.read(in, NBTOptions.DEFAULT, TAG_COMPOUND));
+                    }
+                } else { //the list is empty and has no element type, or it contains something other than compound tags
+                    for (int i = 0; i < length; i++) {
+                        skip(buf, elementId);
+                    }
+                }
+            } else {
+                skip(buf, id);
+            }
+        }
+    }
+
+    /**
+     * Removes the elements of the lists of compound tags with the given names from a serialized NBT compound tag, in place.
+     * <p>
+     * Lists are searched for in the same places as by {@link #extract(ByteBuf, Collection, Consumer)}. Matching lists are replaced with empty lists,
+     * and the serialized payload of each of their elements is passed to the callback function instead. The remaining data is moved backwards to
+     * close the gaps, so no second buffer is needed.
+     * <p>
+     * Once this method returns, the buffer's readable bytes contain the remaining NBT data.
+     *
+     * @param buf    the {@link ByteBuf} containing the serialized NBT data, including the root tag's ID and name
+     * @param names  the names of the lists to extract
+     * @param action the callback function to run on every extracted list element, along with the name of the list it was in. The buffer is only
+     *               valid until the function returns
+     */
+    public void split(@NonNull ByteBuf buf, @NonNull Collection<String> names, @NonNull BiConsumer<String, ByteBuf> action) {
+        int start = buf.readerIndex();
+        if (buf.readUnsignedByte() != TAG_COMPOUND) { //not a compound tag, there's nothing to extract
+            buf.readerIndex(start);
+            return;
+        }
+        buf.skipBytes(buf.readUnsignedShort()); //root tag name
+
+        int end = splitCompound(buf, buf.readerIndex(), names, action, true);
+        buf.setIndex(start, end);
+    }
+
+    private int splitCompound(@NonNull ByteBuf buf, int dst, @NonNull Collection<String> names, @NonNull BiConsumer<String, ByteBuf> action, boolean root) {
+        for (int id; (id = buf.readUnsignedByte()) != TAG_END; ) {
+            int start = buf.readerIndex() - 1;
+            String name = buf.readCharSequence(buf.readUnsignedShort(), StandardCharsets.UTF_8).toString();
+            if (root && id == TAG_COMPOUND && "Level".equals(name)) {
+                dst = move(buf, start, dst, buf.readerIndex() - start);
+                dst = splitCompound(buf, dst, names, action, false);
+            } else if (id == TAG_LIST && names.contains(name) && buf.getUnsignedByte(buf.readerIndex()) == TAG_COMPOUND) {
+                buf.skipBytes(1); //element ID
+                int length = buf.readInt();
+
+                //keep the list's header, but with a length of 0
+                dst = move(buf, start, dst, buf.readerIndex() - start);
+                buf.setInt(dst - Integer.BYTES, 0);
+
+                for (int i = 0; i < length; i++) {
+                    int elementStart = buf.readerIndex();
+                    skip(buf, TAG_COMPOUND);
+                    action.accept(name, buf.slice(elementStart, buf.readerIndex() - elementStart));
+                }
+            } else {
+                skip(buf, id);
+                dst = move(buf, start, dst, buf.readerIndex() - start);
+            }
+        }
+        buf.setByte(dst++, TAG_END);
+        return dst;
+    }
+
+    private int move(@NonNull ByteBuf buf, int src, int dst, int length) {
+        if (src != dst) { //dst is always behind src, copy in chunks no larger than the distance between them so that no copy overlaps itself
+            for (int gap = src - dst, i = 0; i < length; i += gap) {
+                buf.setBytes(dst + i, buf, src + i, Math.min(gap, length - i));
+            }
+        }
+        return dst + length;
+    }
+
+    /**
+     * Skips over the payload of a tag.
+     *
+     * @param buf the {@link ByteBuf} to read from
+     * @param id  the ID of the tag
+     */
+    public void skip(@NonNull ByteBuf buf, int id) {
+        switch (id) {
+            case TAG_END:
+                break;
+            case TAG_BYTE:
+                buf.skipBytes(Byte.BYTES);
+                break;
+            case TAG_SHORT:
+                buf.skipBytes(Short.BYTES);
+                break;
+            case TAG_INT:
+            case TAG_FLOAT:
+                buf.skipBytes(Integer.BYTES);
+                break;
+            case TAG_LONG:
+            case TAG_DOUBLE:
+                buf.skipBytes(Long.BYTES);
+                break;
+            case TAG_ARRAY_BYTE:
+                buf.skipBytes(buf.readInt());
+                break;
+            case TAG_STRING:
+                buf.skipBytes(buf.readUnsignedShort());
+                break;
+            case TAG_LIST: {
+                int elementId = buf.readUnsignedByte();
+                int length = buf.readInt();
+                for (int i = 0; i < length; i++) {
+                    skip(buf, elementId);
+                }
+                break;
+            }
+            case TAG_COMPOUND:
+                for (int childId; (childId = buf.readUnsignedByte()) != TAG_END; ) {
+                    buf.skipBytes(buf.readUnsignedShort()); //name
+                    skip(buf, childId);
+                }
+                break;
+            case TAG_ARRAY_INT:
+                buf.skipBytes(buf.readInt() * Integer.BYTES);
+                break;
+            case TAG_ARRAY_LONG:
+                buf.skipBytes(buf.readInt() * Long.BYTES);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown tag ID: " + id);
+        }
+    }
+}
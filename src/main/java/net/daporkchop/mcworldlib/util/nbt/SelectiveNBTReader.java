@@ -0,0 +1,197 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.util.nbt;
+
+import io.netty.buffer.ByteBuf;
+import lombok.NonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+import static net.daporkchop.lib.nbt.tag.Tag.*;
+
+/**
+ * Reads only a selected set of tags from serialized NBT data.
+ * <p>
+ * Tags are selected using dot-separated paths relative to the root compound (e.g. {@code "Level.InhabitedTime"}). Everything which isn't on the
+ * way to a selected tag is skipped over by its length, and tag names are compared directly against the serialized bytes, so scanning a buffer
+ * doesn't allocate anything.
+ * <p>
+ * Instances of this class are immutable and may be shared between threads.
+ *
+ * @author DaPorkchop_
+ * @see NBTListExtractor
+ */
+public final class SelectiveNBTReader {
+    /**
+     * Reads a string payload from the given {@link ByteBuf}.
+     * <p>
+     * Intended for use by {@link Visitor}s.
+     *
+     * @param buf the {@link ByteBuf} to read from
+     * @return the string
+     */
+    public static String readString(@NonNull ByteBuf buf) {
+        return buf.readCharSequence(buf.readUnsignedShort(), StandardCharsets.UTF_8).toString();
+    }
+
+    protected final Node root = new Node();
+    protected final int paths;
+
+    /**
+     * @param paths the paths of the tags to select. The index of each path in this array is passed to the {@link Visitor}
+     */
+    public SelectiveNBTReader(@NonNull String... paths) {
+        this.paths = paths.length;
+        for (int i = 0; i < paths.length; i++) {
+            Node node = this.root;
+            for (String name : paths[i].split("\\.")) {
+                checkArg(!name.isEmpty(), "invalid path: \"%s\"", paths[i]);
+                checkArg(node.path < 0, "path \"%s\" is inside of another selected path", paths[i]);
+                node = node.child(name);
+            }
+            checkArg(node.path < 0 && node.names.isEmpty(), "path \"%s\" is selected more than once or contains another selected path", paths[i]);
+            node.path = i;
+        }
+    }
+
+    /**
+     * @return the number of selected paths
+     */
+    public int paths() {
+        return this.paths;
+    }
+
+    /**
+     * Scans a serialized NBT compound tag, passing every selected tag to the given {@link Visitor}.
+     *
+     * @param buf     the {@link ByteBuf} containing the serialized NBT data, including the root tag's ID and name
+     * @param visitor the {@link Visitor} to pass selected tags to
+     */
+    public void read(@NonNull ByteBuf buf, @NonNull Visitor visitor) {
+        if (buf.readUnsignedByte() != TAG_COMPOUND) { //not a compound tag, there's nothing to select
+            return;
+        }
+        buf.skipBytes(buf.readUnsignedShort()); //root tag name
+
+        this.readCompound(buf, this.root, visitor);
+    }
+
+    /**
+     * Scans the payload of a serialized NBT compound tag (i.e. without the tag's ID and name), passing every selected tag to the given
+     * {@link Visitor}.
+     *
+     * @param buf     the {@link ByteBuf} containing the serialized compound tag payload
+     * @param visitor the {@link Visitor} to pass selected tags to
+     */
+    public void readCompoundPayload(@NonNull ByteBuf buf, @NonNull Visitor visitor) {
+        this.readCompound(buf, this.root, visitor);
+    }
+
+    protected void readCompound(@NonNull ByteBuf buf, @NonNull Node node, @NonNull Visitor visitor) {
+        for (int id; (id = buf.readUnsignedByte()) != TAG_END; ) {
+            Node child = node.find(buf);
+            if (child == null) { //not selected
+                NBTListExtractor.skip(buf, id);
+            } else if (child.path >= 0) { //selected, let the visitor read the payload and then skip it ourselves
+                int start = buf.readerIndex();
+                visitor.visit(child.path, id, buf);
+                buf.readerIndex(start);
+                NBTListExtractor.skip(buf, id);
+            } else if (id == TAG_COMPOUND) { //on the way to a selected tag
+                this.readCompound(buf, child, visitor);
+            } else { //a tag on the way to a selected tag isn't a compound, so there's nothing to select inside of it
+                NBTListExtractor.skip(buf, id);
+            }
+        }
+    }
+
+    /**
+     * A node in the tree of selected paths.
+     *
+     * @author DaPorkchop_
+     */
+    protected static final class Node {
+        protected final List<byte[]> names = new ArrayList<>();
+        protected final List<Node> children = new ArrayList<>();
+        protected int path = -1;
+
+        protected Node child(@NonNull String name) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < this.names.size(); i++) {
+                if (Arrays.equals(this.names.get(i), bytes)) {
+                    return this.children.get(i);
+                }
+            }
+            Node child = new Node();
+            this.names.add(bytes);
+            this.children.add(child);
+            return child;
+        }
+
+        /**
+         * Reads a tag name from the given {@link ByteBuf} and finds the child node with the same name.
+         *
+         * @return the child node, or {@code null} if none matched
+         */
+        protected Node find(@NonNull ByteBuf buf) {
+            int length = buf.readUnsignedShort();
+            int start = buf.readerIndex();
+            buf.skipBytes(length);
+
+            NAMES:
+            for (int i = 0, size = this.names.size(); i < size; i++) {
+                byte[] name = this.names.get(i);
+                if (name.length == length) {
+                    for (int j = 0; j < length; j++) {
+                        if (buf.getByte(start + j) != name[j]) {
+                            continue NAMES;
+                        }
+                    }
+                    return this.children.get(i);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Receives the tags selected by a {@link SelectiveNBTReader}.
+     *
+     * @author DaPorkchop_
+     */
+    @FunctionalInterface
+    public interface Visitor {
+        /**
+         * Visits a selected tag.
+         * <p>
+         * The visitor may read as much or as little of the tag's payload as it wants, the reader index will be restored afterwards.
+         *
+         * @param path the index of the path which selected the tag
+         * @param id   the tag's ID
+         * @param buf  the {@link ByteBuf} containing the tag's payload, positioned at the start of the payload
+         */
+        void visit(int path, int id, @NonNull ByteBuf buf);
+    }
+}
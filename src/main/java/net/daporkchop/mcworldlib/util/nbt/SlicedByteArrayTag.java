@@ -0,0 +1,125 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.util.nbt;
+
+import io.netty.buffer.ByteBuf;
+import lombok.Getter;
+import lombok.NonNull;
+import net.daporkchop.lib.binary.stream.DataOut;
+import net.daporkchop.lib.nbt.tag.ByteArrayTag;
+import net.daporkchop.lib.nbt.tag.Tag;
+
+import java.io.IOException;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * A byte array tag whose value is a view of the buffer the NBT data was parsed from, rather than a copy of it.
+ *
+ * @author DaPorkchop_
+ * @see SlicingNBTObjectParser
+ */
+@Getter
+public class SlicedByteArrayTag extends Tag<SlicedByteArrayTag> implements AllocatedTag {
+    /**
+     * The serialized array elements. This is a retained slice of the source buffer, which is released when this tag is released.
+     */
+    protected final ByteBuf data;
+    protected final int length;
+
+    public SlicedByteArrayTag(@NonNull ByteBuf data, int length) {
+        this.data = data;
+        this.length = length;
+    }
+
+    /**
+     * Copies the array elements into the given {@code byte[]}.
+     *
+     * @param dst    the {@code byte[]} to copy the elements into
+     * @param dstOff the index in {@code dst} to begin copying the elements to
+     */
+    public void getBytes(@NonNull byte[] dst, int dstOff) {
+        checkRangeLen(dst.length, dstOff, this.length);
+        this.data.getBytes(this.data.readerIndex(), dst, dstOff, this.length);
+    }
+
+    /**
+     * Copies the array elements into a new {@code byte[]}, and subsequently releases this tag.
+     *
+     * @return a {@code byte[]} containing the array elements
+     */
+    public byte[] toArrayAndRelease() {
+        try {
+            byte[] array = new byte[this.length];
+            this.getBytes(array, 0);
+            return array;
+        } finally {
+            this.data.release();
+        }
+    }
+
+    @Override
+    public void write(@NonNull DataOut out) throws IOException {
+        out.writeInt(this.length);
+        this.data.getBytes(this.data.readerIndex(), out, this.length * 1);
+    }
+
+    @Override
+    public String typeName() {
+        return "Byte_Array";
+    }
+
+    @Override
+    public void release() {
+        this.data.release();
+    }
+
+    @Override
+    public Tag<?> toNormalAndRelease() {
+        return new ByteArrayTag(this.toArrayAndRelease());
+    }
+
+    @Override
+    public int id() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int hashCode() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SlicedByteArrayTag clone() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected void toString(StringBuilder builder, int depth, String name, int index) {
+        super.toString(builder, depth, name, index);
+        builder.append('[').append(this.length).append(" bytes]\n");
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.util.nbt;
+
+import io.netty.buffer.ByteBuf;
+import lombok.Getter;
+import lombok.NonNull;
+import net.daporkchop.lib.binary.stream.DataOut;
+import net.daporkchop.lib.nbt.tag.LongArrayTag;
+import net.daporkchop.lib.nbt.tag.Tag;
+
+import java.io.IOException;
+import java.nio.LongBuffer;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * A long array tag whose value is a view of the buffer the NBT data was parsed from, rather than a copy of it.
+ *
+ * @author DaPorkchop_
+ * @see SlicingNBTObjectParser
+ */
+@Getter
+public class SlicedLongArrayTag extends Tag<SlicedLongArrayTag> implements AllocatedTag {
+    /**
+     * The serialized array elements. This is a retained slice of the source buffer, which is released when this tag is released.
+     */
+    protected final ByteBuf data;
+    protected final int length;
+
+    public SlicedLongArrayTag(@NonNull ByteBuf data, int length) {
+        this.data = data;
+        this.length = length;
+    }
+
+    /**
+     * Gets the value of a single element of the array.
+     *
+     * @param index the index of the element
+     * @return the element's value
+     */
+    public long get(int index) {
+        checkIndex(index >= 0 && index < this.length, "index");
+        return this.data.getLong(this.data.readerIndex() + index * Long.BYTES);
+    }
+
+    /**
+     * Copies the array elements into the given {@code long[]}.
+     *
+     * @param dst    the {@code long[]} to copy the elements into
+     * @param dstOff the index in {@code dst} to begin copying the elements to
+     */
+    public void getLongs(@NonNull long[] dst, int dstOff) {
+        checkRangeLen(dst.length, dstOff, this.length);
+        //LongBuffer is big-endian, so this is a single bulk copy (with byte swapping where necessary)
+        this.longs().get(dst, dstOff, this.length);
+    }
+
+    /**
+     * @return a {@link LongBuffer} view of the array elements, which is only valid until this tag is released
+     */
+    public LongBuffer longs() {
+        return this.data.nioBuffer(this.data.readerIndex(), this.length * Long.BYTES).asLongBuffer();
+    }
+
+    /**
+     * Copies the array elements into a new {@code long[]}, and subsequently releases this tag.
+     *
+     * @return a {@code long[]} containing the array elements
+     */
+    public long[] toArrayAndRelease() {
+        try {
+            long[] array = new long[this.length];
+            this.getLongs(array, 0);
+            return array;
+        } finally {
+            this.data.release();
+        }
+    }
+
+    @Override
+    public void write(@NonNull DataOut out) throws IOException {
+        out.writeInt(this.length);
+        this.data.getBytes(this.data.readerIndex(), out, this.length * Long.BYTES);
+    }
+
+    @Override
+    public String typeName() {
+        return "Long_Array";
+    }
+
+    @Override
+    public void release() {
+        this.data.release();
+    }
+
+    @Override
+    public Tag<?> toNormalAndRelease() {
+        return new LongArrayTag(this.toArrayAndRelease());
+    }
+
+    @Override
+    public int id() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int hashCode() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SlicedLongArrayTag clone() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected void toString(StringBuilder builder, int depth, String name, int index) {
+        super.toString(builder, depth, name, index);
+        builder.append('[').append(this.length).append(" longs]\n");
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.util.nbt;
+
+import io.netty.buffer.ByteBuf;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import net.daporkchop.lib.binary.stream.DataIn;
+import net.daporkchop.lib.nbt.NBTOptions;
+import net.daporkchop.lib.nbt.tag.Tag;
+import net.daporkchop.lib.nbt.util.NBTObjectParser;
+
+import java.io.IOException;
+
+import static net.daporkchop.lib.nbt.tag.Tag.*;
+
+/**
+ * Implementation of {@link NBTObjectParser} which doesn't copy the contents of {@code byte[]} and {@code long[]} tags, but instead returns tags
+ * which are views of the buffer being parsed.
+ * <p>
+ * The {@link DataIn} being parsed from must read directly from the source buffer (as returned by {@link DataIn#wrap(ByteBuf, boolean)}), as the
+ * array tags are sliced from the source buffer at its current reader index. Every parsed array tag holds a reference to the source buffer, so it
+ * stays alive until all of them have been released.
+ * <p>
+ * As the source buffer differs for every chunk, instances of this class are intended to be used for parsing a single chunk.
+ *
+ * @author DaPorkchop_
+ * @see SlicedByteArrayTag
+ * @see SlicedLongArrayTag
+ */
+@RequiredArgsConstructor
+public class SlicingNBTObjectParser implements NBTObjectParser {
+    @NonNull
+    protected final NBTObjectParser delegate;
+    @NonNull
+    protected final ByteBuf source;
+
+    @Override
+    public Tag read(@NonNull DataIn in, @NonNull NBTOptions options, int id) throws IOException {
+        switch (id) {
+            case TAG_ARRAY_BYTE: {
+                int length = in.readInt();
+                return new SlicedByteArrayTag(this.source.readRetainedSlice(length), length);
+            }
+            case TAG_ARRAY_LONG: {
+                int length = in.readInt();
+                return new SlicedLongArrayTag(this.source.readRetainedSlice(length * Long.BYTES), length);
+            }
+        }
+        return this.delegate.read(in, options, id);
+    }
+}
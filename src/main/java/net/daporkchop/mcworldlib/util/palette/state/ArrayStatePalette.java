@@ -23,10 +23,28 @@ package net.daporkchop.mcworldlib.util.palette.state;
 import lombok.NonNull;
 import net.daporkchop.mcworldlib.block.BlockState;
 
+import static net.daporkchop.lib.common.util.PValidation.*;
+
 /**
  * @author DaPorkchop_
  */
 public class ArrayStatePalette implements StatePalette {
+    /**
+     * The largest capacity for which {@link #withCapacity(int)} will return a plain {@link ArrayStatePalette}. Above this, a linear scan is
+     * slower than a hash lookup.
+     */
+    public static final int LINEAR_SCAN_THRESHOLD = 16;
+
+    /**
+     * Creates a new, empty palette with the given capacity, choosing the implementation best suited to the capacity.
+     *
+     * @param capacity the maximum number of entries
+     * @return the new palette
+     */
+    public static ArrayStatePalette withCapacity(int capacity) {
+        return capacity > LINEAR_SCAN_THRESHOLD ? new HashStatePalette(capacity) : new ArrayStatePalette(capacity);
+    }
+
     protected final BlockState[] values;
     protected int nextId;
 
@@ -43,6 +61,59 @@ public class ArrayStatePalette implements StatePalette {
         }
     }
 
+    /**
+     * Adds the given block state to the end of this palette, without checking whether or not it is already present.
+     *
+     * @param state the block state to add
+     * @return the ID of the new entry
+     */
+    public int append(@NonNull BlockState state) {
+        checkState(this.nextId < this.values.length, "palette is full! (capacity: %d)", this.values.length);
+        int id = this.nextId++;
+        this.values[id] = state;
+        return id;
+    }
+
+    /**
+     * Gets the ID mapped to the given block state, without adding it if it is not present.
+     *
+     * @param state the block state
+     * @return the ID, or {@code -1} if the block state is not in this palette
+     */
+    public int indexOf(@NonNull BlockState state) {
+        for (int i = 0; i < this.nextId; i++) {
+            if (this.values[i] == state) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Replaces the block state mapped to the given ID.
+     *
+     * @param id    the ID
+     * @param state the new block state
+     */
+    public void set(int id, @NonNull BlockState state) {
+        checkIndex(id >= 0 && id < this.nextId, "id");
+        this.values[id] = state;
+    }
+
+    /**
+     * Removes the entry with the given ID, moving the last entry into its place so that the remaining IDs stay contiguous.
+     *
+     * @param id the ID of the entry to remove
+     * @return the previous ID of the entry which was moved to the given ID, or {@code -1} if the removed entry was the last one
+     */
+    public int remove(int id) {
+        checkIndex(id >= 0 && id < this.nextId, "id");
+        int last = --this.nextId;
+        this.values[id] = this.values[last];
+        this.values[last] = null;
+        return id != last ? last : -1;
+    }
+
     @Override
     public int stateToId(@NonNull BlockState state) {
         for (int i = 0; i < this.nextId; i++) {
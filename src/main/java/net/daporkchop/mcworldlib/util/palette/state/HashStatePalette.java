@@ -0,0 +1,129 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.util.palette.state;
+
+import lombok.NonNull;
+import net.daporkchop.lib.common.math.BinMath;
+import net.daporkchop.mcworldlib.block.BlockState;
+
+import java.util.Arrays;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * An {@link ArrayStatePalette} which additionally maintains an open-addressed hash index keyed by {@link BlockState#index()}, allowing states to be
+ * looked up in constant time rather than by scanning the whole palette.
+ *
+ * @author DaPorkchop_
+ */
+public class HashStatePalette extends ArrayStatePalette {
+    protected final int[] table; //palette ID + 1 of the state in each slot, 0 marks an empty slot
+    protected final int mask;
+
+    public HashStatePalette(int capacity) {
+        super(capacity);
+
+        //keep the load factor at or below 0.5
+        int tableSize = 1 << BinMath.getNumBitsNeededFor(Math.max(capacity, 1) * 2 - 1);
+        this.table = new int[tableSize];
+        this.mask = tableSize - 1;
+    }
+
+    public HashStatePalette(int capacity, @NonNull Iterable<BlockState> initialContents) {
+        this(capacity);
+
+        for (BlockState state : initialContents) {
+            this.append(state);
+        }
+    }
+
+    /**
+     * @return the ID of the given state if present, otherwise the one's complement of the empty slot where it would be inserted
+     */
+    protected int find(@NonNull BlockState state) {
+        int hash = state.index() * 0x9E3779B9;
+        for (int slot = (hash ^ (hash >>> 16)) & this.mask; ; slot = (slot + 1) & this.mask) {
+            int entry = this.table[slot];
+            if (entry == 0) {
+                return ~slot;
+            } else if (this.values[entry - 1] == state) {
+                return entry - 1;
+            }
+        }
+    }
+
+    @Override
+    public int append(@NonNull BlockState state) {
+        checkState(this.nextId < this.values.length, "palette is full! (capacity: %d)", this.values.length);
+        int id = this.nextId++;
+        this.values[id] = state;
+
+        int slot = this.find(state);
+        if (slot < 0) { //if the state is already present, lookups will continue to return the first ID, just like with a linear scan
+            this.table[~slot] = id + 1;
+        }
+        return id;
+    }
+
+    @Override
+    public int indexOf(@NonNull BlockState state) {
+        int slot = this.find(state);
+        return slot >= 0 ? slot : -1;
+    }
+
+    @Override
+    public void set(int id, @NonNull BlockState state) {
+        super.set(id, state);
+        this.rebuildIndex();
+    }
+
+    @Override
+    public int remove(int id) {
+        int moved = super.remove(id);
+        this.rebuildIndex();
+        return moved;
+    }
+
+    protected void rebuildIndex() {
+        //removing entries from an open-addressed table is messy, and this is rare enough that simply rebuilding the whole index is fine
+        Arrays.fill(this.table, 0);
+        for (int i = 0; i < this.nextId; i++) {
+            int slot = this.find(this.values[i]);
+            if (slot < 0) {
+                this.table[~slot] = i + 1;
+            }
+        }
+    }
+
+    @Override
+    public int stateToId(@NonNull BlockState state) {
+        int slot = this.find(state);
+        if (slot >= 0) {
+            return slot;
+        } else if (this.values.length > this.nextId) {
+            int id = this.nextId++;
+            this.values[id] = state;
+            this.table[~slot] = id + 1;
+            return id;
+        }
+        return -1;
+    }
+}
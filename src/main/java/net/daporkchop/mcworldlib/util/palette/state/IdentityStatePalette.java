@@ -0,0 +1,60 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.util.palette.state;
+
+import lombok.Getter;
+import lombok.NonNull;
+import net.daporkchop.mcworldlib.block.BlockState;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * A global palette which maps every block state directly to its {@link BlockState#index()}.
+ * <p>
+ * Used by flattened storages once a section contains too many distinct states for a local palette to be worthwhile.
+ *
+ * @author DaPorkchop_
+ */
+@Getter
+public final class IdentityStatePalette implements StatePalette {
+    protected final int bits;
+
+    public IdentityStatePalette(int bits) {
+        checkArg(bits > 0 && bits <= 30, "bits (%d) must be in range [1-30]", bits);
+        this.bits = bits;
+    }
+
+    @Override
+    public int stateToId(@NonNull BlockState state) {
+        int index = state.index();
+        return index < 1 << this.bits ? index : -1;
+    }
+
+    @Override
+    public BlockState idToState(int id) {
+        return id < 1 << this.bits ? BlockState.byIndex(id) : null;
+    }
+
+    @Override
+    public int size() {
+        return Math.min(BlockState.indexLimit(), 1 << this.bits);
+    }
+}
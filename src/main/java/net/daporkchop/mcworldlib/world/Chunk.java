@@ -20,6 +20,7 @@
 
 package net.daporkchop.mcworldlib.world;
 
+import lombok.NonNull;
 import net.daporkchop.lib.common.misc.refcount.RefCounted;
 import net.daporkchop.lib.math.access.IntHolderXZ;
 import net.daporkchop.lib.unsafe.util.exception.AlreadyReleasedException;
@@ -52,6 +53,20 @@ public interface Chunk extends IntHolderXZ, RefCounted {
     @Override
     int z();
 
+    /**
+     * Gets one of this chunk's heightmaps.
+     * <p>
+     * Heightmaps are stored as an array of 256 {@code int}s, indexed by {@code (z << 4) | x}. The returned array is the chunk's internal copy of the
+     * heightmap and must not be modified.
+     * <p>
+     * If the chunk's data didn't contain a heightmap which can be computed from the blocks (e.g. because it was saved before 1.13), implementations
+     * may compute it the first time it is requested.
+     *
+     * @param type the {@link HeightmapType} of the heightmap to get
+     * @return the heightmap, or {@code null} if this chunk does not have a heightmap of the given type
+     */
+    int[] heightmap(@NonNull HeightmapType type);
+
     @Override
     Chunk retain() throws AlreadyReleasedException;
 }
@@ -0,0 +1,59 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.world;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A handful of scalar values describing a chunk, which may be read without decoding the rest of the chunk.
+ *
+ * @author DaPorkchop_
+ * @see WorldStorage#chunkMetadata()
+ */
+@AllArgsConstructor
+@Getter
+@ToString
+public final class ChunkMetadata {
+    protected final int x;
+    protected final int z;
+
+    /**
+     * The data version the chunk was saved with, or {@code 0} if the chunk is older than 1.9.
+     */
+    protected final int dataVersion;
+
+    /**
+     * The world time at which the chunk was last saved.
+     */
+    protected final long lastUpdate;
+
+    /**
+     * The total number of ticks players have spent in the chunk.
+     */
+    protected final long inhabitedTime;
+
+    /**
+     * The chunk's generation status (e.g. {@code "full"}), or {@code null} if the chunk is older than 1.13.
+     */
+    protected final String status;
+}
@@ -0,0 +1,79 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.world;
+
+/**
+ * The different kinds of heightmaps that may be stored in a {@link Chunk}.
+ * <p>
+ * Every heightmap stores, for each column, the Y coordinate of the first block above the highest block matching the heightmap's criteria, or
+ * {@code 0} if there is no such block in the column.
+ *
+ * @author DaPorkchop_
+ */
+public enum HeightmapType {
+    /**
+     * The highest non-air block, as computed during world generation.
+     */
+    WORLD_SURFACE_WG,
+    /**
+     * The highest non-air block.
+     */
+    WORLD_SURFACE,
+    /**
+     * The highest block which blocks motion, as computed during world generation.
+     */
+    OCEAN_FLOOR_WG,
+    /**
+     * The highest block which blocks motion.
+     */
+    OCEAN_FLOOR,
+    /**
+     * The highest block which blocks motion or contains a fluid.
+     */
+    MOTION_BLOCKING,
+    /**
+     * The highest block which blocks motion or contains a fluid, excluding leaves.
+     */
+    MOTION_BLOCKING_NO_LEAVES,
+    /**
+     * The highest block which blocks light.
+     * <p>
+     * This is the heightmap stored by legacy (pre-1.13) chunks.
+     */
+    LIGHT_BLOCKING;
+
+    private static final HeightmapType[] VALUES = values();
+
+    /**
+     * Gets the {@link HeightmapType} with the given name, as used in the {@code Heightmaps} tag of a chunk.
+     *
+     * @param name the name of the heightmap
+     * @return the {@link HeightmapType} with the given name, or {@code null} if none could be found
+     */
+    public static HeightmapType fromName(String name) {
+        for (HeightmapType type : VALUES) {
+            if (type.name().equals(name)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
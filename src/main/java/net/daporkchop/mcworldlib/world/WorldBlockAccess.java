@@ -0,0 +1,587 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.world;
+
+import lombok.Getter;
+import lombok.NonNull;
+import net.daporkchop.lib.common.misc.refcount.AbstractRefCounted;
+import net.daporkchop.lib.unsafe.PUnsafe;
+import net.daporkchop.lib.unsafe.util.exception.AlreadyReleasedException;
+import net.daporkchop.mcworldlib.block.BlockRegistry;
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.block.access.BlockAccess;
+import net.daporkchop.mcworldlib.block.access.LightAccess;
+import net.daporkchop.mcworldlib.block.java.JavaBlockRegistry;
+import net.daporkchop.mcworldlib.format.common.nibble.NibbleArray;
+import net.daporkchop.mcworldlib.registry.Registry;
+import net.daporkchop.mcworldlib.registry.java.JavaRegistries;
+import net.daporkchop.mcworldlib.util.Identifier;
+import net.daporkchop.mcworldlib.version.java.JavaVersion;
+import net.daporkchop.mcworldlib.world.section.FlattenedSection;
+import net.daporkchop.mcworldlib.world.section.LegacySection;
+import net.daporkchop.mcworldlib.world.section.Section;
+import net.daporkchop.mcworldlib.world.storage.BlockStorage;
+import net.daporkchop.mcworldlib.world.storage.FlattenedBlockStorage;
+import net.daporkchop.mcworldlib.world.storage.LegacyBlockStorage;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Implementation of {@link BlockAccess} and {@link LightAccess} over an entire {@link World}, using world-space block coordinates.
+ * <p>
+ * Sections are loaded from the world's {@link WorldStorage} on demand, and kept in a small direct-mapped cache indexed by their section coordinates.
+ * As long as accesses are spatially coherent (which is the case for virtually all terrain generation, population and scanning code), nearly all
+ * accesses can be served from the cache without going through the storage.
+ * <p>
+ * Accessing a block in a section which does not exist will return air (or a light level of {@code 0}, or {@code 15} for sky light in worlds with
+ * sky light). Attempting to modify a block in a section which does not exist will throw {@link IllegalStateException}.
+ * <p>
+ * Modifications are applied directly to the cached {@link Section} instances. Whenever a modified section is evicted from the cache or this
+ * instance is released, the section is passed to {@link WorldStorage#saveSections(Iterable)}.
+ * <p>
+ * Instances of this class are not thread-safe.
+ *
+ * @author DaPorkchop_
+ */
+public class WorldBlockAccess extends AbstractRefCounted implements BlockAccess, LightAccess {
+    public static final int DEFAULT_CACHE_SIZE = 64;
+
+    /**
+     * The minimum number of blocks which must be read from a single section for the bulk getters to copy out the whole section at once rather than
+     * reading the blocks individually.
+     */
+    protected static final int BULK_THRESHOLD = 256;
+
+    @Getter
+    protected final World world;
+    protected final WorldStorage storage;
+    protected final boolean skyLight;
+
+    protected final int shift;
+    protected final Section[] sections;
+    protected final int[] coords;
+    protected final boolean[] valid;
+    protected final boolean[] dirty;
+
+    protected Registry legacyBlockRegistry;
+    protected BlockRegistry blockRegistry;
+
+    //scratch buffers for the bulk getters, allocated on first use
+    protected BlockState[] stateBuffer;
+    protected int[] idBuffer;
+
+    public WorldBlockAccess(@NonNull World world) {
+        this(world, DEFAULT_CACHE_SIZE);
+    }
+
+    public WorldBlockAccess(@NonNull World world, int cacheSize) {
+        checkArg(cacheSize > 0 && (cacheSize & (cacheSize - 1)) == 0, "cacheSize must be a positive power of two (given: %d)", cacheSize);
+
+        this.world = world.retain();
+        this.storage = world.storage();
+        this.skyLight = world.info().hasSkyLight();
+
+        this.shift = 32 - Integer.numberOfTrailingZeros(cacheSize);
+        this.sections = new Section[cacheSize];
+        this.coords = new int[cacheSize * 3];
+        this.valid = new boolean[cacheSize];
+        this.dirty = new boolean[cacheSize];
+    }
+
+    /**
+     * Gets the {@link Section} at the given section coordinates.
+     * <p>
+     * The returned section is owned by this cache, and must not be released by the caller.
+     *
+     * @param x the X coordinate of the section
+     * @param y the Y coordinate of the section
+     * @param z the Z coordinate of the section
+     * @return the {@link Section}, or {@code null} if the section doesn't exist
+     */
+    public Section section(int x, int y, int z) {
+        int slot = this.slot(x, y, z);
+        int base = slot * 3;
+        if (this.valid[slot] && this.coords[base] == x && this.coords[base + 1] == y && this.coords[base + 2] == z) {
+            return this.sections[slot];
+        }
+
+        this.evict(slot);
+
+        Section section;
+        try {
+            section = this.storage.loadSection(x, y, z);
+        } catch (IOException e) {
+            PUnsafe.throwException(e);
+            throw new IllegalStateException(); //unreachable
+        }
+        this.sections[slot] = section;
+        this.coords[base] = x;
+        this.coords[base + 1] = y;
+        this.coords[base + 2] = z;
+        this.valid[slot] = true;
+        return section;
+    }
+
+    protected int slot(int x, int y, int z) {
+        //the hash is shifted as a long so that a cache with a single slot (shift == 32) maps everything to slot 0, an int shift would be masked to 0
+        return (int) (((x * 0x9E3779B1 + y * 0x7FEB352D + z * 0x846CA68B) & 0xFFFFFFFFL) >>> this.shift);
+    }
+
+    protected Section sectionForWrite(int x, int y, int z) {
+        int slot = this.slot(x >> 4, y >> 4, z >> 4);
+        Section section = this.section(x >> 4, y >> 4, z >> 4);
+        checkState(section != null, "section at (%d,%d,%d) does not exist!", x >> 4, y >> 4, z >> 4);
+        this.dirty[slot] = true;
+        return section;
+    }
+
+    protected void evict(int slot) {
+        if (this.valid[slot]) {
+            Section section = this.sections[slot];
+            this.sections[slot] = null;
+            this.valid[slot] = false;
+
+            if (section != null) {
+                try {
+                    if (this.dirty[slot]) {
+                        this.storage.saveSections(Collections.singleton(section));
+                    }
+                } catch (IOException e) {
+                    PUnsafe.throwException(e);
+                } finally {
+                    this.dirty[slot] = false;
+                    section.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Evicts every section from the cache, saving all modified sections.
+     */
+    public void flush() {
+        for (int slot = 0; slot < this.sections.length; slot++) {
+            this.evict(slot);
+        }
+    }
+
+    protected Registry legacyBlockRegistry() {
+        Registry registry = this.legacyBlockRegistry;
+        if (registry == null) {
+            checkState(this.world.version() instanceof JavaVersion, "legacy block IDs are only supported for Java edition worlds!");
+            this.legacyBlockRegistry = registry = JavaRegistries.forVersion((JavaVersion) this.world.version()).get(Identifier.fromString("minecraft:block"));
+        }
+        return registry;
+    }
+
+    protected BlockRegistry blockRegistry() {
+        BlockRegistry registry = this.blockRegistry;
+        if (registry == null) {
+            checkState(this.world.version() instanceof JavaVersion, "runtime IDs are only supported for Java edition worlds!");
+            this.blockRegistry = registry = JavaBlockRegistry.forVersion((JavaVersion) this.world.version());
+        }
+        return registry;
+    }
+
+    @Override
+    public WorldBlockAccess retain() throws AlreadyReleasedException {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    protected void doRelease() {
+        try {
+            this.flush();
+        } finally {
+            this.world.release();
+        }
+    }
+
+    //
+    //
+    // bulk getters
+    //
+    //
+
+    /**
+     * Gets the {@link BlockState}s of every block in the given box.
+     * <p>
+     * The values are written to the destination array in XYZ order, so the block at {@code (x + dx, y + dy, z + dz)} is stored at index
+     * {@code (dx * sizeY + dy) * sizeZ + dz}.
+     *
+     * @param x     the minimum X coordinate of the box
+     * @param y     the minimum Y coordinate of the box
+     * @param z     the minimum Z coordinate of the box
+     * @param sizeX the size of the box along the X axis
+     * @param sizeY the size of the box along the Y axis
+     * @param sizeZ the size of the box along the Z axis
+     * @param dst   the array to write the {@link BlockState}s to
+     */
+    public void getBlockStates(int x, int y, int z, int sizeX, int sizeY, int sizeZ, @NonNull BlockState[] dst) {
+        this.forEachSection(x, y, z, sizeX, sizeY, sizeZ, dst.length, (section, minX, minY, minZ, maxX, maxY, maxZ, baseX, baseY, baseZ) -> {
+            if (section instanceof FlattenedSection) {
+                FlattenedBlockStorage storage = ((FlattenedSection) section).blockStorage();
+                if ((maxX - minX) * (maxY - minY) * (maxZ - minZ) >= BULK_THRESHOLD) { //read the whole section at once
+                    BlockState[] states = this.stateBuffer;
+                    if (states == null) {
+                        this.stateBuffer = states = new BlockState[BlockStorage.NUM_BLOCKS];
+                    }
+                    storage.getBlockStates(states, 0);
+                    for (int bx = minX; bx < maxX; bx++) {
+                        for (int by = minY; by < maxY; by++) {
+                            for (int bz = minZ, i = ((bx - baseX) * sizeY + by - baseY) * sizeZ + bz - baseZ; bz < maxZ; bz++, i++) {
+                                dst[i] = states[((by & 0xF) << 8) | ((bz & 0xF) << 4) | (bx & 0xF)];
+                            }
+                        }
+                    }
+                } else {
+                    for (int bx = minX; bx < maxX; bx++) {
+                        for (int by = minY; by < maxY; by++) {
+                            for (int bz = minZ, i = ((bx - baseX) * sizeY + by - baseY) * sizeZ + bz - baseZ; bz < maxZ; bz++, i++) {
+                                dst[i] = storage.getBlockState(bx & 0xF, by & 0xF, bz & 0xF);
+                            }
+                        }
+                    }
+                }
+            } else if (section == null) {
+                for (int bx = minX; bx < maxX; bx++) {
+                    for (int by = minY; by < maxY; by++) {
+                        int i = ((bx - baseX) * sizeY + by - baseY) * sizeZ + minZ - baseZ;
+                        Arrays.fill(dst, i, i + maxZ - minZ, BlockState.AIR);
+                    }
+                }
+            } else {
+                throw new UnsupportedOperationException("legacy section");
+            }
+        });
+    }
+
+    /**
+     * Gets the legacy IDs and metadata of every block in the given box, combined as if by {@link LegacySection#getCombinedIdMeta(int, int, int)}.
+     * <p>
+     * The values are written to the destination array in the same order as by {@link #getBlockStates(int, int, int, int, int, int, BlockState[])}.
+     *
+     * @param x     the minimum X coordinate of the box
+     * @param y     the minimum Y coordinate of the box
+     * @param z     the minimum Z coordinate of the box
+     * @param sizeX the size of the box along the X axis
+     * @param sizeY the size of the box along the Y axis
+     * @param sizeZ the size of the box along the Z axis
+     * @param dst   the array to write the combined IDs to
+     */
+    public void getCombinedIdMetas(int x, int y, int z, int sizeX, int sizeY, int sizeZ, @NonNull int[] dst) {
+        this.forEachSection(x, y, z, sizeX, sizeY, sizeZ, dst.length, (section, minX, minY, minZ, maxX, maxY, maxZ, baseX, baseY, baseZ) -> {
+            if (section instanceof LegacySection) {
+                LegacyBlockStorage storage = ((LegacySection) section).blockStorage();
+                if ((maxX - minX) * (maxY - minY) * (maxZ - minZ) >= BULK_THRESHOLD) { //read the whole section at once
+                    int[] ids = this.idBuffer;
+                    if (ids == null) {
+                        this.idBuffer = ids = new int[BlockStorage.NUM_BLOCKS];
+                    }
+                    storage.getCombinedIdMetas(ids, 0);
+                    for (int bx = minX; bx < maxX; bx++) {
+                        for (int by = minY; by < maxY; by++) {
+                            for (int bz = minZ, i = ((bx - baseX) * sizeY + by - baseY) * sizeZ + bz - baseZ; bz < maxZ; bz++, i++) {
+                                dst[i] = ids[((by & 0xF) << 8) | ((bz & 0xF) << 4) | (bx & 0xF)];
+                            }
+                        }
+                    }
+                } else {
+                    for (int bx = minX; bx < maxX; bx++) {
+                        for (int by = minY; by < maxY; by++) {
+                            for (int bz = minZ, i = ((bx - baseX) * sizeY + by - baseY) * sizeZ + bz - baseZ; bz < maxZ; bz++, i++) {
+                                dst[i] = storage.getCombinedIdMeta(bx & 0xF, by & 0xF, bz & 0xF);
+                            }
+                        }
+                    }
+                }
+            } else if (section == null) {
+                for (int bx = minX; bx < maxX; bx++) {
+                    for (int by = minY; by < maxY; by++) {
+                        int i = ((bx - baseX) * sizeY + by - baseY) * sizeZ + minZ - baseZ;
+                        Arrays.fill(dst, i, i + maxZ - minZ, 0);
+                    }
+                }
+            } else {
+                throw new UnsupportedOperationException("flattened section");
+            }
+        });
+    }
+
+    /**
+     * Gets the block light levels of every block in the given box.
+     * <p>
+     * The values are written to the destination array in the same order as by {@link #getBlockStates(int, int, int, int, int, int, BlockState[])}.
+     *
+     * @param x     the minimum X coordinate of the box
+     * @param y     the minimum Y coordinate of the box
+     * @param z     the minimum Z coordinate of the box
+     * @param sizeX the size of the box along the X axis
+     * @param sizeY the size of the box along the Y axis
+     * @param sizeZ the size of the box along the Z axis
+     * @param dst   the array to write the light levels to
+     */
+    public void getBlockLight(int x, int y, int z, int sizeX, int sizeY, int sizeZ, @NonNull byte[] dst) {
+        this.getLight(x, y, z, sizeX, sizeY, sizeZ, dst, false);
+    }
+
+    /**
+     * Gets the sky light levels of every block in the given box.
+     * <p>
+     * The values are written to the destination array in the same order as by {@link #getBlockStates(int, int, int, int, int, int, BlockState[])}.
+     *
+     * @param x     the minimum X coordinate of the box
+     * @param y     the minimum Y coordinate of the box
+     * @param z     the minimum Z coordinate of the box
+     * @param sizeX the size of the box along the X axis
+     * @param sizeY the size of the box along the Y axis
+     * @param sizeZ the size of the box along the Z axis
+     * @param dst   the array to write the light levels to
+     */
+    public void getSkyLight(int x, int y, int z, int sizeX, int sizeY, int sizeZ, @NonNull byte[] dst) {
+        this.getLight(x, y, z, sizeX, sizeY, sizeZ, dst, true);
+    }
+
+    protected void getLight(int x, int y, int z, int sizeX, int sizeY, int sizeZ, @NonNull byte[] dst, boolean sky) {
+        this.forEachSection(x, y, z, sizeX, sizeY, sizeZ, dst.length, (section, minX, minY, minZ, maxX, maxY, maxZ, baseX, baseY, baseZ) -> {
+            NibbleArray light = section == null ? null : sky ? section.skyLightStorage() : section.blockLightStorage();
+            if (light == null) { //missing sections are fully lit by the sky, but sections without sky light storage are dark
+                byte value = (byte) (sky && this.skyLight && section == null ? 15 : 0);
+                for (int bx = minX; bx < maxX; bx++) {
+                    for (int by = minY; by < maxY; by++) {
+                        int i = ((bx - baseX) * sizeY + by - baseY) * sizeZ + minZ - baseZ;
+                        Arrays.fill(dst, i, i + maxZ - minZ, value);
+                    }
+                }
+            } else {
+                for (int bx = minX; bx < maxX; bx++) {
+                    for (int by = minY; by < maxY; by++) {
+                        for (int bz = minZ, i = ((bx - baseX) * sizeY + by - baseY) * sizeZ + bz - baseZ; bz < maxZ; bz++, i++) {
+                            dst[i] = (byte) light.get(bx & 0xF, by & 0xF, bz & 0xF);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Invokes the given callback once for every section which intersects the given box, so that each section only needs to be looked up once.
+     */
+    protected void forEachSection(int x, int y, int z, int sizeX, int sizeY, int sizeZ, int dstLength, @NonNull SectionCallback callback) {
+        checkArg(sizeX >= 0 && sizeY >= 0 && sizeZ >= 0, "invalid box size: (%d,%d,%d)", sizeX, sizeY, sizeZ);
+        checkArg((long) sizeX * sizeY * sizeZ <= dstLength, "destination array is too small! (required: %d, given: %d)", (long) sizeX * sizeY * sizeZ, dstLength);
+
+        if (sizeX == 0 || sizeY == 0 || sizeZ == 0) {
+            return;
+        }
+
+        int maxX = x + sizeX;
+        int maxY = y + sizeY;
+        int maxZ = z + sizeZ;
+        for (int sx = x >> 4; (sx << 4) < maxX; sx++) {
+            for (int sy = y >> 4; (sy << 4) < maxY; sy++) {
+                for (int sz = z >> 4; (sz << 4) < maxZ; sz++) {
+                    callback.accept(this.section(sx, sy, sz),
+                            Math.max(x, sx << 4), Math.max(y, sy << 4), Math.max(z, sz << 4),
+                            Math.min(maxX, (sx + 1) << 4), Math.min(maxY, (sy + 1) << 4), Math.min(maxZ, (sz + 1) << 4),
+                            x, y, z);
+                }
+            }
+        }
+    }
+
+    //
+    //
+    // BlockAccess methods
+    //
+    //
+
+    @Override
+    public BlockState getBlockState(int x, int y, int z) {
+        Section section = this.section(x >> 4, y >> 4, z >> 4);
+        if (section instanceof FlattenedSection) {
+            return ((FlattenedSection) section).getBlockState(x & 0xF, y & 0xF, z & 0xF);
+        } else if (section == null) {
+            return BlockState.AIR;
+        } else {
+            throw new UnsupportedOperationException("legacy section");
+        }
+    }
+
+    @Override
+    public Identifier getBlockId(int x, int y, int z) {
+        Section section = this.section(x >> 4, y >> 4, z >> 4);
+        if (section instanceof FlattenedSection) {
+            return ((FlattenedSection) section).getBlockState(x & 0xF, y & 0xF, z & 0xF).id();
+        } else if (section instanceof LegacySection) {
+            return this.legacyBlockRegistry().get(((LegacySection) section).getBlockLegacyId(x & 0xF, y & 0xF, z & 0xF));
+        } else {
+            return BlockState.AIR.id();
+        }
+    }
+
+    @Override
+    public int getBlockLegacyId(int x, int y, int z) {
+        Section section = this.section(x >> 4, y >> 4, z >> 4);
+        if (section instanceof LegacySection) {
+            return ((LegacySection) section).getBlockLegacyId(x & 0xF, y & 0xF, z & 0xF);
+        } else if (section == null) {
+            return 0;
+        } else {
+            throw new UnsupportedOperationException("flattened section");
+        }
+    }
+
+    @Override
+    public int getBlockMeta(int x, int y, int z) {
+        Section section = this.section(x >> 4, y >> 4, z >> 4);
+        if (section instanceof LegacySection) {
+            return ((LegacySection) section).getBlockMeta(x & 0xF, y & 0xF, z & 0xF);
+        } else if (section == null) {
+            return 0;
+        } else {
+            throw new UnsupportedOperationException("flattened section");
+        }
+    }
+
+    @Override
+    public int getBlockRuntimeId(int x, int y, int z) {
+        Section section = this.section(x >> 4, y >> 4, z >> 4);
+        if (section instanceof FlattenedSection) {
+            return this.blockRegistry().stateToId(((FlattenedSection) section).getBlockState(x & 0xF, y & 0xF, z & 0xF));
+        } else if (section == null) {
+            return this.blockRegistry().stateToId(BlockState.AIR);
+        } else {
+            throw new UnsupportedOperationException("legacy section");
+        }
+    }
+
+    @Override
+    public void setBlockState(int x, int y, int z, @NonNull BlockState state) {
+        Section section = this.sectionForWrite(x, y, z);
+        if (section instanceof FlattenedSection) {
+            ((FlattenedSection) section).setBlockState(x & 0xF, y & 0xF, z & 0xF, state);
+        } else {
+            throw new UnsupportedOperationException("legacy section");
+        }
+    }
+
+    @Override
+    public void setBlockState(int x, int y, int z, @NonNull Identifier id, int meta) {
+        Section section = this.sectionForWrite(x, y, z);
+        if (section instanceof LegacySection) {
+            ((LegacySection) section).setBlockState(x & 0xF, y & 0xF, z & 0xF, this.legacyBlockRegistry().get(id), meta);
+        } else {
+            throw new UnsupportedOperationException("flattened section");
+        }
+    }
+
+    @Override
+    public void setBlockState(int x, int y, int z, int legacyId, int meta) {
+        Section section = this.sectionForWrite(x, y, z);
+        if (section instanceof LegacySection) {
+            ((LegacySection) section).setBlockState(x & 0xF, y & 0xF, z & 0xF, legacyId, meta);
+        } else {
+            throw new UnsupportedOperationException("flattened section");
+        }
+    }
+
+    @Override
+    public void setBlockId(int x, int y, int z, @NonNull Identifier id) {
+        Section section = this.sectionForWrite(x, y, z);
+        if (section instanceof FlattenedSection) {
+            ((FlattenedSection) section).setBlockState(x & 0xF, y & 0xF, z & 0xF, BlockState.of(id, Collections.emptyMap()));
+        } else if (section instanceof LegacySection) {
+            ((LegacySection) section).setBlockLegacyId(x & 0xF, y & 0xF, z & 0xF, this.legacyBlockRegistry().get(id));
+        } else {
+            throw new UnsupportedOperationException(section.getClass().getCanonicalName());
+        }
+    }
+
+    @Override
+    public void setBlockLegacyId(int x, int y, int z, int legacyId) {
+        Section section = this.sectionForWrite(x, y, z);
+        if (section instanceof LegacySection) {
+            ((LegacySection) section).setBlockLegacyId(x & 0xF, y & 0xF, z & 0xF, legacyId);
+        } else {
+            throw new UnsupportedOperationException("flattened section");
+        }
+    }
+
+    @Override
+    public void setBlockMeta(int x, int y, int z, int meta) {
+        Section section = this.sectionForWrite(x, y, z);
+        if (section instanceof LegacySection) {
+            ((LegacySection) section).setBlockMeta(x & 0xF, y & 0xF, z & 0xF, meta);
+        } else {
+            throw new UnsupportedOperationException("flattened section");
+        }
+    }
+
+    @Override
+    public void setBlockRuntimeId(int x, int y, int z, int runtimeId) {
+        this.setBlockState(x, y, z, this.blockRegistry().idToState(runtimeId));
+    }
+
+    //
+    //
+    // LightAccess methods
+    //
+    //
+
+    @Override
+    public boolean hasSkyLight() {
+        return this.skyLight;
+    }
+
+    @Override
+    public int getBlockLight(int x, int y, int z) {
+        Section section = this.section(x >> 4, y >> 4, z >> 4);
+        return section != null ? section.getBlockLight(x & 0xF, y & 0xF, z & 0xF) : 0;
+    }
+
+    @Override
+    public int getSkyLight(int x, int y, int z) {
+        Section section = this.section(x >> 4, y >> 4, z >> 4);
+        return section != null ? section.getSkyLight(x & 0xF, y & 0xF, z & 0xF) : this.skyLight ? 15 : 0;
+    }
+
+    @Override
+    public void setBlockLight(int x, int y, int z, int level) {
+        this.sectionForWrite(x, y, z).setBlockLight(x & 0xF, y & 0xF, z & 0xF, level);
+    }
+
+    @Override
+    public void setSkyLight(int x, int y, int z, int level) {
+        this.sectionForWrite(x, y, z).setSkyLight(x & 0xF, y & 0xF, z & 0xF, level);
+    }
+
+    @FunctionalInterface
+    protected interface SectionCallback {
+        void accept(Section section, int minX, int minY, int minZ, int maxX, int maxY, int maxZ, int baseX, int baseY, int baseZ);
+    }
+}
@@ -23,12 +23,18 @@ package net.daporkchop.mcworldlib.world;
 import lombok.NonNull;
 import net.daporkchop.lib.common.misc.refcount.RefCounted;
 import net.daporkchop.lib.concurrent.PFuture;
+import net.daporkchop.lib.nbt.tag.CompoundTag;
 import net.daporkchop.lib.unsafe.util.exception.AlreadyReleasedException;
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.util.concurrent.IOScheduler;
+import net.daporkchop.mcworldlib.world.query.BlockSearch;
 import net.daporkchop.mcworldlib.world.section.Section;
 
 import java.io.IOException;
 import java.util.Collections;
 import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Interface for loading/saving chunks/sections.
@@ -205,12 +211,47 @@ public interface WorldStorage extends RefCounted {
      */
     PFuture<Void> flushAsync();
 
+    /**
+     * Preloads all of the chunks in the given area into this storage's cache in the background, with the given {@link IOScheduler} priority.
+     *
+     * @see #preload(int, int, int, int, int, PreloadListener)
+     */
+    default PFuture<Long> preload(int minX, int minZ, int maxX, int maxZ, int priority) {
+        return this.preload(minX, minZ, maxX, maxZ, priority, null);
+    }
+
+    /**
+     * Preloads all of the chunks in the given area into this storage's cache in the background.
+     * <p>
+     * This is intended for warming up the cache before a known area is going to be accessed heavily. Region reads are scheduled on the
+     * {@link IOScheduler} with the given priority, so a low priority (such as {@link IOScheduler#PRIORITY_BACKGROUND}) will prevent preloading from
+     * delaying ordinary loads. Chunks which are already cached are not loaded again, but are marked as recently used so that preloading the rest of
+     * the area doesn't evict them.
+     * <p>
+     * Preloading respects the storage's cache capacity (e.g. {@code AnvilSaveOptions.CHUNK_CACHE_SIZE}): if the area contains more chunks than the
+     * cache can hold, only as many chunks as will fit alongside the ones which are already cached are preloaded.
+     * <p>
+     * The returned {@link PFuture} may be cancelled, in which case any chunks which have not yet been read will be skipped.
+     * <p>
+     * Implementations which do not cache chunks may return an already completed {@link PFuture}.
+     *
+     * @param minX     the minimum X coordinate of the area (inclusive, in chunks)
+     * @param minZ     the minimum Z coordinate of the area (inclusive, in chunks)
+     * @param maxX     the maximum X coordinate of the area (inclusive, in chunks)
+     * @param maxZ     the maximum Z coordinate of the area (inclusive, in chunks)
+     * @param priority the {@link IOScheduler} priority to read regions with
+     * @param listener a {@link PreloadListener} which will be notified of progress. May be {@code null}
+     * @return a {@link PFuture} which will be completed with the number of chunks that were loaded once preloading is complete
+     */
+    PFuture<Long> preload(int minX, int minZ, int maxX, int maxZ, int priority, PreloadListener listener);
+
     /**
      * Gets a {@link Spliterator} over all the {@link Chunk}s in the world.
      * <p>
      * The order in which {@link Chunk}s are returned is up to the implementation, which may choose any order most efficient for parallel iteration.
      * <p>
-     * Note that all of the {@link Chunk}s returned by the {@link Spliterator} will have been newly loaded from disk, and must be released manually.
+     * Note that all of the {@link Chunk}s returned by the {@link Spliterator} will have been newly loaded from disk, and are released as soon as the
+     * callback function returns. They must be retained manually in order to be used any longer.
      *
      * @return a {@link Spliterator} over all the {@link Chunk}s in the world
      */
@@ -221,12 +262,79 @@ public interface WorldStorage extends RefCounted {
      * <p>
      * The order in which {@link Section}s are returned is up to the implementation, which may choose any order most efficient for parallel iteration.
      * <p>
-     * Note that all of the {@link Section}s returned by the {@link Spliterator} will have been newly loaded from disk, and must be released manually.
+     * Note that all of the {@link Section}s returned by the {@link Spliterator} will have been newly loaded from disk, and are released as soon as the
+     * callback function returns. They must be retained manually in order to be used any longer.
      *
      * @return a {@link Spliterator} over all the {@link Section}s in the world
      */
     Spliterator<Section> allSections() throws IOException;
 
+    /**
+     * Gets a {@link Spliterator} over the NBT data of all the entities in the world.
+     * <p>
+     * This is significantly faster than iterating over {@link #allSections()}, as implementations will avoid decoding any block or light data.
+     * <p>
+     * The order in which entities are returned is up to the implementation, which may choose any order most efficient for parallel iteration.
+     *
+     * @return a {@link Spliterator} over all the entities in the world
+     */
+    Spliterator<CompoundTag> allEntities() throws IOException;
+
+    /**
+     * Gets a {@link Spliterator} over the NBT data of all the tile entities in the world.
+     * <p>
+     * This is significantly faster than iterating over {@link #allSections()}, as implementations will avoid decoding any block or light data.
+     * <p>
+     * The order in which tile entities are returned is up to the implementation, which may choose any order most efficient for parallel iteration.
+     *
+     * @return a {@link Spliterator} over all the tile entities in the world
+     */
+    Spliterator<CompoundTag> allTileEntities() throws IOException;
+
+    /**
+     * Gets a {@link Spliterator} over the {@link ChunkMetadata} of all the chunks in the world.
+     * <p>
+     * This is significantly faster than iterating over {@link #allChunks()}, as implementations will only read the few values needed and skip
+     * over everything else.
+     * <p>
+     * The order in which chunks are returned is up to the implementation, which may choose any order most efficient for parallel iteration.
+     *
+     * @return a {@link Spliterator} over the metadata of all the chunks in the world
+     */
+    Spliterator<ChunkMetadata> chunkMetadata() throws IOException;
+
+    /**
+     * Searches every section in the world for blocks matching the given predicate.
+     * <p>
+     * Sections are searched in parallel, and sections whose palette contains no matching states are skipped without looking at their block data.
+     * The callback function may be invoked concurrently from multiple threads.
+     *
+     * @param predicate the predicate which matching blocks' states must satisfy
+     * @param action    the callback function to run for every section containing at least one matching block
+     * @see BlockSearch
+     */
+    default void searchBlocks(@NonNull Predicate<BlockState> predicate, @NonNull Consumer<BlockSearch.Match> action) throws IOException {
+        new BlockSearch(predicate).search(this, action);
+    }
+
     @Override
     WorldStorage retain() throws AlreadyReleasedException;
+
+    /**
+     * Receives progress updates from {@link #preload(int, int, int, int, int, PreloadListener)}.
+     * <p>
+     * Implementations must be thread-safe, as progress may be reported from multiple threads at once.
+     *
+     * @author DaPorkchop_
+     */
+    @FunctionalInterface
+    interface PreloadListener {
+        /**
+         * Called every time a chunk has been processed.
+         *
+         * @param processed the number of chunks which have been processed so far
+         * @param total     the total number of chunks which will be processed
+         */
+        void progress(long processed, long total);
+    }
 }
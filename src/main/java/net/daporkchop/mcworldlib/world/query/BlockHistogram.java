@@ -0,0 +1,278 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.world.query;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NonNull;
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.format.java.convert.LegacySectionConverter;
+import net.daporkchop.mcworldlib.util.palette.state.StatePalette;
+import net.daporkchop.mcworldlib.world.WorldStorage;
+import net.daporkchop.mcworldlib.world.section.FlattenedSection;
+import net.daporkchop.mcworldlib.world.section.LegacySection;
+import net.daporkchop.mcworldlib.world.section.Section;
+import net.daporkchop.mcworldlib.world.storage.BlockStorage;
+import net.daporkchop.mcworldlib.world.storage.FlattenedBlockStorage;
+import net.daporkchop.mcworldlib.world.storage.LegacyBlockStorage;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.stream.StreamSupport;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Counts the number of blocks with each {@link BlockState}, optionally bucketed by Y coordinate.
+ * <p>
+ * Sections are counted using {@link FlattenedBlockStorage#histogram(int[])} or {@link LegacyBlockStorage#histogram(int[])}, so states are only resolved
+ * once per distinct palette entry (or combined ID) in each section rather than once per block.
+ * <p>
+ * This class is thread-safe, sections may be added concurrently from multiple threads.
+ *
+ * @author DaPorkchop_
+ */
+public final class BlockHistogram {
+    /**
+     * Maps combined IDs to counts for legacy sections. Entries are reset after each use.
+     */
+    private static final ThreadLocal<int[]> LEGACY_COUNTS = ThreadLocal.withInitial(() -> new int[1 << 16]);
+
+    /**
+     * Counts the blocks in every section of the given world in parallel.
+     *
+     * @param storage   the {@link WorldStorage} of the world
+     * @param bucketing how to bucket the counts by Y coordinate
+     * @return the histogram
+     */
+    public static BlockHistogram compute(@NonNull WorldStorage storage, @NonNull Bucketing bucketing) throws IOException {
+        BlockHistogram histogram = new BlockHistogram(bucketing);
+        //the spliterator releases each section once it has been counted
+        StreamSupport.stream(storage.allSections(), true).forEach(histogram::add);
+        return histogram;
+    }
+
+    @Getter
+    protected final Bucketing bucketing;
+    protected final Map<BlockState, LongAdder[]> counts = new ConcurrentHashMap<>();
+
+    public BlockHistogram(@NonNull Bucketing bucketing) {
+        this.bucketing = bucketing;
+    }
+
+    /**
+     * @return the number of buckets
+     */
+    public int buckets() {
+        return this.bucketing.buckets;
+    }
+
+    /**
+     * Adds the blocks in the given section to this histogram.
+     *
+     * @param section the section
+     */
+    public void add(@NonNull Section section) {
+        int sectionY = section.y();
+        if (this.bucketing != Bucketing.NONE) {
+            checkArg(sectionY >= 0 && sectionY < 16, "section Y coordinate (%d) must be in range [0-16) when bucketing by Y", sectionY);
+        }
+
+        if (section instanceof FlattenedSection) {
+            FlattenedBlockStorage storage = ((FlattenedSection) section).blockStorage();
+            StatePalette palette = storage.internal().palette();
+            if (this.bucketing == Bucketing.BLOCK) {
+                int[] ids = new int[BlockStorage.NUM_BLOCKS];
+                storage.getPaletteIds(ids, 0);
+                this.addLayers(ids, new int[palette.size()], palette::idToState, sectionY);
+            } else {
+                int[] counts = new int[palette.size()];
+                storage.histogram(counts);
+                int bucket = this.bucketing == Bucketing.SECTION ? sectionY : 0;
+                for (int id = 0; id < counts.length; id++) {
+                    if (counts[id] != 0) {
+                        this.add(palette.idToState(id), bucket, counts[id]);
+                    }
+                }
+            }
+        } else if (section instanceof LegacySection) {
+            LegacyBlockStorage storage = ((LegacySection) section).blockStorage();
+            if (this.bucketing == Bucketing.BLOCK) {
+                int[] ids = new int[BlockStorage.NUM_BLOCKS];
+                storage.getCombinedIdMetas(ids, 0);
+                this.addLayers(ids, LEGACY_COUNTS.get(), LegacySectionConverter::convertState, sectionY);
+            } else {
+                int[] counts = LEGACY_COUNTS.get();
+                int bucket = this.bucketing == Bucketing.SECTION ? sectionY : 0;
+                try {
+                    storage.histogram(counts);
+                    for (int id = 0, count; id < counts.length; id++) {
+                        if ((count = counts[id]) != 0) {
+                            counts[id] = 0;
+                            this.add(LegacySectionConverter.convertState(id), bucket, count);
+                        }
+                    }
+                } catch (Throwable t) { //make sure the shared array is left zeroed
+                    Arrays.fill(counts, 0);
+                    throw t;
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("unsupported section type: " + section.getClass());
+        }
+    }
+
+    protected void addLayers(@NonNull int[] ids, @NonNull int[] scratch, @NonNull IntFunction<BlockState> resolver, int sectionY) {
+        for (int layer = 0; layer < 16; layer++) {
+            this.addRange(ids, layer << 8, (layer + 1) << 8, scratch, resolver, (sectionY << 4) | layer);
+        }
+    }
+
+    /**
+     * Counts the IDs in the given range, and adds them to the given bucket.
+     *
+     * @param scratch an array of zeroes, which is large enough to be indexed by every ID. It will be zeroed again before this method returns
+     */
+    protected void addRange(@NonNull int[] ids, int from, int to, @NonNull int[] scratch, @NonNull IntFunction<BlockState> resolver, int bucket) {
+        int[] touched = new int[to - from];
+        int size = 0;
+        try {
+            for (int i = from; i < to; i++) {
+                int id = ids[i];
+                if (scratch[id]++ == 0) {
+                    touched[size++] = id;
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                int id = touched[i];
+                this.add(resolver.apply(id), bucket, scratch[id]);
+            }
+        } finally {
+            for (int i = 0; i < size; i++) {
+                scratch[touched[i]] = 0;
+            }
+        }
+    }
+
+    protected void add(@NonNull BlockState state, int bucket, long count) {
+        LongAdder[] adders = this.counts.get(state);
+        if (adders == null) {
+            LongAdder[] newAdders = new LongAdder[this.bucketing.buckets];
+            for (int i = 0; i < newAdders.length; i++) {
+                newAdders[i] = new LongAdder();
+            }
+            if ((adders = this.counts.putIfAbsent(state, newAdders)) == null) {
+                adders = newAdders;
+            }
+        }
+        adders[bucket].add(count);
+    }
+
+    /**
+     * Adds all of the counts from the given histogram to this histogram.
+     *
+     * @param other the histogram to merge into this one. Must use the same {@link Bucketing}
+     */
+    public void merge(@NonNull BlockHistogram other) {
+        checkArg(this.bucketing == other.bucketing, "cannot merge histograms with different bucketing (%s != %s)", this.bucketing, other.bucketing);
+        other.counts.forEach((state, adders) -> {
+            for (int bucket = 0; bucket < adders.length; bucket++) {
+                long count = adders[bucket].sum();
+                if (count != 0L) {
+                    this.add(state, bucket, count);
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets the total number of blocks with the given state.
+     *
+     * @param state the state
+     * @return the number of blocks
+     */
+    public long count(@NonNull BlockState state) {
+        LongAdder[] adders = this.counts.get(state);
+        long count = 0L;
+        if (adders != null) {
+            for (LongAdder adder : adders) {
+                count += adder.sum();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of blocks with the given state in the given bucket.
+     *
+     * @param state  the state
+     * @param bucket the bucket. For {@link Bucketing#SECTION} this is the section Y coordinate, for {@link Bucketing#BLOCK} it's the block Y coordinate
+     * @return the number of blocks
+     */
+    public long count(@NonNull BlockState state, int bucket) {
+        checkIndex(bucket >= 0 && bucket < this.bucketing.buckets, "bucket");
+        LongAdder[] adders = this.counts.get(state);
+        return adders != null ? adders[bucket].sum() : 0L;
+    }
+
+    /**
+     * @return a snapshot of this histogram's counts, mapping each state to its count in each bucket
+     */
+    public Map<BlockState, long[]> toMap() {
+        Map<BlockState, long[]> map = new HashMap<>();
+        this.counts.forEach((state, adders) -> {
+            long[] counts = new long[adders.length];
+            for (int bucket = 0; bucket < adders.length; bucket++) {
+                counts[bucket] = adders[bucket].sum();
+            }
+            map.put(state, counts);
+        });
+        return map;
+    }
+
+    /**
+     * The ways in which block counts may be bucketed by Y coordinate.
+     *
+     * @author DaPorkchop_
+     */
+    @AllArgsConstructor
+    public enum Bucketing {
+        /**
+         * All blocks are counted in a single bucket.
+         */
+        NONE(1),
+        /**
+         * Blocks are bucketed by the Y coordinate of their section.
+         */
+        SECTION(16),
+        /**
+         * Blocks are bucketed by their own Y coordinate.
+         */
+        BLOCK(256);
+
+        protected final int buckets;
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package net.daporkchop.mcworldlib.world.query;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NonNull;
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.format.java.convert.LegacySectionConverter;
+import net.daporkchop.mcworldlib.util.Identifier;
+import net.daporkchop.mcworldlib.util.palette.state.StatePalette;
+import net.daporkchop.mcworldlib.world.WorldStorage;
+import net.daporkchop.mcworldlib.world.section.FlattenedSection;
+import net.daporkchop.mcworldlib.world.section.LegacySection;
+import net.daporkchop.mcworldlib.world.section.Section;
+import net.daporkchop.mcworldlib.world.storage.BlockStorage;
+import net.daporkchop.mcworldlib.world.storage.FlattenedBlockStorage;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.StreamSupport;
+
+/**
+ * Finds blocks matching a {@link BlockState} predicate.
+ * <p>
+ * The predicate is evaluated once per palette entry rather than once per block: sections whose palette contains no matching state are skipped
+ * without looking at their block data, and the block data of the remaining sections is only compared against a precomputed mask of matching
+ * palette IDs. Legacy sections don't have a palette, so the predicate is evaluated once for every known combined ID instead.
+ * <p>
+ * This class is thread-safe, assuming that the predicate is.
+ *
+ * @author DaPorkchop_
+ */
+public final class BlockSearch {
+    /**
+     * Creates a search for a single {@link BlockState}.
+     *
+     * @param state the state to search for
+     * @return the search
+     */
+    public static BlockSearch forState(@NonNull BlockState state) {
+        return new BlockSearch(state::equals);
+    }
+
+    /**
+     * Creates a search for every state of a block.
+     *
+     * @param block the block to search for
+     * @return the search
+     */
+    public static BlockSearch forBlock(@NonNull Identifier block) {
+        return new BlockSearch(state -> block.equals(state.id()));
+    }
+
+    @Getter
+    protected final Predicate<BlockState> predicate;
+
+    protected volatile BitSet legacyMatches; //lazily computed, indexed by combined ID
+
+    public BlockSearch(@NonNull Predicate<BlockState> predicate) {
+        this.predicate = predicate;
+    }
+
+    /**
+     * Checks whether or not the given section may contain any matching blocks, without looking at its block data.
+     * <p>
+     * This is exact for flattened sections (barring palette entries which aren't used by any block). Legacy sections have no palette, so they may
+     * only be ruled out if no legacy state matches at all.
+     *
+     * @param section the section
+     * @return whether or not the section may contain any matching blocks
+     */
+    public boolean mayMatch(@NonNull Section section) {
+        return section instanceof FlattenedSection
+               ? this.paletteMask(((FlattenedSection) section).blockStorage().internal().palette()) != null
+               : !this.legacyMatches().isEmpty();
+    }
+
+    /**
+     * Finds all matching blocks in the given section.
+     *
+     * @param section the section to search
+     * @return the indices ({@code (y << 8) | (z << 4) | x}) of all matching blocks, or {@code null} if there are none
+     */
+    public BitSet search(@NonNull Section section) {
+        int[] ids = new int[BlockStorage.NUM_BLOCKS];
+        boolean[] mask;
+        if (section instanceof FlattenedSection) {
+            FlattenedBlockStorage storage = ((FlattenedSection) section).blockStorage();
+            if ((mask = this.paletteMask(storage.internal().palette())) == null) { //no palette entries match, skip the section
+                return null;
+            }
+            storage.getPaletteIds(ids, 0);
+        } else if (section instanceof LegacySection) {
+            BitSet legacyMatches = this.legacyMatches();
+            if (legacyMatches.isEmpty()) { //no known states match, don't bother looking at the section
+                return null;
+            }
+            ((LegacySection) section).blockStorage().getCombinedIdMetas(ids, 0);
+
+            BitSet matches = null;
+            for (int i = 0; i < BlockStorage.NUM_BLOCKS; i++) {
+                if (legacyMatches.get(ids[i])) {
+                    (matches != null ? matches : (matches = new BitSet(BlockStorage.NUM_BLOCKS))).set(i);
+                }
+            }
+            return matches;
+        } else {
+            throw new IllegalArgumentException("unsupported section type: " + section.getClass());
+        }
+
+        BitSet matches = null;
+        for (int i = 0; i < BlockStorage.NUM_BLOCKS; i++) {
+            int id = ids[i];
+            if (id < mask.length && mask[id]) {
+                (matches != null ? matches : (matches = new BitSet(BlockStorage.NUM_BLOCKS))).set(i);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Searches every section in the given world in parallel.
+     * <p>
+     * The callback function may be invoked concurrently from multiple threads.
+     *
+     * @param storage the {@link WorldStorage} of the world to search
+     * @param action  the callback function to run for every section containing at least one matching block
+     */
+    public void search(@NonNull WorldStorage storage, @NonNull Consumer<Match> action) throws IOException {
+        //the spliterator releases each section once it has been searched
+        StreamSupport.stream(storage.allSections(), true).forEach(section -> {
+            BitSet matches = this.search(section);
+            if (matches != null) {
+                action.accept(new Match(section.x(), section.y(), section.z(), matches));
+            }
+        });
+    }
+
+    /**
+     * @return a mask of the matching palette IDs, or {@code null} if there are none
+     */
+    protected boolean[] paletteMask(@NonNull StatePalette palette) {
+        boolean[] mask = null;
+        for (int id = 0, size = palette.size(); id < size; id++) {
+            BlockState state = palette.idToState(id);
+            if (state != null && this.predicate.test(state)) {
+                (mask != null ? mask : (mask = new boolean[size]))[id] = true;
+            }
+        }
+        return mask;
+    }
+
+    protected BitSet legacyMatches() {
+        BitSet legacyMatches = this.legacyMatches;
+        if (legacyMatches == null) { //this may be computed more than once if multiple threads get here at the same time, but that's harmless
+            legacyMatches = new BitSet(1 << 16);
+            for (int combinedIdMeta = 0; combinedIdMeta < (1 << 16); combinedIdMeta++) {
+                BlockState state = LegacySectionConverter.legacyState(combinedIdMeta);
+                if (state == null) { //unknown (probably modded) block, there's no state to test it against
+                    continue;
+                }
+                if (this.predicate.test(state)) {
+                    legacyMatches.set(combinedIdMeta);
+                }
+            }
+            this.legacyMatches = legacyMatches;
+        }
+        return legacyMatches;
+    }
+
+    /**
+     * The matching blocks in a single section.
+     *
+     * @author DaPorkchop_
+     */
+    @AllArgsConstructor
+    @Getter
+    public static final class Match {
+        /**
+         * The section's X coordinate.
+         */
+        protected final int x;
+        /**
+         * The section's Y coordinate.
+         */
+        protected final int y;
+        /**
+         * The section's Z coordinate.
+         */
+        protected final int z;
+
+        /**
+         * The indices ({@code (y << 8) | (z << 4) | x}) of the matching blocks in the section.
+         */
+        @NonNull
+        protected final BitSet positions;
+    }
+}
@@ -27,6 +27,7 @@ import net.daporkchop.lib.nbt.tag.CompoundTag;
 import net.daporkchop.lib.unsafe.util.exception.AlreadyReleasedException;
 import net.daporkchop.mcworldlib.block.access.LightAccess;
 import net.daporkchop.mcworldlib.format.common.nibble.NibbleArray;
+import net.daporkchop.mcworldlib.util.nbt.LazyCompoundTag;
 import net.daporkchop.mcworldlib.version.MinecraftVersion;
 
 import java.util.Collection;
@@ -94,10 +95,29 @@ public interface Section extends LightAccess, IntHolderXYZ, RefCounted {
     void setTileEntity(int x, int y, int z, CompoundTag tileEntity);
 
     /**
-     * @return a view of the tile entities in this section
+     * Sets the tile entity at the given coordinates to a tile entity which may not have been parsed yet.
+     *
+     * @param x          the X coordinate of the tile entity to set
+     * @param y          the Y coordinate of the tile entity to set
+     * @param z          the Z coordinate of the tile entity to set
+     * @param tileEntity the new tile entity
+     */
+    void setLazyTileEntity(int x, int y, int z, @NonNull LazyCompoundTag tileEntity);
+
+    /**
+     * @return a view of the tile entities in this section. Tile entities which haven't been parsed yet will be parsed as they are accessed
      */
     Collection<CompoundTag> tileEntities();
 
+    /**
+     * Gets a view of the tile entities in this section, without parsing them.
+     * <p>
+     * This is useful for callers which only need each tile entity's ID or position.
+     *
+     * @return a view of the tile entities in this section
+     */
+    Collection<LazyCompoundTag> lazyTileEntities();
+
     /**
      * Adds the given entity to this section.
      *
@@ -105,6 +125,13 @@ public interface Section extends LightAccess, IntHolderXYZ, RefCounted {
      */
     void addEntity(@NonNull CompoundTag entity);
 
+    /**
+     * Adds the given entity, which may not have been parsed yet, to this section.
+     *
+     * @param entity the entity to add
+     */
+    void addLazyEntity(@NonNull LazyCompoundTag entity);
+
     /**
      * Removes the given entity from this section.
      *
@@ -113,10 +140,19 @@ public interface Section extends LightAccess, IntHolderXYZ, RefCounted {
     void removeEntity(@NonNull CompoundTag entity);
 
     /**
-     * @return a view of the entities in this section
+     * @return a view of the entities in this section. Entities which haven't been parsed yet will be parsed as they are accessed
      */
     Collection<CompoundTag> entities();
 
+    /**
+     * Gets a view of the entities in this section, without parsing them.
+     * <p>
+     * This is useful for callers which only need each entity's ID or position.
+     *
+     * @return a view of the entities in this section
+     */
+    Collection<LazyCompoundTag> lazyEntities();
+
     @Override
     Section retain() throws AlreadyReleasedException;
 }
@@ -43,6 +43,12 @@ public interface BlockStorage extends Cloneable<BlockStorage>, RefCounted {
         checkIndex(z >= 0 && z < 16, "z");
     }
 
+    static void checkBox(int x, int y, int z, int sizeX, int sizeY, int sizeZ) {
+        checkRangeLen(16, x, sizeX);
+        checkRangeLen(16, y, sizeY);
+        checkRangeLen(16, z, sizeZ);
+    }
+
     @Override
     BlockStorage retain() throws AlreadyReleasedException;
 }
@@ -20,17 +20,172 @@
 
 package net.daporkchop.mcworldlib.world.storage;
 
+import lombok.NonNull;
 import net.daporkchop.lib.binary.bit.BitArray;
 import net.daporkchop.lib.unsafe.util.exception.AlreadyReleasedException;
+import net.daporkchop.mcworldlib.block.BlockState;
 import net.daporkchop.mcworldlib.block.access.FlattenedBlockAccess;
 import net.daporkchop.mcworldlib.util.palette.state.StatePalette;
 
+import static net.daporkchop.lib.common.util.PValidation.*;
+
 /**
  * A block storage using flattened block IDs.
  *
  * @author DaPorkchop_
  */
 public interface FlattenedBlockStorage extends FlattenedBlockAccess, BlockStorage {
+    /**
+     * Gets the palette IDs of every block in this storage.
+     * <p>
+     * Values are written in the same order as they are stored internally, i.e. the block at {@code (x, y, z)} is at index
+     * {@code (y << 8) | (z << 4) | x}. IDs may be resolved using {@link Internal#palette()}.
+     *
+     * @param dst the array to write the IDs to. Must have at least {@link #NUM_BLOCKS} elements
+     */
+    default void getPaletteIds(@NonNull int[] dst) {
+        this.getPaletteIds(dst, 0);
+    }
+
+    /**
+     * Gets the palette IDs of every block in this storage.
+     *
+     * @param dst    the array to write the IDs to
+     * @param dstOff the index in {@code dst} to start writing at
+     * @see #getPaletteIds(int[])
+     */
+    void getPaletteIds(@NonNull int[] dst, int dstOff);
+
+    /**
+     * Gets the block states of every block in this storage.
+     * <p>
+     * Values are written in the same order as {@link #getPaletteIds(int[])}.
+     *
+     * @param dst the array to write the block states to. Must have at least {@link #NUM_BLOCKS} elements
+     */
+    default void getBlockStates(@NonNull BlockState[] dst) {
+        this.getBlockStates(dst, 0);
+    }
+
+    /**
+     * Gets the block states of every block in this storage.
+     *
+     * @param dst    the array to write the block states to
+     * @param dstOff the index in {@code dst} to start writing at
+     * @see #getBlockStates(BlockState[])
+     */
+    void getBlockStates(@NonNull BlockState[] dst, int dstOff);
+
+    /**
+     * Sets the block states of every block in this storage.
+     * <p>
+     * Values are read in the same order as {@link #getPaletteIds(int[])}.
+     *
+     * @param src the array to read the block states from. Must have at least {@link #NUM_BLOCKS} elements
+     */
+    default void setBlockStates(@NonNull BlockState[] src) {
+        this.setBlockStates(src, 0);
+    }
+
+    /**
+     * Sets the block states of every block in this storage.
+     *
+     * @param src    the array to read the block states from
+     * @param srcOff the index in {@code src} to start reading at
+     * @see #setBlockStates(BlockState[])
+     */
+    default void setBlockStates(@NonNull BlockState[] src, int srcOff) {
+        checkRangeLen(src.length, srcOff, NUM_BLOCKS);
+        for (int i = 0; i < NUM_BLOCKS; i++) {
+            this.setBlockState(i & 0xF, i >> 8, (i >> 4) & 0xF, src[srcOff + i]);
+        }
+    }
+
+    /**
+     * Sets every block in the given box to the given state.
+     *
+     * @param x     the minimum X coordinate of the box
+     * @param y     the minimum Y coordinate of the box
+     * @param z     the minimum Z coordinate of the box
+     * @param sizeX the size of the box along the X axis
+     * @param sizeY the size of the box along the Y axis
+     * @param sizeZ the size of the box along the Z axis
+     * @param state the new state
+     */
+    default void fill(int x, int y, int z, int sizeX, int sizeY, int sizeZ, @NonNull BlockState state) {
+        BlockStorage.checkBox(x, y, z, sizeX, sizeY, sizeZ);
+        for (int by = y; by < y + sizeY; by++) {
+            for (int bz = z; bz < z + sizeZ; bz++) {
+                for (int bx = x; bx < x + sizeX; bx++) {
+                    this.setBlockState(bx, by, bz, state);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the states of every block in a box in the given storage into this storage.
+     * <p>
+     * The source and destination may be the same storage, in which case the boxes may overlap.
+     *
+     * @param src   the storage to copy blocks from
+     * @param srcX  the minimum X coordinate of the box in the source storage
+     * @param srcY  the minimum Y coordinate of the box in the source storage
+     * @param srcZ  the minimum Z coordinate of the box in the source storage
+     * @param sizeX the size of the box along the X axis
+     * @param sizeY the size of the box along the Y axis
+     * @param sizeZ the size of the box along the Z axis
+     * @param dstX  the minimum X coordinate of the box in this storage
+     * @param dstY  the minimum Y coordinate of the box in this storage
+     * @param dstZ  the minimum Z coordinate of the box in this storage
+     */
+    default void copyFrom(@NonNull FlattenedBlockStorage src, int srcX, int srcY, int srcZ, int sizeX, int sizeY, int sizeZ, int dstX, int dstY, int dstZ) {
+        BlockStorage.checkBox(srcX, srcY, srcZ, sizeX, sizeY, sizeZ);
+        BlockStorage.checkBox(dstX, dstY, dstZ, sizeX, sizeY, sizeZ);
+
+        BlockState[] states = new BlockState[NUM_BLOCKS];
+        src.getBlockStates(states, 0);
+        for (int dy = 0; dy < sizeY; dy++) {
+            for (int dz = 0; dz < sizeZ; dz++) {
+                for (int dx = 0; dx < sizeX; dx++) {
+                    this.setBlockState(dstX + dx, dstY + dy, dstZ + dz, states[((srcY + dy) << 8) | ((srcZ + dz) << 4) | (srcX + dx)]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces every occurrence of a block state with another one.
+     *
+     * @param from the state to replace
+     * @param to   the state to replace it with
+     */
+    default void replace(@NonNull BlockState from, @NonNull BlockState to) {
+        BlockState[] states = new BlockState[NUM_BLOCKS];
+        this.getBlockStates(states, 0);
+        for (int i = 0; i < NUM_BLOCKS; i++) {
+            if (states[i] == from) {
+                this.setBlockState(i & 0xF, i >> 8, (i >> 4) & 0xF, to);
+            }
+        }
+    }
+
+    /**
+     * Counts the number of blocks with each palette ID in this storage.
+     * <p>
+     * For every block, {@code counts[paletteId]} is incremented by one, so the counts of multiple storages may be accumulated in the same array.
+     *
+     * @param counts the array to add the counts to. Must have at least as many elements as this storage's palette
+     */
+    default void histogram(@NonNull int[] counts) {
+        checkArg(counts.length >= this.internal().palette().size(), "counts (%d) must have at least as many elements as the palette (%d)", counts.length, this.internal().palette().size());
+        int[] ids = new int[NUM_BLOCKS];
+        this.getPaletteIds(ids, 0);
+        for (int id : ids) {
+            counts[id]++;
+        }
+    }
+
     FlattenedBlockStorage clone();
 
     @Override
@@ -46,6 +201,10 @@ public interface FlattenedBlockStorage extends FlattenedBlockAccess, BlockStorag
     interface Internal {
         StatePalette palette();
 
+        /**
+         * @return the {@link BitArray} containing the palette IDs, or {@code null} if the data isn't stored in a {@link BitArray} (e.g. because the
+         * storage is uniform or off-heap)
+         */
         BitArray data();
     }
 }
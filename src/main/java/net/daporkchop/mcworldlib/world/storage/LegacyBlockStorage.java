@@ -20,15 +20,130 @@
 
 package net.daporkchop.mcworldlib.world.storage;
 
+import lombok.NonNull;
 import net.daporkchop.lib.unsafe.util.exception.AlreadyReleasedException;
 import net.daporkchop.mcworldlib.block.access.LegacyBlockAccess;
 
+import static net.daporkchop.lib.common.util.PValidation.*;
+
 /**
  * A block storage using the legacy registry (for Java Edition ≤ 1.12.2).
  *
  * @author DaPorkchop_
  */
 public interface LegacyBlockStorage extends LegacyBlockAccess, BlockStorage {
+    /**
+     * Gets the combined ID and metadata ({@code (id << 4) | meta}) of every block in this storage.
+     * <p>
+     * Values are written in storage order, i.e. the block at {@code (x, y, z)} is at index {@code (y << 8) | (z << 4) | x}.
+     *
+     * @param dst    the array to write the values to
+     * @param dstOff the index in {@code dst} to start writing at
+     */
+    default void getCombinedIdMetas(@NonNull int[] dst, int dstOff) {
+        checkRangeLen(dst.length, dstOff, NUM_BLOCKS);
+        for (int i = 0; i < NUM_BLOCKS; i++) {
+            dst[dstOff + i] = this.getCombinedIdMeta(i & 0xF, i >> 8, (i >> 4) & 0xF);
+        }
+    }
+
+    /**
+     * Counts the number of blocks with each combined ID and metadata ({@code (id << 4) | meta}) in this storage.
+     * <p>
+     * For every block, {@code counts[(id << 4) | meta]} is incremented by one, so the counts of multiple storages may be accumulated in the same array.
+     *
+     * @param counts the array to add the counts to. Must have at least {@code 1 << 16} elements
+     */
+    default void histogram(@NonNull int[] counts) {
+        checkArg(counts.length >= 1 << 16, "counts (%d) must have at least 65536 elements", counts.length);
+        int[] ids = new int[NUM_BLOCKS];
+        this.getCombinedIdMetas(ids, 0);
+        for (int id : ids) {
+            counts[id]++;
+        }
+    }
+
+    /**
+     * Sets every block in the given box to the given ID and metadata.
+     *
+     * @param x        the minimum X coordinate of the box
+     * @param y        the minimum Y coordinate of the box
+     * @param z        the minimum Z coordinate of the box
+     * @param sizeX    the size of the box along the X axis
+     * @param sizeY    the size of the box along the Y axis
+     * @param sizeZ    the size of the box along the Z axis
+     * @param legacyId the new block ID
+     * @param meta     the new metadata
+     */
+    default void fill(int x, int y, int z, int sizeX, int sizeY, int sizeZ, int legacyId, int meta) {
+        BlockStorage.checkBox(x, y, z, sizeX, sizeY, sizeZ);
+        for (int by = y; by < y + sizeY; by++) {
+            for (int bz = z; bz < z + sizeZ; bz++) {
+                for (int bx = x; bx < x + sizeX; bx++) {
+                    this.setBlockState(bx, by, bz, legacyId, meta);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the IDs and metadata of every block in a box in the given storage into this storage.
+     * <p>
+     * The source and destination may be the same storage, in which case the boxes may overlap.
+     *
+     * @param src   the storage to copy blocks from
+     * @param srcX  the minimum X coordinate of the box in the source storage
+     * @param srcY  the minimum Y coordinate of the box in the source storage
+     * @param srcZ  the minimum Z coordinate of the box in the source storage
+     * @param sizeX the size of the box along the X axis
+     * @param sizeY the size of the box along the Y axis
+     * @param sizeZ the size of the box along the Z axis
+     * @param dstX  the minimum X coordinate of the box in this storage
+     * @param dstY  the minimum Y coordinate of the box in this storage
+     * @param dstZ  the minimum Z coordinate of the box in this storage
+     */
+    default void copyFrom(@NonNull LegacyBlockStorage src, int srcX, int srcY, int srcZ, int sizeX, int sizeY, int sizeZ, int dstX, int dstY, int dstZ) {
+        BlockStorage.checkBox(srcX, srcY, srcZ, sizeX, sizeY, sizeZ);
+        BlockStorage.checkBox(dstX, dstY, dstZ, sizeX, sizeY, sizeZ);
+
+        int[] ids = new int[NUM_BLOCKS];
+        src.getCombinedIdMetas(ids, 0);
+        for (int dy = 0; dy < sizeY; dy++) {
+            for (int dz = 0; dz < sizeZ; dz++) {
+                for (int dx = 0; dx < sizeX; dx++) {
+                    int combinedIdMeta = ids[((srcY + dy) << 8) | ((srcZ + dz) << 4) | (srcX + dx)];
+                    this.setBlockState(dstX + dx, dstY + dy, dstZ + dz, combinedIdMeta >>> 4, combinedIdMeta & 0xF);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces every occurrence of a block ID and metadata with another one.
+     *
+     * @param fromLegacyId the block ID to replace
+     * @param fromMeta     the metadata to replace
+     * @param toLegacyId   the block ID to replace it with
+     * @param toMeta       the metadata to replace it with
+     */
+    default void replace(int fromLegacyId, int fromMeta, int toLegacyId, int toMeta) {
+        int from = (fromLegacyId << 4) | fromMeta;
+        int[] ids = new int[NUM_BLOCKS];
+        this.getCombinedIdMetas(ids, 0);
+        for (int i = 0; i < NUM_BLOCKS; i++) {
+            if (ids[i] == from) {
+                this.setBlockState(i & 0xF, i >> 8, (i >> 4) & 0xF, toLegacyId, toMeta);
+            }
+        }
+    }
+
+    /**
+     * @return whether or not this storage can hold 12-bit block IDs (using Anvil's {@code Add} array), rather than only 8-bit ones
+     */
+    default boolean extendedIds() {
+        return false;
+    }
+
     LegacyBlockStorage clone();
 
     @Override
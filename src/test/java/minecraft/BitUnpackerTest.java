@@ -0,0 +1,87 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package minecraft;
+
+import net.daporkchop.lib.binary.bit.BitArray;
+import net.daporkchop.lib.binary.bit.packed.PackedBitArray;
+import net.daporkchop.lib.binary.bit.padded.PaddedBitArray;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.BitUnpacker;
+import net.daporkchop.mcworldlib.world.storage.BlockStorage;
+import org.junit.Test;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * @author DaPorkchop_
+ */
+public class BitUnpackerTest {
+    @Test
+    public void testPacked() {
+        for (int bits = 1; bits <= 16; bits++) {
+            long[] words = new long[(BlockStorage.NUM_BLOCKS * bits + 63) >>> 6];
+            this.test(new PackedBitArray(bits, BlockStorage.NUM_BLOCKS, words), bits, words, true);
+        }
+    }
+
+    @Test
+    public void testPadded() {
+        for (int bits = 1; bits <= 16; bits++) {
+            int perWord = 64 / bits;
+            long[] words = new long[(BlockStorage.NUM_BLOCKS + perWord - 1) / perWord];
+            this.test(new PaddedBitArray(bits, BlockStorage.NUM_BLOCKS, words), bits, words, false);
+        }
+    }
+
+    private void test(BitArray array, int bits, long[] words, boolean packed) {
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        int[] expected = new int[BlockStorage.NUM_BLOCKS];
+        for (int i = 0; i < expected.length; i++) {
+            array.set(i, expected[i] = r.nextInt(1 << bits));
+        }
+
+        int[] actual = new int[BlockStorage.NUM_BLOCKS + 1];
+        if (packed) {
+            BitUnpacker.unpackPacked(words, bits, actual, 1, BlockStorage.NUM_BLOCKS);
+        } else {
+            BitUnpacker.unpackPadded(words, bits, actual, 1, BlockStorage.NUM_BLOCKS);
+        }
+        for (int i = 0; i < expected.length; i++) {
+            checkState(expected[i] == actual[i + 1], "%d bits: index %d should be %d, but found %d", bits, i, expected[i], actual[i + 1]);
+        }
+
+        int[] expectedCounts = new int[1 << bits];
+        for (int value : expected) {
+            expectedCounts[value]++;
+        }
+        int[] actualCounts = new int[1 << bits];
+        if (packed) {
+            BitUnpacker.countPacked(words, bits, actualCounts, BlockStorage.NUM_BLOCKS);
+        } else {
+            BitUnpacker.countPadded(words, bits, actualCounts, BlockStorage.NUM_BLOCKS);
+        }
+        for (int value = 0; value < expectedCounts.length; value++) {
+            checkState(expectedCounts[value] == actualCounts[value], "%d bits: value %d should occur %d times, but found %d", bits, value, expectedCounts[value], actualCounts[value]);
+        }
+        array.release();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package minecraft;
+
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.format.common.nibble.HeapNibbleArray;
+import net.daporkchop.mcworldlib.format.common.section.flattened.SingleLayerFlattenedSection;
+import net.daporkchop.mcworldlib.format.common.section.legacy.DefaultLegacySection;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.HeapPackedFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.legacy.HeapLegacyBlockStorage;
+import net.daporkchop.mcworldlib.util.Identifier;
+import net.daporkchop.mcworldlib.version.java.JavaVersion;
+import net.daporkchop.mcworldlib.world.query.BlockSearch;
+import net.daporkchop.mcworldlib.world.section.Section;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Collections;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * @author DaPorkchop_
+ */
+public class BlockSearchTest {
+    private static final BlockState STONE = BlockState.of(Identifier.fromString("minecraft:stone"), Collections.emptyMap());
+    private static final BlockState DIRT = BlockState.of(Identifier.fromString("minecraft:dirt"), Collections.emptyMap());
+
+    @Test
+    public void testFlattened() {
+        HeapPackedFlattenedBlockStorage storage = new HeapPackedFlattenedBlockStorage();
+        storage.setBlockState(1, 2, 3, STONE);
+        storage.setBlockState(15, 15, 15, STONE);
+        storage.setBlockState(0, 0, 0, DIRT);
+
+        Section section = new SingleLayerFlattenedSection(JavaVersion.latest(), 0, 0, 0, storage, new HeapNibbleArray.YZX(), null);
+        try {
+            BlockSearch search = BlockSearch.forState(STONE);
+            checkState(search.mayMatch(section));
+            checkMatches(search.search(section), (2 << 8) | (3 << 4) | 1, (15 << 8) | (15 << 4) | 15);
+
+            //no palette entry matches, so the section is skipped entirely
+            BlockSearch none = BlockSearch.forBlock(Identifier.fromString("minecraft:diamond_ore"));
+            checkState(!none.mayMatch(section));
+            checkState(none.search(section) == null);
+        } finally {
+            section.release();
+        }
+    }
+
+    @Test
+    public void testLegacy() {
+        HeapLegacyBlockStorage storage = new HeapLegacyBlockStorage();
+        storage.setBlockState(1, 2, 3, 1, 0); //stone
+        storage.setBlockState(4, 5, 6, 1, 1); //granite
+        storage.setBlockState(7, 8, 9, 253, 0); //unknown block
+
+        Section section = new DefaultLegacySection(JavaVersion.fromName("1.12.2"), 0, 0, 0, storage, new HeapNibbleArray.YZX(), null);
+        try {
+            checkMatches(BlockSearch.forState(STONE).search(section), (2 << 8) | (3 << 4) | 1);
+            checkMatches(BlockSearch.forBlock(Identifier.fromString("minecraft:granite")).search(section), (5 << 8) | (6 << 4) | 4);
+
+            //unknown blocks have no state, so they never match
+            checkState(new BlockSearch(state -> state != DIRT).search(section).cardinality() == 4096 - 1);
+            checkState(BlockSearch.forBlock(Identifier.fromString("minecraft:diamond_ore")).search(section) == null);
+        } finally {
+            section.release();
+        }
+    }
+
+    private static void checkMatches(BitSet matches, int... indices) {
+        checkState(matches != null, "no matches");
+        checkState(matches.cardinality() == indices.length, "expected %d matches, found %d", indices.length, matches.cardinality());
+        for (int index : indices) {
+            checkState(matches.get(index), "missing match at %d", index);
+        }
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package minecraft;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.DirectFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.HeapPackedFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.HeapPaddedFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.legacy.DirectLegacyBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.legacy.HeapLegacyBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.legacy.UniformLegacyBlockStorage;
+import net.daporkchop.mcworldlib.util.Identifier;
+import net.daporkchop.mcworldlib.util.palette.state.StatePalette;
+import net.daporkchop.mcworldlib.world.storage.FlattenedBlockStorage;
+import net.daporkchop.mcworldlib.world.storage.LegacyBlockStorage;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+import static net.daporkchop.mcworldlib.world.storage.BlockStorage.*;
+
+/**
+ * @author DaPorkchop_
+ */
+public class BulkStorageOperationsTest {
+    private static int index(int x, int y, int z) {
+        return (y << 8) | (z << 4) | x;
+    }
+
+    @Test
+    public void testFlattened() {
+        BlockState[] states = new BlockState[40];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = BlockState.of(Identifier.fromString("test:bulk_" + i), Collections.emptyMap());
+        }
+
+        FlattenedBlockStorage[] storages = {
+                new HeapPackedFlattenedBlockStorage(states[0]),
+                new HeapPaddedFlattenedBlockStorage(states[0]),
+                new DirectFlattenedBlockStorage.Packed(PooledByteBufAllocator.DEFAULT, states[0]),
+                new DirectFlattenedBlockStorage.Padded(PooledByteBufAllocator.DEFAULT, states[0])
+        };
+        for (FlattenedBlockStorage storage : storages) {
+            try {
+                BlockState[] expected = new BlockState[NUM_BLOCKS];
+                Arrays.fill(expected, states[0]);
+
+                ThreadLocalRandom r = ThreadLocalRandom.current();
+                for (int n = 0; n < 200; n++) {
+                    int sizeX = r.nextInt(1, 17);
+                    int sizeY = r.nextInt(1, 17);
+                    int sizeZ = r.nextInt(1, 17);
+                    int x = r.nextInt(17 - sizeX);
+                    int y = r.nextInt(17 - sizeY);
+                    int z = r.nextInt(17 - sizeZ);
+
+                    switch (r.nextInt(3)) {
+                        case 0: {
+                            BlockState state = states[r.nextInt(states.length)];
+                            storage.fill(x, y, z, sizeX, sizeY, sizeZ, state);
+                            for (int by = y; by < y + sizeY; by++) {
+                                for (int bz = z; bz < z + sizeZ; bz++) {
+                                    for (int bx = x; bx < x + sizeX; bx++) {
+                                        expected[index(bx, by, bz)] = state;
+                                    }
+                                }
+                            }
+                            break;
+                        }
+                        case 1: {
+                            int dstX = r.nextInt(17 - sizeX);
+                            int dstY = r.nextInt(17 - sizeY);
+                            int dstZ = r.nextInt(17 - sizeZ);
+                            storage.copyFrom(storage, x, y, z, sizeX, sizeY, sizeZ, dstX, dstY, dstZ);
+                            BlockState[] snapshot = expected.clone();
+                            for (int dy = 0; dy < sizeY; dy++) {
+                                for (int dz = 0; dz < sizeZ; dz++) {
+                                    for (int dx = 0; dx < sizeX; dx++) {
+                                        expected[index(dstX + dx, dstY + dy, dstZ + dz)] = snapshot[index(x + dx, y + dy, z + dz)];
+                                    }
+                                }
+                            }
+                            break;
+                        }
+                        case 2: {
+                            BlockState from = states[r.nextInt(states.length)];
+                            BlockState to = states[r.nextInt(states.length)];
+                            storage.replace(from, to);
+                            for (int i = 0; i < NUM_BLOCKS; i++) {
+                                if (expected[i] == from) {
+                                    expected[i] = to;
+                                }
+                            }
+                            break;
+                        }
+                    }
+
+                    BlockState[] actual = new BlockState[NUM_BLOCKS];
+                    storage.getBlockStates(actual);
+                    checkState(Arrays.equals(expected, actual), "%s differs after operation %d", storage.getClass().getSimpleName(), n);
+                }
+            } finally {
+                storage.release();
+            }
+        }
+    }
+
+    @Test
+    public void testFlattenedFillRuns() {
+        //boxes spanning whole rows or layers are filled a word at a time, so they're checked at every palette size up to the global palette
+        BlockState[] states = new BlockState[300];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = BlockState.of(Identifier.fromString("test:runs_" + i), Collections.emptyMap());
+        }
+
+        FlattenedBlockStorage[] storages = {
+                new HeapPackedFlattenedBlockStorage(states[0]),
+                new HeapPaddedFlattenedBlockStorage(states[0]),
+                new DirectFlattenedBlockStorage.Packed(PooledByteBufAllocator.DEFAULT, states[0]),
+                new DirectFlattenedBlockStorage.Padded(PooledByteBufAllocator.DEFAULT, states[0])
+        };
+        for (FlattenedBlockStorage storage : storages) {
+            try {
+                BlockState[] expected = new BlockState[NUM_BLOCKS];
+                Arrays.fill(expected, states[0]);
+
+                ThreadLocalRandom r = ThreadLocalRandom.current();
+                for (int n = 1; n < states.length; n++) {
+                    int i = r.nextInt(NUM_BLOCKS);
+                    storage.setBlockState(i & 0xF, i >> 8, (i >> 4) & 0xF, states[n]);
+                    expected[i] = states[n];
+
+                    //never fill the whole storage, as that would make it uniform again
+                    int y = r.nextInt(16);
+                    int sizeY = r.nextInt(1, Math.min(16 - y, 15) + 1);
+                    int z = (n & 1) == 0 ? 0 : r.nextInt(16);
+                    int sizeZ = (n & 1) == 0 ? 16 : r.nextInt(1, 17 - z);
+
+                    BlockState state = states[r.nextInt(n + 1)];
+                    storage.fill(0, y, z, 16, sizeY, sizeZ, state);
+                    for (int by = y; by < y + sizeY; by++) {
+                        for (int bz = z; bz < z + sizeZ; bz++) {
+                            for (int bx = 0; bx < 16; bx++) {
+                                expected[index(bx, by, bz)] = state;
+                            }
+                        }
+                    }
+
+                    BlockState[] actual = new BlockState[NUM_BLOCKS];
+                    storage.getBlockStates(actual);
+                    checkState(Arrays.equals(expected, actual), "%s differs after fill %d", storage.getClass().getSimpleName(), n);
+                }
+            } finally {
+                storage.release();
+            }
+        }
+    }
+
+    @Test
+    public void testFlattenedReplaceMerges() {
+        //3 states fit into a linear palette, 20 need a hashed one
+        for (int count : new int[]{ 3, 20 }) {
+            BlockState[] states = new BlockState[count];
+            for (int i = 0; i < count; i++) {
+                states[i] = BlockState.of(Identifier.fromString("test:merge_" + i), Collections.emptyMap());
+            }
+
+            //merge the first state into a state from the middle of the palette, and then the last state into the first remaining one
+            int[][] merges = { { 0, count >> 1 }, { count - 1, 1 } };
+            FlattenedBlockStorage[] storages = {
+                    new HeapPackedFlattenedBlockStorage(),
+                    new HeapPaddedFlattenedBlockStorage(),
+                    new DirectFlattenedBlockStorage.Packed(PooledByteBufAllocator.DEFAULT),
+                    new DirectFlattenedBlockStorage.Padded(PooledByteBufAllocator.DEFAULT)
+            };
+            for (FlattenedBlockStorage storage : storages) {
+                try {
+                    BlockState[] expected = new BlockState[NUM_BLOCKS];
+                    for (int i = 0; i < NUM_BLOCKS; i++) {
+                        expected[i] = states[i % count];
+                        storage.setBlockState(i & 0xF, i >> 8, (i >> 4) & 0xF, expected[i]);
+                    }
+                    int size = storage.internal().palette().size();
+
+                    for (int[] merge : merges) {
+                        BlockState from = states[merge[0]];
+                        BlockState to = states[merge[1]];
+                        storage.replace(from, to);
+                        for (int i = 0; i < NUM_BLOCKS; i++) {
+                            if (expected[i] == from) {
+                                expected[i] = to;
+                            }
+                        }
+
+                        //the palette must shrink by one entry, and may not contain the same state twice
+                        StatePalette palette = storage.internal().palette();
+                        checkState(palette.size() == --size, "%s: palette has %d entries, expected %d", storage.getClass().getSimpleName(), palette.size(), size);
+                        Set<BlockState> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+                        for (int id = 0; id < palette.size(); id++) {
+                            checkState(seen.add(palette.idToState(id)), "%s: duplicate palette entry %s", storage.getClass().getSimpleName(), palette.idToState(id));
+                        }
+                        checkState(!seen.contains(from), "%s: replaced state is still in the palette", storage.getClass().getSimpleName());
+
+                        BlockState[] actual = new BlockState[NUM_BLOCKS];
+                        storage.getBlockStates(actual);
+                        checkState(Arrays.equals(expected, actual), "%s differs after replacing %s", storage.getClass().getSimpleName(), from);
+                    }
+                } finally {
+                    storage.release();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLegacy() {
+        LegacyBlockStorage[] storages = {
+                new HeapLegacyBlockStorage(),
+                new HeapLegacyBlockStorage.Add(),
+                new UniformLegacyBlockStorage(0, 0, true),
+                new DirectLegacyBlockStorage.Add(PooledByteBufAllocator.DEFAULT)
+        };
+        for (LegacyBlockStorage storage : storages) {
+            try {
+                int maxId = storage.extendedIds() ? 4096 : 256;
+                int[] expected = new int[NUM_BLOCKS];
+
+                ThreadLocalRandom r = ThreadLocalRandom.current();
+                for (int n = 0; n < 200; n++) {
+                    int sizeX = r.nextInt(1, 17);
+                    int sizeY = r.nextInt(1, 17);
+                    int sizeZ = r.nextInt(1, 17);
+                    int x = r.nextInt(17 - sizeX);
+                    int y = r.nextInt(17 - sizeY);
+                    int z = r.nextInt(17 - sizeZ);
+
+                    switch (r.nextInt(3)) {
+                        case 0: {
+                            int id = r.nextInt(maxId);
+                            int meta = r.nextInt(16);
+                            storage.fill(x, y, z, sizeX, sizeY, sizeZ, id, meta);
+                            for (int by = y; by < y + sizeY; by++) {
+                                for (int bz = z; bz < z + sizeZ; bz++) {
+                                    for (int bx = x; bx < x + sizeX; bx++) {
+                                        expected[index(bx, by, bz)] = (id << 4) | meta;
+                                    }
+                                }
+                            }
+                            break;
+                        }
+                        case 1: {
+                            int dstX = r.nextInt(17 - sizeX);
+                            int dstY = r.nextInt(17 - sizeY);
+                            int dstZ = r.nextInt(17 - sizeZ);
+                            storage.copyFrom(storage, x, y, z, sizeX, sizeY, sizeZ, dstX, dstY, dstZ);
+                            int[] snapshot = expected.clone();
+                            for (int dy = 0; dy < sizeY; dy++) {
+                                for (int dz = 0; dz < sizeZ; dz++) {
+                                    for (int dx = 0; dx < sizeX; dx++) {
+                                        expected[index(dstX + dx, dstY + dy, dstZ + dz)] = snapshot[index(x + dx, y + dy, z + dz)];
+                                    }
+                                }
+                            }
+                            break;
+                        }
+                        case 2: {
+                            int from = expected[r.nextInt(NUM_BLOCKS)];
+                            int to = (r.nextInt(maxId) << 4) | r.nextInt(16);
+                            storage.replace(from >>> 4, from & 0xF, to >>> 4, to & 0xF);
+                            for (int i = 0; i < NUM_BLOCKS; i++) {
+                                if (expected[i] == from) {
+                                    expected[i] = to;
+                                }
+                            }
+                            break;
+                        }
+                    }
+
+                    int[] actual = new int[NUM_BLOCKS];
+                    storage.getCombinedIdMetas(actual, 0);
+                    checkState(Arrays.equals(expected, actual), "%s differs after operation %d", storage.getClass().getSimpleName(), n);
+                }
+            } finally {
+                storage.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package minecraft;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.DirectFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.HeapPackedFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.HeapPaddedFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.legacy.DirectLegacyBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.legacy.HeapLegacyBlockStorage;
+import net.daporkchop.mcworldlib.util.Identifier;
+import net.daporkchop.mcworldlib.util.palette.state.ArrayStatePalette;
+import net.daporkchop.mcworldlib.world.storage.FlattenedBlockStorage;
+import net.daporkchop.mcworldlib.world.storage.LegacyBlockStorage;
+import org.junit.Test;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+import static net.daporkchop.mcworldlib.world.storage.BlockStorage.*;
+
+/**
+ * @author DaPorkchop_
+ */
+public class DirectStorageTest {
+    private static final ByteBufAllocator ALLOC = PooledByteBufAllocator.DEFAULT;
+
+    @Test
+    public void testFlattened() {
+        BlockState[] states = new BlockState[300];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = BlockState.of(Identifier.fromString("test:direct_" + i), Collections.emptyMap());
+        }
+
+        for (FlattenedBlockStorage direct : new FlattenedBlockStorage[]{ new DirectFlattenedBlockStorage.Packed(ALLOC), new DirectFlattenedBlockStorage.Padded(ALLOC) }) {
+            FlattenedBlockStorage heap = new HeapPackedFlattenedBlockStorage();
+            try {
+                //write enough distinct states to go through every palette size, including the global palette
+                ThreadLocalRandom r = ThreadLocalRandom.current();
+                for (int n = 0; n < 20000; n++) {
+                    int x = r.nextInt(16);
+                    int y = r.nextInt(16);
+                    int z = r.nextInt(16);
+                    BlockState state = states[Math.min(n >> 6, states.length - 1) - r.nextInt(Math.min((n >> 6) + 1, 8))];
+                    direct.setBlockState(x, y, z, state);
+                    heap.setBlockState(x, y, z, state);
+                }
+
+                BlockState[] expected = new BlockState[NUM_BLOCKS];
+                heap.getBlockStates(expected);
+                BlockState[] actual = new BlockState[NUM_BLOCKS];
+                direct.getBlockStates(actual);
+                checkState(Arrays.equals(expected, actual));
+
+                FlattenedBlockStorage copy = DirectFlattenedBlockStorage.copyOf(heap, ALLOC);
+                try {
+                    copy.getBlockStates(actual);
+                    checkState(Arrays.equals(expected, actual));
+                } finally {
+                    copy.release();
+                }
+            } finally {
+                direct.release();
+                heap.release();
+            }
+        }
+    }
+
+    @Test
+    public void testFlattenedFromWords() {
+        ArrayStatePalette palette = ArrayStatePalette.withCapacity(32);
+        for (int i = 0; i < 32; i++) {
+            palette.append(BlockState.of(Identifier.fromString("test:words_" + i), Collections.emptyMap()));
+        }
+
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        long[] words = new long[342]; //enough for 4096 5-bit values in either layout
+        for (int i = 0; i < words.length; i++) {
+            words[i] = r.nextLong();
+        }
+
+        FlattenedBlockStorage[][] pairs = {
+                { new HeapPackedFlattenedBlockStorage(5, words.clone(), null, palette), new DirectFlattenedBlockStorage.Packed(ALLOC, 5, LongBuffer.wrap(words), palette) },
+                { new HeapPaddedFlattenedBlockStorage(5, words.clone(), null, palette), new DirectFlattenedBlockStorage.Padded(ALLOC, 5, LongBuffer.wrap(words), palette) }
+        };
+        for (FlattenedBlockStorage[] pair : pairs) {
+            try {
+                int[] expected = new int[NUM_BLOCKS];
+                pair[0].getPaletteIds(expected);
+                int[] actual = new int[NUM_BLOCKS];
+                pair[1].getPaletteIds(actual);
+                checkState(Arrays.equals(expected, actual));
+
+                int[] expectedCounts = new int[32];
+                pair[0].histogram(expectedCounts);
+                int[] actualCounts = new int[32];
+                pair[1].histogram(actualCounts);
+                checkState(Arrays.equals(expectedCounts, actualCounts));
+            } finally {
+                pair[0].release();
+                pair[1].release();
+            }
+        }
+    }
+
+    @Test
+    public void testFlattenedInPlace() {
+        ArrayStatePalette palette = ArrayStatePalette.withCapacity(32);
+        for (int i = 0; i < 32; i++) {
+            palette.append(BlockState.of(Identifier.fromString("test:in_place_" + i), Collections.emptyMap()));
+        }
+
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        long[] words = new long[342]; //enough for 4096 5-bit values in either layout
+        for (int i = 0; i < words.length; i++) {
+            words[i] = r.nextLong();
+        }
+
+        for (boolean padded : new boolean[]{ false, true }) {
+            //the words are big-endian, like in NBT, and preceded by some other data
+            ByteBuf buf = ALLOC.directBuffer(8 + words.length * 8);
+            buf.writeLong(-1L);
+            for (long word : words) {
+                buf.writeLong(word);
+            }
+            buf.skipBytes(8);
+
+            FlattenedBlockStorage heap = padded
+                    ? new HeapPaddedFlattenedBlockStorage(5, words.clone(), null, palette)
+                    : new HeapPackedFlattenedBlockStorage(5, words.clone(), null, palette);
+            FlattenedBlockStorage direct = padded
+                    ? new DirectFlattenedBlockStorage.Padded(ALLOC, 5, buf, palette)
+                    : new DirectFlattenedBlockStorage.Packed(ALLOC, 5, buf, palette);
+            try {
+                int[] expected = new int[NUM_BLOCKS];
+                heap.getPaletteIds(expected);
+                int[] actual = new int[NUM_BLOCKS];
+                direct.getPaletteIds(actual);
+                checkState(Arrays.equals(expected, actual), "padded=%b", padded);
+
+                //writes go straight to the given buffer
+                direct.setBlockState(1, 2, 3, palette.idToState(7));
+                heap.setBlockState(1, 2, 3, palette.idToState(7));
+                heap.getPaletteIds(expected);
+                direct.getPaletteIds(actual);
+                checkState(Arrays.equals(expected, actual), "padded=%b", padded);
+            } finally {
+                heap.release();
+                direct.release();
+            }
+            checkState(buf.refCnt() == 0, "buffer wasn't released with the storage");
+        }
+
+        //buffers which can't be written to are rejected, and released
+        ByteBuf readOnly = ALLOC.directBuffer(words.length * 8).writeZero(words.length * 8).asReadOnly();
+        try {
+            new DirectFlattenedBlockStorage.Packed(ALLOC, 5, readOnly, palette).release();
+            throw new IllegalStateException("read-only buffer was accepted");
+        } catch (IllegalArgumentException e) {
+            checkState(readOnly.refCnt() == 0, "rejected buffer wasn't released");
+        }
+    }
+
+    @Test
+    public void testLegacy() {
+        for (LegacyBlockStorage heap : new LegacyBlockStorage[]{ new HeapLegacyBlockStorage(), new HeapLegacyBlockStorage.Add() }) {
+            int maxId = heap.extendedIds() ? 4096 : 256;
+            ThreadLocalRandom r = ThreadLocalRandom.current();
+            for (int i = 0; i < NUM_BLOCKS; i++) {
+                heap.setBlockState(i & 0xF, i >> 8, (i >> 4) & 0xF, r.nextInt(maxId), r.nextInt(16));
+            }
+
+            LegacyBlockStorage direct = DirectLegacyBlockStorage.copyOf(heap, ALLOC);
+            try {
+                checkState(direct.extendedIds() == heap.extendedIds());
+                int[] expected = new int[NUM_BLOCKS];
+                heap.getCombinedIdMetas(expected, 0);
+                int[] actual = new int[NUM_BLOCKS];
+                direct.getCombinedIdMetas(actual, 0);
+                checkState(Arrays.equals(expected, actual));
+
+                direct.setBlockLegacyId(1, 2, 3, maxId - 1);
+                direct.setBlockMeta(1, 2, 3, 7);
+                checkState(direct.getBlockLegacyId(1, 2, 3) == maxId - 1 && direct.getBlockMeta(1, 2, 3) == 7);
+                checkState(direct.getCombinedIdMeta(3, 2, 1) == expected[(2 << 8) | (1 << 4) | 3]);
+            } finally {
+                direct.release();
+                heap.release();
+            }
+        }
+    }
+}
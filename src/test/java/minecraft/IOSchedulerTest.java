@@ -0,0 +1,177 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package minecraft;
+
+import net.daporkchop.lib.concurrent.PFuture;
+import net.daporkchop.mcworldlib.util.concurrent.IOScheduler;
+import net.daporkchop.mcworldlib.util.concurrent.RegionAffineIOScheduler;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * @author DaPorkchop_
+ */
+public class IOSchedulerTest {
+    private static final Executor DIRECT = Runnable::run;
+
+    @Test
+    public void testRegionAffinity() throws Exception {
+        RegionAffineIOScheduler scheduler = new RegionAffineIOScheduler(4);
+        try {
+            for (int region = 0; region < 16; region++) {
+                int regionX = region * 31;
+                int regionZ = -region;
+
+                //every operation on the same region must be executed by the same worker, in the order in which they were submitted
+                List<Thread> threads = new ArrayList<>();
+                List<Integer> order = new ArrayList<>();
+                List<PFuture<Integer>> futures = new ArrayList<>();
+                for (int i = 0; i < 32; i++) {
+                    int index = i;
+                    futures.add(scheduler.submit(regionX, regionZ, () -> {
+                        synchronized (threads) {
+                            threads.add(Thread.currentThread());
+                            order.add(index);
+                        }
+                        return index;
+                    }, value -> value, DIRECT));
+                }
+                for (int i = 0; i < 32; i++) {
+                    checkState(futures.get(i).get(10L, TimeUnit.SECONDS) == i);
+                }
+
+                synchronized (threads) {
+                    for (int i = 0; i < 32; i++) {
+                        checkState(threads.get(i) == threads.get(0), "region (%d,%d) was handled by more than one worker", regionX, regionZ);
+                        checkState(order.get(i) == i, "region (%d,%d): operation %d was executed out of order", regionX, regionZ, i);
+                    }
+                }
+            }
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testPriority() throws Exception {
+        RegionAffineIOScheduler scheduler = new RegionAffineIOScheduler(1);
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            scheduler.execute(0, 0, IOScheduler.PRIORITY_NORMAL, () -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            checkState(started.await(10L, TimeUnit.SECONDS));
+
+            //the worker is busy, so both of these are queued and the one with the higher priority must run first
+            List<Integer> order = new ArrayList<>();
+            PFuture<Integer> low = scheduler.submit(0, 0, IOScheduler.PRIORITY_NORMAL, () -> {
+                synchronized (order) {
+                    order.add(0);
+                }
+                return 0;
+            }, value -> value, DIRECT);
+            PFuture<Integer> high = scheduler.submit(0, 0, IOScheduler.PRIORITY_NORMAL + 1, () -> {
+                synchronized (order) {
+                    order.add(1);
+                }
+                return 1;
+            }, value -> value, DIRECT);
+            release.countDown();
+
+            checkState(low.get(10L, TimeUnit.SECONDS) == 0 && high.get(10L, TimeUnit.SECONDS) == 1);
+            synchronized (order) {
+                checkState(order.get(0) == 1 && order.get(1) == 0, "operations were executed in the wrong order: %s", order);
+            }
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        RegionAffineIOScheduler scheduler = new RegionAffineIOScheduler(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PFuture<String> running = scheduler.submit(0, 0, () -> {
+            started.countDown();
+            release.await();
+            return "done";
+        }, value -> value, DIRECT);
+        checkState(started.await(10L, TimeUnit.SECONDS));
+
+        List<PFuture<Integer>> queued = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            int index = i;
+            queued.add(scheduler.submit(i, i, () -> index, value -> value, DIRECT));
+        }
+        checkState(scheduler.queueDepth() == queued.size());
+
+        scheduler.shutdown();
+        checkState(scheduler.isShutdown());
+        checkState(scheduler.queueDepth() <= 1, "queued operations weren't removed"); //only the worker's stop marker may be left
+
+        //every operation which was still queued must fail instead of hanging forever
+        for (PFuture<Integer> future : queued) {
+            checkState(future.isDone(), "queued operation wasn't completed on shutdown");
+            try {
+                future.get(10L, TimeUnit.SECONDS);
+                throw new IllegalStateException("queued operation was executed after shutdown");
+            } catch (CancellationException e) {
+                //expected
+            } catch (ExecutionException e) {
+                checkState(e.getCause() instanceof CancellationException, "unexpected cause: %s", e.getCause());
+            }
+        }
+
+        //the operation which was already running is allowed to finish
+        release.countDown();
+        checkState("done".equals(running.get(10L, TimeUnit.SECONDS)));
+
+        try {
+            scheduler.submit(0, 0, () -> 0, value -> value, DIRECT);
+            throw new IllegalStateException("submit wasn't rejected after shutdown");
+        } catch (RejectedExecutionException e) {
+            //expected
+        }
+        try {
+            scheduler.execute(() -> {});
+            throw new IllegalStateException("execute wasn't rejected after shutdown");
+        } catch (RejectedExecutionException e) {
+            //expected
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package minecraft;
+
+import net.daporkchop.mcworldlib.util.Identifier;
+import org.junit.Test;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * @author DaPorkchop_
+ */
+public class IdentifierTest {
+    @Test
+    public void testInterning() {
+        Identifier id = Identifier.fromString("minecraft:identifier_test");
+        checkState(id == Identifier.fromString("minecraft:identifier_test"));
+        checkState(id == Identifier.fromString("identifier_test"));
+        checkState(id == Identifier.fromString("Minecraft:Identifier_Test"));
+        checkState("minecraft".equals(id.modid()));
+        checkState("identifier_test".equals(id.name()));
+        checkState("minecraft:identifier_test".equals(id.toString()));
+
+        Identifier modded = Identifier.fromString("mod:identifier_test");
+        checkState(modded != id);
+        checkState(modded == Identifier.fromString("MOD:identifier_test"));
+        checkState("mod".equals(modded.modid()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalid() {
+        Identifier.fromString("minecraft:invalid identifier");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLenientThenStrict() {
+        checkState(Identifier.fromStringLenient("minecraft:lenient identifier") != null);
+        Identifier.fromString("minecraft:lenient identifier"); //must still be validated even though it's cached
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package minecraft;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.format.anvil.storage.AnvilCachedChunk;
+import net.daporkchop.mcworldlib.format.anvil.storage.OffHeapSectionCache;
+import net.daporkchop.mcworldlib.format.common.nibble.HeapNibbleArray;
+import net.daporkchop.mcworldlib.format.common.section.flattened.SingleLayerFlattenedSection;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.HeapPaddedFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.format.vanilla.VanillaChunk;
+import net.daporkchop.mcworldlib.util.Identifier;
+import net.daporkchop.mcworldlib.version.java.JavaVersion;
+import net.daporkchop.mcworldlib.world.section.FlattenedSection;
+import net.daporkchop.mcworldlib.world.section.Section;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * @author DaPorkchop_
+ */
+public class OffHeapSectionCacheTest {
+    private static final BlockState STONE = BlockState.of(Identifier.fromString("minecraft:stone"), Collections.emptyMap());
+
+    private static AnvilCachedChunk.ReadOnly chunk(int x, int z) {
+        HeapPaddedFlattenedBlockStorage storage = new HeapPaddedFlattenedBlockStorage();
+        storage.setBlockState(1, 2, 3, STONE);
+        Section[] sections = new Section[16];
+        sections[4] = new SingleLayerFlattenedSection(JavaVersion.latest(), x, 4, z, storage, new HeapNibbleArray.YZX(), null);
+        return new AnvilCachedChunk.ReadOnly(new VanillaChunk(JavaVersion.latest(), x, z), sections);
+    }
+
+    private static void put(OffHeapSectionCache cache, int x, int z) {
+        AnvilCachedChunk.ReadOnly cached = chunk(x, z);
+        try {
+            cache.put(x, z, cached);
+        } finally {
+            cached.release();
+        }
+    }
+
+    @Test
+    public void testTakeAndPutAgain() {
+        //every chunk has the same contents, so they all take up the same amount of space
+        OffHeapSectionCache measure = new OffHeapSectionCache(PooledByteBufAllocator.DEFAULT, Long.MAX_VALUE);
+        put(measure, 0, 0);
+        long size = measure.used();
+        checkState(size > 0L);
+        measure.clear();
+        checkState(measure.used() == 0L);
+
+        OffHeapSectionCache cache = new OffHeapSectionCache(PooledByteBufAllocator.DEFAULT, size * 2L);
+        try {
+            put(cache, 0, 0);
+            put(cache, 1, 0);
+            checkState(cache.used() == size * 2L);
+
+            AnvilCachedChunk.ReadOnly taken = cache.take(0, 0);
+            checkState(taken != null);
+            try {
+                checkState(cache.used() == size);
+                checkState(!cache.contains(0, 0));
+                checkState(cache.take(0, 0) == null);
+
+                Section section = taken.section(4);
+                try {
+                    checkState(((FlattenedSection) section).getBlockState(1, 2, 3) == STONE);
+                } finally {
+                    section.release();
+                }
+
+                //re-adding the taken chunk, and then overwriting it, must move it to the back of the eviction order without leaving anything behind
+                cache.put(0, 0, taken);
+                checkState(cache.used() == size * 2L);
+                cache.put(0, 0, taken);
+                checkState(cache.used() == size * 2L);
+            } finally {
+                taken.release();
+            }
+
+            //(1,0) has been in the cache the longest
+            put(cache, 2, 0);
+            checkState(cache.used() == size * 2L);
+            checkState(cache.contains(0, 0) && !cache.contains(1, 0) && cache.contains(2, 0));
+
+            put(cache, 3, 0);
+            checkState(cache.used() == size * 2L);
+            checkState(!cache.contains(0, 0) && cache.contains(2, 0) && cache.contains(3, 0));
+
+            cache.remove(2, 0);
+            checkState(cache.used() == size);
+            put(cache, 4, 0);
+            checkState(cache.contains(3, 0) && cache.contains(4, 0));
+        } finally {
+            cache.clear();
+        }
+        checkState(cache.used() == 0L);
+    }
+}
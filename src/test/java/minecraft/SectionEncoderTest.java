@@ -0,0 +1,192 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package minecraft;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.daporkchop.lib.binary.stream.DataIn;
+import net.daporkchop.lib.nbt.NBTFormat;
+import net.daporkchop.lib.nbt.NBTOptions;
+import net.daporkchop.lib.nbt.tag.CompoundTag;
+import net.daporkchop.lib.nbt.tag.Tag;
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.format.common.nibble.HeapNibbleArray;
+import net.daporkchop.mcworldlib.format.common.section.flattened.SingleLayerFlattenedSection;
+import net.daporkchop.mcworldlib.format.common.section.legacy.DefaultLegacySection;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.AbstractHeapFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.HeapPackedFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.HeapPaddedFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.legacy.HeapLegacyBlockStorage;
+import net.daporkchop.mcworldlib.format.java.decoder.section.PackedFlattenedSectionDecoder;
+import net.daporkchop.mcworldlib.format.java.decoder.section.PaddedFlattenedSectionDecoder;
+import net.daporkchop.mcworldlib.format.java.encoder.JavaSectionEncoder;
+import net.daporkchop.mcworldlib.format.java.encoder.section.PackedFlattenedSectionEncoder;
+import net.daporkchop.mcworldlib.format.java.encoder.section.PaddedFlattenedSectionEncoder;
+import net.daporkchop.mcworldlib.format.vanilla.VanillaHeightmaps;
+import net.daporkchop.mcworldlib.save.SaveOptions;
+import net.daporkchop.mcworldlib.util.Identifier;
+import net.daporkchop.mcworldlib.util.nbt.AllocatingNBTObjectParser;
+import net.daporkchop.mcworldlib.util.palette.state.IdentityStatePalette;
+import net.daporkchop.mcworldlib.version.java.JavaVersion;
+import net.daporkchop.mcworldlib.world.HeightmapType;
+import net.daporkchop.mcworldlib.world.section.Section;
+import net.daporkchop.mcworldlib.world.storage.FlattenedBlockStorage;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiFunction;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+import static net.daporkchop.lib.nbt.tag.Tag.*;
+import static net.daporkchop.mcworldlib.world.storage.BlockStorage.*;
+
+/**
+ * @author DaPorkchop_
+ */
+public class SectionEncoderTest {
+    private static final NBTOptions OPTIONS = NBTOptions.DEFAULT.withObjectParser(new AllocatingNBTObjectParser(Tag.DEFAULT_NBT_PARSER, SaveOptions.DEFAULT));
+
+    @Test
+    public void testPacked() throws IOException {
+        for (int states : new int[]{ 1, 16, 17, 33, 100, 257, 1000 }) {
+            this.test(new HeapPackedFlattenedBlockStorage(), states, new PackedFlattenedSectionEncoder(), new PackedFlattenedSectionDecoder() {
+                @Override
+                protected FlattenedBlockStorage parseBlockStorage(CompoundTag tag, SaveOptions options) {
+                    return super.parseBlockStorage(tag, options);
+                }
+            }::parseBlockStorage);
+        }
+    }
+
+    @Test
+    public void testPadded() throws IOException {
+        for (int states : new int[]{ 1, 16, 17, 33, 100, 257, 1000 }) {
+            this.test(new HeapPaddedFlattenedBlockStorage(), states, new PaddedFlattenedSectionEncoder(), new PaddedFlattenedSectionDecoder() {
+                @Override
+                protected FlattenedBlockStorage parseBlockStorage(CompoundTag tag, SaveOptions options) {
+                    return super.parseBlockStorage(tag, options);
+                }
+            }::parseBlockStorage);
+        }
+    }
+
+    private void test(AbstractHeapFlattenedBlockStorage storage, int states, JavaSectionEncoder encoder, BiFunction<CompoundTag, SaveOptions, FlattenedBlockStorage> decoder) throws IOException {
+        //one extra state is added to the palette, and then overwritten everywhere so that it should be removed when the palette is compacted
+        BlockState unused = BlockState.of(Identifier.fromString("test:unused"), Collections.emptyMap());
+        BlockState[] palette = new BlockState[states];
+        for (int i = 0; i < states; i++) {
+            palette[i] = BlockState.of(Identifier.fromString("test:block_" + i), Collections.singletonMap("index", String.valueOf(i)));
+        }
+
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        storage.setBlockState(0, 0, 0, unused);
+        for (int i = 0; i < NUM_BLOCKS; i++) {
+            storage.setBlockState(i & 0xF, i >> 8, (i >> 4) & 0xF, palette[i < states ? i : r.nextInt(states)]);
+        }
+        checkState((storage.palette() instanceof IdentityStatePalette) == (states >= 256), "wrong palette type for %d states", states);
+        BlockState[] expected = new BlockState[NUM_BLOCKS];
+        storage.getBlockStates(expected);
+        for (int i = 0; i < states; i++) {
+            checkState(expected[i] == palette[i], "block %d", i);
+        }
+
+        Section section = new SingleLayerFlattenedSection(JavaVersion.latest(), 0, 3, 0, storage, new HeapNibbleArray.YZX(), null);
+        ByteBuf buf = Unpooled.buffer();
+        try {
+            buf.writeByte(TAG_COMPOUND).writeShort(0); //the encoder only writes the compound's payload
+            encoder.encode(section, JavaVersion.latest(), buf);
+
+            CompoundTag tag = NBTFormat.BIG_ENDIAN.readCompound(DataIn.wrap(buf, false), OPTIONS);
+            checkState(!buf.isReadable(), "buffer wasn't fully consumed");
+            checkState(tag.getByte("Y") == 3);
+            checkState(tag.getList("Palette", CompoundTag.class).size() == states, "palette wasn't compacted");
+
+            FlattenedBlockStorage decoded = decoder.apply(tag, SaveOptions.DEFAULT);
+            try {
+                BlockState[] actual = new BlockState[NUM_BLOCKS];
+                decoded.getBlockStates(actual);
+                checkState(Arrays.equals(expected, actual), "block states differ for %d states", states);
+            } finally {
+                decoded.release();
+            }
+        } finally {
+            buf.release();
+            section.release();
+        }
+    }
+
+    @Test
+    public void testHeightmaps() {
+        int[] heightmap = new int[256];
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        for (int i = 0; i < 256; i++) {
+            heightmap[i] = r.nextInt(257);
+        }
+
+        for (boolean padded : new boolean[]{ false, true }) {
+            long[] encoded = VanillaHeightmaps.encodePacked(heightmap, padded);
+            checkState(Arrays.equals(heightmap, VanillaHeightmaps.decodePacked(encoded, encoded.length, padded)), "padded=%b", padded);
+        }
+    }
+
+    @Test
+    public void testComputeHeightmaps() {
+        Section[] sections = new Section[16];
+        HeapPaddedFlattenedBlockStorage storage0 = new HeapPaddedFlattenedBlockStorage();
+        storage0.setBlockState(0, 10, 0, BlockState.of(Identifier.fromString("minecraft:stone"), Collections.emptyMap()));
+        HeapPaddedFlattenedBlockStorage storage1 = new HeapPaddedFlattenedBlockStorage();
+        storage1.setBlockState(0, 4, 0, BlockState.of(Identifier.fromString("minecraft:water"), Collections.singletonMap("level", "0")));
+        Map<String, String> leaves = new HashMap<>();
+        leaves.put("distance", "7");
+        leaves.put("persistent", "true");
+        storage1.setBlockState(0, 5, 0, BlockState.of(Identifier.fromString("minecraft:oak_leaves"), leaves));
+        storage1.setBlockState(0, 6, 0, BlockState.of(Identifier.fromString("minecraft:torch"), Collections.emptyMap()));
+        HeapLegacyBlockStorage storage2 = new HeapLegacyBlockStorage();
+        storage2.setBlockState(1, 8, 0, 1, 0); //stone
+
+        sections[0] = new SingleLayerFlattenedSection(JavaVersion.latest(), 0, 0, 0, storage0, new HeapNibbleArray.YZX(), null);
+        sections[1] = new SingleLayerFlattenedSection(JavaVersion.latest(), 0, 1, 0, storage1, new HeapNibbleArray.YZX(), null);
+        sections[2] = new DefaultLegacySection(JavaVersion.fromName("1.12.2"), 0, 2, 0, storage2, new HeapNibbleArray.YZX(), null);
+        try {
+            checkHeightmap(VanillaHeightmaps.compute(HeightmapType.WORLD_SURFACE, sections), 23, 41);
+            checkHeightmap(VanillaHeightmaps.compute(HeightmapType.MOTION_BLOCKING, sections), 22, 41);
+            checkHeightmap(VanillaHeightmaps.compute(HeightmapType.MOTION_BLOCKING_NO_LEAVES, sections), 21, 41);
+            checkHeightmap(VanillaHeightmaps.compute(HeightmapType.OCEAN_FLOOR, sections), 22, 41);
+        } finally {
+            for (int y = 0; y < 3; y++) {
+                sections[y].release();
+            }
+        }
+    }
+
+    private static void checkHeightmap(int[] heightmap, int column0, int column1) {
+        checkState(heightmap[0] == column0, "column 0: expected %d, found %d", column0, heightmap[0]);
+        checkState(heightmap[1] == column1, "column 1: expected %d, found %d", column1, heightmap[1]);
+        for (int i = 2; i < 256; i++) {
+            checkState(heightmap[i] == 0, "column %d: expected 0, found %d", i, heightmap[i]);
+        }
+    }
+}
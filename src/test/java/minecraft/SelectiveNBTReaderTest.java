@@ -0,0 +1,84 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package minecraft;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.daporkchop.mcworldlib.util.nbt.SelectiveNBTReader;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+import static net.daporkchop.lib.nbt.tag.Tag.*;
+
+/**
+ * @author DaPorkchop_
+ */
+public class SelectiveNBTReaderTest {
+    private static void writeHeader(ByteBuf buf, int id, String name) {
+        buf.writeByte(id);
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        buf.writeShort(bytes.length).writeBytes(bytes);
+    }
+
+    @Test
+    public void test() {
+        ByteBuf buf = Unpooled.buffer();
+        writeHeader(buf, TAG_COMPOUND, "");
+        writeHeader(buf, TAG_INT, "DataVersion");
+        buf.writeInt(2230);
+        writeHeader(buf, TAG_COMPOUND, "Level");
+        writeHeader(buf, TAG_ARRAY_LONG, "Blocks"); //should be skipped
+        buf.writeInt(256).writeZero(256 * Long.BYTES);
+        writeHeader(buf, TAG_LIST, "Sections"); //should be skipped
+        buf.writeByte(TAG_COMPOUND).writeInt(1);
+        writeHeader(buf, TAG_LONG, "InhabitedTime"); //same name as a selected tag, but in a different compound
+        buf.writeLong(-1L);
+        buf.writeByte(TAG_END);
+        writeHeader(buf, TAG_LONG, "InhabitedTime");
+        buf.writeLong(1234L);
+        writeHeader(buf, TAG_STRING, "Status");
+        buf.writeShort(4).writeBytes("full".getBytes(StandardCharsets.UTF_8));
+        buf.writeByte(TAG_END);
+        buf.writeByte(TAG_END);
+
+        long[] longs = new long[3];
+        String[] strings = new String[3];
+        new SelectiveNBTReader("DataVersion", "Level.InhabitedTime", "Level.Status").read(buf, (path, id, b) -> {
+            if (id == TAG_STRING) {
+                strings[path] = SelectiveNBTReader.readString(b);
+            } else {
+                longs[path] = id == TAG_INT ? b.readInt() : b.readLong();
+            }
+        });
+
+        checkState(longs[0] == 2230L);
+        checkState(longs[1] == 1234L);
+        checkState("full".equals(strings[2]));
+        checkState(!buf.isReadable(), "buffer wasn't fully consumed");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNestedPaths() {
+        new SelectiveNBTReader("Level", "Level.Status");
+    }
+}
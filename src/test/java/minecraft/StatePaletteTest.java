@@ -0,0 +1,101 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package minecraft;
+
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.AbstractHeapFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.HeapPackedFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.HeapPaddedFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.util.Identifier;
+import net.daporkchop.mcworldlib.util.palette.state.ArrayStatePalette;
+import net.daporkchop.mcworldlib.util.palette.state.HashStatePalette;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+import static net.daporkchop.mcworldlib.world.storage.BlockStorage.*;
+
+/**
+ * @author DaPorkchop_
+ */
+public class StatePaletteTest {
+    private static BlockState[] states(int count) {
+        BlockState[] states = new BlockState[count];
+        for (int i = 0; i < count; i++) {
+            states[i] = BlockState.of(Identifier.fromString("test:palette_" + i), Collections.emptyMap());
+        }
+        return states;
+    }
+
+    @Test
+    public void testHashPalette() {
+        BlockState[] states = states(256);
+        ArrayStatePalette linear = new ArrayStatePalette(256);
+        HashStatePalette hash = new HashStatePalette(256);
+
+        //add every state once so that the palette is guaranteed to be full, then look them up again in a random order
+        for (BlockState state : states) {
+            checkState(hash.stateToId(state) == linear.stateToId(state), "ID mismatch for %s", state);
+        }
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        for (int i = 0; i < 10000; i++) {
+            BlockState state = states[r.nextInt(states.length)];
+            int id = hash.stateToId(state);
+            checkState(id == linear.stateToId(state), "ID mismatch for %s", state);
+            checkState(hash.idToState(id) == state);
+        }
+        checkState(hash.size() == 256, "expected 256 entries, found %d", hash.size());
+        checkState(linear.size() == 256, "expected 256 entries, found %d", linear.size());
+
+        BlockState extra = BlockState.of(Identifier.fromString("test:palette_extra"), Collections.emptyMap());
+        checkState(hash.stateToId(extra) < 0, "full palette accepted a new state");
+    }
+
+    @Test
+    public void testBulkSet() {
+        for (int count : new int[]{ 1, 16, 17, 200, 256, 257, 1000 }) {
+            BlockState[] states = states(count);
+            BlockState[] src = new BlockState[NUM_BLOCKS];
+            ThreadLocalRandom r = ThreadLocalRandom.current();
+            for (int i = 0; i < NUM_BLOCKS; i++) {
+                src[i] = states[i < count ? i : r.nextInt(count)];
+            }
+
+            for (AbstractHeapFlattenedBlockStorage storage : new AbstractHeapFlattenedBlockStorage[]{
+                    new HeapPackedFlattenedBlockStorage(), new HeapPaddedFlattenedBlockStorage() }) {
+                try {
+                    storage.setBlockState(0, 0, 0, BlockState.AIR);
+                    storage.setBlockStates(src);
+
+                    BlockState[] dst = new BlockState[NUM_BLOCKS];
+                    storage.getBlockStates(dst);
+                    checkState(Arrays.equals(src, dst), "%d states", count);
+                    checkState(storage.palette().size() == count || count > 256, "palette wasn't rebuilt for %d states", count);
+                } finally {
+                    storage.release();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package minecraft;
+
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.AbstractHeapFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.HeapPackedFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.flattened.HeapPaddedFlattenedBlockStorage;
+import net.daporkchop.mcworldlib.format.common.storage.legacy.UniformLegacyBlockStorage;
+import net.daporkchop.mcworldlib.util.Identifier;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+import static net.daporkchop.mcworldlib.world.storage.BlockStorage.*;
+
+/**
+ * @author DaPorkchop_
+ */
+public class UniformStorageTest {
+    @Test
+    public void testFlattened() {
+        BlockState stone = BlockState.of(Identifier.fromString("minecraft:stone"), Collections.emptyMap());
+        for (AbstractHeapFlattenedBlockStorage storage : new AbstractHeapFlattenedBlockStorage[]{
+                new HeapPackedFlattenedBlockStorage(stone), new HeapPaddedFlattenedBlockStorage(stone) }) {
+            try {
+                checkState(storage.isUniform() && storage.internal().data() == null);
+                checkState(storage.getBlockState(3, 7, 9) == stone);
+
+                int[] counts = new int[1];
+                storage.histogram(counts);
+                checkState(counts[0] == NUM_BLOCKS);
+
+                storage.setBlockState(1, 2, 3, stone); //writing the same state shouldn't expand the storage
+                checkState(storage.isUniform());
+
+                storage.setBlockState(1, 2, 3, BlockState.AIR);
+                checkState(!storage.isUniform());
+                checkState(storage.getBlockState(1, 2, 3) == BlockState.AIR);
+                checkState(storage.getBlockState(3, 2, 1) == stone);
+                checkState(!storage.collapseIfUniform());
+
+                storage.setBlockState(1, 2, 3, stone);
+                checkState(storage.collapseIfUniform());
+                checkState(storage.getBlockState(1, 2, 3) == stone);
+            } finally {
+                storage.release();
+            }
+        }
+    }
+
+    @Test
+    public void testFlattenedSameState() {
+        BlockState stone = BlockState.of(Identifier.fromString("minecraft:stone"), Collections.emptyMap());
+        BlockState[] states = new BlockState[NUM_BLOCKS];
+        Arrays.fill(states, stone);
+
+        //none of these writes may touch the (missing) data array, or expand the storage
+        for (AbstractHeapFlattenedBlockStorage storage : new AbstractHeapFlattenedBlockStorage[]{
+                new HeapPackedFlattenedBlockStorage(stone), new HeapPaddedFlattenedBlockStorage(stone) }) {
+            try {
+                storage.setBlockState(0, 0, 0, stone);
+                storage.fill(1, 2, 3, 4, 5, 6, stone);
+                storage.replace(stone, stone);
+                storage.setBlockStates(states, 0);
+                checkState(storage.isUniform());
+
+                for (AbstractHeapFlattenedBlockStorage src : new AbstractHeapFlattenedBlockStorage[]{
+                        new HeapPackedFlattenedBlockStorage(stone), new HeapPaddedFlattenedBlockStorage(stone) }) {
+                    try {
+                        storage.copyFrom(src, 0, 0, 0, 8, 8, 8, 4, 4, 4);
+                        checkState(storage.isUniform());
+                    } finally {
+                        src.release();
+                    }
+                }
+                checkState(storage.getBlockState(15, 15, 15) == stone);
+            } finally {
+                storage.release();
+            }
+        }
+    }
+
+    @Test
+    public void testLegacy() {
+        UniformLegacyBlockStorage storage = new UniformLegacyBlockStorage(1, 2, false);
+        try {
+            checkState(storage.getCombinedIdMeta(5, 5, 5) == ((1 << 4) | 2));
+            storage.setBlockState(5, 5, 5, 1, 2);
+            checkState(storage.isUniform());
+
+            storage.setBlockMeta(5, 5, 5, 3);
+            checkState(!storage.isUniform());
+            checkState(storage.getBlockMeta(5, 5, 5) == 3);
+            checkState(storage.getBlockLegacyId(5, 5, 5) == 1);
+            checkState(storage.getCombinedIdMeta(0, 0, 0) == ((1 << 4) | 2));
+        } finally {
+            storage.release();
+        }
+
+        storage = new UniformLegacyBlockStorage(0x123, 4, true);
+        try {
+            storage.setBlockLegacyId(0, 15, 0, 0x456);
+            checkState(storage.getBlockLegacyId(0, 15, 0) == 0x456);
+            checkState(storage.getBlockLegacyId(15, 0, 15) == 0x123);
+            checkState(storage.getBlockMeta(15, 0, 15) == 4);
+        } finally {
+            storage.release();
+        }
+    }
+}
@@ -20,11 +20,16 @@
 
 package minecraft.java;
 
+import net.daporkchop.mcworldlib.block.BlockRegistry;
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.block.java.JavaBlockRegistry;
 import net.daporkchop.mcworldlib.registry.Registries;
 import net.daporkchop.mcworldlib.registry.java.JavaRegistries;
 import net.daporkchop.mcworldlib.version.java.JavaVersion;
 import org.junit.Test;
 
+import static net.daporkchop.lib.common.util.PValidation.*;
+
 /**
  * @author DaPorkchop_
  */
@@ -37,7 +42,25 @@ public class JavaRegistryLoadTest {
 
     @Test
     public void testBlockRegistry1_15_2() {
-        /*BlockRegistry registry = JavaBlockRegistry.forVersion(JavaVersion.fromName("1.15.2"));
-        System.out.printf("blocks: %d, states: %d\n", registry.blocks(), registry.states());*/
+        BlockRegistry registry = JavaBlockRegistry.forVersion(JavaVersion.fromName("1.15.2"));
+
+        for (int id = 0; id < registry.states(); id++) {
+            checkState(registry.stateToId(registry.idToState(id)) == id, "runtime ID %d", id);
+        }
+        checkState(registry.stateToId(BlockState.AIR) == 0);
+    }
+
+    @Test
+    public void testBlockRegistry1_12_2() {
+        JavaBlockRegistry registry = JavaBlockRegistry.forVersion(JavaVersion.fromName("1.8.9"));
+        checkState(registry.version() == JavaVersion.fromName("1.12.2"));
+
+        //the 1.12.2 registry contains "virtual" states, which must be parsed rather than rejected
+        boolean anyVirtual = false;
+        for (int id = 0; id < registry.states(); id++) {
+            checkState(registry.stateToId(registry.idToState(id)) == id, "runtime ID %d", id);
+            anyVirtual |= registry.isVirtual(id);
+        }
+        checkState(anyVirtual, "no virtual states were loaded");
     }
 }
@@ -0,0 +1,117 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package minecraft.java;
+
+import net.daporkchop.lib.nbt.tag.CompoundTag;
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.block.java.JavaBlockRegistry;
+import net.daporkchop.mcworldlib.format.common.nibble.HeapNibbleArray;
+import net.daporkchop.mcworldlib.format.common.section.legacy.DefaultLegacySection;
+import net.daporkchop.mcworldlib.format.common.storage.legacy.HeapLegacyBlockStorage;
+import net.daporkchop.mcworldlib.format.java.convert.LegacySectionConverter;
+import net.daporkchop.mcworldlib.util.Identifier;
+import net.daporkchop.mcworldlib.version.java.DataVersion;
+import net.daporkchop.mcworldlib.version.java.JavaVersion;
+import net.daporkchop.mcworldlib.world.section.FlattenedSection;
+import net.daporkchop.mcworldlib.world.section.LegacySection;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * @author DaPorkchop_
+ */
+public class LegacySectionConverterTest {
+    private static void checkStateIs(BlockState state, String id, String... properties) {
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < properties.length; i += 2) {
+            map.put(properties[i], properties[i + 1]);
+        }
+        BlockState expected = BlockState.of(Identifier.fromString(id), map);
+        checkState(state == expected, "expected %s, found %s", expected, state);
+    }
+
+    @Test
+    public void testKnownStatesAreFlattened() {
+        JavaBlockRegistry legacy = JavaBlockRegistry.forVersion(JavaVersion.fromName("1.12.2"));
+        JavaBlockRegistry flattened = JavaBlockRegistry.forVersion(LegacySectionConverter.flattenedVersion());
+        for (int id = 0; id < legacy.states(); id++) {
+            BlockState state = LegacySectionConverter.legacyState(legacy.tableId(id));
+            checkState(state != null, "no state for %s", legacy.idToState(id));
+            checkState(flattened.stateToId(state) >= 0, "%s (from %s) isn't a 1.13 state", state, legacy.idToState(id));
+        }
+    }
+
+    @Test
+    public void testRenames() {
+        checkStateIs(LegacySectionConverter.convertState((1 << 4) | 1), "minecraft:granite");
+        checkStateIs(LegacySectionConverter.convertState((35 << 4) | 14), "minecraft:red_wool");
+        checkStateIs(LegacySectionConverter.convertState((17 << 4) | 4), "minecraft:oak_log", "axis", "x");
+        checkStateIs(LegacySectionConverter.convertState((17 << 4) | 13), "minecraft:spruce_wood", "axis", "y");
+        checkStateIs(LegacySectionConverter.convertState((62 << 4) | 2), "minecraft:furnace", "facing", "north", "lit", "true");
+        checkStateIs(LegacySectionConverter.convertState((44 << 4) | 8), "minecraft:stone_slab", "type", "top", "waterlogged", "false");
+
+        //unknown metadata falls back to metadata 0, unknown IDs are preserved
+        checkStateIs(LegacySectionConverter.convertState((1 << 4) | 15), "minecraft:stone");
+        checkState(LegacySectionConverter.legacyState(4000 << 4) == null);
+        checkStateIs(LegacySectionConverter.convertState(4000 << 4), "mcworldlib:legacy_4000", "meta", "0");
+    }
+
+    @Test
+    public void testConvertSection() {
+        HeapLegacyBlockStorage blocks = new HeapLegacyBlockStorage();
+        blocks.setBlockState(0, 0, 0, 1, 1); //granite
+        blocks.setBlockState(1, 0, 0, 175, 1); //lilac, lower half
+        blocks.setBlockState(1, 1, 0, 175, 8); //upper half
+        blocks.setBlockState(2, 0, 0, 140, 0); //flower pot
+
+        LegacySection section = new DefaultLegacySection(JavaVersion.fromName("1.12.2"), 0, 0, 0, blocks, new HeapNibbleArray.YZX(), new HeapNibbleArray.YZX());
+        try {
+            CompoundTag pot = new CompoundTag();
+            pot.putString("id", "minecraft:flower_pot");
+            pot.putInt("x", 2);
+            pot.putInt("y", 0);
+            pot.putInt("z", 0);
+            pot.putString("Item", "minecraft:red_flower");
+            pot.putInt("Data", 3);
+            section.setTileEntity(2, 0, 0, pot);
+
+            FlattenedSection converted = LegacySectionConverter.convert(section);
+            try {
+                //the converted section must be writable by the flattened encoders
+                checkState(((JavaVersion) converted.version()).data() >= DataVersion.DATA_1_13, converted.version());
+
+                checkStateIs(converted.getBlockState(0, 0, 0), "minecraft:granite");
+                checkStateIs(converted.getBlockState(1, 0, 0), "minecraft:lilac", "half", "lower");
+                checkStateIs(converted.getBlockState(1, 1, 0), "minecraft:lilac", "half", "upper");
+                checkStateIs(converted.getBlockState(2, 0, 0), "minecraft:potted_azure_bluet");
+                checkStateIs(converted.getBlockState(3, 3, 3), "minecraft:air");
+            } finally {
+                converted.release();
+            }
+        } finally {
+            section.release();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package minecraft.java;
+
+import net.daporkchop.lib.concurrent.PFuture;
+import net.daporkchop.mcworldlib.format.anvil.AnvilSaveFormat;
+import net.daporkchop.mcworldlib.format.anvil.AnvilSaveOptions;
+import net.daporkchop.mcworldlib.save.Save;
+import net.daporkchop.mcworldlib.save.SaveOptions;
+import net.daporkchop.mcworldlib.util.Identifier;
+import net.daporkchop.mcworldlib.util.WriteAccess;
+import net.daporkchop.mcworldlib.util.concurrent.IOScheduler;
+import net.daporkchop.mcworldlib.world.Chunk;
+import net.daporkchop.mcworldlib.world.World;
+import net.daporkchop.mcworldlib.world.WorldStorage;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * @author DaPorkchop_
+ */
+public class PreloadTest {
+    @BeforeClass
+    public static void extractSaves() throws IOException {
+        LevelDatParserTest.extractSaves();
+    }
+
+    @AfterClass
+    public static void deleteSaves() throws IOException {
+        LevelDatParserTest.deleteSaves();
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        try (Save save = new AnvilSaveFormat().open(new File(LevelDatParserTest.ROOT, "1_13_2"), SaveOptions.DEFAULT.clone()
+                .set(SaveOptions.ACCESS, WriteAccess.READ_ONLY)
+                .set(AnvilSaveOptions.CHUNK_CACHE_SIZE, 64)
+                .build());
+             World world = save.world(Identifier.fromString("minecraft:overworld"))) {
+            WorldStorage storage = world.storage();
+
+            Chunk cached = storage.loadChunk(0, 0);
+            checkState(cached != null);
+            try {
+                CountDownLatch started = new CountDownLatch(1);
+                CountDownLatch cancelled = new CountDownLatch(1);
+                CountDownLatch done = new CountDownLatch(1);
+
+                //progress updates block until the preload has been cancelled, so most of the area is processed after cancellation
+                PFuture<Long> future = storage.preload(-8, -8, 7, 7, IOScheduler.PRIORITY_NORMAL, (processed, total) -> {
+                    started.countDown();
+                    try {
+                        cancelled.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    if (processed == total) {
+                        done.countDown();
+                    }
+                });
+
+                checkState(started.await(10L, TimeUnit.SECONDS), "preload didn't start");
+                checkState(future.cancel(false), "preload couldn't be cancelled");
+                cancelled.countDown();
+                checkState(done.await(10L, TimeUnit.SECONDS), "preload didn't finish after being cancelled");
+
+                checkState(future.isCancelled());
+                try {
+                    future.get();
+                    throw new IllegalStateException("cancelled preload completed normally");
+                } catch (CancellationException e) {
+                    //expected
+                }
+
+                //the chunk which was cached before the preload must not have been evicted or replaced
+                Chunk reloaded = storage.loadChunk(0, 0);
+                try {
+                    checkState(reloaded == cached, "chunk (0,0) was evicted by a cancelled preload");
+                } finally {
+                    reloaded.release();
+                }
+            } finally {
+                cached.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package minecraft.java;
+
+import net.daporkchop.mcworldlib.block.BlockState;
+import net.daporkchop.mcworldlib.format.anvil.AnvilSaveFormat;
+import net.daporkchop.mcworldlib.save.Save;
+import net.daporkchop.mcworldlib.save.SaveOptions;
+import net.daporkchop.mcworldlib.util.Identifier;
+import net.daporkchop.mcworldlib.util.WriteAccess;
+import net.daporkchop.mcworldlib.world.World;
+import net.daporkchop.mcworldlib.world.WorldBlockAccess;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * @author DaPorkchop_
+ */
+public class WorldBlockAccessTest {
+    //boxes which cover multiple sections (including ones which don't exist), a single section and a few blocks respectively
+    private static final int[][] BOXES = {
+            { -8, 56, -8, 24, 24, 24 },
+            { 0, 64, 0, 16, 16, 16 },
+            { 3, 63, 5, 3, 3, 3 }
+    };
+
+    @BeforeClass
+    public static void extractSaves() throws IOException {
+        LevelDatParserTest.extractSaves();
+    }
+
+    @AfterClass
+    public static void deleteSaves() throws IOException {
+        LevelDatParserTest.deleteSaves();
+    }
+
+    @Test
+    public void testFlattened() throws IOException {
+        this.test("1_13_2", true);
+    }
+
+    @Test
+    public void testLegacy() throws IOException {
+        this.test("1_12_2", false);
+    }
+
+    private void test(String name, boolean flattened) throws IOException {
+        try (Save save = new AnvilSaveFormat().open(new File(LevelDatParserTest.ROOT, name), SaveOptions.DEFAULT.clone()
+                .set(SaveOptions.ACCESS, WriteAccess.READ_ONLY)
+                .build());
+             World world = save.world(Identifier.fromString("minecraft:overworld"))) {
+            for (int cacheSize : new int[]{ 1, 2, WorldBlockAccess.DEFAULT_CACHE_SIZE }) {
+                try (WorldBlockAccess access = new WorldBlockAccess(world, cacheSize)) {
+                    for (int[] box : BOXES) {
+                        this.checkBox(access, flattened, box[0], box[1], box[2], box[3], box[4], box[5]);
+                    }
+                }
+            }
+        }
+    }
+
+    private void checkBox(WorldBlockAccess access, boolean flattened, int x, int y, int z, int sizeX, int sizeY, int sizeZ) {
+        int volume = sizeX * sizeY * sizeZ;
+        BlockState[] states = new BlockState[volume];
+        int[] ids = new int[volume];
+        byte[] blockLight = new byte[volume];
+        byte[] skyLight = new byte[volume];
+
+        if (flattened) {
+            access.getBlockStates(x, y, z, sizeX, sizeY, sizeZ, states);
+        } else {
+            access.getCombinedIdMetas(x, y, z, sizeX, sizeY, sizeZ, ids);
+        }
+        access.getBlockLight(x, y, z, sizeX, sizeY, sizeZ, blockLight);
+        access.getSkyLight(x, y, z, sizeX, sizeY, sizeZ, skyLight);
+
+        for (int dx = 0, i = 0; dx < sizeX; dx++) {
+            for (int dy = 0; dy < sizeY; dy++) {
+                for (int dz = 0; dz < sizeZ; dz++, i++) {
+                    int bx = x + dx;
+                    int by = y + dy;
+                    int bz = z + dz;
+                    if (flattened) {
+                        checkState(states[i] == access.getBlockState(bx, by, bz), "state at (%d,%d,%d)", bx, by, bz);
+                    } else {
+                        checkState(ids[i] == ((access.getBlockLegacyId(bx, by, bz) << 4) | access.getBlockMeta(bx, by, bz)), "id at (%d,%d,%d)", bx, by, bz);
+                    }
+                    checkState(blockLight[i] == access.getBlockLight(bx, by, bz), "block light at (%d,%d,%d)", bx, by, bz);
+                    checkState(skyLight[i] == access.getSkyLight(bx, by, bz), "sky light at (%d,%d,%d)", bx, by, bz);
+                }
+            }
+        }
+    }
+}
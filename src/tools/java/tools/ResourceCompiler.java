@@ -0,0 +1,161 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2020 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.daporkchop.mcworldlib.util.CompactResources;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compiles the bundled JSON resources into the compact binary format described in {@link CompactResources}.
+ * <p>
+ * Run by the {@code compileBinaryResources} Gradle task, usage: {@code ResourceCompiler <resources root> <output root>}.
+ *
+ * @author DaPorkchop_
+ */
+public class ResourceCompiler {
+    public static void main(String... args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: ResourceCompiler <resources root> <output root>");
+            System.exit(1);
+        }
+
+        File inRoot = new File(args[0]);
+        File outRoot = new File(args[1]);
+        ObjectMapper mapper = new ObjectMapper();
+
+        compileAll(mapper, new File(inRoot, "registry/java"), new File(outRoot, "registry/java"), CompactResources.MAGIC_REGISTRIES);
+        compileAll(mapper, new File(inRoot, "block/java"), new File(outRoot, "block/java"), CompactResources.MAGIC_BLOCKS);
+    }
+
+    private static void compileAll(ObjectMapper mapper, File inDir, File outDir, int magic) throws IOException {
+        File[] files = inDir.listFiles((dir, name) -> name.endsWith(".json"));
+        if (files == null) {
+            throw new IOException("not a directory: " + inDir);
+        }
+        if (!outDir.isDirectory() && !outDir.mkdirs()) {
+            throw new IOException("unable to create directory: " + outDir);
+        }
+
+        for (File file : files) {
+            String name = file.getName();
+            File outFile = new File(outDir, name.substring(0, name.length() - ".json".length()) + ".bin");
+
+            JsonNode root = mapper.readTree(file);
+            Writer writer = new Writer();
+            if (magic == CompactResources.MAGIC_REGISTRIES) {
+                writer.writeRegistries(root);
+            } else {
+                writer.writeBlocks(root);
+            }
+
+            try (OutputStream out = new FileOutputStream(outFile)) {
+                writer.finish(out, magic);
+            }
+            System.out.printf("%s: %d -> %d bytes\n", name, file.length(), outFile.length());
+        }
+    }
+
+    /**
+     * Writes the body of a file while collecting the string table.
+     *
+     * @author DaPorkchop_
+     */
+    private static final class Writer {
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(this.body);
+
+        private void string(String s) throws IOException {
+            Integer id = this.strings.get(s);
+            if (id == null) {
+                this.strings.put(s, id = this.strings.size());
+            }
+            this.out.writeInt(id);
+        }
+
+        public void writeRegistries(JsonNode root) throws IOException {
+            this.out.writeInt(root.size());
+            for (Iterator<Map.Entry<String, JsonNode>> registries = root.fields(); registries.hasNext(); ) {
+                Map.Entry<String, JsonNode> registry = registries.next();
+                this.string(registry.getKey());
+
+                JsonNode entries = registry.getValue().get("entries");
+                this.out.writeInt(entries.size());
+                for (Iterator<Map.Entry<String, JsonNode>> itr = entries.fields(); itr.hasNext(); ) {
+                    Map.Entry<String, JsonNode> entry = itr.next();
+                    this.string(entry.getKey());
+                    this.out.writeInt(entry.getValue().get("protocol_id").asInt());
+                }
+            }
+        }
+
+        public void writeBlocks(JsonNode root) throws IOException {
+            this.out.writeInt(root.size());
+            for (Iterator<Map.Entry<String, JsonNode>> blocks = root.fields(); blocks.hasNext(); ) {
+                Map.Entry<String, JsonNode> block = blocks.next();
+                this.string(block.getKey());
+
+                JsonNode states = block.getValue().get("states");
+                this.out.writeInt(states.size());
+                for (JsonNode state : states) {
+                    this.out.writeInt(state.get("id").asInt());
+                    this.out.writeByte((state.path("default").asBoolean(false) ? CompactResources.FLAG_DEFAULT : 0)
+                                       | (state.path("virtual").asBoolean(false) ? CompactResources.FLAG_VIRTUAL : 0));
+
+                    JsonNode properties = state.get("properties");
+                    if (properties == null) {
+                        this.out.writeInt(0);
+                    } else {
+                        this.out.writeInt(properties.size());
+                        for (Iterator<Map.Entry<String, JsonNode>> itr = properties.fields(); itr.hasNext(); ) {
+                            Map.Entry<String, JsonNode> property = itr.next();
+                            this.string(property.getKey());
+                            this.string(property.getValue().asText());
+                        }
+                    }
+                }
+            }
+        }
+
+        public void finish(OutputStream dst, int magic) throws IOException {
+            DataOutputStream out = new DataOutputStream(dst);
+            out.writeInt(magic);
+            out.writeInt(CompactResources.VERSION);
+            out.writeInt(this.strings.size());
+            for (String s : this.strings.keySet()) {
+                out.writeUTF(s);
+            }
+            this.body.writeTo(out);
+            out.flush();
+        }
+    }
+}
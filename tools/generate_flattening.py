@@ -0,0 +1,247 @@
+"""
+Generates src/main/resources/net/daporkchop/mcworldlib/format/java/convert/flattening.json, the table used by LegacySectionConverter.
+
+The table maps every combined ID ((id << 4) | meta) known to Minecraft 1.12.2 to the global palette ID of the block state it became in Minecraft
+1.13 (data version 1519), following the renames done by The Flattening. Its only inputs are the bundled block tables for both versions:
+
+    src/main/resources/net/daporkchop/mcworldlib/block/java/1.12.2.json
+    src/main/resources/net/daporkchop/mcworldlib/block/java/1.13.json
+
+Properties which 1.12.2 doesn't store in the block data (such as fence connections) take the values of the 1.13 block's default state. States
+which depend on tile entities or neighbouring blocks are fixed up at runtime by LegacySectionConverter, not here.
+
+Usage (from the repository root):
+
+    python3 tools/generate_flattening.py src/main/resources/net/daporkchop/mcworldlib/format/java/convert/flattening.json
+"""
+
+import json, os, sys
+R=os.path.join(os.path.dirname(os.path.abspath(__file__)),'..','src','main','resources','net','daporkchop','mcworldlib','block','java')+os.sep
+old=json.load(open(R+'1.12.2.json'))
+new=json.load(open(R+'1.13.json'))
+
+COLORS={'silver':'light_gray'}
+def color(c): return COLORS.get(c,c)
+WOODS=['oak','spruce','birch','jungle','acacia','dark_oak']
+
+def rename(name,p):
+    """returns (newname, props) for a 1.12.2 state"""
+    n=name[10:]
+    P=dict(p)
+    g=lambda k: P.get(k)
+    if n=='stone':
+        return {'stone':'stone','granite':'granite','smooth_granite':'polished_granite','diorite':'diorite','smooth_diorite':'polished_diorite','andesite':'andesite','smooth_andesite':'polished_andesite'}[g('variant')],{}
+    if n=='grass': return 'grass_block',P
+    if n=='dirt':
+        return {'dirt':'dirt','coarse_dirt':'coarse_dirt','podzol':'podzol'}[g('variant')],{'snowy':g('snowy')}
+    if n=='planks': return g('variant')+'_planks',{}
+    if n=='sapling': return g('type')+'_sapling',{'stage':g('stage')}
+    if n in ('flowing_water','water'): return 'water',{'level':g('level')}
+    if n in ('flowing_lava','lava'): return 'lava',{'level':g('level')}
+    if n=='sand': return {'sand':'sand','red_sand':'red_sand'}[g('variant')],{}
+    if n in ('log','log2'):
+        if g('axis')=='none': return g('variant')+'_wood',{'axis':'y'}
+        return g('variant')+'_log',{'axis':g('axis')}
+    if n in ('leaves','leaves2'):
+        return g('variant')+'_leaves',{'persistent':'false' if g('decayable')=='true' else 'true','distance':'7'}
+    if n=='sponge': return ('wet_sponge' if g('wet')=='true' else 'sponge'),{}
+    if n=='dispenser' or n=='dropper': return n,{'facing':g('facing'),'triggered':g('triggered')}
+    if n=='sandstone' or n=='red_sandstone':
+        base=n
+        t=g('type')
+        if t.startswith('chiseled_'): return 'chiseled_'+base,{}
+        if t.startswith('smooth_'): return 'cut_'+base,{}
+        return base,{}
+    if n=='noteblock': return 'note_block',{}
+    if n=='bed': return 'red_bed',{'facing':g('facing'),'occupied':g('occupied'),'part':g('part')}
+    if n=='golden_rail': return 'powered_rail',P
+    if n=='web': return 'cobweb',{}
+    if n=='tallgrass': return {'dead_bush':'dead_bush','tall_grass':'grass','fern':'fern'}[g('type')],{}
+    if n=='deadbush': return 'dead_bush',{}
+    if n=='piston_head': return 'piston_head',{'facing':g('facing'),'short':g('short'),'type':g('type')}
+    if n=='piston_extension': return 'moving_piston',{'facing':g('facing'),'type':g('type')}
+    if n=='wool': return color(g('color'))+'_wool',{}
+    if n=='yellow_flower': return 'dandelion',{}
+    if n=='red_flower':
+        return {'poppy':'poppy','blue_orchid':'blue_orchid','allium':'allium','houstonia':'azure_bluet','red_tulip':'red_tulip','orange_tulip':'orange_tulip','white_tulip':'white_tulip','pink_tulip':'pink_tulip','oxeye_daisy':'oxeye_daisy'}[g('type')],{}
+    if n in ('double_stone_slab','stone_slab','double_stone_slab2','stone_slab2','double_wooden_slab','wooden_slab','purpur_double_slab','purpur_slab'):
+        v=g('variant')
+        if n.startswith('purpur'): base='purpur'
+        elif 'wooden' in n: base=v
+        else:
+            base={'stone':'stone','sand':'sandstone','sandstone':'sandstone','wood_old':'petrified_oak','cobblestone':'cobblestone','brick':'brick','stone_brick':'stone_brick','nether_brick':'nether_brick','quartz':'quartz','red_sandstone':'red_sandstone'}[v]
+        if n.startswith('double') or n=='purpur_double_slab':
+            if g('seamless')=='true':
+                s={'stone':'smooth_stone','sandstone':'smooth_sandstone','quartz':'smooth_quartz','red_sandstone':'smooth_red_sandstone'}.get(base)
+                if s: return s,{}
+            return base+'_slab',{'type':'double'}
+        return base+'_slab',{'type':g('half')}
+    if n=='brick_block': return 'bricks',{}
+    if n=='torch':
+        if g('facing')=='up': return 'torch',{}
+        return 'wall_torch',{'facing':g('facing')}
+    if n in ('redstone_torch','unlit_redstone_torch'):
+        lit='true' if n=='redstone_torch' else 'false'
+        if g('facing')=='up': return 'redstone_torch',{'lit':lit}
+        return 'redstone_wall_torch',{'facing':g('facing'),'lit':lit}
+    if n=='fire': return 'fire',{'age':g('age')}
+    if n=='mob_spawner': return 'spawner',{}
+    if n=='oak_stairs': return 'oak_stairs',P
+    if n=='chest' or n=='trapped_chest': return n,{'facing':g('facing'),'type':'single'}
+    if n=='redstone_wire': return n,P
+    if n=='farmland': return n,P
+    if n in ('furnace','lit_furnace'): return 'furnace',{'facing':g('facing'),'lit':'true' if n=='lit_furnace' else 'false'}
+    if n=='standing_sign': return 'sign',{'rotation':g('rotation')}
+    if n=='wall_sign': return 'wall_sign',{'facing':g('facing')}
+    if n=='wooden_door': return 'oak_door',P
+    if n in ('acacia_door','birch_door','dark_oak_door','jungle_door','spruce_door','iron_door'): return n,P
+    if n=='stone_stairs': return 'cobblestone_stairs',P
+    if n=='lever':
+        f=g('facing')
+        m={'down_x':('ceiling','west'),'down_z':('ceiling','north'),'up_x':('floor','west'),'up_z':('floor','north')}
+        if f in m: face,fac=m[f]
+        else: face,fac='wall',f
+        return 'lever',{'face':face,'facing':fac,'powered':g('powered')}
+    if n=='stone_pressure_plate': return n,P
+    if n=='wooden_pressure_plate': return 'oak_pressure_plate',P
+    if n in ('redstone_ore','lit_redstone_ore'): return 'redstone_ore',{'lit':'true' if n.startswith('lit') else 'false'}
+    if n in ('stone_button','wooden_button'):
+        f=g('facing')
+        if f=='up': face,fac='floor','north'
+        elif f=='down': face,fac='ceiling','north'
+        else: face,fac='wall',f
+        return ('stone_button' if n=='stone_button' else 'oak_button'),{'face':face,'facing':fac,'powered':g('powered')}
+    if n=='snow_layer': return 'snow',{'layers':g('layers')}
+    if n=='snow': return 'snow_block',{}
+    if n=='reeds': return 'sugar_cane',{'age':g('age')}
+    if n=='jukebox': return n,P
+    if n=='fence': return 'oak_fence',{}
+    if n=='pumpkin': return 'carved_pumpkin',{'facing':g('facing')}
+    if n=='lit_pumpkin': return 'jack_o_lantern',{'facing':g('facing')}
+    if n=='portal': return 'nether_portal',{'axis':g('axis')}
+    if n=='cake': return n,P
+    if n in ('unpowered_repeater','powered_repeater'):
+        return 'repeater',{'delay':g('delay'),'facing':g('facing'),'locked':g('locked'),'powered':'true' if n.startswith('powered') else 'false'}
+    if n=='stained_glass': return color(g('color'))+'_stained_glass',{}
+    if n=='stained_glass_pane': return color(g('color'))+'_stained_glass_pane',{}
+    if n=='trapdoor': return 'oak_trapdoor',{'facing':g('facing'),'half':g('half'),'open':g('open')}
+    if n=='iron_trapdoor': return n,{'facing':g('facing'),'half':g('half'),'open':g('open')}
+    if n=='monster_egg':
+        return {'stone':'infested_stone','cobblestone':'infested_cobblestone','stone_brick':'infested_stone_bricks','mossy_brick':'infested_mossy_stone_bricks','cracked_brick':'infested_cracked_stone_bricks','chiseled_brick':'infested_chiseled_stone_bricks'}[g('variant')],{}
+    if n=='stonebrick':
+        return {'stonebrick':'stone_bricks','mossy_stonebrick':'mossy_stone_bricks','cracked_stonebrick':'cracked_stone_bricks','chiseled_stonebrick':'chiseled_stone_bricks'}[g('variant')],{}
+    if n in ('brown_mushroom_block','red_mushroom_block'):
+        v=g('variant')
+        sides=['down','up','north','south','west','east']
+        def faces(*on): return {s:('true' if s in on else 'false') for s in sides}
+        tgt=n
+        m={'north_west':faces('up','north','west'),'north':faces('up','north'),'north_east':faces('up','north','east'),
+           'west':faces('up','west'),'center':faces('up'),'east':faces('up','east'),
+           'south_west':faces('up','south','west'),'south':faces('up','south'),'south_east':faces('up','south','east'),
+           'all_inside':faces(),'all_outside':faces(*sides)}
+        if v=='stem': return 'mushroom_stem',faces('north','south','west','east')
+        if v=='all_stem': return 'mushroom_stem',faces(*sides)
+        return tgt,m[v]
+    if n=='iron_bars' or n=='glass_pane': return n,{}
+    if n=='melon_block': return 'melon',{}
+    if n in ('pumpkin_stem','melon_stem'):
+        if g('facing')!='up': return 'attached_'+n,{'facing':g('facing')}
+        return n,{'age':g('age')}
+    if n=='vine': return n,P
+    if n=='fence_gate': return 'oak_fence_gate',P
+    if n in ('brick_stairs','stone_brick_stairs','nether_brick_stairs','sandstone_stairs','spruce_stairs','birch_stairs','jungle_stairs','quartz_stairs','acacia_stairs','dark_oak_stairs','red_sandstone_stairs','purpur_stairs'): return n,P
+    if n=='mycelium': return n,P
+    if n=='waterlily': return 'lily_pad',{}
+    if n=='nether_brick': return 'nether_bricks',{}
+    if n=='nether_brick_fence': return n,{}
+    if n=='nether_wart': return n,P
+    if n=='end_portal_frame': return n,P
+    if n in ('redstone_lamp','lit_redstone_lamp'): return 'redstone_lamp',{'lit':'true' if n.startswith('lit') else 'false'}
+    if n=='cocoa': return n,P
+    if n=='tripwire_hook': return n,P
+    if n=='tripwire': return n,{'attached':g('attached'),'disarmed':g('disarmed'),'powered':g('powered')}
+    if n=='cobblestone_wall': return ('mossy_cobblestone_wall' if g('variant')=='mossy_cobblestone' else 'cobblestone_wall'),{}
+    if n=='flower_pot': return 'flower_pot',{}
+    if n in ('carrots','potatoes','beetroots','wheat','cactus','frosted_ice','chorus_flower'): return n,P
+    if n=='skull':
+        f=g('facing')
+        if f in ('up','down'): return 'skeleton_skull',{'rotation':'0'}
+        return 'skeleton_wall_skull',{'facing':f}
+    if n=='anvil':
+        return {'0':'anvil','1':'chipped_anvil','2':'damaged_anvil'}[g('damage')],{'facing':g('facing')}
+    if n in ('light_weighted_pressure_plate','heavy_weighted_pressure_plate'): return n,P
+    if n in ('unpowered_comparator','powered_comparator'):
+        return 'comparator',{'facing':g('facing'),'mode':g('mode'),'powered':'true' if n.startswith('powered') else 'false'}
+    if n in ('daylight_detector','daylight_detector_inverted'):
+        return 'daylight_detector',{'power':g('power'),'inverted':'true' if n.endswith('inverted') else 'false'}
+    if n=='quartz_ore': return 'nether_quartz_ore',{}
+    if n=='hopper': return n,P
+    if n=='quartz_block':
+        v=g('variant')
+        if v=='default': return 'quartz_block',{}
+        if v=='chiseled': return 'chiseled_quartz_block',{}
+        return 'quartz_pillar',{'axis':{'lines_x':'x','lines_y':'y','lines_z':'z'}[v]}
+    if n in ('activator_rail','detector_rail','rail'): return n,P
+    if n=='stained_hardened_clay': return color(g('color'))+'_terracotta',{}
+    if n=='slime': return 'slime_block',{}
+    if n=='prismarine':
+        return {'prismarine':'prismarine','prismarine_bricks':'prismarine_bricks','dark_prismarine':'dark_prismarine'}[g('variant')],{}
+    if n=='hay_block' or n=='bone_block' or n=='purpur_pillar': return n,{'axis':g('axis')}
+    if n=='carpet': return color(g('color'))+'_carpet',{}
+    if n=='hardened_clay': return 'terracotta',{}
+    if n=='double_plant':
+        v={'sunflower':'sunflower','syringa':'lilac','double_grass':'tall_grass','double_fern':'large_fern','double_rose':'rose_bush','paeonia':'peony'}[g('variant')]
+        return v,{'half':g('half')}
+    if n=='standing_banner': return 'white_banner',{'rotation':g('rotation')}
+    if n=='wall_banner': return 'white_wall_banner',{'facing':g('facing')}
+    if n in ('spruce_fence_gate','birch_fence_gate','jungle_fence_gate','dark_oak_fence_gate','acacia_fence_gate'): return n,P
+    if n in ('spruce_fence','birch_fence','jungle_fence','dark_oak_fence','acacia_fence'): return n,{}
+    if n=='end_rod': return n,P
+    if n=='chorus_plant': return n,{}
+    if n=='magma': return 'magma_block',{}
+    if n=='end_bricks': return 'end_stone_bricks',{}
+    if n=='red_nether_brick': return 'red_nether_bricks',{}
+    if n=='silver_shulker_box': return 'light_gray_shulker_box',P
+    if n=='silver_glazed_terracotta': return 'light_gray_glazed_terracotta',P
+    if n=='concrete': return color(g('color'))+'_concrete',{}
+    if n=='concrete_powder': return color(g('color'))+'_concrete_powder',{}
+    if n in ('command_block','repeating_command_block','chain_command_block'): return n,P
+    if n=='structure_block': return n,P
+    if n in ('piston','sticky_piston'): return n,P
+    if n=='observer': return n,P
+    if n=='tnt': return 'tnt',{}
+    if n=='brewing_stand' or n=='cauldron' or n=='ender_chest' or n=='ladder': return n,P
+    return n,P
+
+def resolve(name,props):
+    b=new['minecraft:'+name]
+    default=[s for s in b['states'] if s.get('default')][0]['properties'] if b.get('properties') else {}
+    full={}
+    for k in b.get('properties',{}):
+        v=props.get(k)
+        if v is None: v=default[k]
+        assert v in b['properties'][k],(name,k,v)
+        full[k]=v
+    for s in b['states']:
+        if s.get('properties',{})==full: return s['id']
+    raise Exception((name,full))
+
+out={}
+pick={}
+stored=set()
+for name,b in old.items():
+    for s in b['states']:
+        c=s['id']
+        if not s.get('virtual'):
+            pick[c]=(name,s); stored.add(c)
+        elif c not in stored and (c not in pick or s.get('default')):
+            pick[c]=(name,s)
+for c,(name,s) in pick.items():
+    nn,np=rename(name,s.get('properties',{}))
+    np={k:v for k,v in np.items() if v is not None}
+    if 'minecraft:'+nn not in new: raise Exception((name,s,nn))
+    extra=set(np)-set(new['minecraft:'+nn].get('properties',{}))
+    if extra: print('drop',name,nn,extra,file=sys.stderr)
+    out[c]=resolve(nn,np)
+print(len(out),file=sys.stderr)
+json.dump({str(k):out[k] for k in sorted(out)},open(sys.argv[1],'w'),separators=(',',':'))